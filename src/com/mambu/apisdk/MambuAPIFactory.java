@@ -22,6 +22,7 @@ import com.mambu.apisdk.services.SavingsService;
 import com.mambu.apisdk.services.SearchService;
 import com.mambu.apisdk.services.TasksService;
 import com.mambu.apisdk.services.UsersService;
+import com.mambu.apisdk.util.ApiResponseListener;
 
 /**
  * Factory for creating Mambu API Services in a singleton fashion.
@@ -282,6 +283,19 @@ public class MambuAPIFactory {
 		return injector.getInstance(DocumentTemplatesService.class);
 	}
 
+	/***
+	 * Add a listener notified of all API responses received by the services created by the factory
+	 * 
+	 * @param listener
+	 *            response listener. For example, a PageSizeController adapting the page size of paginated requests
+	 * 
+	 * @throws MambuApiException
+	 */
+	public static void addResponseListener(ApiResponseListener listener) throws MambuApiException {
+		validateFactorySetUp();
+		injector.getInstance(MambuAPIService.class).addResponseListener(listener);
+	}
+
 	//
 	/***
 	 * Setter for an Application Key
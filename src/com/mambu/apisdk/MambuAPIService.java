@@ -2,6 +2,8 @@ package com.mambu.apisdk;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
@@ -9,10 +11,13 @@ import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.model.Domain;
 import com.mambu.apisdk.model.Password;
 import com.mambu.apisdk.model.Username;
+import com.mambu.apisdk.util.ApiResponseListener;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor;
 import com.mambu.apisdk.util.RequestExecutor.Method;
 import com.mambu.apisdk.util.URLHelper;
+import com.mambu.apisdk.util.cache.EntityCache;
+import com.mambu.apisdk.util.cache.NotFoundCache;
 
 /**
  * Mambu service to call the APIs
@@ -25,6 +30,12 @@ public class MambuAPIService {
 
 	private RequestExecutor executor;
 	private URLHelper urlHelper;
+	// Listeners notified of the API responses received by all services using this MambuAPIService
+	private final List<ApiResponseListener> responseListeners = new CopyOnWriteArrayList<ApiResponseListener>();
+	// Cache of the entities read by all services using this MambuAPIService. Null if not enabled
+	private volatile EntityCache entityCache;
+	// Cache of the entities not found by all services using this MambuAPIService. Null if not enabled
+	private volatile NotFoundCache notFoundCache;
 
 	/**
 	 * Creates a Mambu API Service class
@@ -124,6 +135,76 @@ public class MambuAPIService {
 		return executor.executeRequest(urlString, method, contentTypeFormat);
 	}
 
+	/**
+	 * Add a listener to be notified of all API responses received by services using this MambuAPIService
+	 * 
+	 * @param listener
+	 *            response listener. Must not be null
+	 */
+	public void addResponseListener(ApiResponseListener listener) {
+		if (listener == null) {
+			throw new IllegalArgumentException("Response listener must not be null");
+		}
+		responseListeners.add(listener);
+	}
+
+	/**
+	 * Remove a previously added response listener
+	 * 
+	 * @param listener
+	 *            response listener
+	 */
+	public void removeResponseListener(ApiResponseListener listener) {
+		responseListeners.remove(listener);
+	}
+
+	/**
+	 * Get the registered response listeners
+	 * 
+	 * @return response listeners. The returned list is a thread safe snapshot on iteration
+	 */
+	public List<ApiResponseListener> getResponseListeners() {
+		return responseListeners;
+	}
+
+	/**
+	 * Set the cache for the entities read by all services using this MambuAPIService
+	 * 
+	 * @param entityCache
+	 *            entity cache. Null to stop caching entities
+	 */
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	/**
+	 * Get the entity cache
+	 * 
+	 * @return entity cache. Null if not enabled
+	 */
+	public EntityCache getEntityCache() {
+		return entityCache;
+	}
+
+	/**
+	 * Set the cache for the entities not found by all services using this MambuAPIService
+	 * 
+	 * @param notFoundCache
+	 *            not found cache. Null to stop caching not found entities
+	 */
+	public void setNotFoundCache(NotFoundCache notFoundCache) {
+		this.notFoundCache = notFoundCache;
+	}
+
+	/**
+	 * Get the not found cache
+	 * 
+	 * @return not found cache. Null if not enabled
+	 */
+	public NotFoundCache getNotFoundCache() {
+		return notFoundCache;
+	}
+
 	/**
 	 * Creates the URL for the request executor
 	 * 
@@ -1,10 +1,15 @@
 package com.mambu.apisdk;
 
+import java.util.Collection;
+
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Key;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.Domain;
 import com.mambu.apisdk.services.AccountingService;
 import com.mambu.apisdk.services.ActivitiesService;
+import com.mambu.apisdk.services.ClientOverviewService;
 import com.mambu.apisdk.services.ClientsService;
 import com.mambu.apisdk.services.CommentsService;
 import com.mambu.apisdk.services.CustomFieldValueService;
@@ -20,6 +25,17 @@ import com.mambu.apisdk.services.SavingsService;
 import com.mambu.apisdk.services.SearchService;
 import com.mambu.apisdk.services.TasksService;
 import com.mambu.apisdk.services.UsersService;
+import com.mambu.apisdk.util.ApiResponseListener;
+import com.mambu.apisdk.util.RequestExecutor;
+import com.mambu.apisdk.util.cache.CustomViewCache;
+import com.mambu.apisdk.util.cache.EntityCache;
+import com.mambu.apisdk.util.cache.IndicatorCache;
+import com.mambu.apisdk.util.cache.NotFoundCache;
+import com.mambu.apisdk.util.cache.ReferenceDataCache;
+import com.mambu.apisdk.util.cache.ResponseCache;
+import com.mambu.apisdk.util.cache.ResponseCacheStore;
+import com.mambu.apisdk.util.cache.TenantCacheManager;
+import com.mambu.intelligence.shared.model.Intelligence.Indicator;
 
 /**
  * Factory for creating Mambu API Service objects that have fixed a tenant's Mambu credentials
@@ -31,6 +47,21 @@ public final class MambuAPIServiceFactory {
 	 */
 	private final Injector injector;
 
+	/***
+	 * The organization reference data cache, if set up
+	 */
+	private ReferenceDataCache referenceDataCache;
+
+	/***
+	 * The indicator cache, if set up
+	 */
+	private IndicatorCache indicatorCache;
+
+	/***
+	 * The custom view cache, if set up
+	 */
+	private CustomViewCache customViewCache;
+
 	/*
 	 * hidden constructor to force using the getFactory() method
 	 */
@@ -56,6 +87,15 @@ public final class MambuAPIServiceFactory {
 		return new MambuAPIServiceFactory(injector);
 	}
 
+	/***
+	 * Get the domain of this factory's tenant, the key of its caches in a {@link TenantCacheManager}
+	 * 
+	 * @return the domain the factory was created for
+	 */
+	public String getDomain() {
+		return injector.getInstance(Key.get(String.class, Domain.class));
+	}
+
 	/***
 	 * Get an instance of the ClientService class, non-static version of {@link MambuAPIFactory#getClientService()}
 	 * 
@@ -250,4 +290,168 @@ public final class MambuAPIServiceFactory {
 		return injector.getInstance(DocumentTemplatesService.class);
 	}
 
+	/***
+	 * Get an instance of the ClientOverviewService class
+	 * 
+	 * @return the obtained instance
+	 * 
+	 * @throws MambuApiException
+	 */
+	public ClientOverviewService getClientOverviewService() throws MambuApiException {
+		return injector.getInstance(ClientOverviewService.class);
+	}
+
+	/***
+	 * Add a listener notified of all API responses received by the services created by this factory
+	 * 
+	 * @param listener
+	 *            response listener. For example, a PageSizeController adapting the page size of paginated requests
+	 */
+	public void addResponseListener(ApiResponseListener listener) {
+		injector.getInstance(MambuAPIService.class).addResponseListener(listener);
+	}
+
+	/***
+	 * Cache the responses to the GET requests of the services created by this factory. Cached responses are
+	 * revalidated with conditional requests, so an unchanged entity costs a 304 Not Modified response without a body
+	 * 
+	 * @param store
+	 *            store for the cached responses, for example a MemoryResponseCacheStore or a DiskResponseCacheStore.
+	 *            Null to stop caching responses
+	 * 
+	 * @return the response cache, for its statistics. Null if the store is null
+	 */
+	public ResponseCache setResponseCache(ResponseCacheStore store) {
+		ResponseCache responseCache = (store == null) ? null : new ResponseCache(store);
+		injector.getInstance(RequestExecutor.class).setResponseCache(responseCache);
+		return responseCache;
+	}
+
+	/***
+	 * Cache the entities read by the services created by this factory. Writes through these services invalidate the
+	 * written entities, so reads following a write get the written entity
+	 * 
+	 * @param entityCache
+	 *            entity cache, with the cached entity types added. Null to stop caching entities
+	 */
+	public void setEntityCache(EntityCache entityCache) {
+		injector.getInstance(MambuAPIService.class).setEntityCache(entityCache);
+	}
+
+	/***
+	 * Cache for a short time the entities not found by the services created by this factory. Entities created or
+	 * updated through these services are removed from the cache
+	 * 
+	 * @param notFoundCache
+	 *            not found cache, with the cached entity types added. Null to stop caching not found entities
+	 */
+	public void setNotFoundCache(NotFoundCache notFoundCache) {
+		injector.getInstance(MambuAPIService.class).setNotFoundCache(notFoundCache);
+	}
+
+	/***
+	 * Set up the organization reference data cache for this factory's tenant and warm it, waiting for all its requests.
+	 * A cache set up before is closed and replaced
+	 * 
+	 * @param refreshMillis
+	 *            age of a cached entry after which its next read refreshes it in the background
+	 * 
+	 * @return the warmed reference data cache
+	 * 
+	 * @throws MambuApiException
+	 */
+	public synchronized ReferenceDataCache setUpReferenceDataCache(long refreshMillis) throws MambuApiException {
+		ReferenceDataCache cache = new ReferenceDataCache(getOrganizationService(), getUsersService(), refreshMillis);
+		try {
+			cache.warmUp();
+		} catch (MambuApiException e) {
+			cache.close();
+			throw e;
+		}
+		if (referenceDataCache != null) {
+			referenceDataCache.close();
+		}
+		referenceDataCache = cache;
+		return cache;
+	}
+
+	/***
+	 * Get the organization reference data cache set up with {@link #setUpReferenceDataCache(long)}
+	 * 
+	 * @return the reference data cache. Null if it was not set up
+	 */
+	public synchronized ReferenceDataCache getReferenceDataCache() {
+		return referenceDataCache;
+	}
+
+	/***
+	 * Set up the indicator cache for this factory's tenant and warm it with the given indicators, waiting for their
+	 * requests. A cache set up before is closed and replaced
+	 * 
+	 * @param indicators
+	 *            indicators to warm the cache with
+	 * @param stalenessMillis
+	 *            age of a cached value after which its next read refreshes it in the background
+	 * @param concurrency
+	 *            maximum number of concurrent indicator requests
+	 * 
+	 * @return the warmed indicator cache
+	 * 
+	 * @throws MambuApiException
+	 */
+	public synchronized IndicatorCache setUpIndicatorCache(Collection<Indicator> indicators, long stalenessMillis,
+			int concurrency) throws MambuApiException {
+		IndicatorCache cache = new IndicatorCache(getIntelligenceService(), stalenessMillis, concurrency);
+		try {
+			cache.warmUp(indicators);
+		} catch (MambuApiException e) {
+			cache.close();
+			throw e;
+		}
+		if (indicatorCache != null) {
+			indicatorCache.close();
+		}
+		indicatorCache = cache;
+		return cache;
+	}
+
+	/***
+	 * Get the indicator cache set up with {@link #setUpIndicatorCache(Collection, long, int)}
+	 * 
+	 * @return the indicator cache. Null if it was not set up
+	 */
+	public synchronized IndicatorCache getIndicatorCache() {
+		return indicatorCache;
+	}
+
+	/***
+	 * Set up the custom view cache for this factory's tenant and warm it with all the custom views of the given users,
+	 * waiting for their requests. A cache set up before is replaced
+	 * 
+	 * @param usernames
+	 *            users whose custom views are loaded
+	 * @param ttlMillis
+	 *            time to live of the cached views
+	 * 
+	 * @return the warmed custom view cache
+	 * 
+	 * @throws MambuApiException
+	 */
+	public synchronized CustomViewCache setUpCustomViewCache(Collection<String> usernames, long ttlMillis)
+			throws MambuApiException {
+		CustomViewCache cache = new CustomViewCache(getUsersService(), ttlMillis);
+		cache.warmUp(usernames);
+		customViewCache = cache;
+		return cache;
+	}
+
+	/***
+	 * Get the custom view cache set up with {@link #setUpCustomViewCache(Collection, long)}
+	 * 
+	 * @return the custom view cache. Null if it was not set up
+	 */
+	public synchronized CustomViewCache getCustomViewCache() {
+		return customViewCache;
+	}
+
 }
@@ -0,0 +1,110 @@
+package com.mambu.apisdk.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraints;
+
+/**
+ * A set of accounts for a bulk operation, selected by one of: an explicit list of account IDs, a custom view key or
+ * filter constraints. The IDs of all the accounts of a custom view or filter constraints are retrieved before the
+ * bulk operation runs, so the operation changing which accounts are selected doesn't make accounts be skipped or
+ * processed twice. Used for example by
+ * {@link com.mambu.apisdk.services.LoansService#applyInterestToLoanAccounts(AccountSelection, java.util.Date, String,
+ * int, com.mambu.apisdk.util.bulk.BulkResultHandler)}
+ */
+public class AccountSelection {
+
+	public final static int DEFAULT_PAGE_SIZE = 500;
+
+	private List<String> accountIds; // explicit account IDs or encoded keys
+	private String customViewKey; // custom view selecting the accounts
+	private JSONFilterConstraints filterConstraints; // filter constraints selecting the accounts
+	private int pageSize = DEFAULT_PAGE_SIZE; // page size for retrieving the custom view or filter accounts
+
+	private AccountSelection() {
+	}
+
+	/**
+	 * Select accounts by their IDs
+	 *
+	 * @param accountIds
+	 *            account IDs or encoded keys. Must not be null
+	 * @return account selection
+	 */
+	public static AccountSelection byIds(Collection<String> accountIds) {
+		if (accountIds == null) {
+			throw new IllegalArgumentException("Account IDs must not be null");
+		}
+		AccountSelection selection = new AccountSelection();
+		selection.accountIds = new ArrayList<String>(accountIds);
+		return selection;
+	}
+
+	/**
+	 * Select the accounts of a custom view
+	 *
+	 * @param customViewKey
+	 *            custom view encoded key. Must not be null
+	 * @return account selection
+	 */
+	public static AccountSelection byCustomView(String customViewKey) {
+		if (customViewKey == null) {
+			throw new IllegalArgumentException("Custom view key must not be null");
+		}
+		AccountSelection selection = new AccountSelection();
+		selection.customViewKey = customViewKey;
+		return selection;
+	}
+
+	/**
+	 * Select the accounts matching filter constraints
+	 *
+	 * @param filterConstraints
+	 *            filter constraints. Must not be null
+	 * @return account selection
+	 */
+	public static AccountSelection byFilter(JSONFilterConstraints filterConstraints) {
+		if (filterConstraints == null) {
+			throw new IllegalArgumentException("Filter constraints must not be null");
+		}
+		AccountSelection selection = new AccountSelection();
+		selection.filterConstraints = filterConstraints;
+		return selection;
+	}
+
+	/**
+	 * Get the explicit account IDs
+	 *
+	 * @return account IDs, or null if the accounts are selected by a custom view or filter constraints
+	 */
+	public List<String> getAccountIds() {
+		return accountIds;
+	}
+
+	public String getCustomViewKey() {
+		return customViewKey;
+	}
+
+	public JSONFilterConstraints getFilterConstraints() {
+		return filterConstraints;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Set the number of accounts retrieved per page for a custom view or filter constraints selection
+	 *
+	 * @param pageSize
+	 *            page size. Must be greater than zero. Default is 500
+	 */
+	public void setPageSize(int pageSize) {
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be greater than zero. It is " + pageSize);
+		}
+		this.pageSize = pageSize;
+	}
+}
@@ -0,0 +1,117 @@
+package com.mambu.apisdk.model;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mambu.clients.shared.model.ClientExpanded;
+import com.mambu.core.shared.model.Comment;
+import com.mambu.docs.shared.model.Document;
+import com.mambu.linesofcredit.shared.model.LineOfCredit;
+import com.mambu.loans.shared.model.LoanAccount;
+import com.mambu.savings.shared.model.SavingsAccount;
+import com.mambu.tasks.shared.model.Task;
+
+/**
+ * The overview of a client: the client details and the client's accounts, lines of credit, documents, comments and
+ * tasks, each retrieved by its own API request. Returned by
+ * {@link com.mambu.apisdk.services.ClientOverviewService#getClientOverview(String, long)}
+ *
+ * Each part holds its result or why it has none, so an overview with failed or timed out parts is still usable
+ */
+public class ClientOverview {
+
+	/**
+	 * Overview parts
+	 */
+	public enum Part {
+		CLIENT_DETAILS, LOAN_ACCOUNTS, SAVINGS_ACCOUNTS, LINES_OF_CREDIT, DOCUMENTS, COMMENTS, TASKS
+	}
+
+	private final String clientId;
+	private final Map<Part, ClientOverviewPart<?>> parts;
+	private final long durationMillis;
+
+	public ClientOverview(String clientId, EnumMap<Part, ClientOverviewPart<?>> parts, long durationMillis) {
+		this.clientId = clientId;
+		this.parts = Collections.unmodifiableMap(new EnumMap<Part, ClientOverviewPart<?>>(parts));
+		this.durationMillis = durationMillis;
+	}
+
+	/**
+	 * Get the client ID or encoded key the overview was requested for
+	 *
+	 * @return client ID
+	 */
+	public String getClientId() {
+		return clientId;
+	}
+
+	@SuppressWarnings("unchecked")
+	public ClientOverviewPart<ClientExpanded> getClientDetails() {
+		return (ClientOverviewPart<ClientExpanded>) parts.get(Part.CLIENT_DETAILS);
+	}
+
+	@SuppressWarnings("unchecked")
+	public ClientOverviewPart<List<LoanAccount>> getLoanAccounts() {
+		return (ClientOverviewPart<List<LoanAccount>>) parts.get(Part.LOAN_ACCOUNTS);
+	}
+
+	@SuppressWarnings("unchecked")
+	public ClientOverviewPart<List<SavingsAccount>> getSavingsAccounts() {
+		return (ClientOverviewPart<List<SavingsAccount>>) parts.get(Part.SAVINGS_ACCOUNTS);
+	}
+
+	@SuppressWarnings("unchecked")
+	public ClientOverviewPart<List<LineOfCredit>> getLinesOfCredit() {
+		return (ClientOverviewPart<List<LineOfCredit>>) parts.get(Part.LINES_OF_CREDIT);
+	}
+
+	@SuppressWarnings("unchecked")
+	public ClientOverviewPart<List<Document>> getDocuments() {
+		return (ClientOverviewPart<List<Document>>) parts.get(Part.DOCUMENTS);
+	}
+
+	@SuppressWarnings("unchecked")
+	public ClientOverviewPart<List<Comment>> getComments() {
+		return (ClientOverviewPart<List<Comment>>) parts.get(Part.COMMENTS);
+	}
+
+	@SuppressWarnings("unchecked")
+	public ClientOverviewPart<List<Task>> getTasks() {
+		return (ClientOverviewPart<List<Task>>) parts.get(Part.TASKS);
+	}
+
+	/**
+	 * Get all the parts
+	 *
+	 * @return unmodifiable map of the parts, in the Part order
+	 */
+	public Map<Part, ClientOverviewPart<?>> getParts() {
+		return parts;
+	}
+
+	/**
+	 * Check if all the parts succeeded
+	 *
+	 * @return true if no part failed or timed out
+	 */
+	public boolean isComplete() {
+		for (ClientOverviewPart<?> part : parts.values()) {
+			if (!part.isSuccess()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the time taken to retrieve the overview
+	 *
+	 * @return duration in milliseconds, from the start of the requests to the completion or the deadline
+	 */
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+}
@@ -0,0 +1,79 @@
+package com.mambu.apisdk.model;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * One part of a {@link ClientOverview}: the result of its API request if it succeeded, or why it has no result, and
+ * how long the request took
+ *
+ * @param <T>
+ *            result type
+ */
+public class ClientOverviewPart<T> {
+
+	/**
+	 * Status of an overview part
+	 */
+	public enum Status {
+		// The request succeeded
+		SUCCEEDED,
+		// The request failed
+		FAILED,
+		// The request did not complete before the overview deadline
+		TIMED_OUT
+	}
+
+	private final ClientOverview.Part part;
+	private final Status status;
+	private final T result;
+	private final MambuApiException exception;
+	private final long durationMillis;
+
+	public ClientOverviewPart(ClientOverview.Part part, Status status, T result, MambuApiException exception,
+			long durationMillis) {
+		this.part = part;
+		this.status = status;
+		this.result = result;
+		this.exception = exception;
+		this.durationMillis = durationMillis;
+	}
+
+	public ClientOverview.Part getPart() {
+		return part;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public boolean isSuccess() {
+		return status == Status.SUCCEEDED;
+	}
+
+	/**
+	 * Get the API request result
+	 *
+	 * @return result or null if the request did not succeed
+	 */
+	public T getResult() {
+		return result;
+	}
+
+	/**
+	 * Get the exception the request failed with
+	 *
+	 * @return exception or null if the request succeeded or timed out
+	 */
+	public MambuApiException getException() {
+		return exception;
+	}
+
+	/**
+	 * Get the API request duration
+	 *
+	 * @return duration in milliseconds. For a timed out request, the time it ran until the deadline
+	 */
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+}
@@ -0,0 +1,44 @@
+package com.mambu.apisdk.model;
+
+import com.mambu.apisdk.util.MambuEntityType;
+
+/**
+ * An instruction to create one comment, holding the parameters of
+ * {@link com.mambu.apisdk.services.CommentsService#create(MambuEntityType, String, String)}. Used for creating
+ * comments in the background
+ */
+public class CommentInstruction {
+	private MambuEntityType parentEntity; // entity type owning the comment, e.g. MambuEntityType.CLIENT
+	private String parentEntityId; // entity id or encoded key of the parent entity
+	private String text; // comment text
+
+	public CommentInstruction(MambuEntityType parentEntity, String parentEntityId, String text) {
+		this.parentEntity = parentEntity;
+		this.parentEntityId = parentEntityId;
+		this.text = text;
+	}
+
+	public MambuEntityType getParentEntity() {
+		return parentEntity;
+	}
+
+	public void setParentEntity(MambuEntityType parentEntity) {
+		this.parentEntity = parentEntity;
+	}
+
+	public String getParentEntityId() {
+		return parentEntityId;
+	}
+
+	public void setParentEntityId(String parentEntityId) {
+		this.parentEntityId = parentEntityId;
+	}
+
+	public String getText() {
+		return text;
+	}
+
+	public void setText(String text) {
+		this.text = text;
+	}
+}
@@ -0,0 +1,34 @@
+package com.mambu.apisdk.model;
+
+import com.mambu.core.shared.model.CustomFieldValue;
+
+/**
+ * An update of one custom field value of a Mambu entity, holding the parameters of
+ * {@link com.mambu.apisdk.services.CustomFieldValueService#update(com.mambu.apisdk.util.MambuEntityType, String,
+ * CustomFieldValue)}. Used for updating custom field values in bulk
+ */
+public class CustomFieldValueUpdate {
+	private String parentEntityId; // entity id or encoded key of the parent entity
+	private CustomFieldValue customFieldValue; // custom field value to be updated
+
+	public CustomFieldValueUpdate(String parentEntityId, CustomFieldValue customFieldValue) {
+		this.parentEntityId = parentEntityId;
+		this.customFieldValue = customFieldValue;
+	}
+
+	public String getParentEntityId() {
+		return parentEntityId;
+	}
+
+	public void setParentEntityId(String parentEntityId) {
+		this.parentEntityId = parentEntityId;
+	}
+
+	public CustomFieldValue getCustomFieldValue() {
+		return customFieldValue;
+	}
+
+	public void setCustomFieldValue(CustomFieldValue customFieldValue) {
+		this.customFieldValue = customFieldValue;
+	}
+}
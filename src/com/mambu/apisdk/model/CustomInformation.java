@@ -0,0 +1,27 @@
+package com.mambu.apisdk.model;
+
+import java.util.List;
+
+import com.mambu.core.shared.model.CustomFieldValue;
+
+/**
+ * A wrapper class to support updating several custom field values of an entity with one API request. The API expects
+ * the custom field values in the "customInformation" field, e.g.
+ * 
+ * PATCH {"customInformation":[{"customFieldId":"field1","value":"10"},{..}]} /api/clients/abc123/custominformation
+ */
+public class CustomInformation {
+	private List<CustomFieldValue> customInformation;
+
+	public CustomInformation(List<CustomFieldValue> customInformation) {
+		this.customInformation = customInformation;
+	}
+
+	public List<CustomFieldValue> getCustomInformation() {
+		return customInformation;
+	}
+
+	public void setCustomInformation(List<CustomFieldValue> customInformation) {
+		this.customInformation = customInformation;
+	}
+}
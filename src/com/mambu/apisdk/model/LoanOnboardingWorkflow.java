@@ -0,0 +1,159 @@
+package com.mambu.apisdk.model;
+
+import com.mambu.accounts.shared.model.TransactionDetails;
+
+/**
+ * The workflow onboarding one loan account: create the account, approve it, disburse it and optionally apply a fee.
+ * Holds the parameters of each stage and the state left by the completed stages. Used by the pipeline returned by
+ * {@link com.mambu.apisdk.services.LoansService#makeLoanOnboardingPipeline(int)}
+ */
+public class LoanOnboardingWorkflow {
+
+	/**
+	 * Onboarding stages, in the execution order
+	 */
+	public enum Stage {
+		// Create the account. Skipped if the account ID is already set
+		CREATE,
+		// Approve the account
+		APPROVE,
+		// Disburse the account
+		DISBURSE,
+		// Apply a fee to the account. Skipped if there is no fee amount
+		APPLY_FEE
+	}
+
+	private String workflowId; // unique workflow id, e.g. an external reference. Used for resuming a run
+	private LoanAccountExpanded loanAccount; // account to create
+	private String approvalNotes; // optional
+	private String disbursementAmount; // optional, except for revolving credit products
+	private String disbursementDate; // optional
+	private String firstRepaymentDate; // optional
+	private String disbursementNotes; // optional
+	private TransactionDetails transactionDetails; // disbursement channel and channel fields, optional
+	private String feeAmount; // optional, no fee is applied if null
+	private String feeRepaymentNumber; // optional
+	private String feeNotes; // optional
+
+	// State left by the completed stages
+	private String accountId; // ID of the created account
+	private Long disbursementTransactionId;
+	private Long feeTransactionId;
+
+	public LoanOnboardingWorkflow(String workflowId, LoanAccountExpanded loanAccount) {
+		this.workflowId = workflowId;
+		this.loanAccount = loanAccount;
+	}
+
+	public String getWorkflowId() {
+		return workflowId;
+	}
+
+	public void setWorkflowId(String workflowId) {
+		this.workflowId = workflowId;
+	}
+
+	public LoanAccountExpanded getLoanAccount() {
+		return loanAccount;
+	}
+
+	public void setLoanAccount(LoanAccountExpanded loanAccount) {
+		this.loanAccount = loanAccount;
+	}
+
+	public String getApprovalNotes() {
+		return approvalNotes;
+	}
+
+	public void setApprovalNotes(String approvalNotes) {
+		this.approvalNotes = approvalNotes;
+	}
+
+	public String getDisbursementAmount() {
+		return disbursementAmount;
+	}
+
+	public void setDisbursementAmount(String disbursementAmount) {
+		this.disbursementAmount = disbursementAmount;
+	}
+
+	public String getDisbursementDate() {
+		return disbursementDate;
+	}
+
+	public void setDisbursementDate(String disbursementDate) {
+		this.disbursementDate = disbursementDate;
+	}
+
+	public String getFirstRepaymentDate() {
+		return firstRepaymentDate;
+	}
+
+	public void setFirstRepaymentDate(String firstRepaymentDate) {
+		this.firstRepaymentDate = firstRepaymentDate;
+	}
+
+	public String getDisbursementNotes() {
+		return disbursementNotes;
+	}
+
+	public void setDisbursementNotes(String disbursementNotes) {
+		this.disbursementNotes = disbursementNotes;
+	}
+
+	public TransactionDetails getTransactionDetails() {
+		return transactionDetails;
+	}
+
+	public void setTransactionDetails(TransactionDetails transactionDetails) {
+		this.transactionDetails = transactionDetails;
+	}
+
+	public String getFeeAmount() {
+		return feeAmount;
+	}
+
+	public void setFeeAmount(String feeAmount) {
+		this.feeAmount = feeAmount;
+	}
+
+	public String getFeeRepaymentNumber() {
+		return feeRepaymentNumber;
+	}
+
+	public void setFeeRepaymentNumber(String feeRepaymentNumber) {
+		this.feeRepaymentNumber = feeRepaymentNumber;
+	}
+
+	public String getFeeNotes() {
+		return feeNotes;
+	}
+
+	public void setFeeNotes(String feeNotes) {
+		this.feeNotes = feeNotes;
+	}
+
+	public String getAccountId() {
+		return accountId;
+	}
+
+	public void setAccountId(String accountId) {
+		this.accountId = accountId;
+	}
+
+	public Long getDisbursementTransactionId() {
+		return disbursementTransactionId;
+	}
+
+	public void setDisbursementTransactionId(Long disbursementTransactionId) {
+		this.disbursementTransactionId = disbursementTransactionId;
+	}
+
+	public Long getFeeTransactionId() {
+		return feeTransactionId;
+	}
+
+	public void setFeeTransactionId(Long feeTransactionId) {
+		this.feeTransactionId = feeTransactionId;
+	}
+}
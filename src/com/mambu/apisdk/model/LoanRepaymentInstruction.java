@@ -0,0 +1,65 @@
+package com.mambu.apisdk.model;
+
+import com.mambu.accounts.shared.model.TransactionDetails;
+
+/**
+ * An instruction to post one loan repayment, holding the parameters of
+ * {@link com.mambu.apisdk.services.LoansService#makeLoanRepayment(String, String, String, String, TransactionDetails)}
+ * . Used for posting repayments in bulk
+ */
+public class LoanRepaymentInstruction {
+	private String accountId; // loan account ID or encoded key
+	private String amount; // repayment amount
+	private String date; // repayment date, optional
+	private String notes; // repayment notes, optional
+	private TransactionDetails transactionDetails; // transaction channel and channel fields, optional
+
+	public LoanRepaymentInstruction(String accountId, String amount, String date, String notes,
+			TransactionDetails transactionDetails) {
+		this.accountId = accountId;
+		this.amount = amount;
+		this.date = date;
+		this.notes = notes;
+		this.transactionDetails = transactionDetails;
+	}
+
+	public String getAccountId() {
+		return accountId;
+	}
+
+	public void setAccountId(String accountId) {
+		this.accountId = accountId;
+	}
+
+	public String getAmount() {
+		return amount;
+	}
+
+	public void setAmount(String amount) {
+		this.amount = amount;
+	}
+
+	public String getDate() {
+		return date;
+	}
+
+	public void setDate(String date) {
+		this.date = date;
+	}
+
+	public String getNotes() {
+		return notes;
+	}
+
+	public void setNotes(String notes) {
+		this.notes = notes;
+	}
+
+	public TransactionDetails getTransactionDetails() {
+		return transactionDetails;
+	}
+
+	public void setTransactionDetails(TransactionDetails transactionDetails) {
+		this.transactionDetails = transactionDetails;
+	}
+}
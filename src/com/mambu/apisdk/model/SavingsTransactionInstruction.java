@@ -0,0 +1,98 @@
+package com.mambu.apisdk.model;
+
+import com.mambu.accounts.shared.model.Account.Type;
+
+/**
+ * An instruction to post one savings transaction: a deposit, a withdrawal or a transfer. Used for posting savings
+ * transactions in bulk, see {@link com.mambu.apisdk.services.SavingsService#executeTransactions}
+ */
+public class SavingsTransactionInstruction {
+
+	/**
+	 * Savings transaction kinds supported in bulk
+	 */
+	public enum Kind {
+		DEPOSIT, WITHDRAWAL, TRANSFER
+	}
+
+	private Kind kind; // transaction kind
+	private String accountId; // savings account ID or encoded key. For transfers the account to transfer from
+	private String amount; // transaction amount
+	private String date; // transaction date, optional. Must be null for transfers
+	private String notes; // transaction notes, optional
+	private String destinationAccountKey; // for transfers only: the account to transfer to
+	private Type destinationAccountType; // for transfers only: LOAN or SAVINGS
+
+	public SavingsTransactionInstruction(Kind kind, String accountId, String amount, String date, String notes) {
+		this.kind = kind;
+		this.accountId = accountId;
+		this.amount = amount;
+		this.date = date;
+		this.notes = notes;
+	}
+
+	public static SavingsTransactionInstruction makeTransfer(String fromAccountId, String destinationAccountKey,
+			Type destinationAccountType, String amount, String notes) {
+		SavingsTransactionInstruction transfer = new SavingsTransactionInstruction(Kind.TRANSFER, fromAccountId,
+				amount, null, notes);
+		transfer.setDestinationAccountKey(destinationAccountKey);
+		transfer.setDestinationAccountType(destinationAccountType);
+		return transfer;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	public void setKind(Kind kind) {
+		this.kind = kind;
+	}
+
+	public String getAccountId() {
+		return accountId;
+	}
+
+	public void setAccountId(String accountId) {
+		this.accountId = accountId;
+	}
+
+	public String getAmount() {
+		return amount;
+	}
+
+	public void setAmount(String amount) {
+		this.amount = amount;
+	}
+
+	public String getDate() {
+		return date;
+	}
+
+	public void setDate(String date) {
+		this.date = date;
+	}
+
+	public String getNotes() {
+		return notes;
+	}
+
+	public void setNotes(String notes) {
+		this.notes = notes;
+	}
+
+	public String getDestinationAccountKey() {
+		return destinationAccountKey;
+	}
+
+	public void setDestinationAccountKey(String destinationAccountKey) {
+		this.destinationAccountKey = destinationAccountKey;
+	}
+
+	public Type getDestinationAccountType() {
+		return destinationAccountType;
+	}
+
+	public void setDestinationAccountType(Type destinationAccountType) {
+		this.destinationAccountType = destinationAccountType;
+	}
+}
@@ -4,6 +4,7 @@
 package com.mambu.apisdk.services;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -24,6 +25,9 @@ import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
 import com.mambu.apisdk.util.ServiceExecutor;
+import com.mambu.apisdk.util.bulk.BulkExecutor;
+import com.mambu.apisdk.util.bulk.BulkOperation;
+import com.mambu.apisdk.util.bulk.BulkReport;
 
 /**
  * Service class which handles the API operations available for the accounting
@@ -297,4 +301,165 @@ public class AccountingService {
 		List<GLJournalEntry> glEntries = serviceExecutor.execute(apiDefiinition, params);
 		return glEntries;
 	}
+
+	/****
+	 * Post many balanced sets of GL Journal Entries, for example one set per transaction, in chunks of bounded size
+	 * with bounded parallelism. Whole sets are packed into the chunks and each chunk is posted with its own request, so
+	 * a failed chunk can be posted again alone with {@link #postGLJournalEntries(List, String, String, String)} using
+	 * the entries in its result.
+	 * 
+	 * See {@link #splitGLJournalEntries(List, int)} for how the sets are packed into chunks
+	 * 
+	 * @param entrySets
+	 *            sets of entries to post. Each set must be balanced: the total of its debit amounts must be equal to
+	 *            the total of its credit amounts. Must not be null
+	 * @param branchId
+	 *            a branch id.
+	 * @param date
+	 *            The date of the posting of the journal entries. Must be not null
+	 * @param notes
+	 *            transaction notes, used for all chunks
+	 * @param maxEntriesPerChunk
+	 *            maximum number of debit and credit entries posted in one request. Must be at least 2
+	 * @param concurrency
+	 *            maximum number of chunks posted concurrently. Must be greater than zero
+	 * @return report with one result per chunk, in the chunk order. The item of each result is the list of entries of
+	 *         the chunk, its result the created journal entries
+	 * @throws MambuApiException
+	 *             if the run is interrupted. Failures of the individual chunks are reported in the results
+	 */
+	public BulkReport<List<ApiGLJournalEntry>, List<GLJournalEntry>> postGLJournalEntriesInChunks(
+			List<List<ApiGLJournalEntry>> entrySets, final String branchId, final String date, final String notes,
+			int maxEntriesPerChunk, int concurrency) throws MambuApiException {
+
+		if (date == null) {
+			throw new IllegalArgumentException("Date must not be null");
+		}
+		List<List<ApiGLJournalEntry>> chunks = splitGLJournalEntries(entrySets, maxEntriesPerChunk);
+
+		BulkOperation<List<ApiGLJournalEntry>, List<GLJournalEntry>> operation =
+				new BulkOperation<List<ApiGLJournalEntry>, List<GLJournalEntry>>() {
+			@Override
+			public List<GLJournalEntry> execute(List<ApiGLJournalEntry> chunk) throws MambuApiException {
+				return postGLJournalEntries(chunk, branchId, date, notes);
+			}
+		};
+		return new BulkExecutor<List<ApiGLJournalEntry>, List<GLJournalEntry>>(operation, concurrency)
+				.executeAll(chunks);
+	}
+
+	/**
+	 * Pack balanced sets of GL Journal Entries into chunks of no more than maxEntriesPerChunk entries each.
+	 * 
+	 * The sets are added to a chunk in the input order until the next set doesn't fit, which then starts a new chunk.
+	 * The entries are never changed or merged, and the entries of a set are posted in the same chunk, so the posted
+	 * journal entries match the sets. Only a set with more than maxEntriesPerChunk entries is split: at the end of its
+	 * longest balanced run of entries which fits in a chunk.
+	 * 
+	 * @param entrySets
+	 *            sets of entries to pack. Must not be null. The glCode, entryType and amount of each entry must not be
+	 *            null, the amounts must not be negative and each set must be balanced
+	 * @param maxEntriesPerChunk
+	 *            maximum number of entries in a chunk. Must be at least 2
+	 * @return balanced chunks, in the input order
+	 * @throws IllegalArgumentException
+	 *             if a set is not valid, or is too big and has no balanced run of entries fitting in a chunk
+	 */
+	public static List<List<ApiGLJournalEntry>> splitGLJournalEntries(List<List<ApiGLJournalEntry>> entrySets,
+			int maxEntriesPerChunk) {
+
+		if (entrySets == null) {
+			throw new IllegalArgumentException("Entry sets must not be null");
+		}
+		if (maxEntriesPerChunk < 2) {
+			throw new IllegalArgumentException("Chunks must have at least 2 entries. Max entries is "
+					+ maxEntriesPerChunk);
+		}
+		List<List<ApiGLJournalEntry>> chunks = new ArrayList<List<ApiGLJournalEntry>>();
+		List<ApiGLJournalEntry> chunk = new ArrayList<ApiGLJournalEntry>();
+		for (List<ApiGLJournalEntry> entrySet : entrySets) {
+			for (List<ApiGLJournalEntry> part : splitGLJournalEntrySet(entrySet, maxEntriesPerChunk)) {
+				if (chunk.size() + part.size() > maxEntriesPerChunk) {
+					chunks.add(chunk);
+					chunk = new ArrayList<ApiGLJournalEntry>();
+				}
+				chunk.addAll(part);
+			}
+		}
+		if (!chunk.isEmpty()) {
+			chunks.add(chunk);
+		}
+		return chunks;
+	}
+
+	/**
+	 * Validate a set of entries and split it into balanced runs of entries fitting in a chunk
+	 * 
+	 * @param entrySet
+	 *            set of entries
+	 * @param maxEntriesPerChunk
+	 *            maximum number of entries in a chunk
+	 * @return the set itself if it fits in a chunk, otherwise its consecutive balanced runs
+	 */
+	private static List<List<ApiGLJournalEntry>> splitGLJournalEntrySet(List<ApiGLJournalEntry> entrySet,
+			int maxEntriesPerChunk) {
+		if (entrySet == null) {
+			throw new IllegalArgumentException("Entry set must not be null");
+		}
+		List<List<ApiGLJournalEntry>> parts = new ArrayList<List<ApiGLJournalEntry>>();
+		// Start of the current run and end of its longest balanced prefix fitting in a chunk
+		int runStart = 0;
+		int balancedEnd = -1;
+		BigDecimal balance = BigDecimal.ZERO;
+		for (int i = 0; i < entrySet.size(); i++) {
+			ApiGLJournalEntry entry = entrySet.get(i);
+			String glCode = entry.getGlCode();
+			EntryType entryType = entry.getEntryType();
+			BigDecimal amount = entry.getAmount();
+			if (glCode == null || entryType == null || amount == null) {
+				throw new IllegalArgumentException("GlCode " + glCode + " EntryType=" + entryType + " and Amount="
+						+ amount + " must not be null");
+			}
+			if (amount.signum() < 0) {
+				throw new IllegalArgumentException("Amount must not be negative. GlCode " + glCode + " Amount="
+						+ amount);
+			}
+			if (i - runStart == maxEntriesPerChunk) {
+				if (balancedEnd < 0) {
+					throw new IllegalArgumentException("Entry set has no balanced run of at most " + maxEntriesPerChunk
+							+ " entries starting with entry " + runStart);
+				}
+				parts.add(entrySet.subList(runStart, balancedEnd));
+				runStart = balancedEnd;
+				balancedEnd = -1;
+				// The entries after the balanced run are balanced on their own so far
+				balance = BigDecimal.ZERO;
+				for (int j = runStart; j < i; j++) {
+					balance = addEntry(balance, entrySet.get(j));
+					if (balance.signum() == 0) {
+						balancedEnd = j + 1;
+					}
+				}
+			}
+			balance = addEntry(balance, entry);
+			if (balance.signum() == 0) {
+				balancedEnd = i + 1;
+			}
+		}
+		if (balance.signum() != 0) {
+			throw new IllegalArgumentException("Entry set is not balanced. Unbalanced amount=" + balance);
+		}
+		if (runStart < entrySet.size()) {
+			parts.add(entrySet.subList(runStart, entrySet.size()));
+		}
+		return parts;
+	}
+
+	/**
+	 * Add an entry to a balance: debits are added, credits subtracted
+	 */
+	private static BigDecimal addEntry(BigDecimal balance, ApiGLJournalEntry entry) {
+		return (entry.getEntryType() == EntryType.DEBIT) ? balance.add(entry.getAmount()) : balance.subtract(entry
+				.getAmount());
+	}
 }
@@ -14,6 +14,10 @@ import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.ServiceExecutor;
+import com.mambu.apisdk.util.pagination.PageFetcher;
+import com.mambu.apisdk.util.pagination.PageIterator;
+import com.mambu.apisdk.util.pagination.PageSizeController;
+import com.mambu.apisdk.util.pagination.Paginator;
 import com.mambu.clients.shared.model.Client;
 import com.mambu.clients.shared.model.Group;
 import com.mambu.loans.shared.model.LoanAccount;
@@ -167,7 +171,74 @@ public class ActivitiesService {
 		return serviceExecutor.execute(getJSONActivityList, params);
 	}
 
+	/**
+	 * Iterate over the activities for a custom view page by page, optionally reading the next pages in the background
+	 * while the caller processes the current one. See {@link Paginator} for details
+	 * 
+	 * @param customViewKey
+	 *            the key of the Custom View to filter system activities
+	 * @param pageSize
+	 *            number of activities to request per page. Must be greater than zero
+	 * @param readAheadPages
+	 *            number of pages to retrieve ahead of the caller. Zero to retrieve pages on demand
+	 * 
+	 * @return page iterator. Must be closed if not iterated to the end
+	 */
+	public PageIterator<JSONActivity> getActivitiesByCustomViewPages(String customViewKey, int pageSize,
+			int readAheadPages) {
+
+		Paginator<JSONActivity> paginator = makeActivitiesByCustomViewPaginator(customViewKey, pageSize);
+		paginator.setReadAheadPages(readAheadPages);
+		return paginator.iterator(0);
+	}
+
+	/**
+	 * Iterate over the activities for a custom view page by page, with the page size adapted to the API latency by a
+	 * page size controller. See {@link PageSizeController} for details
+	 * 
+	 * @param customViewKey
+	 *            the key of the Custom View to filter system activities
+	 * @param pageSizeController
+	 *            page size controller, added as a response listener to the factory creating this service. Must not be
+	 *            null
+	 * @param readAheadPages
+	 *            number of pages to retrieve ahead of the caller. Zero to retrieve pages on demand
+	 * 
+	 * @return page iterator. Must be closed if not iterated to the end
+	 */
+	public PageIterator<JSONActivity> getActivitiesByCustomViewPages(String customViewKey,
+			PageSizeController pageSizeController, int readAheadPages) {
+		if (pageSizeController == null) {
+			throw new IllegalArgumentException("Page size controller must not be null");
+		}
+		String apiKey = getJSONActivityList.getKey();
+		Paginator<JSONActivity> paginator = makeActivitiesByCustomViewPaginator(customViewKey,
+				pageSizeController.getPageSize(apiKey));
+		paginator.setPageSizeController(pageSizeController, apiKey);
+		paginator.setReadAheadPages(readAheadPages);
+		return paginator.iterator(0);
+	}
+
 	// Private helper
+	/**
+	 * Make a paginator over the activities for a custom view
+	 * 
+	 * @param customViewKey
+	 *            the key of the Custom View to filter system activities
+	 * @param pageSize
+	 *            number of activities to request per page
+	 * @return paginator
+	 */
+	private Paginator<JSONActivity> makeActivitiesByCustomViewPaginator(final String customViewKey, int pageSize) {
+		PageFetcher<JSONActivity> pageFetcher = new PageFetcher<JSONActivity>() {
+			@Override
+			public List<JSONActivity> getPage(int offset, int limit) throws MambuApiException {
+				return getActivitiesByCustomView(customViewKey, String.valueOf(offset), String.valueOf(limit));
+			}
+		};
+		return new Paginator<JSONActivity>(pageFetcher, pageSize);
+	}
+
 	/***
 	 * Get the name of the ID parameter for the entity ID value. The ID Name in the GET request must be one of the
 	 * following: clientID, groupID, centreID, branchID, loanProductID, savingsProductID, loanAccountID,
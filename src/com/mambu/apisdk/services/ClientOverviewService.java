@@ -0,0 +1,297 @@
+package com.mambu.apisdk.services;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.ClientOverview;
+import com.mambu.apisdk.model.ClientOverview.Part;
+import com.mambu.apisdk.model.ClientOverviewPart;
+import com.mambu.apisdk.model.ClientOverviewPart.Status;
+import com.mambu.apisdk.util.ConcurrencyUtils;
+import com.mambu.apisdk.util.MambuEntityType;
+import com.mambu.apisdk.util.RequestDeadline;
+import com.mambu.clients.shared.model.ClientExpanded;
+import com.mambu.core.shared.model.Comment;
+import com.mambu.docs.shared.model.Document;
+import com.mambu.linesofcredit.shared.model.LineOfCredit;
+import com.mambu.loans.shared.model.LoanAccount;
+import com.mambu.savings.shared.model.SavingsAccount;
+import com.mambu.tasks.shared.model.Task;
+
+/**
+ * Service class which retrieves the overview of a client, see {@link ClientOverview}: the client details, loan
+ * accounts, savings accounts, lines of credit, documents, comments and tasks.
+ *
+ * The requests for the parts are executed concurrently and the overview is returned when all of them completed or
+ * when the deadline passed, whichever is first. A part whose request failed or didn't complete in time has no result,
+ * the other parts are still returned. The list parts hold the first page of their entities, with Mambu's default page
+ * size.
+ *
+ * The requests run in a bounded thread pool owned by the service, see {@link #setThreadPool(int, int)}. Overviews
+ * requested at the same time share the pool, so their parts may wait for a thread: the waiting time counts against
+ * their timeout. A part which finds the pool's queue full fails at once. The requests of a part are failed at the
+ * overview's deadline, see {@link RequestDeadline}, so a slow response doesn't hold a thread after the deadline. Idle
+ * threads are stopped, so an unused service holds no threads.
+ */
+@Singleton
+public class ClientOverviewService {
+
+	private final static String THREAD_NAME_PREFIX = "mambu-client-overview";
+	// Time after which an idle thread of the pool is stopped
+	private final static long THREAD_KEEP_ALIVE_SECONDS = 60;
+	// Default pool: a thread for each part, and a queue for the parts of four more overviews
+	private final static int DEFAULT_THREADS = Part.values().length;
+	private final static int DEFAULT_QUEUE_CAPACITY = 4 * Part.values().length;
+
+	/**
+	 * The API request of an overview part
+	 */
+	private interface PartRequest<T> {
+		T execute() throws MambuApiException;
+	}
+
+	private final ClientsService clientsService;
+	private final LoansService loansService;
+	private final SavingsService savingsService;
+	private final LinesOfCreditService linesOfCreditService;
+	private final DocumentsService documentsService;
+	private final CommentsService commentsService;
+	private final TasksService tasksService;
+	private volatile ThreadPoolExecutor executor;
+
+	/***
+	 * Create a new client overview service
+	 *
+	 * @param clientsService
+	 *            service requesting the client details
+	 * @param loansService
+	 *            service requesting the loan accounts
+	 * @param savingsService
+	 *            service requesting the savings accounts
+	 * @param linesOfCreditService
+	 *            service requesting the lines of credit
+	 * @param documentsService
+	 *            service requesting the documents
+	 * @param commentsService
+	 *            service requesting the comments
+	 * @param tasksService
+	 *            service requesting the tasks
+	 */
+	@Inject
+	public ClientOverviewService(ClientsService clientsService, LoansService loansService,
+			SavingsService savingsService, LinesOfCreditService linesOfCreditService,
+			DocumentsService documentsService, CommentsService commentsService, TasksService tasksService) {
+		this.clientsService = clientsService;
+		this.loansService = loansService;
+		this.savingsService = savingsService;
+		this.linesOfCreditService = linesOfCreditService;
+		this.documentsService = documentsService;
+		this.commentsService = commentsService;
+		this.tasksService = tasksService;
+		this.executor = newThreadPool(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY);
+	}
+
+	/**
+	 * Replace the thread pool executing the part requests. The requests already in the previous pool are completed
+	 *
+	 * @param threads
+	 *            maximum number of concurrent part requests. Must be greater than zero
+	 * @param queueCapacity
+	 *            maximum number of part requests waiting for a thread. Must be greater than zero. The parts requested
+	 *            when the queue is full fail at once
+	 */
+	public void setThreadPool(int threads, int queueCapacity) {
+		if (threads < 1 || queueCapacity < 1) {
+			throw new IllegalArgumentException("Threads and queue capacity must be greater than zero. Threads="
+					+ threads + " Queue capacity=" + queueCapacity);
+		}
+		ThreadPoolExecutor previous = executor;
+		executor = newThreadPool(threads, queueCapacity);
+		previous.shutdown();
+	}
+
+	/**
+	 * Get the overview of a client, requesting all its parts concurrently
+	 *
+	 * @param clientId
+	 *            client ID or encoded key. Must not be null
+	 * @param timeoutMillis
+	 *            time allowed for all the requests. Must be greater than zero. The parts not completed by then are
+	 *            returned as timed out
+	 *
+	 * @return client overview, with the result, status and duration of each part
+	 *
+	 * @throws MambuApiException
+	 *             if the calling thread is interrupted while waiting for the requests
+	 */
+	public ClientOverview getClientOverview(String clientId, long timeoutMillis) throws MambuApiException {
+
+		if (clientId == null) {
+			throw new IllegalArgumentException("Client ID must not be null");
+		}
+		if (timeoutMillis < 1) {
+			throw new IllegalArgumentException("Timeout must be greater than zero. Timeout=" + timeoutMillis);
+		}
+		EnumMap<Part, PartRequest<?>> requests = makePartRequests(clientId);
+
+		long startMillis = System.currentTimeMillis();
+		final long deadlineMillis = startMillis + timeoutMillis;
+		EnumMap<Part, Future<ClientOverviewPart<?>>> futures = new EnumMap<Part, Future<ClientOverviewPart<?>>>(
+				Part.class);
+		EnumMap<Part, ClientOverviewPart<?>> parts = new EnumMap<Part, ClientOverviewPart<?>>(Part.class);
+		ThreadPoolExecutor partExecutor = executor;
+		try {
+			for (Map.Entry<Part, PartRequest<?>> request : requests.entrySet()) {
+				final Part part = request.getKey();
+				final PartRequest<?> partRequest = request.getValue();
+				try {
+					futures.put(part, partExecutor.submit(new Callable<ClientOverviewPart<?>>() {
+						@Override
+						public ClientOverviewPart<?> call() {
+							return executePart(part, partRequest, deadlineMillis);
+						}
+					}));
+				} catch (RejectedExecutionException e) {
+					parts.put(part, new ClientOverviewPart<Object>(part, Status.FAILED, null, new MambuApiException(-1,
+							"Too many client overviews requested: the thread pool queue is full"), 0));
+				}
+			}
+
+			for (Map.Entry<Part, Future<ClientOverviewPart<?>>> future : futures.entrySet()) {
+				long remainingMillis = Math.max(0, deadlineMillis - System.currentTimeMillis());
+				try {
+					parts.put(future.getKey(), future.getValue().get(remainingMillis, TimeUnit.MILLISECONDS));
+				} catch (TimeoutException e) {
+					future.getValue().cancel(true);
+					parts.put(future.getKey(), new ClientOverviewPart<Object>(future.getKey(), Status.TIMED_OUT,
+							null, null, System.currentTimeMillis() - startMillis));
+				}
+			}
+			return new ClientOverview(clientId, parts, System.currentTimeMillis() - startMillis);
+
+		} catch (ExecutionException e) {
+			// Parts catch their exceptions: only errors get here
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} catch (InterruptedException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} finally {
+			// Stop the requests of this overview still running or waiting for a thread
+			for (Future<ClientOverviewPart<?>> future : futures.values()) {
+				future.cancel(true);
+			}
+			// Free the queue places of the cancelled requests
+			partExecutor.purge();
+		}
+	}
+
+	/**
+	 * Make the API requests of the overview parts
+	 *
+	 * @param clientId
+	 *            client ID or encoded key
+	 * @return map of the part requests
+	 */
+	private EnumMap<Part, PartRequest<?>> makePartRequests(final String clientId) {
+		EnumMap<Part, PartRequest<?>> requests = new EnumMap<Part, PartRequest<?>>(Part.class);
+		requests.put(Part.CLIENT_DETAILS, new PartRequest<ClientExpanded>() {
+			@Override
+			public ClientExpanded execute() throws MambuApiException {
+				return clientsService.getClientDetails(clientId);
+			}
+		});
+		requests.put(Part.LOAN_ACCOUNTS, new PartRequest<List<LoanAccount>>() {
+			@Override
+			public List<LoanAccount> execute() throws MambuApiException {
+				return loansService.getLoanAccountsForClient(clientId);
+			}
+		});
+		requests.put(Part.SAVINGS_ACCOUNTS, new PartRequest<List<SavingsAccount>>() {
+			@Override
+			public List<SavingsAccount> execute() throws MambuApiException {
+				return savingsService.getSavingsAccountsForClient(clientId);
+			}
+		});
+		requests.put(Part.LINES_OF_CREDIT, new PartRequest<List<LineOfCredit>>() {
+			@Override
+			public List<LineOfCredit> execute() throws MambuApiException {
+				return linesOfCreditService.getClientLinesOfCredit(clientId, null, null);
+			}
+		});
+		requests.put(Part.DOCUMENTS, new PartRequest<List<Document>>() {
+			@Override
+			public List<Document> execute() throws MambuApiException {
+				return documentsService.getDocuments(MambuEntityType.CLIENT, clientId, null, null);
+			}
+		});
+		requests.put(Part.COMMENTS, new PartRequest<List<Comment>>() {
+			@Override
+			public List<Comment> execute() throws MambuApiException {
+				return commentsService.getComments(MambuEntityType.CLIENT, clientId, null, null);
+			}
+		});
+		requests.put(Part.TASKS, new PartRequest<List<Task>>() {
+			@Override
+			public List<Task> execute() throws MambuApiException {
+				return tasksService.getClientTasks(clientId, null, null, null);
+			}
+		});
+		return requests;
+	}
+
+	/**
+	 * Execute the request of an overview part, catching its exception
+	 *
+	 * @param part
+	 *            overview part
+	 * @param request
+	 *            part's API request
+	 * @param deadlineMillis
+	 *            deadline of the overview, at which the part's API requests are failed
+	 * @return the part with its result or the exception it failed with
+	 */
+	private static <T> ClientOverviewPart<T> executePart(Part part, PartRequest<T> request, long deadlineMillis) {
+		long startMillis = System.currentTimeMillis();
+		RequestDeadline.set(deadlineMillis);
+		try {
+			T result = request.execute();
+			return new ClientOverviewPart<T>(part, Status.SUCCEEDED, result, null, System.currentTimeMillis()
+					- startMillis);
+		} catch (MambuApiException e) {
+			return new ClientOverviewPart<T>(part, Status.FAILED, null, e, System.currentTimeMillis() - startMillis);
+		} catch (RuntimeException e) {
+			return new ClientOverviewPart<T>(part, Status.FAILED, null, new MambuApiException(e),
+					System.currentTimeMillis() - startMillis);
+		} finally {
+			RequestDeadline.clear();
+		}
+	}
+
+	/**
+	 * Make the pool executing the part requests. Its threads are stopped when idle
+	 *
+	 * @param threads
+	 *            number of threads
+	 * @param queueCapacity
+	 *            capacity of the queue of the requests waiting for a thread
+	 * @return thread pool rejecting the requests when its queue is full
+	 */
+	private static ThreadPoolExecutor newThreadPool(int threads, int queueCapacity) {
+		ThreadPoolExecutor threadPool = new ThreadPoolExecutor(threads, threads, THREAD_KEEP_ALIVE_SECONDS,
+				TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(queueCapacity),
+				ConcurrencyUtils.newThreadFactory(THREAD_NAME_PREFIX));
+		threadPool.allowCoreThreadTimeOut(true);
+		return threadPool;
+	}
+}
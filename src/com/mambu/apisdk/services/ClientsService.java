@@ -3,6 +3,7 @@
  */
 package com.mambu.apisdk.services;
 
+import java.util.Collection;
 import java.util.List;
 
 import com.google.inject.Inject;
@@ -20,11 +21,19 @@ import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.apisdk.util.ServiceHelper;
+import com.mambu.apisdk.util.bulk.BatchOperation;
+import com.mambu.apisdk.util.bulk.BulkFetchResult;
+import com.mambu.apisdk.util.bulk.BulkFetcher;
+import com.mambu.apisdk.util.bulk.BulkOperation;
+import com.mambu.apisdk.util.pagination.EntityKeyExtractor;
+import com.mambu.clients.shared.data.ClientsDataField;
+import com.mambu.clients.shared.data.GroupsDataField;
 import com.mambu.clients.shared.model.Client;
 import com.mambu.clients.shared.model.ClientExpanded;
 import com.mambu.clients.shared.model.Group;
 import com.mambu.clients.shared.model.GroupExpanded;
 import com.mambu.clients.shared.model.GroupRoleName;
+import com.mambu.core.shared.data.DataItemType;
 import com.mambu.core.shared.model.ClientRole;
 import com.mambu.docs.shared.model.Document;
 
@@ -124,6 +133,45 @@ public class ClientsService {
 		return serviceExecutor.execute(getClient, clientId);
 	}
 
+	/**
+	 * Requests many clients by their ids. Duplicate ids are requested once. Up to
+	 * {@link SearchService#MAX_IDS_PER_SEARCH} clients are retrieved with each search request, the clients not found
+	 * by the search (for example when an encoded key is specified) are requested one at a time
+	 * 
+	 * @param clientIds
+	 *            the ids or encoded keys of the clients. Must not be null
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * 
+	 * @return the retrieved clients by the requested id, and the exceptions for the ids which could not be retrieved
+	 * 
+	 * @throws MambuApiException
+	 *             if the requests are interrupted
+	 */
+	public BulkFetchResult<Client> getClients(Collection<String> clientIds, int concurrency) throws MambuApiException {
+		BulkFetcher<Client> fetcher = new BulkFetcher<Client>(new BulkOperation<String, Client>() {
+			@Override
+			public Client execute(String clientId) throws MambuApiException {
+				return getClient(clientId);
+			}
+		}, concurrency);
+		fetcher.setBatchSearch(new BatchOperation<String, Client>() {
+			@Override
+			public List<Client> executeBatch(List<String> clientIds) throws MambuApiException {
+				JSONFilterConstraints filterConstraints = SearchService.makeFilterConstraintsForIds(
+						DataItemType.CLIENT.name(), ClientsDataField.ID.name(), clientIds);
+				List<Client> clients = getClients(filterConstraints, "0", String.valueOf(clientIds.size()));
+				return BulkFetcher.matchIds(clientIds, clients, new EntityKeyExtractor<Client>() {
+					@Override
+					public String getKey(Client client) {
+						return client.getId();
+					}
+				});
+			}
+		}, SearchService.MAX_IDS_PER_SEARCH);
+		return fetcher.getMany(clientIds);
+	}
+
 	/**
 	 * Requests a client by their Last name and first name
 	 * 
@@ -246,6 +294,45 @@ public class ClientsService {
 		return serviceExecutor.execute(getGroup, groupId);
 	}
 
+	/**
+	 * Requests many groups by their ids. Duplicate ids are requested once. Up to
+	 * {@link SearchService#MAX_IDS_PER_SEARCH} groups are retrieved with each search request, the groups not found
+	 * by the search (for example when an encoded key is specified) are requested one at a time
+	 * 
+	 * @param groupIds
+	 *            the ids or encoded keys of the groups. Must not be null
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * 
+	 * @return the retrieved groups by the requested id, and the exceptions for the ids which could not be retrieved
+	 * 
+	 * @throws MambuApiException
+	 *             if the requests are interrupted
+	 */
+	public BulkFetchResult<Group> getGroups(Collection<String> groupIds, int concurrency) throws MambuApiException {
+		BulkFetcher<Group> fetcher = new BulkFetcher<Group>(new BulkOperation<String, Group>() {
+			@Override
+			public Group execute(String groupId) throws MambuApiException {
+				return getGroup(groupId);
+			}
+		}, concurrency);
+		fetcher.setBatchSearch(new BatchOperation<String, Group>() {
+			@Override
+			public List<Group> executeBatch(List<String> groupIds) throws MambuApiException {
+				JSONFilterConstraints filterConstraints = SearchService.makeFilterConstraintsForIds(
+						DataItemType.GROUP.name(), GroupsDataField.ID.name(), groupIds);
+				List<Group> groups = getGroups(filterConstraints, "0", String.valueOf(groupIds.size()));
+				return BulkFetcher.matchIds(groupIds, groups, new EntityKeyExtractor<Group>() {
+					@Override
+					public String getKey(Group group) {
+						return group.getId();
+					}
+				});
+			}
+		}, SearchService.MAX_IDS_PER_SEARCH);
+		return fetcher.getMany(groupIds);
+	}
+
 	/**
 	 * Requests the details about a group
 	 * 
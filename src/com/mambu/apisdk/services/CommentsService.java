@@ -1,5 +1,6 @@
 package com.mambu.apisdk.services;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -9,8 +10,11 @@ import com.google.inject.Inject;
 import com.mambu.api.server.handler.coments.model.JSONComment;
 import com.mambu.apisdk.MambuAPIService;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.CommentInstruction;
 import com.mambu.apisdk.util.MambuEntityType;
 import com.mambu.apisdk.util.ServiceExecutor;
+import com.mambu.apisdk.util.bulk.BulkOperation;
+import com.mambu.apisdk.util.bulk.WriteBehindQueue;
 import com.mambu.core.shared.model.Comment;
 
 /**
@@ -171,4 +175,35 @@ public class CommentsService {
 		return (set.contains(parentEntityType)) ? true : false;
 
 	}
+
+	/**
+	 * Make a write-behind queue for creating comments in the background, so that the caller does not wait for the API
+	 * requests. The returned queue must be started before submitting comments and closed when no longer needed. See
+	 * {@link WriteBehindQueue}
+	 * 
+	 * @param capacity
+	 *            maximum number of queued comments. Submitting a comment waits while the queue is full
+	 * @param workers
+	 *            number of concurrent requests creating comments
+	 * @param journalFile
+	 *            journal file keeping the queued comments across restarts. Optional. If null, the queued comments are
+	 *            lost when the application is stopped without closing the queue
+	 * @return write-behind queue returning a future of the created comment for each submitted comment
+	 */
+	public WriteBehindQueue<CommentInstruction, Comment> makeWriteBehindQueue(int capacity, int workers,
+			File journalFile) {
+		BulkOperation<CommentInstruction, Comment> operation = new BulkOperation<CommentInstruction, Comment>() {
+			@Override
+			public Comment execute(CommentInstruction comment) throws MambuApiException {
+				return create(comment.getParentEntity(), comment.getParentEntityId(), comment.getText());
+			}
+		};
+		WriteBehindQueue<CommentInstruction, Comment> queue = new WriteBehindQueue<CommentInstruction, Comment>(
+				operation, capacity, workers);
+		if (journalFile != null) {
+			queue.setJournal(journalFile, CommentInstruction.class);
+		}
+		return queue;
+	}
+
 }
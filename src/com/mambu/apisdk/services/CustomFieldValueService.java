@@ -1,14 +1,28 @@
 package com.mambu.apisdk.services;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import com.google.inject.Inject;
 import com.mambu.apisdk.MambuAPIService;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.CustomFieldValueUpdate;
+import com.mambu.apisdk.model.CustomInformation;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
 import com.mambu.apisdk.util.MambuEntityType;
 import com.mambu.apisdk.util.ServiceExecutor;
+import com.mambu.apisdk.util.bulk.BatchOperation;
+import com.mambu.apisdk.util.bulk.BatchingBulkExecutor;
+import com.mambu.apisdk.util.bulk.BulkOperation;
+import com.mambu.apisdk.util.bulk.BulkReport;
+import com.mambu.apisdk.util.bulk.OrderingKey;
 import com.mambu.core.shared.model.CustomFieldValue;
 
 /**
@@ -34,6 +48,15 @@ public class CustomFieldValueService {
 			MambuEntityType.GROUP, MambuEntityType.LOAN_ACCOUNT, MambuEntityType.SAVINGS_ACCOUNT,
 			MambuEntityType.BRANCH, MambuEntityType.CENTRE, MambuEntityType.USER };
 
+	// Specify Mambu entities supporting updating several custom field values with one request:
+	// PATCH {"customInformation":[{field1},{field2}]} /api/clients/abc123/custominformation
+	private final static MambuEntityType[] entitiesWithCoalescedUpdate = new MambuEntityType[] {
+			MambuEntityType.CLIENT, MambuEntityType.GROUP, MambuEntityType.LOAN_ACCOUNT,
+			MambuEntityType.SAVINGS_ACCOUNT };
+
+	// Maximum number of custom field values updated with one request
+	private final static int MAX_FIELDS_PER_REQUEST = 50;
+
 	// Custom Field Values API supports Updating (PATCH) and Deleting (DELETE). Note, custom field values cannot be
 	// retrieved separately from the parent entity. (Use GET Entity with full details to retrieve all custom field
 	// values)
@@ -86,6 +109,99 @@ public class CustomFieldValueService {
 
 	}
 
+	/***
+	 * Update many custom field values of many entities. The values are grouped by parent entity and the values of each
+	 * entity are sent with one request, for the entities supporting it (Client, Group, LoanAccount, SavingsAccount).
+	 * The values of the other entities are updated one at a time. Entities are updated in parallel.
+	 * 
+	 * If the request for an entity fails, its values are updated again one at a time, so the result of each value is
+	 * reported. When the same field of an entity is updated more than once, the last value is sent.
+	 * 
+	 * @param parentEntity
+	 *            Mambu entity for which the custom field values are updated. Example: MambuEntity.CLIENT
+	 * @param updates
+	 *            custom field value updates, with the entity id or encoded key of their parent entity. All updates
+	 *            are held in memory for the run
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * 
+	 * @return report with the result of each update, in the input order, and the run statistics
+	 * @throws MambuApiException
+	 *             if the run is interrupted. Failed updates are reported in the results
+	 */
+	public BulkReport<CustomFieldValueUpdate, Boolean> updateAll(final MambuEntityType parentEntity,
+			Iterable<CustomFieldValueUpdate> updates, int concurrency) throws MambuApiException {
+		if (parentEntity == null || updates == null) {
+			throw new IllegalArgumentException("Parent entity and updates must not be null");
+		}
+
+		BulkOperation<CustomFieldValueUpdate, Boolean> itemOperation =
+				new BulkOperation<CustomFieldValueUpdate, Boolean>() {
+			@Override
+			public Boolean execute(CustomFieldValueUpdate update) throws MambuApiException {
+				return update(parentEntity, update.getParentEntityId(), update.getCustomFieldValue());
+			}
+		};
+		BatchOperation<CustomFieldValueUpdate, Boolean> batchOperation = null;
+		if (Arrays.asList(entitiesWithCoalescedUpdate).contains(parentEntity)) {
+			batchOperation = new BatchOperation<CustomFieldValueUpdate, Boolean>() {
+				@Override
+				public List<Boolean> executeBatch(List<CustomFieldValueUpdate> batch) throws MambuApiException {
+					Boolean updated = updateAll(parentEntity, batch.get(0).getParentEntityId(), batch);
+					return Collections.nCopies(batch.size(), updated);
+				}
+			};
+		}
+
+		BatchingBulkExecutor<CustomFieldValueUpdate, Boolean> executor =
+				new BatchingBulkExecutor<CustomFieldValueUpdate, Boolean>(batchOperation, itemOperation,
+						MAX_FIELDS_PER_REQUEST, concurrency);
+		executor.setBatchKey(new OrderingKey<CustomFieldValueUpdate>() {
+			@Override
+			public String getKey(CustomFieldValueUpdate update) {
+				return update.getParentEntityId();
+			}
+		});
+		return executor.executeAll(updates);
+	}
+
+	/**
+	 * Update several custom field values of an entity with one request
+	 * 
+	 * @param parentEntity
+	 *            Mambu entity for which the custom field values are updated
+	 * @param parentEntityId
+	 *            entity id or encoded key for the parent entity
+	 * @param updates
+	 *            updates for the parent entity
+	 * @return true if updated successfully
+	 * @throws MambuApiException
+	 */
+	private Boolean updateAll(MambuEntityType parentEntity, String parentEntityId, List<CustomFieldValueUpdate> updates)
+			throws MambuApiException {
+		// PATCH {"customInformation":[{field1},{field2}]} /api/clients/abc123/custominformation
+
+		// Send the last value of each field
+		Map<String, CustomFieldValue> apiFieldValues = new LinkedHashMap<String, CustomFieldValue>();
+		for (CustomFieldValueUpdate update : updates) {
+			CustomFieldValue customFieldValue = update.getCustomFieldValue();
+			String customFieldIdPath = makeCustomFieldIdPath(customFieldValue);
+			CustomFieldValue apiFieldValue = makePatchApiCustomField(customFieldValue);
+			// The field id and the group number identify the field in the request
+			apiFieldValue.setCustomFieldId(customFieldValue.getCustomFieldId());
+			apiFieldValue.setCustomFieldSetGroupIndex(customFieldValue.getCustomFieldSetGroupIndex());
+			apiFieldValues.remove(customFieldIdPath);
+			apiFieldValues.put(customFieldIdPath, apiFieldValue);
+		}
+		CustomInformation customInformation = new CustomInformation(new ArrayList<CustomFieldValue>(
+				apiFieldValues.values()));
+
+		ApiDefinition patchValues = new ApiDefinition(ApiType.PATCH_OWNED_ENTITY, parentEntity.getEntityClass(),
+				CustomFieldValue.class);
+		String ownedEntityId = null;
+		return serviceExecutor.executeJson(patchValues, customInformation, parentEntityId, ownedEntityId, null);
+	}
+
 	/***
 	 * Delete custom field value for a Mambu parent entity
 	 * 
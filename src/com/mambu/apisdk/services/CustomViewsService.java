@@ -2,6 +2,8 @@ package com.mambu.apisdk.services;
 
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.google.inject.Inject;
 import com.mambu.api.server.handler.customviews.model.ApiViewType;
@@ -42,6 +44,10 @@ public class CustomViewsService {
 		supportedApiViewTypes.put(ApiViewType.SYSTEM_ACTIVITIES, MambuEntityType.ACTIVITY);
 	}
 
+	// API definitions for retrieving entities for a custom view, made once per API view type and result type. The
+	// definitions are not modified after they are made, so they are shared by all requests
+	private final static ConcurrentMap<String, ApiDefinition> customViewApiDefinitions = new ConcurrentHashMap<>();
+
 	/***
 	 * Create a new service
 	 * 
@@ -75,7 +81,7 @@ public class CustomViewsService {
 		// See MBU-4607, MBU-10842
 
 		CustomViewResultType resultType = fullDetails ? CustomViewResultType.FULL_DETAILS : CustomViewResultType.BASIC;
-		ApiDefinition apiDefinition = makeApiDefintion(apiViewType, resultType);
+		ApiDefinition apiDefinition = getApiDefinition(apiViewType, resultType);
 
 		// Create params map with all filtering parameters
 
@@ -145,6 +151,27 @@ public class CustomViewsService {
 		return params;
 	}
 
+	/**
+	 * Get the Api Definition for retrieving entities for a custom view, making it on the first request for the view
+	 * type and result type
+	 * 
+	 * @param apiViewType
+	 *            custom view's API view type
+	 * @param resultType
+	 *            required result type
+	 * @return api definition
+	 */
+	private ApiDefinition getApiDefinition(ApiViewType apiViewType, CustomViewResultType resultType) {
+		String key = apiViewType + " " + resultType;
+		ApiDefinition apiDefinition = customViewApiDefinitions.get(key);
+		if (apiDefinition == null) {
+			// Validates the parameters. Concurrent first requests may make equal definitions: either one is kept
+			apiDefinition = makeApiDefintion(apiViewType, resultType);
+			customViewApiDefinitions.putIfAbsent(key, apiDefinition);
+		}
+		return apiDefinition;
+	}
+
 	/**
 	 * Make Api Definition for retrieving entities for a custom view
 	 * 
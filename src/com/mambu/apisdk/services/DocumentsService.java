@@ -3,10 +3,16 @@
  */
 package com.mambu.apisdk.services;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Semaphore;
 
 import com.google.inject.Inject;
 import com.mambu.api.server.handler.documents.model.JSONDocument;
@@ -17,12 +23,18 @@ import com.mambu.apisdk.util.APIData.IMAGE_SIZE_TYPE;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.ConcurrencyUtils;
 import com.mambu.apisdk.util.MambuEntityType;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.apisdk.util.ServiceHelper;
+import com.mambu.apisdk.util.bulk.BulkExecutor;
+import com.mambu.apisdk.util.bulk.BulkOperation;
+import com.mambu.apisdk.util.bulk.BulkStatistics;
+import com.mambu.apisdk.util.bulk.FileManifest;
 import com.mambu.core.shared.model.Image;
 import com.mambu.docs.shared.model.Document;
+import com.mambu.docs.shared.model.OwnerType;
 
 /**
  * Service class which handles API operations like uploading documents
@@ -34,6 +46,29 @@ public class DocumentsService {
 
 	private static String SIZE = APIData.SIZE;
 
+	// Estimated memory used for uploading a file, per byte of the file: the base64 encoded content (4 characters for
+	// 3 bytes) is held as 2 byte characters in the JSON string builder and in the JSON string, and as bytes in the
+	// request entity
+	private final static int UPLOAD_MEMORY_PER_FILE_BYTE = 7;
+
+	/**
+	 * DocumentMapper makes the document details for a file uploaded by
+	 * {@link DocumentsService#uploadDirectory(File, DocumentMapper, File, int, long)}
+	 */
+	public interface DocumentMapper {
+
+		/**
+		 * Make the document details for a file
+		 * 
+		 * @param file
+		 *            file to upload
+		 * @param relativePath
+		 *            path of the file relative to the uploaded directory, with '/' separators
+		 * @return document with the document holder, name and type. Null to skip the file
+		 */
+		public Document makeDocument(File file, String relativePath);
+	}
+
 	// Our serviceExecutor
 	private ServiceExecutor serviceExecutor;
 	// Get Document
@@ -87,6 +122,148 @@ public class DocumentsService {
 		return serviceExecutor.execute(createDocument, paramsMap);
 	}
 
+	/***
+	 * Upload new Document with the content of a file. The file is encoded directly into the JSON request, requiring
+	 * less memory than uploading a JSONDocument with the encoded content
+	 * 
+	 * @param document
+	 *            the new document object containing all mandatory fields. Must not be null
+	 * @param file
+	 *            the file with the document content. Must not be null
+	 * 
+	 * @return the new document parsed as an object returned from the API call
+	 * 
+	 * @throws MambuApiException
+	 *             if the request fails or the file cannot be read
+	 */
+	public Document uploadDocument(Document document, File file) throws MambuApiException {
+		if (document == null || file == null) {
+			throw new IllegalArgumentException("Document and file cannot be null");
+		}
+		ParamsMap paramsMap;
+		try {
+			paramsMap = ServiceHelper.makeParamsForDocumentFile(document, file);
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+		return serviceExecutor.execute(createDocument, paramsMap);
+	}
+
+	/***
+	 * Upload all files of a directory tree as documents. Files are read and encoded by the upload threads, with bounded
+	 * parallelism and within a memory budget: a file is read only when the estimated memory needed for its request is
+	 * available, so large files are uploaded with less parallelism.
+	 * 
+	 * The result of each file is appended to a manifest. The upload is resumable: the files which succeeded according
+	 * to the manifest are not uploaded again, the files which failed are retried
+	 * 
+	 * @param directory
+	 *            the root directory of the files to upload. Must not be null
+	 * @param mapper
+	 *            mapper making the document details for each file. Must not be null. See
+	 *            {@link #makeDocumentMapperByHolderDirectory(OwnerType)}
+	 * @param manifestFile
+	 *            manifest file. Created if it does not exist. Must not be null. Skipped if it is in the directory tree
+	 * @param concurrency
+	 *            maximum number of concurrent uploads. Must be greater than zero
+	 * @param memoryBudgetBytes
+	 *            memory available for the requests being prepared and sent. Files too large for the budget are uploaded
+	 *            one at a time. Must be greater than zero
+	 * 
+	 * @return statistics of the uploads in this run
+	 * 
+	 * @throws MambuApiException
+	 *             if the run is interrupted or the manifest cannot be written. Failed uploads are recorded in the
+	 *             manifest
+	 * @throws IOException
+	 *             if the manifest cannot be opened
+	 */
+	public BulkStatistics uploadDirectory(File directory, DocumentMapper mapper, File manifestFile, int concurrency,
+			long memoryBudgetBytes) throws MambuApiException, IOException {
+		if (directory == null || !directory.isDirectory() || mapper == null || manifestFile == null) {
+			throw new IllegalArgumentException("Directory, mapper and manifest file must not be null. Directory="
+					+ directory);
+		}
+		if (memoryBudgetBytes < 1) {
+			throw new IllegalArgumentException("Memory budget must be greater than zero. It is " + memoryBudgetBytes);
+		}
+
+		FileManifest<Document> manifest = new FileManifest<Document>(manifestFile, directory);
+		try {
+			// Make the document details of the files not uploaded yet
+			final Map<File, Document> documents = new HashMap<File, Document>();
+			List<File> files = new ArrayList<File>();
+			for (File file : ServiceHelper.listFiles(directory)) {
+				if (file.getAbsoluteFile().equals(manifestFile.getAbsoluteFile()) || manifest.isCompleted(file)) {
+					continue;
+				}
+				Document document = mapper.makeDocument(file, manifest.getRelativePath(file));
+				if (document != null) {
+					documents.put(file, document);
+					files.add(file);
+				}
+			}
+
+			// Memory budget in kilobytes, allocated fairly so that large files are not starved by small ones
+			final int budgetKb = (int) Math.min(Integer.MAX_VALUE, Math.max(1, memoryBudgetBytes / 1024));
+			final Semaphore memory = new Semaphore(budgetKb, true);
+			BulkOperation<File, Document> operation = new BulkOperation<File, Document>() {
+				@Override
+				public Document execute(File file) throws MambuApiException {
+					int costKb = (int) Math.min(budgetKb, file.length() * UPLOAD_MEMORY_PER_FILE_BYTE / 1024 + 1);
+					try {
+						memory.acquire(costKb);
+					} catch (InterruptedException e) {
+						throw ConcurrencyUtils.toMambuApiException(e);
+					}
+					try {
+						return uploadDocument(documents.get(file), file);
+					} finally {
+						memory.release(costKb);
+					}
+				}
+			};
+			return new BulkExecutor<File, Document>(operation, concurrency).execute(files.iterator(), manifest);
+		} finally {
+			manifest.close();
+		}
+	}
+
+	/**
+	 * Make a document mapper for a directory with a sub-directory for each document holder, named with the document
+	 * holder's encoded key. For example, the file "8a80866e.../passport.pdf" is uploaded for the holder with the
+	 * encoded key "8a80866e..." with the name "passport.pdf" and the type "pdf". Files directly in the root directory
+	 * are skipped
+	 * 
+	 * @param holderType
+	 *            type of the document holders, e.g. OwnerType.CLIENT. Must not be null
+	 * @return document mapper
+	 */
+	public static DocumentMapper makeDocumentMapperByHolderDirectory(final OwnerType holderType) {
+		if (holderType == null) {
+			throw new IllegalArgumentException("Holder type must not be null");
+		}
+		return new DocumentMapper() {
+			@Override
+			public Document makeDocument(File file, String relativePath) {
+				int separator = relativePath.indexOf('/');
+				if (separator < 0) {
+					return null;
+				}
+				String fileName = file.getName();
+				int extension = fileName.lastIndexOf('.');
+
+				Document document = new Document();
+				document.setDocumentHolderKey(relativePath.substring(0, separator));
+				document.setDocumentHolderType(holderType);
+				document.setName(fileName);
+				document.setOriginalFilename(fileName);
+				document.setType((extension < 0) ? "" : fileName.substring(extension + 1).toLowerCase());
+				return document;
+			}
+		};
+	}
+
 	/***
 	 * Get base64 encoded document data by document id. A typical scenario would be getting a list of attachments for a
 	 * client/group/account via getDocuments() API and then retrieving a specific document (attachment) by its id with
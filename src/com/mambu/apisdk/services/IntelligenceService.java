@@ -4,7 +4,16 @@
 package com.mambu.apisdk.services;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import com.google.inject.Inject;
 import com.mambu.apisdk.MambuAPIService;
@@ -12,6 +21,7 @@ import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.ConcurrencyUtils;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.intelligence.shared.model.Intelligence.Indicator;
 
@@ -26,6 +36,11 @@ public class IntelligenceService {
 	private ServiceExecutor serviceExecutor;
 
 	private final static ApiDefinition getIndicator = new ApiDefinition(ApiType.GET_ENTITY, Indicator.class);
+	static {
+		// IntelligenceService returns a map. Use COLLECTION: for the Indicator class ServiceHelper is set to map
+		// COLLECTION to a HashMap<String, String> type. Set once: the definition is shared by concurrent requests
+		getIndicator.setApiReturnFormat(ApiReturnFormat.COLLECTION);
+	}
 
 	/***
 	 * Create a new intelligence service
@@ -52,9 +67,6 @@ public class IntelligenceService {
 		if (indicator == null) {
 			throw new IllegalArgumentException("Indicator must not be null");
 		}
-		// IntelligenceService returns a map. Use COLLECTION: for the Indicator class ServiceHelper is set to map
-		// COLLECTION to a HashMap<String, String> type
-		getIndicator.setApiReturnFormat(ApiReturnFormat.COLLECTION);
 		// Execute
 		HashMap<String, String> result = serviceExecutor.execute(getIndicator, indicator.name());
 
@@ -66,4 +78,64 @@ public class IntelligenceService {
 		}
 
 	}
+
+	/**
+	 * Requests several mambu indicator values concurrently, one request per indicator
+	 * 
+	 * @param indicators
+	 *            indicators to request. Must not be null or contain nulls
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * 
+	 * @return map of the indicator values, iterated in the Indicator enum order. The value of an indicator is null if
+	 *         Mambu returned no value for it
+	 * 
+	 * @throws MambuApiException
+	 *             if a request fails
+	 */
+	public EnumMap<Indicator, BigDecimal> getIndicators(Collection<Indicator> indicators, int concurrency)
+			throws MambuApiException {
+
+		if (indicators == null) {
+			throw new IllegalArgumentException("Indicators must not be null");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be greater than zero. Concurrency=" + concurrency);
+		}
+		EnumSet<Indicator> requested = EnumSet.noneOf(Indicator.class);
+		for (Indicator indicator : indicators) {
+			if (indicator == null) {
+				throw new IllegalArgumentException("Indicators must not contain nulls");
+			}
+			requested.add(indicator);
+		}
+		EnumMap<Indicator, BigDecimal> values = new EnumMap<Indicator, BigDecimal>(Indicator.class);
+		if (requested.isEmpty()) {
+			return values;
+		}
+		ExecutorService executor = ConcurrencyUtils.newFixedThreadPool(Math.min(concurrency, requested.size()),
+				"mambu-indicators");
+		try {
+			List<Future<BigDecimal>> futures = new ArrayList<Future<BigDecimal>>();
+			for (final Indicator indicator : requested) {
+				futures.add(executor.submit(new Callable<BigDecimal>() {
+					@Override
+					public BigDecimal call() throws MambuApiException {
+						return getIndicator(indicator);
+					}
+				}));
+			}
+			int index = 0;
+			for (Indicator indicator : requested) {
+				values.put(indicator, futures.get(index++).get());
+			}
+			return values;
+		} catch (ExecutionException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} catch (InterruptedException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
 }
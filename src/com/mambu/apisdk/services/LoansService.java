@@ -3,7 +3,10 @@
  */
 package com.mambu.apisdk.services;
 
+import java.io.File;
+import java.util.Collection;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 
 import com.google.inject.Inject;
@@ -16,21 +19,48 @@ import com.mambu.api.server.handler.loan.model.JSONLoanRepayments;
 import com.mambu.api.server.handler.tranches.model.JSONTranches;
 import com.mambu.apisdk.MambuAPIService;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.AccountSelection;
 import com.mambu.apisdk.model.LoanAccountExpanded;
+import com.mambu.apisdk.model.LoanOnboardingWorkflow;
+import com.mambu.apisdk.model.LoanOnboardingWorkflow.Stage;
+import com.mambu.apisdk.model.LoanRepaymentInstruction;
 import com.mambu.apisdk.services.CustomViewsService.CustomViewResultType;
 import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
 import com.mambu.apisdk.util.DateUtils;
+import com.mambu.apisdk.util.GsonUtils;
 import com.mambu.apisdk.util.MambuEntityType;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.apisdk.util.ServiceHelper;
+import com.mambu.apisdk.util.bulk.AccountSelectionExecutor;
+import com.mambu.apisdk.util.bulk.AccountSelectionExecutor.AccountFetcher;
+import com.mambu.apisdk.util.bulk.BatchOperation;
+import com.mambu.apisdk.util.bulk.BulkExecutor;
+import com.mambu.apisdk.util.bulk.BulkFetchResult;
+import com.mambu.apisdk.util.bulk.BulkFetcher;
+import com.mambu.apisdk.util.bulk.BulkOperation;
+import com.mambu.apisdk.util.bulk.BulkReport;
+import com.mambu.apisdk.util.bulk.BulkResultHandler;
+import com.mambu.apisdk.util.bulk.BulkReversal;
+import com.mambu.apisdk.util.bulk.BulkStatistics;
+import com.mambu.apisdk.util.bulk.OrderingKey;
+import com.mambu.apisdk.util.bulk.PipelineExecutor;
+import com.mambu.apisdk.util.bulk.PipelineReport;
+import com.mambu.apisdk.util.bulk.ReversalReport;
+import com.mambu.apisdk.util.pagination.CheckpointedScan;
+import com.mambu.apisdk.util.pagination.EntityKeyExtractor;
+import com.mambu.apisdk.util.pagination.PageFetcher;
+import com.mambu.apisdk.util.pagination.ParallelPaginator;
+import com.mambu.apisdk.util.pagination.ParallelPaginator.DeliveryOrder;
 import com.mambu.clients.shared.model.Client;
 import com.mambu.clients.shared.model.Group;
+import com.mambu.core.shared.data.DataItemType;
 import com.mambu.docs.shared.model.Document;
+import com.mambu.loans.shared.data.LoansDataField;
 import com.mambu.loans.shared.model.LoanAccount;
 import com.mambu.loans.shared.model.LoanProduct;
 import com.mambu.loans.shared.model.LoanTranche;
@@ -154,6 +184,48 @@ public class LoansService {
 		return serviceExecutor.execute(getAccount, accountId);
 	}
 
+	/**
+	 * Requests many loan accounts by their ids. Duplicate ids are requested once. Up to
+	 * {@link SearchService#MAX_IDS_PER_SEARCH} loan accounts are retrieved with each search request, the loan
+	 * accounts not found by the search (for example when an encoded key is specified) are requested one at a time
+	 * 
+	 * @param accountIds
+	 *            the ids or encoded keys of the loan accounts. Must not be null
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * 
+	 * @return the retrieved loan accounts by the requested id, and the exceptions for the ids which could not be
+	 *         retrieved
+	 * 
+	 * @throws MambuApiException
+	 *             if the requests are interrupted
+	 */
+	public BulkFetchResult<LoanAccount> getLoanAccounts(Collection<String> accountIds, int concurrency)
+			throws MambuApiException {
+		BulkFetcher<LoanAccount> fetcher = new BulkFetcher<LoanAccount>(new BulkOperation<String, LoanAccount>() {
+			@Override
+			public LoanAccount execute(String accountId) throws MambuApiException {
+				return getLoanAccount(accountId);
+			}
+		}, concurrency);
+		fetcher.setBatchSearch(new BatchOperation<String, LoanAccount>() {
+			@Override
+			public List<LoanAccount> executeBatch(List<String> accountIds) throws MambuApiException {
+				JSONFilterConstraints filterConstraints = SearchService.makeFilterConstraintsForIds(
+						DataItemType.LOANS.name(), LoansDataField.ACCOUNT_ID.name(), accountIds);
+				List<LoanAccount> accounts = getLoanAccounts(filterConstraints, "0",
+						String.valueOf(accountIds.size()));
+				return BulkFetcher.matchIds(accountIds, accounts, new EntityKeyExtractor<LoanAccount>() {
+					@Override
+					public String getKey(LoanAccount account) {
+						return account.getId();
+					}
+				});
+			}
+		}, SearchService.MAX_IDS_PER_SEARCH);
+		return fetcher.getMany(accountIds);
+	}
+
 	/***
 	 * Get all the loan accounts for a given client
 	 * 
@@ -733,6 +805,39 @@ public class LoansService {
 
 	}
 
+	/***
+	 * Make a resumable scan of all loan transactions matching filter constraints. The scan persists its progress to
+	 * the checkpoint file and, when run again after a failure, resumes from the last processed transaction
+	 * 
+	 * @param filterConstraints
+	 *            filter constraints. Must not be null. Should sort the transactions by a field which does not change,
+	 *            for example by the creation date, for the scan to be resumable
+	 * @param pageSize
+	 *            number of transactions to request per page. Must be greater than zero
+	 * @param checkpointFile
+	 *            file to persist the scan progress to. A checkpoint saved for different filter constraints is rejected
+	 * @return checkpointed scan
+	 */
+	public CheckpointedScan<LoanTransaction> makeLoanTransactionsScan(final JSONFilterConstraints filterConstraints,
+			int pageSize, File checkpointFile) {
+
+		PageFetcher<LoanTransaction> pageFetcher = new PageFetcher<LoanTransaction>() {
+			@Override
+			public List<LoanTransaction> getPage(int offset, int limit) throws MambuApiException {
+				return getLoanTransactions(filterConstraints, String.valueOf(offset), String.valueOf(limit));
+			}
+		};
+		EntityKeyExtractor<LoanTransaction> keyExtractor = new EntityKeyExtractor<LoanTransaction>() {
+			@Override
+			public String getKey(LoanTransaction transaction) {
+				return transaction.getEncodedKey();
+			}
+		};
+		String scanDefinition = GsonUtils.createGson().toJson(filterConstraints);
+		return new CheckpointedScan<LoanTransaction>(pageFetcher, pageSize, checkpointFile, scanDefinition,
+				keyExtractor);
+	}
+
 	/****
 	 * Make Repayment for a loan account
 	 * 
@@ -763,6 +868,173 @@ public class LoansService {
 		return serviceExecutor.execute(postAccountTransaction, accountId, paramsMap);
 	}
 
+	/****
+	 * Make Repayments for many loan accounts. Repayments are posted with bounded parallelism, the repayments for the
+	 * same account are posted one after the other in the input order
+	 * 
+	 * @param repayments
+	 *            repayment instructions. Read lazily, so the repayments can be streamed from a file or a database
+	 * @param concurrency
+	 *            maximum number of concurrent repayment requests. Must be greater than zero
+	 * @param handler
+	 *            handler receiving the LoanTransaction or the exception for each repayment as soon as it is posted
+	 * 
+	 * @return statistics of the run, including the throughput and the latency percentiles
+	 * 
+	 * @throws MambuApiException
+	 *             if the handler fails or the run is interrupted. Failed repayments are reported to the handler
+	 */
+	public BulkStatistics makeLoanRepayments(Iterator<LoanRepaymentInstruction> repayments, int concurrency,
+			BulkResultHandler<LoanRepaymentInstruction, LoanTransaction> handler) throws MambuApiException {
+
+		return makeLoanRepaymentsExecutor(concurrency).execute(repayments, handler);
+	}
+
+	/****
+	 * Make Repayments for many loan accounts and collect the results. See
+	 * {@link #makeLoanRepayments(Iterator, int, BulkResultHandler)}
+	 * 
+	 * @param repayments
+	 *            repayment instructions
+	 * @param concurrency
+	 *            maximum number of concurrent repayment requests. Must be greater than zero
+	 * 
+	 * @return report with the LoanTransaction or the exception for each repayment, in the input order, and the run
+	 *         statistics
+	 * 
+	 * @throws MambuApiException
+	 *             if the run is interrupted
+	 */
+	public BulkReport<LoanRepaymentInstruction, LoanTransaction> makeLoanRepayments(
+			Iterable<LoanRepaymentInstruction> repayments, int concurrency) throws MambuApiException {
+
+		return makeLoanRepaymentsExecutor(concurrency).executeAll(repayments);
+	}
+
+	/**
+	 * Create a bulk executor posting repayments ordered by account
+	 * 
+	 * @param concurrency
+	 *            maximum number of concurrent requests
+	 * @return bulk executor
+	 */
+	private BulkExecutor<LoanRepaymentInstruction, LoanTransaction> makeLoanRepaymentsExecutor(int concurrency) {
+		BulkOperation<LoanRepaymentInstruction, LoanTransaction> operation =
+				new BulkOperation<LoanRepaymentInstruction, LoanTransaction>() {
+			@Override
+			public LoanTransaction execute(LoanRepaymentInstruction repayment) throws MambuApiException {
+				return makeLoanRepayment(repayment.getAccountId(), repayment.getAmount(), repayment.getDate(),
+						repayment.getNotes(), repayment.getTransactionDetails());
+			}
+		};
+		BulkExecutor<LoanRepaymentInstruction, LoanTransaction> executor =
+				new BulkExecutor<LoanRepaymentInstruction, LoanTransaction>(operation, concurrency);
+		executor.setOrderingKey(new OrderingKey<LoanRepaymentInstruction>() {
+			@Override
+			public String getKey(LoanRepaymentInstruction repayment) {
+				return repayment.getAccountId();
+			}
+		});
+		return executor;
+	}
+
+	/****
+	 * Onboard many loan accounts: create, approve, disburse and optionally apply a fee to each account. See
+	 * {@link #makeLoanOnboardingPipeline(int)}
+	 * 
+	 * @param workflows
+	 *            onboarding workflows, one for each account. Must have unique workflow ids if a journal is used
+	 * @param concurrency
+	 *            maximum number of concurrent requests of each stage. Must be greater than zero
+	 * @param journalFile
+	 *            file recording the progress of each workflow. Running the same workflows again with the same journal
+	 *            resumes each workflow after its last completed stage. Null for no journal
+	 * 
+	 * @return report with the state and the failed stage of each workflow, in the input order, and the statistics of
+	 *         each stage
+	 * 
+	 * @throws MambuApiException
+	 *             if the journal cannot be written or the run is interrupted
+	 */
+	public PipelineReport<LoanOnboardingWorkflow> onboardLoanAccounts(Iterable<LoanOnboardingWorkflow> workflows,
+			int concurrency, File journalFile) throws MambuApiException {
+
+		PipelineExecutor<LoanOnboardingWorkflow> pipeline = makeLoanOnboardingPipeline(concurrency);
+		if (journalFile != null) {
+			pipeline.setJournal(journalFile, LoanOnboardingWorkflow.class,
+					new EntityKeyExtractor<LoanOnboardingWorkflow>() {
+						@Override
+						public String getKey(LoanOnboardingWorkflow workflow) {
+							return workflow.getWorkflowId();
+						}
+					});
+		}
+		return pipeline.executeAll(workflows);
+	}
+
+	/****
+	 * Make a pipeline onboarding loan accounts, with a stage for each {@link LoanOnboardingWorkflow.Stage}. The stages
+	 * of different accounts run concurrently: an account can be disbursed while the next one is being approved. Use
+	 * {@link PipelineExecutor#setConcurrency(String, int)} to limit the concurrency of a stage, and
+	 * {@link PipelineExecutor#setJournal(File, Class, EntityKeyExtractor)} to make the run resumable
+	 * 
+	 * Note: a workflow interrupted after its account was created but before the stage was recorded creates the account
+	 * again when resumed, unless the account has an ID set by the caller, which makes the second creation fail
+	 * 
+	 * @param concurrency
+	 *            maximum number of concurrent requests of each stage. Must be greater than zero
+	 * 
+	 * @return pipeline executor
+	 */
+	public PipelineExecutor<LoanOnboardingWorkflow> makeLoanOnboardingPipeline(int concurrency) {
+		PipelineExecutor<LoanOnboardingWorkflow> pipeline = new PipelineExecutor<LoanOnboardingWorkflow>();
+
+		pipeline.addStage(Stage.CREATE.name(), new BulkOperation<LoanOnboardingWorkflow, Void>() {
+			@Override
+			public Void execute(LoanOnboardingWorkflow workflow) throws MambuApiException {
+				if (workflow.getAccountId() == null) {
+					LoanAccountExpanded created = createLoanAccount(workflow.getLoanAccount());
+					workflow.setAccountId(created.getLoanAccount().getId());
+				}
+				return null;
+			}
+		}, concurrency);
+
+		pipeline.addStage(Stage.APPROVE.name(), new BulkOperation<LoanOnboardingWorkflow, Void>() {
+			@Override
+			public Void execute(LoanOnboardingWorkflow workflow) throws MambuApiException {
+				approveLoanAccount(workflow.getAccountId(), workflow.getApprovalNotes());
+				return null;
+			}
+		}, concurrency);
+
+		pipeline.addStage(Stage.DISBURSE.name(), new BulkOperation<LoanOnboardingWorkflow, Void>() {
+			@Override
+			public Void execute(LoanOnboardingWorkflow workflow) throws MambuApiException {
+				LoanTransaction transaction = disburseLoanAccount(workflow.getAccountId(),
+						workflow.getDisbursementAmount(), workflow.getDisbursementDate(),
+						workflow.getFirstRepaymentDate(), workflow.getDisbursementNotes(),
+						workflow.getTransactionDetails());
+				workflow.setDisbursementTransactionId((transaction != null) ? transaction.getTransactionId() : null);
+				return null;
+			}
+		}, concurrency);
+
+		pipeline.addStage(Stage.APPLY_FEE.name(), new BulkOperation<LoanOnboardingWorkflow, Void>() {
+			@Override
+			public Void execute(LoanOnboardingWorkflow workflow) throws MambuApiException {
+				if (workflow.getFeeAmount() != null) {
+					LoanTransaction transaction = applyFeeToLoanAccount(workflow.getAccountId(),
+							workflow.getFeeAmount(), workflow.getFeeRepaymentNumber(), workflow.getFeeNotes());
+					workflow.setFeeTransactionId((transaction != null) ? transaction.getTransactionId() : null);
+				}
+				return null;
+			}
+		}, concurrency);
+
+		return pipeline;
+	}
+
 	/****
 	 * Apply FEE to a loan account
 	 * 
@@ -817,6 +1089,104 @@ public class LoansService {
 		return serviceExecutor.execute(postAccountTransaction, accountId, paramsMap);
 	}
 
+	/****
+	 * Apply interest to many loan accounts on a given date. Accounts are processed with bounded parallelism, after the
+	 * IDs of all the accounts of a custom view or filter constraints are retrieved
+	 * 
+	 * @param accounts
+	 *            selected loan accounts. Must not be null
+	 * @param date
+	 *            interest application date. Mandatory
+	 * @param notes
+	 *            notes
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * @param handler
+	 *            handler receiving the LoanTransaction or the exception for each account ID as soon as it is executed
+	 * 
+	 * @return statistics of the run
+	 * 
+	 * @throws MambuApiException
+	 *             if retrieving the accounts fails, the handler fails or the run is interrupted
+	 */
+	public BulkStatistics applyInterestToLoanAccounts(AccountSelection accounts, final Date date, final String notes,
+			int concurrency, BulkResultHandler<String, LoanTransaction> handler) throws MambuApiException {
+		if (date == null) {
+			throw new IllegalArgumentException("Date cannot be null");
+		}
+		BulkOperation<String, LoanTransaction> operation = new BulkOperation<String, LoanTransaction>() {
+			@Override
+			public LoanTransaction execute(String accountId) throws MambuApiException {
+				return applyInterestToLoanAccount(accountId, date, notes);
+			}
+		};
+		return executeForLoanAccounts(accounts, operation, concurrency, handler);
+	}
+
+	/****
+	 * Apply a fee to many loan accounts. Accounts are processed with bounded parallelism, after the IDs of all the
+	 * accounts of a custom view or filter constraints are retrieved
+	 * 
+	 * @param accounts
+	 *            selected loan accounts. Must not be null
+	 * @param amount
+	 *            fee amount
+	 * @param repaymentNumber
+	 *            repayment number
+	 * @param notes
+	 *            notes
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * @param handler
+	 *            handler receiving the LoanTransaction or the exception for each account ID as soon as it is executed
+	 * 
+	 * @return statistics of the run
+	 * 
+	 * @throws MambuApiException
+	 *             if retrieving the accounts fails, the handler fails or the run is interrupted
+	 */
+	public BulkStatistics applyFeeToLoanAccounts(AccountSelection accounts, final String amount,
+			final String repaymentNumber, final String notes, int concurrency,
+			BulkResultHandler<String, LoanTransaction> handler) throws MambuApiException {
+
+		BulkOperation<String, LoanTransaction> operation = new BulkOperation<String, LoanTransaction>() {
+			@Override
+			public LoanTransaction execute(String accountId) throws MambuApiException {
+				return applyFeeToLoanAccount(accountId, amount, repaymentNumber, notes);
+			}
+		};
+		return executeForLoanAccounts(accounts, operation, concurrency, handler);
+	}
+
+	/**
+	 * Execute an operation for each selected loan account ID
+	 */
+	private BulkStatistics executeForLoanAccounts(AccountSelection accounts,
+			BulkOperation<String, LoanTransaction> operation, int concurrency,
+			BulkResultHandler<String, LoanTransaction> handler) throws MambuApiException {
+		AccountFetcher<LoanAccount> accountFetcher = new AccountFetcher<LoanAccount>() {
+			@Override
+			public List<LoanAccount> getAccountsByCustomView(String customViewKey, int offset, int limit)
+					throws MambuApiException {
+				return getLoanAccountsByCustomView(customViewKey, String.valueOf(offset), String.valueOf(limit));
+			}
+
+			@Override
+			public List<LoanAccount> getAccounts(JSONFilterConstraints filterConstraints, int offset, int limit)
+					throws MambuApiException {
+				return getLoanAccounts(filterConstraints, String.valueOf(offset), String.valueOf(limit));
+			}
+		};
+		EntityKeyExtractor<LoanAccount> idExtractor = new EntityKeyExtractor<LoanAccount>() {
+			@Override
+			public String getKey(LoanAccount account) {
+				return account.getId();
+			}
+		};
+		return new AccountSelectionExecutor<LoanAccount, LoanTransaction>(accountFetcher, idExtractor, operation,
+				concurrency).execute(accounts, handler);
+	}
+
 	/***
 	 * Get the loan accounts by branch id, centreId, credit officer, accountState
 	 * 
@@ -931,6 +1301,33 @@ public class LoansService {
 
 	}
 
+	/**
+	 * Get all loan accounts matching filter constraints, retrieving up to 'concurrency' pages in parallel. See
+	 * {@link ParallelPaginator} for details
+	 * 
+	 * @param filterConstraints
+	 *            filter constraints. Must not be null
+	 * @param pageSize
+	 *            number of accounts to request per page. Must be greater than zero
+	 * @param concurrency
+	 *            maximum number of page requests in flight. Must be greater than zero
+	 * @param deliveryOrder
+	 *            ORDERED to return accounts in the API order, UNORDERED to return them in the order pages were received
+	 * @return list of all loan accounts matching filter constraints
+	 * @throws MambuApiException
+	 */
+	public List<LoanAccount> getAllLoanAccounts(final JSONFilterConstraints filterConstraints, int pageSize,
+			int concurrency, DeliveryOrder deliveryOrder) throws MambuApiException {
+
+		PageFetcher<LoanAccount> pageFetcher = new PageFetcher<LoanAccount>() {
+			@Override
+			public List<LoanAccount> getPage(int offset, int limit) throws MambuApiException {
+				return getLoanAccounts(filterConstraints, String.valueOf(offset), String.valueOf(limit));
+			}
+		};
+		return new ParallelPaginator<LoanAccount>(pageFetcher, pageSize, concurrency).getAll(deliveryOrder);
+	}
+
 	// Loan Products
 	/***
 	 * Get a list of Loan Products
@@ -1110,4 +1507,42 @@ public class LoansService {
 
 		return reverseLoanTransaction(accountId, transactionType, transactionId, notes);
 	}
+
+	/****
+	 * Reverse many loan transactions, for example the transactions posted by a bad import. The transactions of each
+	 * account are reversed newest first, one after the other, and the remaining transactions of an account are skipped
+	 * after a reversal fails. Different accounts are reversed concurrently. See {@link BulkReversal}
+	 * 
+	 * @param originalTransactions
+	 *            loan transactions to reverse, in any order. Must have the parent account key. Only PENALTY_APPLIED
+	 *            transactions can be reversed
+	 * @param notes
+	 *            transaction notes for all reversals
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * 
+	 * @return report reconciling the requested and the reversed transactions of each account, with the result of each
+	 *         reversal
+	 * 
+	 * @throws MambuApiException
+	 *             if the run is interrupted
+	 */
+	public ReversalReport<LoanTransaction, LoanTransaction> reverseLoanTransactions(
+			Collection<LoanTransaction> originalTransactions, final String notes, int concurrency)
+			throws MambuApiException {
+
+		BulkOperation<LoanTransaction, LoanTransaction> operation =
+				new BulkOperation<LoanTransaction, LoanTransaction>() {
+			@Override
+			public LoanTransaction execute(LoanTransaction transaction) throws MambuApiException {
+				try {
+					return reverseLoanTransaction(transaction, notes);
+				} catch (IllegalArgumentException e) {
+					throw new MambuApiException(-1, "Invalid transaction: " + e.getMessage());
+				}
+			}
+		};
+		return new BulkReversal<LoanTransaction, LoanTransaction>(operation, concurrency)
+				.reverseAll(originalTransactions);
+	}
 }
@@ -3,6 +3,13 @@
  */
 package com.mambu.apisdk.services;
 
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 
 import com.google.inject.Inject;
@@ -12,21 +19,49 @@ import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstrain
 import com.mambu.api.server.handler.savings.model.JSONSavingsAccount;
 import com.mambu.apisdk.MambuAPIService;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.AccountSelection;
+import com.mambu.apisdk.model.SavingsTransactionInstruction;
+import com.mambu.apisdk.model.SavingsTransactionInstruction.Kind;
 import com.mambu.apisdk.services.CustomViewsService.CustomViewResultType;
 import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.DateUtils;
 import com.mambu.apisdk.util.MambuEntityType;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.apisdk.util.ServiceHelper;
+import com.mambu.apisdk.util.bulk.AccountSelectionExecutor;
+import com.mambu.apisdk.util.bulk.AccountSelectionExecutor.AccountFetcher;
+import com.mambu.apisdk.util.bulk.BatchOperation;
+import com.mambu.apisdk.util.bulk.BulkExecutor;
+import com.mambu.apisdk.util.bulk.BulkFetchResult;
+import com.mambu.apisdk.util.bulk.BulkFetcher;
+import com.mambu.apisdk.util.bulk.BulkOperation;
+import com.mambu.apisdk.util.bulk.BulkResultHandler;
+import com.mambu.apisdk.util.bulk.BulkReversal;
+import com.mambu.apisdk.util.bulk.BulkStatistics;
+import com.mambu.apisdk.util.bulk.InputRecord;
+import com.mambu.apisdk.util.bulk.InputRecordReader;
+import com.mambu.apisdk.util.bulk.JsonLinesResultWriter;
+import com.mambu.apisdk.util.bulk.OrderingKey;
+import com.mambu.apisdk.util.bulk.ReversalReport;
+import com.mambu.apisdk.util.pagination.EntityKeyExtractor;
+import com.mambu.apisdk.util.pagination.PageFetcher;
+import com.mambu.apisdk.util.pagination.PageIterator;
+import com.mambu.apisdk.util.pagination.PageSizeController;
+import com.mambu.apisdk.util.pagination.Paginator;
+import com.mambu.apisdk.util.pagination.ParallelPaginator;
+import com.mambu.apisdk.util.pagination.ParallelPaginator.DeliveryOrder;
 import com.mambu.clients.shared.model.Client;
 import com.mambu.clients.shared.model.Group;
+import com.mambu.core.shared.data.DataItemType;
 import com.mambu.docs.shared.model.Document;
 import com.mambu.loans.shared.model.LoanAccount;
+import com.mambu.savings.shared.data.SavingsDataField;
 import com.mambu.savings.shared.model.SavingsAccount;
 import com.mambu.savings.shared.model.SavingsProduct;
 import com.mambu.savings.shared.model.SavingsTransaction;
@@ -50,6 +85,15 @@ public class SavingsService {
 	private static final String TYPE_WITHDRAWAL_ADJUSTMENT = APIData.TYPE_WITHDRAWAL_ADJUSTMENT;
 	private static final String TYPE_TRANSFER_ADJUSTMENT = APIData.TYPE_TRANSFER_ADJUSTMENT;
 
+	// Field names of the savings transactions bulk input records
+	private static final String TYPE_FIELD = "type";
+	private static final String ACCOUNT_ID_FIELD = "accountId";
+	private static final String AMOUNT_FIELD = "amount";
+	private static final String DATE_FIELD = "date";
+	private static final String NOTES_FIELD = "notes";
+	private static final String TO_ACCOUNT_ID_FIELD = "toAccountId";
+	private static final String TO_ACCOUNT_TYPE_FIELD = "toAccountType";
+
 	private static final String ORIGINAL_TRANSACTION_ID = APIData.ORIGINAL_TRANSACTION_ID;
 
 	private static final String TYPE_APPROVAL = APIData.TYPE_APPROVAL;
@@ -141,6 +185,49 @@ public class SavingsService {
 		return serviceExecutor.execute(getAccount, accountId);
 	}
 
+	/**
+	 * Requests many savings accounts by their ids. Duplicate ids are requested once. Up to
+	 * {@link SearchService#MAX_IDS_PER_SEARCH} savings accounts are retrieved with each search request, the savings
+	 * accounts not found by the search (for example when an encoded key is specified) are requested one at a time
+	 * 
+	 * @param accountIds
+	 *            the ids or encoded keys of the savings accounts. Must not be null
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * 
+	 * @return the retrieved savings accounts by the requested id, and the exceptions for the ids which could not be
+	 *         retrieved
+	 * 
+	 * @throws MambuApiException
+	 *             if the requests are interrupted
+	 */
+	public BulkFetchResult<SavingsAccount> getSavingsAccounts(Collection<String> accountIds, int concurrency)
+			throws MambuApiException {
+		BulkFetcher<SavingsAccount> fetcher = new BulkFetcher<SavingsAccount>(
+				new BulkOperation<String, SavingsAccount>() {
+					@Override
+					public SavingsAccount execute(String accountId) throws MambuApiException {
+						return getSavingsAccount(accountId);
+					}
+				}, concurrency);
+		fetcher.setBatchSearch(new BatchOperation<String, SavingsAccount>() {
+			@Override
+			public List<SavingsAccount> executeBatch(List<String> accountIds) throws MambuApiException {
+				JSONFilterConstraints filterConstraints = SearchService.makeFilterConstraintsForIds(
+						DataItemType.SAVINGS.name(), SavingsDataField.ACCOUNT_ID.name(), accountIds);
+				List<SavingsAccount> accounts = getSavingsAccounts(filterConstraints, "0",
+						String.valueOf(accountIds.size()));
+				return BulkFetcher.matchIds(accountIds, accounts, new EntityKeyExtractor<SavingsAccount>() {
+					@Override
+					public String getKey(SavingsAccount account) {
+						return account.getId();
+					}
+				});
+			}
+		}, SearchService.MAX_IDS_PER_SEARCH);
+		return fetcher.getMany(accountIds);
+	}
+
 	/***
 	 * Get a savings account with full details by its id
 	 * 
@@ -294,6 +381,72 @@ public class SavingsService {
 
 	}
 
+	/**
+	 * Iterate over savings transactions matching filter constraints page by page, optionally reading the next pages in
+	 * the background while the caller processes the current one. See {@link Paginator} for details
+	 * 
+	 * @param filterConstraints
+	 *            filter constraints. Must not be null
+	 * @param pageSize
+	 *            number of transactions to request per page. Must be greater than zero
+	 * @param readAheadPages
+	 *            number of pages to retrieve ahead of the caller. Zero to retrieve pages on demand
+	 * @return page iterator. Must be closed if not iterated to the end
+	 */
+	public PageIterator<SavingsTransaction> getSavingsTransactionsPages(JSONFilterConstraints filterConstraints,
+			int pageSize, int readAheadPages) {
+
+		Paginator<SavingsTransaction> paginator = makeSavingsTransactionsPaginator(filterConstraints, pageSize);
+		paginator.setReadAheadPages(readAheadPages);
+		return paginator.iterator(0);
+	}
+
+	/**
+	 * Iterate over savings transactions matching filter constraints page by page, with the page size adapted to the API
+	 * latency by a page size controller. See {@link PageSizeController} for details
+	 * 
+	 * @param filterConstraints
+	 *            filter constraints. Must not be null
+	 * @param pageSizeController
+	 *            page size controller, added as a response listener to the factory creating this service. Must not be
+	 *            null
+	 * @param readAheadPages
+	 *            number of pages to retrieve ahead of the caller. Zero to retrieve pages on demand
+	 * @return page iterator. Must be closed if not iterated to the end
+	 */
+	public PageIterator<SavingsTransaction> getSavingsTransactionsPages(JSONFilterConstraints filterConstraints,
+			PageSizeController pageSizeController, int readAheadPages) {
+		if (pageSizeController == null) {
+			throw new IllegalArgumentException("Page size controller must not be null");
+		}
+		String apiKey = SearchService.makeApiDefinitionforSearchByFilter(MambuEntityType.SAVINGS_TRANSACTION).getKey();
+		Paginator<SavingsTransaction> paginator = makeSavingsTransactionsPaginator(filterConstraints,
+				pageSizeController.getPageSize(apiKey));
+		paginator.setPageSizeController(pageSizeController, apiKey);
+		paginator.setReadAheadPages(readAheadPages);
+		return paginator.iterator(0);
+	}
+
+	/**
+	 * Make a paginator over savings transactions matching filter constraints
+	 * 
+	 * @param filterConstraints
+	 *            filter constraints
+	 * @param pageSize
+	 *            number of transactions to request per page
+	 * @return paginator
+	 */
+	private Paginator<SavingsTransaction> makeSavingsTransactionsPaginator(
+			final JSONFilterConstraints filterConstraints, int pageSize) {
+		PageFetcher<SavingsTransaction> pageFetcher = new PageFetcher<SavingsTransaction>() {
+			@Override
+			public List<SavingsTransaction> getPage(int offset, int limit) throws MambuApiException {
+				return getSavingsTransactions(filterConstraints, String.valueOf(offset), String.valueOf(limit));
+			}
+		};
+		return new Paginator<SavingsTransaction>(pageFetcher, pageSize);
+	}
+
 	/****
 	 * Make a withdrawal from an account.
 	 * 
@@ -398,6 +551,223 @@ public class SavingsService {
 		return serviceExecutor.execute(postAccountTransaction, fromAccountId, paramsMap);
 	}
 
+	/**
+	 * Execute a savings transaction instruction: make a deposit, a withdrawal or a transfer
+	 * 
+	 * @param instruction
+	 *            transaction instruction. Must be valid, see
+	 *            {@link #validateInstruction(SavingsTransactionInstruction)}
+	 * 
+	 * @return Savings Transaction
+	 * 
+	 * @throws MambuApiException
+	 */
+	public SavingsTransaction executeTransaction(SavingsTransactionInstruction instruction) throws MambuApiException {
+		validateInstruction(instruction);
+
+		switch (instruction.getKind()) {
+		case DEPOSIT:
+			return makeDeposit(instruction.getAccountId(), instruction.getAmount(), instruction.getDate(),
+					instruction.getNotes(), null);
+		case WITHDRAWAL:
+			return makeWithdrawal(instruction.getAccountId(), instruction.getAmount(), instruction.getDate(),
+					instruction.getNotes(), null);
+		case TRANSFER:
+			return makeTransfer(instruction.getAccountId(), instruction.getDestinationAccountKey(),
+					instruction.getDestinationAccountType(), instruction.getAmount(), instruction.getNotes());
+		}
+		throw new IllegalArgumentException("Unsupported transaction kind " + instruction.getKind());
+	}
+
+	/**
+	 * Execute savings transaction instructions in bulk. Transactions are posted with bounded parallelism, the
+	 * transactions of the same account (the source account for transfers) are posted one after the other in the input
+	 * order
+	 * 
+	 * @param instructions
+	 *            transaction instructions. Read lazily, so they can be streamed from a file or a database
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * @param handler
+	 *            handler receiving the SavingsTransaction or the exception for each instruction as soon as it is
+	 *            executed. Invalid instructions are reported as failed
+	 * 
+	 * @return statistics of the run
+	 * 
+	 * @throws MambuApiException
+	 *             if the handler fails or the run is interrupted
+	 */
+	public BulkStatistics executeTransactions(Iterator<SavingsTransactionInstruction> instructions, int concurrency,
+			BulkResultHandler<SavingsTransactionInstruction, SavingsTransaction> handler) throws MambuApiException {
+
+		BulkOperation<SavingsTransactionInstruction, SavingsTransaction> operation =
+				new BulkOperation<SavingsTransactionInstruction, SavingsTransaction>() {
+			@Override
+			public SavingsTransaction execute(SavingsTransactionInstruction instruction) throws MambuApiException {
+				try {
+					return executeTransaction(instruction);
+				} catch (IllegalArgumentException e) {
+					throw new MambuApiException(-1, "Invalid instruction: " + e.getMessage());
+				}
+			}
+		};
+		BulkExecutor<SavingsTransactionInstruction, SavingsTransaction> executor =
+				new BulkExecutor<SavingsTransactionInstruction, SavingsTransaction>(operation, concurrency);
+		executor.setOrderingKey(new OrderingKey<SavingsTransactionInstruction>() {
+			@Override
+			public String getKey(SavingsTransactionInstruction instruction) {
+				return instruction.getAccountId();
+			}
+		});
+		return executor.execute(instructions, handler);
+	}
+
+	/**
+	 * Execute the savings transactions read from a CSV or a JSON lines file and write the result of each transaction
+	 * to a results file as soon as it is executed. Both files are streamed, so files of any size are processed in
+	 * constant memory.
+	 * 
+	 * Each record has the fields: type (DEPOSIT, WITHDRAWAL or TRANSFER), accountId, amount, date (yyyy-MM-dd,
+	 * optional, not allowed for transfers, which are posted with the current date), notes (optional) and, for
+	 * transfers, toAccountId and toAccountType (SAVINGS or LOAN, default SAVINGS).
+	 * Malformed and invalid records are reported as failed in the results file and do not stop the run. See
+	 * {@link JsonLinesResultWriter} for the results format.
+	 * 
+	 * @param inputFile
+	 *            input file, encoded in UTF-8
+	 * @param format
+	 *            input file format
+	 * @param resultsFile
+	 *            results file. An existing file is replaced
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * 
+	 * @return statistics of the run
+	 * 
+	 * @throws MambuApiException
+	 *             if the files cannot be read or written, or the run is interrupted
+	 */
+	public BulkStatistics processTransactionsFile(File inputFile, InputRecordReader.Format format, File resultsFile,
+			int concurrency) throws MambuApiException {
+		if (inputFile == null || format == null || resultsFile == null) {
+			throw new IllegalArgumentException("Input file, format and results file must not be null");
+		}
+
+		BulkOperation<InputRecord, SavingsTransaction> operation =
+				new BulkOperation<InputRecord, SavingsTransaction>() {
+			@Override
+			public SavingsTransaction execute(InputRecord record) throws MambuApiException {
+				if (record.getParseError() != null) {
+					throw new MambuApiException(-1, "Malformed record: " + record.getParseError());
+				}
+				try {
+					return executeTransaction(makeInstruction(record));
+				} catch (IllegalArgumentException e) {
+					throw new MambuApiException(-1, "Invalid record: " + e.getMessage());
+				}
+			}
+		};
+		BulkExecutor<InputRecord, SavingsTransaction> executor = new BulkExecutor<InputRecord, SavingsTransaction>(
+				operation, concurrency);
+		executor.setOrderingKey(new OrderingKey<InputRecord>() {
+			@Override
+			public String getKey(InputRecord record) {
+				return record.getField(ACCOUNT_ID_FIELD);
+			}
+		});
+
+		InputRecordReader reader = null;
+		JsonLinesResultWriter<SavingsTransaction> writer = null;
+		try {
+			reader = InputRecordReader.open(inputFile, format);
+			writer = JsonLinesResultWriter.open(resultsFile);
+			return executor.execute(reader, writer);
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		} catch (IllegalStateException e) {
+			// Reading the input failed
+			throw new MambuApiException(e);
+		} finally {
+			ServiceHelper.closeQuietly(reader);
+			ServiceHelper.closeQuietly(writer);
+		}
+	}
+
+	/**
+	 * Validate a savings transaction instruction
+	 * 
+	 * @param instruction
+	 *            transaction instruction
+	 * @throws IllegalArgumentException
+	 *             if the instruction is not valid. Transfers must have no date: the transfer API posts them with the
+	 *             current date
+	 */
+	public static void validateInstruction(SavingsTransactionInstruction instruction) {
+		if (instruction == null || instruction.getKind() == null) {
+			throw new IllegalArgumentException("Transaction kind must not be null");
+		}
+		if (instruction.getAccountId() == null || instruction.getAccountId().trim().isEmpty()) {
+			throw new IllegalArgumentException("Account ID must not be null or empty");
+		}
+		try {
+			if (instruction.getAmount() == null || new BigDecimal(instruction.getAmount()).signum() <= 0) {
+				throw new IllegalArgumentException("Amount must be a positive number");
+			}
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Amount must be a positive number. It is " + instruction.getAmount());
+		}
+		if (instruction.getDate() != null) {
+			SimpleDateFormat dateFormat = new SimpleDateFormat(DateUtils.DATE_FORMAT);
+			dateFormat.setLenient(false);
+			try {
+				dateFormat.parse(instruction.getDate());
+			} catch (ParseException e) {
+				throw new IllegalArgumentException("Date must be in the " + DateUtils.DATE_FORMAT + " format. It is "
+						+ instruction.getDate());
+			}
+		}
+		if (instruction.getKind() == Kind.TRANSFER) {
+			if (instruction.getDestinationAccountKey() == null
+					|| instruction.getDestinationAccountKey().trim().isEmpty()) {
+				throw new IllegalArgumentException("Destination account must not be null or empty for transfers");
+			}
+			if (instruction.getDestinationAccountType() == null) {
+				throw new IllegalArgumentException("Destination account type must not be null for transfers");
+			}
+			if (instruction.getDate() != null) {
+				throw new IllegalArgumentException("Date must be null for transfers, which are posted with the current "
+						+ "date. It is " + instruction.getDate());
+			}
+		}
+	}
+
+	/**
+	 * Make a transaction instruction from a bulk input record
+	 * 
+	 * @param record
+	 *            input record
+	 * @return transaction instruction
+	 * @throws IllegalArgumentException
+	 *             if the record type is not valid
+	 */
+	private static SavingsTransactionInstruction makeInstruction(InputRecord record) {
+		String type = record.getField(TYPE_FIELD);
+		if (type == null) {
+			throw new IllegalArgumentException("The type field is missing");
+		}
+		Kind kind = Kind.valueOf(type.toUpperCase());
+		SavingsTransactionInstruction instruction = new SavingsTransactionInstruction(kind,
+				record.getField(ACCOUNT_ID_FIELD), record.getField(AMOUNT_FIELD), record.getField(DATE_FIELD),
+				record.getField(NOTES_FIELD));
+		if (kind == Kind.TRANSFER) {
+			instruction.setDestinationAccountKey(record.getField(TO_ACCOUNT_ID_FIELD));
+			String toAccountType = record.getField(TO_ACCOUNT_TYPE_FIELD);
+			instruction.setDestinationAccountType((toAccountType == null) ? Type.SAVINGS : Type.valueOf(toAccountType
+					.toUpperCase()));
+		}
+		return instruction;
+	}
+
 	/****
 	 * Apply Arbitrary FEE to a savings account
 	 * 
@@ -427,6 +797,62 @@ public class SavingsService {
 		return serviceExecutor.execute(postAccountTransaction, accountId, paramsMap);
 	}
 
+	/****
+	 * Apply a fee to many savings accounts. Accounts are processed with bounded parallelism, after the IDs of all the
+	 * accounts of a custom view or filter constraints are retrieved
+	 * 
+	 * @param accounts
+	 *            selected savings accounts. Must not be null
+	 * @param amount
+	 *            fee amount. Must not be null or empty
+	 * @param notes
+	 *            notes
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * @param handler
+	 *            handler receiving the SavingsTransaction or the exception for each account ID as soon as it is
+	 *            executed
+	 * 
+	 * @return statistics of the run
+	 * 
+	 * @throws MambuApiException
+	 *             if retrieving the accounts fails, the handler fails or the run is interrupted
+	 */
+	public BulkStatistics applyFeeToSavingsAccounts(AccountSelection accounts, final String amount,
+			final String notes, int concurrency, BulkResultHandler<String, SavingsTransaction> handler)
+			throws MambuApiException {
+		if (amount == null || amount.trim().isEmpty()) {
+			throw new IllegalArgumentException("Amount must not  be null or empty");
+		}
+		BulkOperation<String, SavingsTransaction> operation = new BulkOperation<String, SavingsTransaction>() {
+			@Override
+			public SavingsTransaction execute(String accountId) throws MambuApiException {
+				return applyFeeToSavingsAccount(accountId, amount, notes);
+			}
+		};
+		AccountFetcher<SavingsAccount> accountFetcher = new AccountFetcher<SavingsAccount>() {
+			@Override
+			public List<SavingsAccount> getAccountsByCustomView(String customViewKey, int offset, int limit)
+					throws MambuApiException {
+				return getSavingsAccountsByCustomView(customViewKey, String.valueOf(offset), String.valueOf(limit));
+			}
+
+			@Override
+			public List<SavingsAccount> getAccounts(JSONFilterConstraints filterConstraints, int offset, int limit)
+					throws MambuApiException {
+				return getSavingsAccounts(filterConstraints, String.valueOf(offset), String.valueOf(limit));
+			}
+		};
+		EntityKeyExtractor<SavingsAccount> idExtractor = new EntityKeyExtractor<SavingsAccount>() {
+			@Override
+			public String getKey(SavingsAccount account) {
+				return account.getId();
+			}
+		};
+		return new AccountSelectionExecutor<SavingsAccount, SavingsTransaction>(accountFetcher, idExtractor,
+				operation, concurrency).execute(accounts, handler);
+	}
+
 	/****
 	 * Reverse savings transactions for a savings account
 	 * 
@@ -523,6 +949,44 @@ public class SavingsService {
 		return reverseSavingsTransaction(accountId, transactionType, transactionKey, notes);
 	}
 
+	/****
+	 * Reverse many savings transactions, for example the transactions posted by a bad import. The transactions of each
+	 * account are reversed newest first, one after the other, and the remaining transactions of an account are skipped
+	 * after a reversal fails. Different accounts are reversed concurrently. See {@link BulkReversal}
+	 * 
+	 * @param originalTransactions
+	 *            savings transactions to reverse, in any order. Must have the parent account key. DEPOSIT,
+	 *            WITHDRAWAL and TRANSFER transactions can be reversed
+	 * @param notes
+	 *            transaction notes for all reversals
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 * 
+	 * @return report reconciling the requested and the reversed transactions of each account, with the result of each
+	 *         reversal
+	 * 
+	 * @throws MambuApiException
+	 *             if the run is interrupted
+	 */
+	public ReversalReport<SavingsTransaction, SavingsTransaction> reverseSavingsTransactions(
+			Collection<SavingsTransaction> originalTransactions, final String notes, int concurrency)
+			throws MambuApiException {
+
+		BulkOperation<SavingsTransaction, SavingsTransaction> operation =
+				new BulkOperation<SavingsTransaction, SavingsTransaction>() {
+			@Override
+			public SavingsTransaction execute(SavingsTransaction transaction) throws MambuApiException {
+				try {
+					return reverseSavingsTransaction(transaction, notes);
+				} catch (IllegalArgumentException e) {
+					throw new MambuApiException(-1, "Invalid transaction: " + e.getMessage());
+				}
+			}
+		};
+		return new BulkReversal<SavingsTransaction, SavingsTransaction>(operation, concurrency)
+				.reverseAll(originalTransactions);
+	}
+
 	/***
 	 * Delete Savings Account by its Id
 	 * 
@@ -697,6 +1161,33 @@ public class SavingsService {
 
 	}
 
+	/**
+	 * Get all savings accounts matching filter constraints, retrieving up to 'concurrency' pages in parallel. See
+	 * {@link ParallelPaginator} for details
+	 * 
+	 * @param filterConstraints
+	 *            filter constraints. Must not be null
+	 * @param pageSize
+	 *            number of accounts to request per page. Must be greater than zero
+	 * @param concurrency
+	 *            maximum number of page requests in flight. Must be greater than zero
+	 * @param deliveryOrder
+	 *            ORDERED to return accounts in the API order, UNORDERED to return them in the order pages were received
+	 * @return list of all savings accounts matching filter constraints
+	 * @throws MambuApiException
+	 */
+	public List<SavingsAccount> getAllSavingsAccounts(final JSONFilterConstraints filterConstraints, int pageSize,
+			int concurrency, DeliveryOrder deliveryOrder) throws MambuApiException {
+
+		PageFetcher<SavingsAccount> pageFetcher = new PageFetcher<SavingsAccount>() {
+			@Override
+			public List<SavingsAccount> getPage(int offset, int limit) throws MambuApiException {
+				return getSavingsAccounts(filterConstraints, String.valueOf(offset), String.valueOf(limit));
+			}
+		};
+		return new ParallelPaginator<SavingsAccount>(pageFetcher, pageSize, concurrency).getAll(deliveryOrder);
+	}
+
 	// Savings Products
 	/***
 	 * Get a list of Savings Products
@@ -4,10 +4,13 @@
 package com.mambu.apisdk.services;
 
 // import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
 import com.google.inject.Inject;
+import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraint;
 import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraints;
 import com.mambu.apisdk.MambuAPIService;
 import com.mambu.apisdk.exception.MambuApiException;
@@ -15,12 +18,18 @@ import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ApiDefinition;
 import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.DateUtils;
 import com.mambu.apisdk.util.MambuEntityType;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
 import com.mambu.apisdk.util.ServiceExecutor;
 import com.mambu.apisdk.util.ServiceHelper;
+import com.mambu.apisdk.util.pagination.DateRangeFetcher;
+import com.mambu.apisdk.util.pagination.DateShardedScan;
+import com.mambu.apisdk.util.pagination.PageFetcher;
+import com.mambu.core.shared.data.DataFieldType;
+import com.mambu.core.shared.data.FilterElement;
 import com.mambu.core.shared.model.SearchResult;
 import com.mambu.core.shared.model.SearchType;
 import com.mambu.notifications.shared.model.NotificationMessage;
@@ -40,6 +49,9 @@ public class SearchService {
 
 	private static final String LIMIT = APIData.LIMIT;
 
+	// Maximum number of ids searched with one 'IN' filter constraint
+	public static final int MAX_IDS_PER_SEARCH = 100;
+
 	private ServiceExecutor serviceExecutor;
 	private final static ApiDefinition searchEntitiies = new ApiDefinition(ApiType.GET_LIST, SearchResult.class);
 
@@ -143,6 +155,115 @@ public class SearchService {
 
 	}
 
+	/**
+	 * Make a page fetcher for searching entities by filter constraints. The returned fetcher can be used with the
+	 * paginators in {@link com.mambu.apisdk.util.pagination} to retrieve all entities matching filter constraints
+	 * 
+	 * @param searchEntityType
+	 *            Mambu entity type. Must not be null. See {@link #searchEntities} for the supported types
+	 * @param filterConstraints
+	 *            filter constraints. Must not be null
+	 * @return page fetcher invoking {@link #searchEntities} with the requested offset and limit
+	 */
+	public <T> PageFetcher<T> makePageFetcher(final MambuEntityType searchEntityType,
+			final JSONFilterConstraints filterConstraints) {
+		if (searchEntityType == null || filterConstraints == null) {
+			throw new IllegalArgumentException("Search Entity and Filter Constraints must not be NULL");
+		}
+		return new PageFetcher<T>() {
+			@Override
+			public List<T> getPage(int offset, int limit) throws MambuApiException {
+				return searchEntities(searchEntityType, filterConstraints, String.valueOf(offset),
+						String.valueOf(limit));
+			}
+		};
+	}
+
+	/**
+	 * Make a date range fetcher for searching entities by filter constraints within date windows. The returned fetcher
+	 * can be used with {@link DateShardedScan} to retrieve all entities matching filter constraints in parallel date
+	 * windows, for example by the creation or the last modified date
+	 * 
+	 * @param searchEntityType
+	 *            Mambu entity type. Must not be null. See {@link #searchEntities} for the supported types
+	 * @param filterConstraints
+	 *            filter constraints applied to all windows. Must not be null. Must not constrain the date field itself
+	 * @param dateFilterSelection
+	 *            native date field defining the windows, for example "CREATION_DATE". Must not be null
+	 * @param dataItemType
+	 *            data item type of the date field, for example "LOANS". Optional. If null, the searched entity field is
+	 *            used
+	 * @return date range fetcher adding a BETWEEN constraint on the date field to the filter constraints
+	 */
+	public <T> DateRangeFetcher<T> makeDateRangeFetcher(final MambuEntityType searchEntityType,
+			final JSONFilterConstraints filterConstraints, final String dateFilterSelection,
+			final String dataItemType) {
+		if (searchEntityType == null || filterConstraints == null || dateFilterSelection == null) {
+			throw new IllegalArgumentException("Search Entity, Filter Constraints and Date Field must not be NULL");
+		}
+		return new DateRangeFetcher<T>() {
+			@Override
+			public List<T> getPage(Date fromDay, Date toDay, int offset, int limit) throws MambuApiException {
+				// Copy the filter constraints for each request: the requests for different windows run concurrently
+				JSONFilterConstraint dateConstraint = new JSONFilterConstraint();
+				dateConstraint.setDataFieldType(DataFieldType.NATIVE.name());
+				dateConstraint.setDataItemType(dataItemType);
+				dateConstraint.setFilterSelection(dateFilterSelection);
+				dateConstraint.setFilterElement(FilterElement.BETWEEN.name());
+				dateConstraint.setValue(DateUtils.format(fromDay));
+				dateConstraint.setSecondValue(DateUtils.format(toDay));
+
+				List<JSONFilterConstraint> constraints = new ArrayList<JSONFilterConstraint>();
+				if (filterConstraints.getFilterConstraints() != null) {
+					constraints.addAll(filterConstraints.getFilterConstraints());
+				}
+				constraints.add(dateConstraint);
+
+				JSONFilterConstraints windowConstraints = new JSONFilterConstraints();
+				windowConstraints.setFilterConstraints(constraints);
+				windowConstraints.setSortDetails(filterConstraints.getSortDetails());
+
+				return searchEntities(searchEntityType, windowConstraints, String.valueOf(offset),
+						String.valueOf(limit));
+			}
+		};
+	}
+
+	/**
+	 * Make filter constraints for searching entities by a list of ids with the 'IN' filter element. Used for
+	 * retrieving many entities by id with one request
+	 * 
+	 * @param dataItemType
+	 *            data item type of the searched entities, for example "CLIENT". Must not be null
+	 * @param idFilterSelection
+	 *            native id field of the searched entities, for example "ID" for clients or "ACCOUNT_ID" for loans. Must
+	 *            not be null
+	 * @param ids
+	 *            ids to search. No more than {@link #MAX_IDS_PER_SEARCH} ids should be searched with one request. Must
+	 *            not be null or empty
+	 * @return filter constraints
+	 */
+	public static JSONFilterConstraints makeFilterConstraintsForIds(String dataItemType, String idFilterSelection,
+			List<String> ids) {
+		// Example: {"filterConstraints":[{"filterSelection":"ID","filterElement":"IN","values":["ABC123","DEF456"],
+		// "dataFieldType":"NATIVE","dataItemType":"CLIENT"}]}
+		if (dataItemType == null || idFilterSelection == null || ids == null || ids.isEmpty()) {
+			throw new IllegalArgumentException("Data Item Type, Id Field and Ids must not be NULL or empty");
+		}
+		JSONFilterConstraint idsConstraint = new JSONFilterConstraint();
+		idsConstraint.setDataFieldType(DataFieldType.NATIVE.name());
+		idsConstraint.setDataItemType(dataItemType);
+		idsConstraint.setFilterSelection(idFilterSelection);
+		idsConstraint.setFilterElement(FilterElement.IN.name());
+		idsConstraint.setValues(new ArrayList<String>(ids));
+
+		List<JSONFilterConstraint> constraints = new ArrayList<JSONFilterConstraint>();
+		constraints.add(idsConstraint);
+		JSONFilterConstraints filterConstraints = new JSONFilterConstraints();
+		filterConstraints.setFilterConstraints(constraints);
+		return filterConstraints;
+	}
+
 	/**
 	 * Helper to create ApiDefintion for searching entities matching filter criteria
 	 * 
@@ -3,6 +3,7 @@
  */
 package com.mambu.apisdk.services;
 
+import java.io.File;
 import java.text.DateFormat;
 import java.util.Date;
 import java.util.List;
@@ -17,6 +18,8 @@ import com.mambu.apisdk.util.ApiDefinition.ApiType;
 import com.mambu.apisdk.util.DateUtils;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.ServiceExecutor;
+import com.mambu.apisdk.util.bulk.BulkOperation;
+import com.mambu.apisdk.util.bulk.WriteBehindQueue;
 import com.mambu.tasks.shared.model.Task;
 import com.mambu.tasks.shared.model.TaskStatus;
 
@@ -248,4 +251,34 @@ public class TasksService {
 		return serviceExecutor.execute(deleteTask, taskId);
 	}
 
+	/***
+	 * Make a write-behind queue for creating tasks in the background, so that the caller does not wait for the API
+	 * requests. The returned queue must be started before submitting tasks and closed when no longer needed. See
+	 * {@link WriteBehindQueue}
+	 * 
+	 * @param capacity
+	 *            maximum number of queued tasks. Submitting a task waits while the queue is full
+	 * @param workers
+	 *            number of concurrent requests creating tasks
+	 * @param journalFile
+	 *            journal file keeping the queued tasks across restarts. Optional. If null, the queued tasks are lost
+	 *            when the application is stopped without closing the queue
+	 * 
+	 * @return write-behind queue returning a future of the created task for each submitted task. The encoded key of
+	 *         the submitted tasks must be null
+	 */
+	public WriteBehindQueue<Task, Task> makeWriteBehindQueue(int capacity, int workers, File journalFile) {
+		BulkOperation<Task, Task> operation = new BulkOperation<Task, Task>() {
+			@Override
+			public Task execute(Task task) throws MambuApiException {
+				return createTask(task);
+			}
+		};
+		WriteBehindQueue<Task, Task> queue = new WriteBehindQueue<Task, Task>(operation, capacity, workers);
+		if (journalFile != null) {
+			queue.setJournal(journalFile, Task.class);
+		}
+		return queue;
+	}
+
 }
@@ -100,6 +100,8 @@ public class APIData {
 
 	public static final String OFFSET = "offset";
 	public static final String LIMIT = "limit";
+	// Maximum number of entities Mambu returns in one page
+	public static final int MAX_PAGE_SIZE = 1000;
 
 	// Products
 	public static final String LOANPRODUCTS = "loanproducts";
@@ -600,6 +600,28 @@ public class ApiDefinition {
 		return returnClass;
 	}
 
+	/**
+	 * Get a key identifying this API definition. API definitions created with the same parameters have the same key,
+	 * so the key can be used to collect statistics or to cache data per API regardless of the definition instance
+	 * 
+	 * @return key made of the API type, the method, the URL path or the end point with the related entity and the
+	 *         return class
+	 */
+	public String getKey() {
+		StringBuilder key = new StringBuilder();
+		key.append(apiType).append(' ').append(method).append(' ');
+		if (urlPath != null) {
+			key.append(urlPath);
+		} else {
+			key.append(endPoint);
+			if (relatedEntity != null) {
+				key.append('/').append(relatedEntity);
+			}
+		}
+		key.append(' ').append(returnClass == null ? null : returnClass.getName());
+		return key.toString();
+	}
+
 	// Setters for params which can be modified
 	public void setApiType(ApiType apiType) {
 		this.apiType = apiType;
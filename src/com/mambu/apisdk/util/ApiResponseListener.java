@@ -0,0 +1,25 @@
+package com.mambu.apisdk.util;
+
+/**
+ * ApiResponseListener is notified after each successful API request executed with an {@link ApiDefinition}. It can be
+ * used to collect statistics per API, for example to adapt the page size of paginated requests (see
+ * {@link com.mambu.apisdk.util.pagination.PageSizeController})
+ * 
+ * Listeners are invoked on the thread executing the request and must return quickly
+ */
+public interface ApiResponseListener {
+
+	/**
+	 * Called after the API response was received and parsed
+	 * 
+	 * @param apiDefinition
+	 *            API definition of the executed request
+	 * @param durationMillis
+	 *            time taken by the request, in milliseconds
+	 * @param responseLength
+	 *            length of the response string, in characters
+	 * @param entitiesCount
+	 *            number of entities in the response: the collection size for the list requests, 1 otherwise
+	 */
+	public void onApiResponse(ApiDefinition apiDefinition, long durationMillis, int responseLength, int entitiesCount);
+}
@@ -0,0 +1,77 @@
+package com.mambu.apisdk.util;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Util class with the helpers shared by the API wrapper classes running Mambu API requests concurrently
+ */
+public class ConcurrencyUtils {
+
+	/**
+	 * Create a thread factory for the wrapper's worker threads. Worker threads are daemon threads, so that an
+	 * application is never kept alive by a wrapper's thread pool
+	 *
+	 * @param namePrefix
+	 *            thread name prefix. E.g. "mambu-pages"
+	 * @return thread factory
+	 */
+	public static ThreadFactory newThreadFactory(String namePrefix) {
+		return new ThreadFactoryBuilder().setNameFormat(namePrefix + "-%d").setDaemon(true).build();
+	}
+
+	/**
+	 * Create a fixed size thread pool with daemon threads
+	 *
+	 * @param threads
+	 *            number of threads. Must be greater than zero
+	 * @param namePrefix
+	 *            thread name prefix
+	 * @return executor service. The caller is responsible for shutting it down
+	 */
+	public static ExecutorService newFixedThreadPool(int threads, String namePrefix) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be greater than zero. It is " + threads);
+		}
+		return Executors.newFixedThreadPool(threads, newThreadFactory(namePrefix));
+	}
+
+	/**
+	 * Get the MambuApiException for a failed asynchronous API request. MambuApiException and runtime exceptions thrown
+	 * by the request are returned (or re-thrown) as is, other exceptions are wrapped into a MambuApiException
+	 *
+	 * @param e
+	 *            execution exception
+	 * @return Mambu API exception
+	 */
+	public static MambuApiException toMambuApiException(ExecutionException e) {
+		Throwable cause = e.getCause();
+		if (cause instanceof MambuApiException) {
+			return (MambuApiException) cause;
+		}
+		if (cause instanceof RuntimeException) {
+			throw (RuntimeException) cause;
+		}
+		if (cause instanceof Error) {
+			throw (Error) cause;
+		}
+		return new MambuApiException(cause instanceof Exception ? (Exception) cause : e);
+	}
+
+	/**
+	 * Get the MambuApiException for an interrupted wait. Thread's interrupted status is restored
+	 *
+	 * @param e
+	 *            interrupted exception
+	 * @return Mambu API exception
+	 */
+	public static MambuApiException toMambuApiException(InterruptedException e) {
+		Thread.currentThread().interrupt();
+		return new MambuApiException(e);
+	}
+}
@@ -13,12 +13,27 @@ public class DateUtils {
 
 	public static String DATE_FORMAT = "yyyy-MM-dd";
 
+	// Not thread safe. Kept for the existing callers, format() uses a format per thread instead
 	public static SimpleDateFormat FORMAT = new SimpleDateFormat(DATE_FORMAT);
 
+	private static final ThreadLocal<SimpleDateFormat> THREAD_FORMAT = new ThreadLocal<SimpleDateFormat>() {
+		@Override
+		protected SimpleDateFormat initialValue() {
+			return new SimpleDateFormat(DATE_FORMAT);
+		}
+	};
+
+	/**
+	 * Format a date using the DATE_FORMAT. Safe to call from multiple threads
+	 * 
+	 * @param date
+	 *            date
+	 * @return formatted date or null if the date is null
+	 */
 	public static String format(Date date) {
 		if (date == null) {
 			return null;
 		}
-		return FORMAT.format(date);
+		return THREAD_FORMAT.get().format(date);
 	}
 }
@@ -58,7 +58,8 @@ public class GsonUtils {
 	 *
 	 * @return the GSON instance
 	 */
-	public static Gson createGson(String dateTimeFormat) {
+	public static synchronized Gson createGson(String dateTimeFormat) {
+		// Synchronized: the shared builder is modified with the requested format and can be used by concurrent requests
 		// Create with the specified dateTimeFormat
 		gsonBuilder = gsonBuilder.setDateFormat(dateTimeFormat);
 		return gsonBuilder.create();
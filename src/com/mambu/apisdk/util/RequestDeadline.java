@@ -0,0 +1,45 @@
+package com.mambu.apisdk.util;
+
+/**
+ * Deadline for the API requests executed by the current thread. While a deadline is set, {@link RequestExecutorImpl}
+ * uses the time remaining until the deadline as the connection and socket timeout of each request, and fails the
+ * requests started after the deadline passed. A request stuck reading a slow response is then failed at the deadline
+ * and its thread released, which interrupting the thread cannot do.
+ *
+ * Example:
+ *
+ * RequestDeadline.set(System.currentTimeMillis() + 2000);
+ *
+ * try { clientsService.getClientDetails(clientId); } finally { RequestDeadline.clear(); }
+ */
+public class RequestDeadline {
+
+	private final static ThreadLocal<Long> DEADLINE_MILLIS = new ThreadLocal<Long>();
+
+	/**
+	 * Set the deadline of the requests executed by the current thread
+	 *
+	 * @param deadlineMillis
+	 *            deadline, in milliseconds since the epoch
+	 */
+	public static void set(long deadlineMillis) {
+		DEADLINE_MILLIS.set(deadlineMillis);
+	}
+
+	/**
+	 * Clear the deadline of the requests executed by the current thread
+	 */
+	public static void clear() {
+		DEADLINE_MILLIS.remove();
+	}
+
+	/**
+	 * Get the time remaining until the deadline of the current thread
+	 *
+	 * @return remaining milliseconds, zero or negative if the deadline passed. Null if no deadline is set
+	 */
+	public static Long getRemainingMillis() {
+		Long deadlineMillis = DEADLINE_MILLIS.get();
+		return (deadlineMillis == null) ? null : deadlineMillis - System.currentTimeMillis();
+	}
+}
@@ -1,6 +1,7 @@
 package com.mambu.apisdk.util;
 
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.cache.ResponseCache;
 
 /**
  * Interface for executing url requests
@@ -28,6 +29,14 @@ public interface RequestExecutor {
 	 */
 	public void setAuthorization(String username, String password);
 
+	/***
+	 * Set the cache for the responses to GET requests. Cached responses are revalidated with conditional requests
+	 * 
+	 * @param responseCache
+	 *            response cache. Null to stop caching responses
+	 */
+	public void setResponseCache(ResponseCache responseCache);
+
 	/**
 	 * Executes a request with given url and request method
 	 * 
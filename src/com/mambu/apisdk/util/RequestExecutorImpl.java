@@ -14,6 +14,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.apache.commons.codec.binary.Base64;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.NameValuePair;
@@ -26,12 +27,16 @@ import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.protocol.HTTP;
+import org.apache.http.util.EntityUtils;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.mambu.apisdk.MambuAPIFactory;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.cache.CachedResponse;
+import com.mambu.apisdk.util.cache.ResponseCache;
 
 /**
  * Implementation of executing url requests with basic authorization
@@ -44,6 +49,7 @@ public class RequestExecutorImpl implements RequestExecutor {
 
 	private URLHelper urlHelper;
 	private String encodedAuthorization;
+	private volatile ResponseCache responseCache;
 	private final static String UTF8_charset = HTTP.UTF_8;
 	private final static String wwwFormUrlEncodedContentType = "application/x-www-form-urlencoded; charset=UTF-8";
 
@@ -99,6 +105,14 @@ public class RequestExecutorImpl implements RequestExecutor {
 		// Log API Request details
 		logApiRequest(method, contentTypeFormat, urlString, params);
 
+		// Responses to GET requests are cached by their URL with params, without the Application Key
+		final ResponseCache cache = (method == Method.GET) ? responseCache : null;
+		String cacheKey = null;
+		if (cache != null) {
+			cacheKey = (params != null && params.size() > 0) ? urlHelper.createUrlWithParams(urlString, params)
+					: urlString;
+		}
+
 		// Add 'Application Key', if it was set by the application
 		// Mambu may handle API requests differently for different Application Keys
 
@@ -115,12 +129,22 @@ public class RequestExecutorImpl implements RequestExecutor {
 
 		}
 
+		// Fail the request at the deadline of the calling thread, if it has one
+		Long remainingMillis = RequestDeadline.getRemainingMillis();
+		if (remainingMillis != null && remainingMillis <= 0) {
+			throw new MambuApiException(HttpURLConnection.HTTP_CLIENT_TIMEOUT, "Request deadline passed");
+		}
 		HttpClient httpClient = new DefaultHttpClient();
+		if (remainingMillis != null) {
+			int timeoutMillis = (int) Math.min(remainingMillis, Integer.MAX_VALUE);
+			HttpConnectionParams.setConnectionTimeout(httpClient.getParams(), timeoutMillis);
+			HttpConnectionParams.setSoTimeout(httpClient.getParams(), timeoutMillis);
+		}
 		String response = "";
 		try {
 			switch (method) {
 			case GET:
-				response = executeGetRequest(httpClient, urlString, params);
+				response = executeGetRequest(httpClient, urlString, params, cache, cacheKey);
 				break;
 			case POST:
 				response = executePostRequest(httpClient, urlString, params, contentTypeFormat);
@@ -224,12 +248,17 @@ public class RequestExecutorImpl implements RequestExecutor {
 	}
 
 	/***
-	 * Execute a GET request as per the interface specification
+	 * Execute a GET request as per the interface specification. If the response is cached, the request is made
+	 * conditional and a 304 Not Modified response returns the cached response
 	 * 
 	 * @param urlString
+	 * @param cache
+	 *            response cache. Null if responses are not cached
+	 * @param cacheKey
+	 *            the cache key for the request
 	 */
-	private String executeGetRequest(HttpClient httpClient, String urlString, ParamsMap params)
-			throws MalformedURLException, IOException, MambuApiException {
+	private String executeGetRequest(HttpClient httpClient, String urlString, ParamsMap params, ResponseCache cache,
+			String cacheKey) throws MalformedURLException, IOException, MambuApiException {
 
 		if (params != null && params.size() > 0) {
 			urlString = new String((urlHelper.createUrlWithParams(urlString, params)));
@@ -240,12 +269,31 @@ public class RequestExecutorImpl implements RequestExecutor {
 		httpGet.setHeader("Authorization", "Basic " + encodedAuthorization);
 		// setHeader("Content-Type") not need for GET requests
 
+		// Make the request conditional if the response is cached
+		CachedResponse cached = (cache == null) ? null : cache.get(cacheKey);
+		if (cached != null) {
+			for (Map.Entry<String, String> header : cache.getConditionalHeaders(cached).entrySet()) {
+				httpGet.setHeader(header.getKey(), header.getValue());
+			}
+		}
+
 		// execute
 		HttpResponse httpResponse = httpClient.execute(httpGet);
 
+		if (cached != null && httpResponse.getStatusLine().getStatusCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+			EntityUtils.consume(httpResponse.getEntity());
+			LOGGER.info("Response Status=" + HttpURLConnection.HTTP_NOT_MODIFIED + ", using cached response");
+			return cache.notModified(cached);
+		}
+
 		// Process response
 		String response = processResponse(httpResponse, urlString);
 
+		if (cache != null) {
+			cache.put(cacheKey, response, getHeaderValue(httpResponse, ResponseCache.ETAG),
+					getHeaderValue(httpResponse, ResponseCache.LAST_MODIFIED));
+		}
+
 		return response;
 
 	}
@@ -382,6 +430,21 @@ public class RequestExecutorImpl implements RequestExecutor {
 		return response;
 	}
 
+	/**
+	 * Get the value of a response header
+	 * 
+	 * @return header value. Null if the response has no such header
+	 */
+	private static String getHeaderValue(HttpResponse httpResponse, String name) {
+		Header header = httpResponse.getFirstHeader(name);
+		return (header == null) ? null : header.getValue();
+	}
+
+	@Override
+	public void setResponseCache(ResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
 	@Override
 	public void setAuthorization(String username, String password) {
 		// encode the username and password
@@ -1,9 +1,13 @@
 package com.mambu.apisdk.util;
 
 import java.lang.reflect.Type;
+import java.net.HttpURLConnection;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import com.google.gson.reflect.TypeToken;
 import com.google.inject.Inject;
@@ -21,6 +25,8 @@ import com.mambu.apisdk.util.ApiDefinition.ApiReturnFormat;
 import com.mambu.apisdk.util.ApiDefinition.ApiType;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.apisdk.util.cache.EntityCache;
+import com.mambu.apisdk.util.cache.NotFoundCache;
 import com.mambu.clients.shared.model.Client;
 import com.mambu.clients.shared.model.ClientExpanded;
 import com.mambu.clients.shared.model.Group;
@@ -97,6 +103,8 @@ import com.mambu.tasks.shared.model.Task;
  */
 public class ServiceExecutor {
 
+	private final static Logger LOGGER = Logger.getLogger(ServiceExecutor.class.getName());
+
 	private MambuAPIService mambuAPIService;
 
 	/***
@@ -150,8 +158,56 @@ public class ServiceExecutor {
 		Method method = apiDefinition.getMethod();
 		ContentType contentType = apiDefinition.getContentType();
 
-		// Use mambuAPIService to execute request
-		String jsonResponse = mambuAPIService.executeRequest(apiUrlPath, paramsMap, method, contentType);
+		// Serve entity requests from the entity cache, if enabled for this entity
+		EntityCache entityCache = mambuAPIService.getEntityCache();
+		String cacheKey = null;
+		String jsonResponse = null;
+		if (entityCache != null && entityCache.isCached(apiDefinition)) {
+			cacheKey = (paramsMap == null) ? apiUrlPath : apiUrlPath + "?" + paramsMap.getURLString();
+			jsonResponse = entityCache.get(cacheKey);
+		}
+		boolean isCachedResponse = jsonResponse != null;
+
+		// Throw the cached not found result, if the entity was not found recently
+		NotFoundCache notFoundCache = mambuAPIService.getNotFoundCache();
+		boolean isNotFoundCached = !isCachedResponse && notFoundCache != null && notFoundCache.isCached(apiDefinition);
+		if (isNotFoundCached) {
+			String notFoundMessage = notFoundCache.get(apiDefinition, objectId);
+			if (notFoundMessage != null) {
+				throw new MambuApiException(HttpURLConnection.HTTP_NOT_FOUND, notFoundMessage);
+			}
+		}
+
+		long durationMillis = 0;
+		if (!isCachedResponse) {
+			long cacheGeneration = (entityCache == null) ? 0 : entityCache.getGeneration();
+			long notFoundGeneration = (notFoundCache == null) ? 0 : notFoundCache.getGeneration();
+
+			// Use mambuAPIService to execute request
+			long startTime = System.currentTimeMillis();
+			try {
+				jsonResponse = mambuAPIService.executeRequest(apiUrlPath, paramsMap, method, contentType);
+			} catch (MambuApiException e) {
+				if (isNotFoundCached && Integer.valueOf(HttpURLConnection.HTTP_NOT_FOUND).equals(e.getErrorCode())) {
+					notFoundCache.put(apiDefinition, objectId, e.getErrorMessage(), notFoundGeneration);
+				}
+				throw e;
+			} finally {
+				// Writes invalidate the cached entity, even if they failed
+				if (entityCache != null) {
+					entityCache.onRequestExecuted(apiDefinition, objectId);
+				}
+			}
+			durationMillis = System.currentTimeMillis() - startTime;
+
+			if (cacheKey != null) {
+				entityCache.put(apiDefinition, objectId, cacheKey, jsonResponse, cacheGeneration);
+			}
+			// Created entities are no longer not found
+			if (notFoundCache != null) {
+				notFoundCache.onRequestExecuted(apiDefinition, paramsMap, jsonResponse);
+			}
+		}
 
 		// Process API Response. Get the return format and returnClass from the apiDefintion
 		Class<?> returnClass = apiDefinition.getReturnClass();
@@ -180,9 +236,43 @@ public class ServiceExecutor {
 			break;
 		}
 
+		if (!isCachedResponse) {
+			notifyResponseListeners(apiDefinition, durationMillis, jsonResponse, result);
+		}
+
 		return result;
 	}
 
+	/**
+	 * Notify the response listeners registered with the mambuAPIService of a received API response
+	 * 
+	 * @param apiDefinition
+	 *            API definition of the executed request
+	 * @param durationMillis
+	 *            request duration
+	 * @param jsonResponse
+	 *            response string
+	 * @param result
+	 *            parsed result
+	 */
+	private void notifyResponseListeners(ApiDefinition apiDefinition, long durationMillis, String jsonResponse,
+			Object result) {
+		List<ApiResponseListener> listeners = mambuAPIService.getResponseListeners();
+		if (listeners.isEmpty()) {
+			return;
+		}
+		int responseLength = (jsonResponse == null) ? 0 : jsonResponse.length();
+		int entitiesCount = (result instanceof Collection) ? ((Collection<?>) result).size() : 1;
+		for (ApiResponseListener listener : listeners) {
+			// A failing listener must neither fail the request nor keep the other listeners from being notified
+			try {
+				listener.onApiResponse(apiDefinition, durationMillis, responseLength, entitiesCount);
+			} catch (RuntimeException e) {
+				LOGGER.log(Level.WARNING, "API response listener failed", e);
+			}
+		}
+	}
+
 	/****
 	 * Convenience method to Execute API Request without relatedEntityId parameter
 	 * 
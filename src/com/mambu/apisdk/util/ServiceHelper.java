@@ -1,11 +1,21 @@
 package com.mambu.apisdk.util;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import com.google.common.io.BaseEncoding;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CharStreams;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.reflect.TypeToken;
@@ -18,6 +28,7 @@ import com.mambu.apisdk.MambuAPIFactory;
 import com.mambu.apisdk.model.LoanAccountExpanded;
 import com.mambu.clients.shared.model.ClientExpanded;
 import com.mambu.clients.shared.model.GroupExpanded;
+import com.mambu.docs.shared.model.Document;
 import com.mambu.loans.shared.model.LoanAccount;
 import com.mambu.savings.shared.model.SavingsAccount;
 
@@ -148,18 +159,7 @@ public class ServiceHelper {
 		// Gson.toJson(document) parser
 
 		// Create Json with the same document but with empty content
-		JSONDocument copy = new JSONDocument();
-		copy.setDocument(document.getDocument());
-		copy.setDocumentContent("");
-
-		// Parse modified JSONDocument with the blank content value
-		String jsonData = makeApiJson(copy);
-
-		// Add AppKey here - to avoid inserting it after the full string is made
-		String applicationKey = MambuAPIFactory.getApplicationKey();
-		if (applicationKey != null && applicationKey.length() > 0) {
-			jsonData = addAppkeyValueToJson(applicationKey, jsonData);
-		}
+		String jsonData = makeDocumentJsonWithBlankContent(document.getDocument());
 
 		// Now insert back document content value into the generated JSON string
 		final String documentContent = document.getDocumentContent();
@@ -167,8 +167,7 @@ public class ServiceHelper {
 		finalJson.append(jsonData);
 
 		// Now find the position to insert document content (into the "" part of the "documentContent":"")
-		final String contentPair = "\"documentContent\":\"\"";
-		int insertPosition = finalJson.indexOf(contentPair) + contentPair.length() - 1;
+		int insertPosition = getDocumentContentPosition(jsonData);
 
 		// Insert document content
 		finalJson.insert(insertPosition, documentContent);
@@ -182,6 +181,84 @@ public class ServiceHelper {
 		return paramsMap;
 	}
 
+	/***
+	 * Create ParamsMap with a JSON string for a document and the content of a file. The file is base64 encoded directly
+	 * into the JSON string while it is read, so neither the file content nor its encoded content is held in memory
+	 * separately from the JSON string
+	 * 
+	 * @param document
+	 *            document object with the document details
+	 * @param file
+	 *            file with the document content
+	 * @return params map with the document JSON string
+	 * @throws IOException
+	 *             if the file cannot be read or is too large for a JSON string
+	 */
+	public static ParamsMap makeParamsForDocumentFile(Document document, File file) throws IOException {
+
+		String jsonData = makeDocumentJsonWithBlankContent(document);
+		int insertPosition = getDocumentContentPosition(jsonData);
+
+		// Base64 encodes each 3 bytes into 4 characters
+		long encodedLength = 4 * ((file.length() + 2) / 3);
+		if (jsonData.length() + encodedLength > Integer.MAX_VALUE) {
+			throw new IOException("File is too large: " + file.getPath());
+		}
+		StringBuilder finalJson = new StringBuilder((int) (jsonData.length() + encodedLength));
+		finalJson.append(jsonData, 0, insertPosition);
+
+		InputStream input = new FileInputStream(file);
+		try {
+			OutputStream encoder = BaseEncoding.base64().encodingStream(CharStreams.asWriter(finalJson));
+			ByteStreams.copy(input, encoder);
+			encoder.close();
+		} finally {
+			closeQuietly(input);
+		}
+		finalJson.append(jsonData, insertPosition, jsonData.length());
+
+		ParamsMap paramsMap = new ParamsMap();
+		paramsMap.put(APIData.JSON_OBJECT, finalJson.toString());
+
+		return paramsMap;
+	}
+
+	/**
+	 * Make the JSON string for a JSONDocument with the document and a blank document content, including the
+	 * application key
+	 * 
+	 * @param document
+	 *            document object
+	 * @return JSON string
+	 */
+	private static String makeDocumentJsonWithBlankContent(Document document) {
+		JSONDocument copy = new JSONDocument();
+		copy.setDocument(document);
+		copy.setDocumentContent("");
+
+		// Parse modified JSONDocument with the blank content value
+		String jsonData = makeApiJson(copy);
+
+		// Add AppKey here - to avoid inserting it after the full string is made
+		String applicationKey = MambuAPIFactory.getApplicationKey();
+		if (applicationKey != null && applicationKey.length() > 0) {
+			jsonData = addAppkeyValueToJson(applicationKey, jsonData);
+		}
+		return jsonData;
+	}
+
+	/**
+	 * Get the position to insert the document content at: into the "" part of the "documentContent":""
+	 * 
+	 * @param jsonData
+	 *            JSON string with a blank document content
+	 * @return insert position
+	 */
+	private static int getDocumentContentPosition(String jsonData) {
+		final String contentPair = "\"documentContent\":\"\"";
+		return jsonData.indexOf(contentPair) + contentPair.length() - 1;
+	}
+
 	/**
 	 * Get Base64 encoded content from the API message containing bas64 encoding indicator and base64 encoded content
 	 * 
@@ -429,6 +506,50 @@ public class ServiceHelper {
 		}
 	}
 
+	/**
+	 * Close a file, a reader or a writer used by a service, ignoring the exceptions on close
+	 * 
+	 * @param closeable
+	 *            object to close. Can be null
+	 */
+	public static void closeQuietly(Closeable closeable) {
+		if (closeable == null) {
+			return;
+		}
+		try {
+			closeable.close();
+		} catch (IOException e) {
+			// Nothing to do
+		}
+	}
+
+	/**
+	 * List the files of a directory tree. Hidden files and directories are skipped
+	 *
+	 * @param directory
+	 *            root directory
+	 * @return files in the directory and its sub-directories, sorted by path
+	 */
+	public static List<File> listFiles(File directory) {
+		List<File> files = new ArrayList<File>();
+		File[] children = directory.listFiles();
+		if (children == null) {
+			return files;
+		}
+		Arrays.sort(children);
+		for (File child : children) {
+			if (child.isHidden()) {
+				continue;
+			}
+			if (child.isDirectory()) {
+				files.addAll(listFiles(child));
+			} else if (child.isFile()) {
+				files.add(child);
+			}
+		}
+		return files;
+	}
+
 	/**
 	 * Convenience helper to make params map which contains only pagination parameters: offset and limit
 	 * 
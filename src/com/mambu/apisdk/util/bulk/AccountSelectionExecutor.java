@@ -0,0 +1,123 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraints;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.AccountSelection;
+import com.mambu.apisdk.util.pagination.EntityKeyExtractor;
+import com.mambu.apisdk.util.pagination.PageFetcher;
+import com.mambu.apisdk.util.pagination.PageHandler;
+import com.mambu.apisdk.util.pagination.Paginator;
+
+/**
+ * AccountSelectionExecutor runs a {@link BulkExecutor} over the IDs of the accounts selected by an
+ * {@link AccountSelection}. The explicit account IDs are used as they are, while the IDs of all the accounts of a
+ * custom view or filter constraints are retrieved before the first account is processed.
+ *
+ * The operation usually changes which accounts a custom view or filter selects, for example a view of the accounts
+ * without a fee: paging through the selection while it changes would skip accounts or process them twice. The IDs are
+ * small, so the whole selection is held in memory, each ID once.
+ *
+ * @param <A>
+ *            account type
+ * @param <R>
+ *            result type of the operation
+ */
+public class AccountSelectionExecutor<A, R> {
+
+	/**
+	 * Retrieves a page of the accounts of a custom view or filter constraints
+	 */
+	public interface AccountFetcher<A> {
+
+		List<A> getAccountsByCustomView(String customViewKey, int offset, int limit) throws MambuApiException;
+
+		List<A> getAccounts(JSONFilterConstraints filterConstraints, int offset, int limit) throws MambuApiException;
+	}
+
+	private final AccountFetcher<A> accountFetcher;
+	private final EntityKeyExtractor<A> idExtractor;
+	private final BulkExecutor<String, R> executor;
+
+	/**
+	 * Create an account selection executor
+	 *
+	 * @param accountFetcher
+	 *            fetcher retrieving the accounts of a custom view or filter constraints. Must not be null
+	 * @param idExtractor
+	 *            extractor returning the ID of an account. Must not be null
+	 * @param operation
+	 *            operation executed for each account ID. Must not be null
+	 * @param concurrency
+	 *            maximum number of concurrent requests. Must be greater than zero
+	 */
+	public AccountSelectionExecutor(AccountFetcher<A> accountFetcher, EntityKeyExtractor<A> idExtractor,
+			BulkOperation<String, R> operation, int concurrency) {
+		if (accountFetcher == null || idExtractor == null) {
+			throw new IllegalArgumentException("Account fetcher and ID extractor must not be null");
+		}
+		this.accountFetcher = accountFetcher;
+		this.idExtractor = idExtractor;
+		this.executor = new BulkExecutor<String, R>(operation, concurrency);
+	}
+
+	/**
+	 * Execute the operation for each selected account ID
+	 *
+	 * @param accounts
+	 *            selected accounts. Must not be null
+	 * @param handler
+	 *            handler receiving the result of each account ID as soon as it is executed
+	 * @return statistics of the run
+	 * @throws MambuApiException
+	 *             if retrieving the accounts fails, the handler fails or the run is interrupted
+	 */
+	public BulkStatistics execute(AccountSelection accounts, BulkResultHandler<String, R> handler)
+			throws MambuApiException {
+		if (accounts == null) {
+			throw new IllegalArgumentException("Accounts must not be null");
+		}
+		if (accounts.getAccountIds() != null) {
+			return executor.execute(accounts.getAccountIds().iterator(), handler);
+		}
+		return executor.execute(getAccountIds(accounts).iterator(), handler);
+	}
+
+	/**
+	 * Get the IDs of all the accounts of a custom view or filter constraints, in the order they are returned
+	 *
+	 * @param accounts
+	 *            accounts selected by a custom view or filter constraints
+	 * @return account IDs, without duplicates
+	 * @throws MambuApiException
+	 *             if retrieving the accounts fails
+	 */
+	private List<String> getAccountIds(final AccountSelection accounts) throws MambuApiException {
+		PageFetcher<A> pageFetcher = new PageFetcher<A>() {
+			@Override
+			public List<A> getPage(int offset, int limit) throws MambuApiException {
+				if (accounts.getCustomViewKey() != null) {
+					return accountFetcher.getAccountsByCustomView(accounts.getCustomViewKey(), offset, limit);
+				}
+				return accountFetcher.getAccounts(accounts.getFilterConstraints(), offset, limit);
+			}
+		};
+		Paginator<A> paginator = new Paginator<A>(pageFetcher, accounts.getPageSize());
+		// Retrieve the next page while the IDs of the current one are collected
+		paginator.setReadAheadPages(1);
+		final Set<String> accountIds = new LinkedHashSet<String>();
+		paginator.paginate(0, new PageHandler<A>() {
+			@Override
+			public void handlePage(int offset, List<A> page) {
+				for (A account : page) {
+					accountIds.add(idExtractor.getKey(account));
+				}
+			}
+		});
+		return new ArrayList<String>(accountIds);
+	}
+}
@@ -0,0 +1,23 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.util.List;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * BatchOperation executes one API request for a batch of items of a bulk run, for example one request updating several
+ * custom field values of the same client. Called concurrently by the {@link BatchingBulkExecutor} worker threads
+ */
+public interface BatchOperation<I, R> {
+
+	/**
+	 * Execute the API request for a batch of items
+	 *
+	 * @param items
+	 *            batch items. All items have the same batch key
+	 * @return results, one for each item and in the order of the items
+	 * @throws MambuApiException
+	 *             if the request failed. The failure applies to all items of the batch
+	 */
+	public List<R> executeBatch(List<I> items) throws MambuApiException;
+}
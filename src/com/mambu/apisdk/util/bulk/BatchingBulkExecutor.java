@@ -0,0 +1,219 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.bulk.BulkResult.Status;
+
+/**
+ * BatchingBulkExecutor coalesces the items of a bulk run into batches and executes each batch with one API request,
+ * with bounded parallelism.
+ *
+ * Items with the same batch key (for example the custom field values of the same client) are grouped into batches of
+ * up to 'maxBatchSize' items, which are executed with a {@link BatchOperation}. The batches with the same key are
+ * executed one after the other, batches with different keys concurrently. When a batch request fails and an item
+ * operation is provided, the items of the batch are executed again one at a time, so that the result of each item is
+ * known: the failure of one item does not fail the other items of its batch.
+ *
+ * Results are reported per item, in the input order. The duration of the items executed in a batch is the duration of
+ * the batch request. All items are held in memory for the run.
+ */
+public class BatchingBulkExecutor<I, R> {
+
+	private final BatchOperation<I, R> batchOperation;
+	private final BulkOperation<I, R> itemOperation;
+	private final int maxBatchSize;
+	private final int concurrency;
+	private OrderingKey<I> batchKey = null;
+
+	/**
+	 * Create a batching bulk executor
+	 *
+	 * @param batchOperation
+	 *            operation executing a batch of items. Null to execute the items of each batch one at a time with the
+	 *            item operation
+	 * @param itemOperation
+	 *            operation executing one item, used for single item batches and after a batch request fails. Null to
+	 *            report the failure of a batch request for all its items. Must not be null if batchOperation is null
+	 * @param maxBatchSize
+	 *            maximum number of items in a batch. Must be greater than zero
+	 * @param concurrency
+	 *            maximum number of concurrent API requests. Must be greater than zero
+	 */
+	public BatchingBulkExecutor(BatchOperation<I, R> batchOperation, BulkOperation<I, R> itemOperation,
+			int maxBatchSize, int concurrency) {
+		if (batchOperation == null && itemOperation == null) {
+			throw new IllegalArgumentException("Batch operation and item operation cannot be both null");
+		}
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Max batch size must be greater than zero. It is " + maxBatchSize);
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be greater than zero. It is " + concurrency);
+		}
+		this.batchOperation = batchOperation;
+		this.itemOperation = itemOperation;
+		this.maxBatchSize = maxBatchSize;
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Set the key grouping the items into batches
+	 *
+	 * @param batchKey
+	 *            batch key. Null to batch the items in the input order
+	 */
+	public void setBatchKey(OrderingKey<I> batchKey) {
+		this.batchKey = batchKey;
+	}
+
+	/**
+	 * Execute all items in batches and collect their results
+	 *
+	 * @param items
+	 *            items to execute. Must not be null
+	 * @return report with the result of each item in the input order and the run statistics
+	 * @throws MambuApiException
+	 *             if the run is interrupted. Failures of the individual items are reported in the results
+	 */
+	public BulkReport<I, R> executeAll(Iterable<I> items) throws MambuApiException {
+		if (items == null) {
+			throw new IllegalArgumentException("Items must not be null");
+		}
+		List<Batch> batches = makeBatches(items);
+		int count = 0;
+		for (Batch batch : batches) {
+			count += batch.items.size();
+		}
+
+		final List<BulkResult<I, R>> results = new ArrayList<BulkResult<I, R>>(Collections
+				.<BulkResult<I, R>> nCopies(count, null));
+		final BulkStatistics statistics = new BulkStatistics();
+		statistics.start();
+
+		BulkOperation<Batch, List<BulkResult<I, R>>> operation = new BulkOperation<Batch, List<BulkResult<I, R>>>() {
+			@Override
+			public List<BulkResult<I, R>> execute(Batch batch) {
+				return executeBatch(batch);
+			}
+		};
+		BulkExecutor<Batch, List<BulkResult<I, R>>> executor = new BulkExecutor<Batch, List<BulkResult<I, R>>>(
+				operation, concurrency);
+		executor.setOrderingKey(new OrderingKey<Batch>() {
+			@Override
+			public String getKey(Batch batch) {
+				return batch.key;
+			}
+		});
+		try {
+			executor.execute(batches.iterator(), new BulkResultHandler<Batch, List<BulkResult<I, R>>>() {
+				@Override
+				public void handleResult(BulkResult<Batch, List<BulkResult<I, R>>> batchResult) {
+					for (BulkResult<I, R> result : batchResult.getResult()) {
+						results.set((int) result.getIndex(), result);
+						statistics.record(result.getStatus(), result.getDurationMillis());
+					}
+				}
+			});
+		} finally {
+			statistics.finish();
+		}
+		return new BulkReport<I, R>(results, statistics);
+	}
+
+	/**
+	 * Group the items into batches by key, in the order of the first item of each batch
+	 */
+	private List<Batch> makeBatches(Iterable<I> items) {
+		List<Batch> batches = new ArrayList<Batch>();
+		// The batch being filled for each key
+		Map<String, Batch> openBatches = new LinkedHashMap<String, Batch>();
+		Batch unkeyedBatch = null;
+		long index = 0;
+		for (I item : items) {
+			String key = (batchKey != null) ? batchKey.getKey(item) : null;
+			Batch batch = (key != null) ? openBatches.get(key) : unkeyedBatch;
+			if (batch == null || batch.items.size() == maxBatchSize) {
+				batch = new Batch(key);
+				batches.add(batch);
+				if (key != null) {
+					openBatches.put(key, batch);
+				} else {
+					unkeyedBatch = batch;
+				}
+			}
+			batch.indexes.add(index++);
+			batch.items.add(item);
+		}
+		return batches;
+	}
+
+	private List<BulkResult<I, R>> executeBatch(Batch batch) {
+		if (batchOperation != null && (batch.items.size() > 1 || itemOperation == null)) {
+			long startTime = System.currentTimeMillis();
+			MambuApiException exception;
+			try {
+				List<R> batchResults = batchOperation.executeBatch(batch.items);
+				if (batchResults == null || batchResults.size() != batch.items.size()) {
+					throw new IllegalStateException("Expected " + batch.items.size() + " batch results, got "
+							+ ((batchResults == null) ? null : batchResults.size()));
+				}
+				long duration = System.currentTimeMillis() - startTime;
+				List<BulkResult<I, R>> results = new ArrayList<BulkResult<I, R>>(batch.items.size());
+				for (int i = 0; i < batch.items.size(); i++) {
+					results.add(new BulkResult<I, R>(batch.indexes.get(i), batch.items.get(i), Status.SUCCEEDED,
+							batchResults.get(i), null, duration));
+				}
+				return results;
+			} catch (MambuApiException e) {
+				exception = e;
+			} catch (RuntimeException e) {
+				exception = new MambuApiException(e);
+			}
+			if (itemOperation == null) {
+				long duration = System.currentTimeMillis() - startTime;
+				List<BulkResult<I, R>> results = new ArrayList<BulkResult<I, R>>(batch.items.size());
+				for (int i = 0; i < batch.items.size(); i++) {
+					results.add(new BulkResult<I, R>(batch.indexes.get(i), batch.items.get(i), Status.FAILED, null,
+							exception, duration));
+				}
+				return results;
+			}
+		}
+		// Execute the items one at a time
+		List<BulkResult<I, R>> results = new ArrayList<BulkResult<I, R>>(batch.items.size());
+		for (int i = 0; i < batch.items.size(); i++) {
+			I item = batch.items.get(i);
+			long startTime = System.currentTimeMillis();
+			try {
+				R result = itemOperation.execute(item);
+				results.add(new BulkResult<I, R>(batch.indexes.get(i), item, Status.SUCCEEDED, result, null, System
+						.currentTimeMillis() - startTime));
+			} catch (MambuApiException e) {
+				results.add(new BulkResult<I, R>(batch.indexes.get(i), item, Status.FAILED, null, e, System
+						.currentTimeMillis() - startTime));
+			} catch (RuntimeException e) {
+				results.add(new BulkResult<I, R>(batch.indexes.get(i), item, Status.FAILED, null,
+						new MambuApiException(e), System.currentTimeMillis() - startTime));
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Items of one batch with their input indexes
+	 */
+	private class Batch {
+		private final String key;
+		private final List<Long> indexes = new ArrayList<Long>();
+		private final List<I> items = new ArrayList<I>();
+
+		private Batch(String key) {
+			this.key = key;
+		}
+	}
+}
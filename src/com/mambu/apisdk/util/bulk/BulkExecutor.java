@@ -0,0 +1,338 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ConcurrencyUtils;
+import com.mambu.apisdk.util.bulk.BulkResult.Status;
+
+/**
+ * BulkExecutor runs a {@link BulkOperation} for a stream of items with bounded parallelism.
+ *
+ * Items are read from the input lazily: no more than 'maxPendingItems' items are held at any time, so arbitrarily
+ * large inputs run in constant memory. Items with the same {@link OrderingKey} (for example the transactions of the
+ * same account) are executed one after the other in the input order, items with different keys are executed
+ * concurrently. Optionally, the remaining items with the same key are skipped after an item fails.
+ *
+ * The result of each item, or the exception it failed with, is delivered to a {@link BulkResultHandler} or collected
+ * into a {@link BulkReport}, together with the run {@link BulkStatistics}.
+ *
+ * Example: post loan repayments with 8 concurrent requests, keeping the repayments of each account ordered
+ *
+ * BulkExecutor<LoanRepaymentInstruction, LoanTransaction> executor = new BulkExecutor<..>(operation, 8);
+ *
+ * executor.setOrderingKey(orderingKey);
+ *
+ * BulkReport<LoanRepaymentInstruction, LoanTransaction> report = executor.executeAll(repayments);
+ */
+public class BulkExecutor<I, R> {
+
+	private final static String THREAD_NAME_PREFIX = "mambu-bulk";
+	// Default number of pending items per worker thread
+	private final static int DEFAULT_PENDING_ITEMS_PER_THREAD = 4;
+
+	private final BulkOperation<I, R> operation;
+	private final int concurrency;
+	private int maxPendingItems;
+	private OrderingKey<I> orderingKey = null;
+	private boolean skipAfterFailure = false;
+
+	/**
+	 * Create a bulk executor
+	 *
+	 * @param operation
+	 *            operation to execute for each item. Must not be null
+	 * @param concurrency
+	 *            maximum number of concurrent API requests. Must be greater than zero
+	 */
+	public BulkExecutor(BulkOperation<I, R> operation, int concurrency) {
+		if (operation == null) {
+			throw new IllegalArgumentException("Bulk operation must not be null");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be greater than zero. It is " + concurrency);
+		}
+		this.operation = operation;
+		this.concurrency = concurrency;
+		this.maxPendingItems = concurrency * DEFAULT_PENDING_ITEMS_PER_THREAD;
+	}
+
+	/**
+	 * Set the maximum number of items read from the input and not completed yet, including the items waiting for
+	 * preceding items with the same ordering key
+	 *
+	 * @param maxPendingItems
+	 *            maximum number of pending items. Must be greater than zero. Default is four times the concurrency
+	 */
+	public void setMaxPendingItems(int maxPendingItems) {
+		if (maxPendingItems < 1) {
+			throw new IllegalArgumentException("Max pending items must be greater than zero. It is " + maxPendingItems);
+		}
+		this.maxPendingItems = maxPendingItems;
+	}
+
+	/**
+	 * Execute the items with the same key in order
+	 *
+	 * @param orderingKey
+	 *            ordering key. Null to execute all items concurrently
+	 */
+	public void setOrderingKey(OrderingKey<I> orderingKey) {
+		this.orderingKey = orderingKey;
+	}
+
+	/**
+	 * Skip the remaining items with the same ordering key after an item fails. Only applies with an ordering key
+	 *
+	 * @param skipAfterFailure
+	 *            true to skip the items following a failed item with the same key. Default is false
+	 */
+	public void setSkipAfterFailure(boolean skipAfterFailure) {
+		this.skipAfterFailure = skipAfterFailure;
+	}
+
+	public int getConcurrency() {
+		return concurrency;
+	}
+
+	/**
+	 * Execute all items and collect their results
+	 *
+	 * @param items
+	 *            items to execute. Must not be null
+	 * @return report with the results in the input order and the run statistics
+	 * @throws MambuApiException
+	 *             if the run is interrupted. Failures of the individual items are reported in the results
+	 */
+	public BulkReport<I, R> executeAll(Iterable<I> items) throws MambuApiException {
+		if (items == null) {
+			throw new IllegalArgumentException("Items must not be null");
+		}
+		final List<BulkResult<I, R>> results = new ArrayList<BulkResult<I, R>>();
+		BulkStatistics statistics = execute(items.iterator(), new BulkResultHandler<I, R>() {
+			@Override
+			public void handleResult(BulkResult<I, R> result) {
+				results.add(result);
+			}
+		});
+		Collections.sort(results, new Comparator<BulkResult<I, R>>() {
+			@Override
+			public int compare(BulkResult<I, R> first, BulkResult<I, R> second) {
+				return (first.getIndex() < second.getIndex()) ? -1 : ((first.getIndex() == second.getIndex()) ? 0 : 1);
+			}
+		});
+		return new BulkReport<I, R>(results, statistics);
+	}
+
+	/**
+	 * Execute all items read from the input and deliver each item result to the handler as soon as it is available
+	 *
+	 * @param items
+	 *            input items. Read by the calling thread, which waits while maxPendingItems items are pending. Must not
+	 *            be null
+	 * @param handler
+	 *            result handler. Must not be null
+	 * @return run statistics
+	 * @throws MambuApiException
+	 *             if the handler fails, the input fails with a MambuApiException wrapped in an IllegalStateException or
+	 *             the run is interrupted. Items already submitted are completed before the exception is thrown
+	 */
+	public BulkStatistics execute(Iterator<I> items, BulkResultHandler<I, R> handler) throws MambuApiException {
+		if (items == null || handler == null) {
+			throw new IllegalArgumentException("Items and result handler must not be null");
+		}
+		Run run = new Run(handler);
+		return run.execute(items);
+	}
+
+	/**
+	 * State of one bulk run
+	 */
+	private class Run {
+		private final BulkResultHandler<I, R> handler;
+		private final BulkStatistics statistics = new BulkStatistics();
+		private final Semaphore pendingItems = new Semaphore(maxPendingItems);
+		private final ExecutorService pool = ConcurrencyUtils.newFixedThreadPool(concurrency, THREAD_NAME_PREFIX);
+		// Items waiting for the running item with the same key, by key. Present while an item with the key is running
+		private final Map<String, ArrayDeque<Task>> keyQueues = new HashMap<String, ArrayDeque<Task>>();
+		// Keys with a failed item, guarded by keyQueues
+		private final Set<String> failedKeys = new HashSet<String>();
+		private final Object handlerLock = new Object();
+		private volatile MambuApiException handlerException = null;
+		// First error thrown by an operation or the handler, re-thrown when the submitted items are completed
+		private volatile Error error = null;
+
+		private Run(BulkResultHandler<I, R> handler) {
+			this.handler = handler;
+		}
+
+		private BulkStatistics execute(Iterator<I> items) throws MambuApiException {
+			statistics.start();
+			long index = 0;
+			try {
+				try {
+					while (handlerException == null && error == null && items.hasNext()) {
+						I item = items.next();
+						pendingItems.acquire();
+						submit(new Task(index++, item));
+					}
+				} finally {
+					// Complete the submitted items, also when reading the input failed. All items are completed when
+					// all permits are released
+					pendingItems.acquire(maxPendingItems);
+					pendingItems.release(maxPendingItems);
+				}
+			} catch (InterruptedException e) {
+				pool.shutdownNow();
+				throw ConcurrencyUtils.toMambuApiException(e);
+			} catch (IllegalStateException e) {
+				// An input reading the items from the API, such as EntityIdIterator, wraps the request failure
+				if (e.getCause() instanceof MambuApiException) {
+					throw (MambuApiException) e.getCause();
+				}
+				throw e;
+			} finally {
+				pool.shutdown();
+				statistics.finish();
+			}
+			if (error != null) {
+				throw error;
+			}
+			if (handlerException != null) {
+				throw handlerException;
+			}
+			return statistics;
+		}
+
+		private void submit(Task task) {
+			if (task.key != null) {
+				synchronized (keyQueues) {
+					ArrayDeque<Task> queue = keyQueues.get(task.key);
+					if (queue != null) {
+						// Runs after the preceding items with the same key
+						queue.add(task);
+						return;
+					}
+					keyQueues.put(task.key, new ArrayDeque<Task>());
+				}
+			}
+			pool.execute(task);
+		}
+
+		/**
+		 * Get the next item waiting for an item with the same key, or release the key if there are none
+		 */
+		private Task next(Task task, boolean failed) {
+			if (task.key == null) {
+				return null;
+			}
+			synchronized (keyQueues) {
+				if (failed) {
+					failedKeys.add(task.key);
+				}
+				ArrayDeque<Task> queue = keyQueues.get(task.key);
+				Task next = queue.poll();
+				if (next == null) {
+					keyQueues.remove(task.key);
+				}
+				return next;
+			}
+		}
+
+		private boolean isSkipped(Task task) {
+			if (!skipAfterFailure || task.key == null) {
+				return false;
+			}
+			synchronized (keyQueues) {
+				return failedKeys.contains(task.key);
+			}
+		}
+
+		/**
+		 * Execute an item and then the items waiting for it, on the same worker thread
+		 */
+		private class Task implements Runnable {
+			private final long index;
+			private final I item;
+			private final String key;
+
+			private Task(long index, I item) {
+				this.index = index;
+				this.item = item;
+				this.key = (orderingKey != null) ? orderingKey.getKey(item) : null;
+			}
+
+			@Override
+			public void run() {
+				Task task = this;
+				while (task != null) {
+					boolean failed = true;
+					try {
+						BulkResult<I, R> result = task.executeItem();
+						deliver(result);
+						failed = !result.isSuccess();
+					} catch (Error e) {
+						// Stops the run. The item is completed as failed so the run doesn't wait for it
+						synchronized (handlerLock) {
+							if (error == null) {
+								error = e;
+							}
+						}
+					} finally {
+						// Always release the key and the permit, otherwise the run waits forever
+						Task next = next(task, failed);
+						pendingItems.release();
+						task = next;
+					}
+				}
+			}
+
+			private BulkResult<I, R> executeItem() {
+				if (isSkipped(this)) {
+					return new BulkResult<I, R>(index, item, Status.SKIPPED, null, new MambuApiException(-1,
+							"Skipped: a preceding item with the key " + key + " failed"), 0);
+				}
+				long startTime = System.currentTimeMillis();
+				try {
+					R result = operation.execute(item);
+					return new BulkResult<I, R>(index, item, Status.SUCCEEDED, result, null,
+							System.currentTimeMillis() - startTime);
+				} catch (MambuApiException e) {
+					return new BulkResult<I, R>(index, item, Status.FAILED, null, e, System.currentTimeMillis()
+							- startTime);
+				} catch (RuntimeException e) {
+					return new BulkResult<I, R>(index, item, Status.FAILED, null, new MambuApiException(e),
+							System.currentTimeMillis() - startTime);
+				}
+			}
+
+			private void deliver(BulkResult<I, R> result) {
+				statistics.record(result.getStatus(), result.getDurationMillis());
+				synchronized (handlerLock) {
+					try {
+						handler.handleResult(result);
+					} catch (MambuApiException e) {
+						if (handlerException == null) {
+							handlerException = e;
+						}
+					} catch (RuntimeException e) {
+						if (handlerException == null) {
+							handlerException = new MambuApiException(e);
+						}
+					}
+				}
+			}
+		}
+	}
+}
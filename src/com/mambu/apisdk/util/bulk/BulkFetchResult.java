@@ -0,0 +1,39 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.util.Map;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * BulkFetchResult holds the entities retrieved by a {@link BulkFetcher}, by the requested id, and the exceptions the
+ * other ids failed with
+ */
+public class BulkFetchResult<T> {
+
+	private final Map<String, T> entities;
+	private final Map<String, MambuApiException> failures;
+
+	BulkFetchResult(Map<String, T> entities, Map<String, MambuApiException> failures) {
+		this.entities = entities;
+		this.failures = failures;
+	}
+
+	/**
+	 * Get the retrieved entities
+	 *
+	 * @return entities by the requested id or encoded key, in the order of the requested ids
+	 */
+	public Map<String, T> getEntities() {
+		return entities;
+	}
+
+	/**
+	 * Get the ids which could not be retrieved. For example, the ids of entities which do not exist fail with the
+	 * "not found" error code
+	 *
+	 * @return exceptions by the requested id or encoded key, in the order of the requested ids
+	 */
+	public Map<String, MambuApiException> getFailures() {
+		return failures;
+	}
+}
@@ -0,0 +1,153 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.pagination.EntityKeyExtractor;
+
+/**
+ * BulkFetcher retrieves many entities by their ids with bounded parallelism.
+ *
+ * Duplicate ids are retrieved once. With a batch search, for example a search with an 'IN' filter constraint on the
+ * entity id, up to 'maxIdsPerSearch' ids are retrieved with each request. The ids not returned by the search (such as
+ * encoded keys, or the ids of entities which do not exist) and the ids of failed searches are then retrieved one at a
+ * time, so that each missing id is reported with its own error.
+ */
+public class BulkFetcher<T> {
+
+	private final BulkOperation<String, T> getOperation;
+	private final int concurrency;
+	private BatchOperation<String, T> batchSearch = null;
+	private int maxIdsPerSearch = 1;
+
+	/**
+	 * Create a bulk fetcher
+	 *
+	 * @param getOperation
+	 *            operation retrieving one entity by its id or encoded key. Must not be null
+	 * @param concurrency
+	 *            maximum number of concurrent API requests. Must be greater than zero
+	 */
+	public BulkFetcher(BulkOperation<String, T> getOperation, int concurrency) {
+		if (getOperation == null) {
+			throw new IllegalArgumentException("Get operation must not be null");
+		}
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be greater than zero. It is " + concurrency);
+		}
+		this.getOperation = getOperation;
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Set the search retrieving many entities with one request
+	 *
+	 * @param batchSearch
+	 *            search operation returning the entity for each requested id, or null for the ids it did not find. See
+	 *            {@link #matchIds(List, List, EntityKeyExtractor)}
+	 * @param maxIdsPerSearch
+	 *            maximum number of ids searched with one request. Must be greater than zero
+	 */
+	public void setBatchSearch(BatchOperation<String, T> batchSearch, int maxIdsPerSearch) {
+		if (maxIdsPerSearch < 1) {
+			throw new IllegalArgumentException("Max ids per search must be greater than zero. It is "
+					+ maxIdsPerSearch);
+		}
+		this.batchSearch = batchSearch;
+		this.maxIdsPerSearch = maxIdsPerSearch;
+	}
+
+	/**
+	 * Retrieve entities by their ids
+	 *
+	 * @param ids
+	 *            ids or encoded keys of the entities. Duplicate and null ids are ignored. Must not be null
+	 * @return retrieved entities and failures by id
+	 * @throws MambuApiException
+	 *             if the run is interrupted. Ids which could not be retrieved are reported in the failures
+	 */
+	public BulkFetchResult<T> getMany(Collection<String> ids) throws MambuApiException {
+		if (ids == null) {
+			throw new IllegalArgumentException("Ids must not be null");
+		}
+		Set<String> uniqueIds = new LinkedHashSet<String>(ids);
+		uniqueIds.remove(null);
+
+		Map<String, T> found = new HashMap<String, T>();
+		Map<String, MambuApiException> failed = new HashMap<String, MambuApiException>();
+		List<String> remainingIds = new ArrayList<String>(uniqueIds);
+		if (batchSearch != null && maxIdsPerSearch > 1) {
+			// Search the ids in batches, falling back to single requests for failed searches
+			BatchingBulkExecutor<String, T> executor = new BatchingBulkExecutor<String, T>(batchSearch, getOperation,
+					maxIdsPerSearch, concurrency);
+			remainingIds = new ArrayList<String>();
+			for (BulkResult<String, T> result : executor.executeAll(uniqueIds).getResults()) {
+				collect(result, found, failed, remainingIds);
+			}
+		}
+		if (!remainingIds.isEmpty()) {
+			BulkExecutor<String, T> executor = new BulkExecutor<String, T>(getOperation, concurrency);
+			for (BulkResult<String, T> result : executor.executeAll(remainingIds).getResults()) {
+				collect(result, found, failed, null);
+			}
+		}
+
+		// Report in the order of the requested ids
+		Map<String, T> entities = new LinkedHashMap<String, T>();
+		Map<String, MambuApiException> failures = new LinkedHashMap<String, MambuApiException>();
+		for (String id : uniqueIds) {
+			if (found.containsKey(id)) {
+				entities.put(id, found.get(id));
+			} else {
+				failures.put(id, failed.get(id));
+			}
+		}
+		return new BulkFetchResult<T>(entities, failures);
+	}
+
+	private void collect(BulkResult<String, T> result, Map<String, T> found, Map<String, MambuApiException> failed,
+			List<String> notFoundIds) {
+		String id = result.getItem();
+		if (!result.isSuccess()) {
+			failed.put(id, result.getException());
+		} else if (result.getResult() != null) {
+			found.put(id, result.getResult());
+		} else if (notFoundIds != null) {
+			notFoundIds.add(id);
+		} else {
+			failed.put(id, new MambuApiException(-1, "No entity returned for " + id));
+		}
+	}
+
+	/**
+	 * Match the entities returned by a search to the searched ids
+	 *
+	 * @param ids
+	 *            searched ids
+	 * @param entities
+	 *            entities returned by the search
+	 * @param idExtractor
+	 *            extractor of the entity id
+	 * @return the entity for each searched id, in the order of the ids, or null for the ids not found
+	 */
+	public static <T> List<T> matchIds(List<String> ids, List<T> entities, EntityKeyExtractor<T> idExtractor) {
+		Map<String, T> entitiesById = new HashMap<String, T>();
+		if (entities != null) {
+			for (T entity : entities) {
+				entitiesById.put(idExtractor.getKey(entity), entity);
+			}
+		}
+		List<T> matched = new ArrayList<T>(ids.size());
+		for (String id : ids) {
+			matched.add(entitiesById.get(id));
+		}
+		return matched;
+	}
+}
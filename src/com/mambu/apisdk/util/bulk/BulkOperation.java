@@ -0,0 +1,20 @@
+package com.mambu.apisdk.util.bulk;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * BulkOperation executes the API request for one item of a bulk run, for example one loan repayment. Called
+ * concurrently by the {@link BulkExecutor} worker threads
+ */
+public interface BulkOperation<I, R> {
+
+	/**
+	 * Execute the API request for an item
+	 *
+	 * @param item
+	 *            bulk item
+	 * @return request result
+	 * @throws MambuApiException
+	 */
+	public R execute(I item) throws MambuApiException;
+}
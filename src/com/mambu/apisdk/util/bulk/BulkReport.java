@@ -0,0 +1,46 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BulkReport holds the results of all items of a bulk run, in the input order, and the run statistics
+ */
+public class BulkReport<I, R> {
+
+	private final List<BulkResult<I, R>> results;
+	private final BulkStatistics statistics;
+
+	BulkReport(List<BulkResult<I, R>> results, BulkStatistics statistics) {
+		this.results = results;
+		this.statistics = statistics;
+	}
+
+	/**
+	 * Get the results of all items
+	 *
+	 * @return results in the input order
+	 */
+	public List<BulkResult<I, R>> getResults() {
+		return results;
+	}
+
+	/**
+	 * Get the results of the items which failed or were skipped
+	 *
+	 * @return unsuccessful results in the input order
+	 */
+	public List<BulkResult<I, R>> getFailures() {
+		List<BulkResult<I, R>> failures = new ArrayList<BulkResult<I, R>>();
+		for (BulkResult<I, R> result : results) {
+			if (!result.isSuccess()) {
+				failures.add(result);
+			}
+		}
+		return failures;
+	}
+
+	public BulkStatistics getStatistics() {
+		return statistics;
+	}
+}
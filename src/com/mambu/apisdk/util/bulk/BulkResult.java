@@ -0,0 +1,85 @@
+package com.mambu.apisdk.util.bulk;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * Result of one item of a bulk run: the API request result if the request succeeded, or the exception it failed with
+ */
+public class BulkResult<I, R> {
+
+	/**
+	 * Status of a bulk item
+	 */
+	public enum Status {
+		// The request succeeded
+		SUCCEEDED,
+		// The request failed
+		FAILED,
+		// Not executed because a preceding item with the same ordering key failed
+		SKIPPED
+	}
+
+	private final long index;
+	private final I item;
+	private final Status status;
+	private final R result;
+	private final MambuApiException exception;
+	private final long durationMillis;
+
+	BulkResult(long index, I item, Status status, R result, MambuApiException exception, long durationMillis) {
+		this.index = index;
+		this.item = item;
+		this.status = status;
+		this.result = result;
+		this.exception = exception;
+		this.durationMillis = durationMillis;
+	}
+
+	/**
+	 * Get the position of the item in the bulk input, starting from zero
+	 *
+	 * @return item index
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	public I getItem() {
+		return item;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	public boolean isSuccess() {
+		return status == Status.SUCCEEDED;
+	}
+
+	/**
+	 * Get the API request result
+	 *
+	 * @return result or null if the request did not succeed
+	 */
+	public R getResult() {
+		return result;
+	}
+
+	/**
+	 * Get the exception the request failed with
+	 *
+	 * @return exception or null if the request succeeded
+	 */
+	public MambuApiException getException() {
+		return exception;
+	}
+
+	/**
+	 * Get the API request duration
+	 *
+	 * @return duration in milliseconds. Zero for the skipped items
+	 */
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+}
@@ -0,0 +1,20 @@
+package com.mambu.apisdk.util.bulk;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * BulkResultHandler receives the result of each item of a bulk run as soon as the item is executed. The handler is
+ * invoked by the worker threads, but by one thread at a time
+ */
+public interface BulkResultHandler<I, R> {
+
+	/**
+	 * Handle an item result
+	 *
+	 * @param result
+	 *            item result
+	 * @throws MambuApiException
+	 *             to stop the bulk run. Items already submitted are completed, no further items are submitted
+	 */
+	public void handleResult(BulkResult<I, R> result) throws MambuApiException;
+}
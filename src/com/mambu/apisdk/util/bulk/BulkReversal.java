@@ -0,0 +1,140 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.bulk.ReversalReport.AccountReconciliation;
+import com.mambu.core.shared.model.FinancialTransaction;
+
+/**
+ * BulkReversal reverses many transactions, for example the transactions posted by a bad import.
+ *
+ * Mambu only reverses a transaction when the newer transactions of its account are reversed, so the transactions of
+ * each account are reversed one after the other, newest first (by entry date, then by transaction ID), and the
+ * remaining transactions of an account are skipped once a reversal fails. Different accounts are reversed
+ * concurrently: the accounts are interleaved in the input of a {@link BulkExecutor} ordered by account, so the
+ * executor window holds transactions of many accounts at a time.
+ *
+ * Transactions already reversed, and reversal transactions, are not sent and are listed in the
+ * {@link ReversalReport}.
+ */
+public class BulkReversal<T extends FinancialTransaction, R> {
+
+	private final BulkExecutor<T, R> executor;
+
+	/**
+	 * Newest transaction first: latest entry date, then highest transaction ID
+	 */
+	private final Comparator<T> newestFirst = new Comparator<T>() {
+		@Override
+		public int compare(T first, T second) {
+			int byDate = compareDescending(first.getEntryDate(), second.getEntryDate());
+			if (byDate != 0) {
+				return byDate;
+			}
+			return compareDescending(first.getTransactionId(), second.getTransactionId());
+		}
+	};
+
+	/**
+	 * Create a bulk reversal
+	 *
+	 * @param reverseOperation
+	 *            operation reversing one transaction. Must not be null
+	 * @param concurrency
+	 *            maximum number of concurrent requests, each for a different account. Must be greater than zero
+	 */
+	public BulkReversal(BulkOperation<T, R> reverseOperation, int concurrency) {
+		this.executor = new BulkExecutor<T, R>(reverseOperation, concurrency);
+		executor.setOrderingKey(new OrderingKey<T>() {
+			@Override
+			public String getKey(T transaction) {
+				return transaction.getParentAccountKey();
+			}
+		});
+		executor.setSkipAfterFailure(true);
+	}
+
+	/**
+	 * Reverse transactions and reconcile the results by account
+	 *
+	 * @param transactions
+	 *            original transactions to reverse, in any order. Must have the parent account key
+	 * @return reversal report
+	 * @throws MambuApiException
+	 *             if the run is interrupted. Failures of the individual reversals are reported in the results
+	 */
+	public ReversalReport<T, R> reverseAll(Collection<T> transactions) throws MambuApiException {
+		if (transactions == null) {
+			throw new IllegalArgumentException("Transactions must not be null");
+		}
+		List<T> alreadyReversed = new ArrayList<T>();
+		Map<String, List<T>> byAccount = new LinkedHashMap<String, List<T>>();
+		for (T transaction : transactions) {
+			if (transaction.getParentAccountKey() == null) {
+				throw new IllegalArgumentException("Transaction " + transaction.getTransactionId()
+						+ " has no parent account key");
+			}
+			if (transaction.isReversal() || transaction.getReversalTransactionKey() != null) {
+				alreadyReversed.add(transaction);
+				continue;
+			}
+			List<T> accountTransactions = byAccount.get(transaction.getParentAccountKey());
+			if (accountTransactions == null) {
+				accountTransactions = new ArrayList<T>();
+				byAccount.put(transaction.getParentAccountKey(), accountTransactions);
+			}
+			accountTransactions.add(transaction);
+		}
+		for (List<T> accountTransactions : byAccount.values()) {
+			Collections.sort(accountTransactions, newestFirst);
+		}
+
+		BulkReport<T, R> bulkReport = executor.executeAll(interleave(byAccount.values()));
+
+		Map<String, AccountReconciliation> accounts = new LinkedHashMap<String, AccountReconciliation>();
+		for (String accountKey : byAccount.keySet()) {
+			accounts.put(accountKey, new AccountReconciliation(accountKey));
+		}
+		for (BulkResult<T, R> result : bulkReport.getResults()) {
+			accounts.get(result.getItem().getParentAccountKey()).add(result);
+		}
+		return new ReversalReport<T, R>(bulkReport, accounts.values(), alreadyReversed);
+	}
+
+	/**
+	 * Take the first transaction of each account, then the second of each account and so on
+	 */
+	private static <T> List<T> interleave(Collection<List<T>> groups) {
+		List<T> interleaved = new ArrayList<T>();
+		int position = 0;
+		boolean added = true;
+		while (added) {
+			added = false;
+			for (List<T> group : groups) {
+				if (position < group.size()) {
+					interleaved.add(group.get(position));
+					added = true;
+				}
+			}
+			position++;
+		}
+		return interleaved;
+	}
+
+	/**
+	 * Compare in descending order, null values last
+	 */
+	private static <C extends Comparable<? super C>> int compareDescending(C first, C second) {
+		if (first == null || second == null) {
+			return (first == second) ? 0 : ((first == null) ? 1 : -1);
+		}
+		return second.compareTo(first);
+	}
+}
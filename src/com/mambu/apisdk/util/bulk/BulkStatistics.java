@@ -0,0 +1,169 @@
+package com.mambu.apisdk.util.bulk;
+
+import com.mambu.apisdk.util.bulk.BulkResult.Status;
+
+/**
+ * BulkStatistics collects the counts, the throughput and the latency distribution of a bulk run.
+ *
+ * Latencies are recorded in a logarithmic histogram: latencies under 8 milliseconds are counted exactly, larger ones in
+ * 8 buckets per power of two, so the reported percentiles are within 12.5% of the exact values while the histogram
+ * has a small fixed size regardless of the number of items.
+ */
+public class BulkStatistics {
+
+	// Linear buckets below 2^SUB_BUCKET_BITS milliseconds, then 2^SUB_BUCKET_BITS buckets per power of two
+	private final static int SUB_BUCKET_BITS = 3;
+	private final static int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private final static int BUCKETS = SUB_BUCKETS + (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final long[] histogram = new long[BUCKETS];
+	private long succeeded;
+	private long failed;
+	private long skipped;
+	private long totalLatencyMillis;
+	private long maxLatencyMillis;
+	private long startTime;
+	private long endTime;
+
+	synchronized void start() {
+		startTime = System.currentTimeMillis();
+		endTime = 0;
+	}
+
+	synchronized void finish() {
+		endTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Record an item result
+	 *
+	 * @param status
+	 *            item status
+	 * @param latencyMillis
+	 *            request duration. Not recorded for the skipped items
+	 */
+	synchronized void record(Status status, long latencyMillis) {
+		switch (status) {
+		case SUCCEEDED:
+			succeeded++;
+			break;
+		case FAILED:
+			failed++;
+			break;
+		case SKIPPED:
+			skipped++;
+			return;
+		}
+		long latency = Math.max(0, latencyMillis);
+		histogram[bucketIndex(latency)]++;
+		totalLatencyMillis += latency;
+		maxLatencyMillis = Math.max(maxLatencyMillis, latency);
+	}
+
+	public synchronized long getSucceeded() {
+		return succeeded;
+	}
+
+	public synchronized long getFailed() {
+		return failed;
+	}
+
+	public synchronized long getSkipped() {
+		return skipped;
+	}
+
+	/**
+	 * Get the number of completed items, including the failed and the skipped ones
+	 *
+	 * @return number of items
+	 */
+	public synchronized long getCount() {
+		return succeeded + failed + skipped;
+	}
+
+	/**
+	 * Get the run duration
+	 *
+	 * @return milliseconds from the start of the run to its end, or to now if the run is in progress
+	 */
+	public synchronized long getElapsedMillis() {
+		if (startTime == 0) {
+			return 0;
+		}
+		return ((endTime != 0) ? endTime : System.currentTimeMillis()) - startTime;
+	}
+
+	/**
+	 * Get the throughput of executed requests
+	 *
+	 * @return requests per second
+	 */
+	public synchronized double getThroughput() {
+		long elapsed = getElapsedMillis();
+		return (elapsed == 0) ? 0 : (succeeded + failed) * 1000.0 / elapsed;
+	}
+
+	public synchronized double getMeanLatencyMillis() {
+		long executed = succeeded + failed;
+		return (executed == 0) ? 0 : (double) totalLatencyMillis / executed;
+	}
+
+	public synchronized long getMaxLatencyMillis() {
+		return maxLatencyMillis;
+	}
+
+	/**
+	 * Get a latency percentile
+	 *
+	 * @param percentile
+	 *            percentile between 0 and 100. E.g. 99 for the 99th percentile
+	 * @return latency in milliseconds under which the requested percentage of the requests completed
+	 */
+	public synchronized long getLatencyPercentile(double percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("Percentile must be between 0 and 100. It is " + percentile);
+		}
+		long executed = succeeded + failed;
+		if (executed == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(executed * percentile / 100));
+		long count = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			count += histogram[i];
+			if (count >= rank) {
+				return Math.min(bucketUpperBound(i), maxLatencyMillis);
+			}
+		}
+		return maxLatencyMillis;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Items=" + getCount() + " Succeeded=" + succeeded + " Failed=" + failed + " Skipped=" + skipped
+				+ " Elapsed=" + getElapsedMillis() + "ms Throughput=" + String.format("%.1f", getThroughput())
+				+ "/s Latency mean=" + String.format("%.1f", getMeanLatencyMillis()) + "ms p50="
+				+ getLatencyPercentile(50) + "ms p95=" + getLatencyPercentile(95) + "ms p99="
+				+ getLatencyPercentile(99) + "ms max=" + maxLatencyMillis + "ms";
+	}
+
+	private static int bucketIndex(long latency) {
+		if (latency < SUB_BUCKETS) {
+			return (int) latency;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(latency);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) (latency >> shift) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+	}
+
+	private static long bucketUpperBound(int index) {
+		if (index < SUB_BUCKETS) {
+			return index;
+		}
+		int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+		int subBucket = (index - SUB_BUCKETS) % SUB_BUCKETS;
+		long lowerBound = (long) (SUB_BUCKETS + subBucket) << shift;
+		return lowerBound + (1L << shift) - 1;
+	}
+}
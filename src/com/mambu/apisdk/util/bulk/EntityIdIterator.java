@@ -0,0 +1,81 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.pagination.EntityKeyExtractor;
+import com.mambu.apisdk.util.pagination.PageIterator;
+
+/**
+ * EntityIdIterator streams the IDs of the entities returned by a paginated API request, requesting the pages as the
+ * IDs are consumed. Used as the input of a {@link BulkExecutor} run over a custom view or a search result.
+ *
+ * A page request failure is thrown as an IllegalStateException with the MambuApiException as its cause, which the
+ * {@link BulkExecutor} throws as the MambuApiException.
+ *
+ * Note: the pages are requested while the bulk operation runs, so an operation changing which entities match the
+ * request may make entities be skipped or repeated
+ */
+public class EntityIdIterator<T> implements Iterator<String>, Closeable {
+
+	private final PageIterator<T> pages;
+	private final EntityKeyExtractor<T> idExtractor;
+	private Iterator<T> page = null;
+
+	/**
+	 * Create an iterator
+	 *
+	 * @param pages
+	 *            page iterator. Closed when this iterator is closed
+	 * @param idExtractor
+	 *            extractor returning the ID of an entity
+	 */
+	public EntityIdIterator(PageIterator<T> pages, EntityKeyExtractor<T> idExtractor) {
+		if (pages == null || idExtractor == null) {
+			throw new IllegalArgumentException("Page iterator and ID extractor must not be null");
+		}
+		this.pages = pages;
+		this.idExtractor = idExtractor;
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 *             if a page request fails, with the MambuApiException as its cause
+	 */
+	@Override
+	public boolean hasNext() {
+		try {
+			while (page == null || !page.hasNext()) {
+				if (!pages.hasNextPage()) {
+					return false;
+				}
+				List<T> entities = pages.nextPage();
+				page = entities.iterator();
+			}
+			return true;
+		} catch (MambuApiException e) {
+			throw new IllegalStateException("Cannot retrieve the page after offset " + pages.getOffset(), e);
+		}
+	}
+
+	@Override
+	public String next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return idExtractor.getKey(page.next());
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() {
+		pages.close();
+	}
+}
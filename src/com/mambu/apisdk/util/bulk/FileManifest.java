@@ -0,0 +1,182 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.apisdk.util.ServiceHelper;
+
+/**
+ * FileManifest records the result of a bulk run processing the files of a directory tree, one JSON line per file,
+ * identified by its path relative to the root directory, e.g.
+ *
+ * {"path":"clients/ABC123/passport.pdf","status":"SUCCEEDED","result":{"encodedKey":"8a80..",...}}
+ *
+ * {"path":"clients/DEF456/id.jpg","status":"FAILED","errorCode":400,"errorMessage":"INVALID_DOCUMENT_HOLDER"}
+ *
+ * Lines are appended to an existing manifest, so a run can be resumed: the files which succeeded in a previous run are
+ * reported as completed and are not processed again. The incomplete last line of a run killed while writing it is
+ * removed when the manifest is opened, so the next line isn't appended to it.
+ */
+public class FileManifest<R> implements BulkResultHandler<File, R>, Closeable {
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+	private final static String SUCCEEDED = BulkResult.Status.SUCCEEDED.name();
+
+	private final File rootDirectory;
+	private final Set<String> completedPaths = new HashSet<String>();
+	private final Gson gson = GsonUtils.createGson();
+	private final Writer writer;
+
+	/**
+	 * Open a manifest, reading the files completed by previous runs
+	 *
+	 * @param manifestFile
+	 *            manifest file. Created if it does not exist, appended to otherwise
+	 * @param rootDirectory
+	 *            root directory of the processed files
+	 * @throws IOException
+	 */
+	public FileManifest(File manifestFile, File rootDirectory) throws IOException {
+		if (manifestFile == null || rootDirectory == null) {
+			throw new IllegalArgumentException("Manifest file and root directory must not be null");
+		}
+		this.rootDirectory = rootDirectory;
+		if (manifestFile.exists()) {
+			trimIncompleteLine(manifestFile);
+			readCompletedPaths(manifestFile);
+		}
+		this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(manifestFile, true), UTF8));
+	}
+
+	/**
+	 * Is a file completed successfully by a previous run
+	 *
+	 * @param file
+	 *            file
+	 * @return true if the file succeeded in a previous run
+	 */
+	public boolean isCompleted(File file) {
+		return completedPaths.contains(getRelativePath(file));
+	}
+
+	/**
+	 * Get the number of files completed successfully by previous runs
+	 *
+	 * @return number of files
+	 */
+	public int getCompletedCount() {
+		return completedPaths.size();
+	}
+
+	/**
+	 * Get the path of a file relative to the root directory, with '/' separators
+	 *
+	 * @param file
+	 *            file in the root directory tree
+	 * @return relative path
+	 */
+	public String getRelativePath(File file) {
+		return rootDirectory.toURI().relativize(file.toURI()).getPath();
+	}
+
+	@Override
+	public void handleResult(BulkResult<File, R> result) throws MambuApiException {
+		JsonObject line = new JsonObject();
+		line.addProperty("path", getRelativePath(result.getItem()));
+		line.addProperty("status", result.getStatus().name());
+		if (result.isSuccess()) {
+			line.add("result", gson.toJsonTree(result.getResult()));
+		} else {
+			line.addProperty("errorCode", result.getException().getErrorCode());
+			line.addProperty("errorMessage", result.getException().getErrorMessage());
+		}
+		try {
+			writer.write(line.toString());
+			writer.write('\n');
+			// Flush each line, so that the manifest is complete if the run is killed
+			writer.flush();
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+	/**
+	 * Truncate the manifest after its last complete line
+	 */
+	private static void trimIncompleteLine(File manifestFile) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(manifestFile, "rw");
+		try {
+			byte[] chunk = new byte[4096];
+			long end = file.length();
+			while (end > 0) {
+				int length = (int) Math.min(chunk.length, end);
+				file.seek(end - length);
+				file.readFully(chunk, 0, length);
+				for (int i = length - 1; i >= 0; i--) {
+					if (chunk[i] == '\n') {
+						file.setLength(end - length + i + 1);
+						return;
+					}
+				}
+				end -= length;
+			}
+			// No complete line
+			file.setLength(0);
+		} finally {
+			file.close();
+		}
+	}
+
+	private void readCompletedPaths(File manifestFile) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(manifestFile), UTF8));
+		try {
+			JsonParser parser = new JsonParser();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.trim().isEmpty()) {
+					continue;
+				}
+				JsonObject record;
+				try {
+					record = parser.parse(line).getAsJsonObject();
+				} catch (JsonParseException e) {
+					// Not a manifest line
+					continue;
+				} catch (IllegalStateException e) {
+					continue;
+				}
+				String path = record.get("path").getAsString();
+				if (SUCCEEDED.equals(record.get("status").getAsString())) {
+					completedPaths.add(path);
+				} else {
+					completedPaths.remove(path);
+				}
+			}
+		} finally {
+			ServiceHelper.closeQuietly(reader);
+		}
+	}
+}
@@ -0,0 +1,65 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.util.Map;
+
+/**
+ * InputRecord is one record of a bulk input file: the record fields by name and the line number. A record which could
+ * not be parsed has no fields and a parse error instead, so that one malformed line does not stop a bulk run
+ */
+public class InputRecord {
+
+	private final long lineNumber;
+	private final Map<String, String> fields;
+	private final String parseError;
+
+	InputRecord(long lineNumber, Map<String, String> fields, String parseError) {
+		this.lineNumber = lineNumber;
+		this.fields = fields;
+		this.parseError = parseError;
+	}
+
+	/**
+	 * Get the line number of the record in the input file, starting from 1
+	 *
+	 * @return line number
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Get the record fields
+	 *
+	 * @return fields by name. Null if the record could not be parsed
+	 */
+	public Map<String, String> getFields() {
+		return fields;
+	}
+
+	/**
+	 * Get a field value
+	 *
+	 * @param name
+	 *            field name
+	 * @return trimmed field value or null if the field is missing or empty
+	 */
+	public String getField(String name) {
+		if (fields == null) {
+			return null;
+		}
+		String value = fields.get(name);
+		if (value == null || value.trim().isEmpty()) {
+			return null;
+		}
+		return value.trim();
+	}
+
+	/**
+	 * Get the parse error
+	 *
+	 * @return parse error or null if the record was parsed
+	 */
+	public String getParseError() {
+		return parseError;
+	}
+}
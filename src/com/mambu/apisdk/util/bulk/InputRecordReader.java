@@ -0,0 +1,227 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.reflect.TypeToken;
+
+/**
+ * InputRecordReader reads the records of a bulk input file one line at a time, so that files of any size are read in
+ * constant memory. Two formats are supported:
+ *
+ * CSV: the first line is the header with the field names. Fields are separated by commas and can be enclosed in double
+ * quotes, with double quotes escaped by doubling them. Quoted fields must not span lines.
+ *
+ * JSON_LINES: each line is a JSON object with the field names and values, e.g. {"accountId":"ABC123","amount":"10"}
+ *
+ * Empty lines are skipped. A malformed line is returned as a record with a parse error.
+ */
+public class InputRecordReader implements Iterator<InputRecord>, Closeable {
+
+	/**
+	 * Input file format
+	 */
+	public enum Format {
+		CSV, JSON_LINES
+	}
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+	private final static Type FIELDS_TYPE = new TypeToken<LinkedHashMap<String, String>>() {
+	}.getType();
+
+	private final BufferedReader reader;
+	private final Format format;
+	private final Gson gson = new Gson();
+	private List<String> header = null;
+	private long lineNumber = 0;
+	private InputRecord next = null;
+
+	/**
+	 * Create a reader
+	 *
+	 * @param reader
+	 *            input reader. Closed when this reader is closed
+	 * @param format
+	 *            input format
+	 * @throws IOException
+	 *             if the CSV header cannot be read
+	 */
+	public InputRecordReader(Reader reader, Format format) throws IOException {
+		if (reader == null || format == null) {
+			throw new IllegalArgumentException("Reader and format must not be null");
+		}
+		this.reader = (reader instanceof BufferedReader) ? (BufferedReader) reader : new BufferedReader(reader);
+		this.format = format;
+		if (format == Format.CSV) {
+			String headerLine = readLine();
+			if (headerLine == null) {
+				throw new IOException("The CSV input has no header");
+			}
+			List<String> names = parseCsvLine(headerLine);
+			if (names == null) {
+				throw new IOException("Invalid CSV header: " + headerLine);
+			}
+			header = new ArrayList<String>();
+			for (String name : names) {
+				header.add(name.trim());
+			}
+		}
+	}
+
+	/**
+	 * Open a file encoded in UTF-8
+	 *
+	 * @param file
+	 *            input file
+	 * @param format
+	 *            input format
+	 * @return reader. Must be closed by the caller
+	 * @throws IOException
+	 */
+	public static InputRecordReader open(File file, Format format) throws IOException {
+		Reader reader = new InputStreamReader(new FileInputStream(file), UTF8);
+		try {
+			return new InputRecordReader(reader, format);
+		} catch (IOException e) {
+			reader.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 *
+	 * @throws IllegalStateException
+	 *             if the input cannot be read
+	 */
+	@Override
+	public boolean hasNext() {
+		if (next != null) {
+			return true;
+		}
+		String line;
+		try {
+			do {
+				line = readLine();
+			} while (line != null && line.trim().isEmpty());
+		} catch (IOException e) {
+			throw new IllegalStateException("Cannot read line " + (lineNumber + 1), e);
+		}
+		if (line == null) {
+			return false;
+		}
+		next = parse(line);
+		return true;
+	}
+
+	@Override
+	public InputRecord next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		InputRecord record = next;
+		next = null;
+		return record;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+	private String readLine() throws IOException {
+		String line = reader.readLine();
+		if (line != null) {
+			lineNumber++;
+		}
+		return line;
+	}
+
+	private InputRecord parse(String line) {
+		switch (format) {
+		case CSV:
+			List<String> values = parseCsvLine(line);
+			if (values == null) {
+				return new InputRecord(lineNumber, null, "Unterminated quoted field");
+			}
+			if (values.size() != header.size()) {
+				return new InputRecord(lineNumber, null, "Expected " + header.size() + " fields, found "
+						+ values.size());
+			}
+			Map<String, String> fields = new LinkedHashMap<String, String>();
+			for (int i = 0; i < values.size(); i++) {
+				fields.put(header.get(i), values.get(i));
+			}
+			return new InputRecord(lineNumber, fields, null);
+		case JSON_LINES:
+			try {
+				Map<String, String> jsonFields = gson.fromJson(line, FIELDS_TYPE);
+				if (jsonFields == null) {
+					return new InputRecord(lineNumber, null, "Not a JSON object");
+				}
+				return new InputRecord(lineNumber, jsonFields, null);
+			} catch (JsonParseException e) {
+				return new InputRecord(lineNumber, null, "Invalid JSON: " + e.getMessage());
+			}
+		}
+		throw new IllegalStateException("Unsupported format " + format);
+	}
+
+	/**
+	 * Split a CSV line into its fields
+	 *
+	 * @return fields or null if a quoted field is not terminated
+	 */
+	private static List<String> parseCsvLine(String line) {
+		List<String> fields = new ArrayList<String>();
+		StringBuilder field = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < line.length(); i++) {
+			char c = line.charAt(i);
+			if (quoted) {
+				if (c == '"') {
+					if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+						field.append('"');
+						i++;
+					} else {
+						quoted = false;
+					}
+				} else {
+					field.append(c);
+				}
+			} else if (c == '"') {
+				quoted = true;
+			} else if (c == ',') {
+				fields.add(field.toString());
+				field.setLength(0);
+			} else {
+				field.append(c);
+			}
+		}
+		if (quoted) {
+			return null;
+		}
+		fields.add(field.toString());
+		return fields;
+	}
+}
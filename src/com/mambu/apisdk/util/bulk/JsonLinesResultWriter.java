@@ -0,0 +1,80 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.GsonUtils;
+
+/**
+ * JsonLinesResultWriter writes the result of each record of a bulk input file as one JSON line, as soon as the record
+ * is executed. Lines are written in the completion order and identify their input record by its line number, e.g.
+ *
+ * {"line":12,"status":"SUCCEEDED","result":{"transactionId":1234,...}}
+ *
+ * {"line":13,"status":"FAILED","errorCode":400,"errorMessage":"INVALID_ACCOUNT_ID"}
+ */
+public class JsonLinesResultWriter<R> implements BulkResultHandler<InputRecord, R>, Closeable {
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	private final Writer writer;
+	private final Gson gson = GsonUtils.createGson();
+
+	/**
+	 * Create a writer
+	 *
+	 * @param writer
+	 *            output writer. Closed when this writer is closed
+	 */
+	public JsonLinesResultWriter(Writer writer) {
+		if (writer == null) {
+			throw new IllegalArgumentException("Writer must not be null");
+		}
+		this.writer = (writer instanceof BufferedWriter) ? writer : new BufferedWriter(writer);
+	}
+
+	/**
+	 * Create a writer to a file encoded in UTF-8. An existing file is replaced
+	 *
+	 * @param file
+	 *            results file
+	 * @return writer. Must be closed by the caller
+	 * @throws IOException
+	 */
+	public static <R> JsonLinesResultWriter<R> open(File file) throws IOException {
+		return new JsonLinesResultWriter<R>(new OutputStreamWriter(new FileOutputStream(file), UTF8));
+	}
+
+	@Override
+	public void handleResult(BulkResult<InputRecord, R> result) throws MambuApiException {
+		JsonObject line = new JsonObject();
+		line.addProperty("line", result.getItem().getLineNumber());
+		line.addProperty("status", result.getStatus().name());
+		if (result.isSuccess()) {
+			line.add("result", gson.toJsonTree(result.getResult()));
+		} else {
+			line.addProperty("errorCode", result.getException().getErrorCode());
+			line.addProperty("errorMessage", result.getException().getErrorMessage());
+		}
+		try {
+			writer.write(line.toString());
+			writer.write('\n');
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+}
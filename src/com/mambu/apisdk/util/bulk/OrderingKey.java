@@ -0,0 +1,17 @@
+package com.mambu.apisdk.util.bulk;
+
+/**
+ * OrderingKey returns the key of the items which must be executed in order, one after the other. For example the
+ * account ID for the transactions posted to the same account. Items with different keys are executed concurrently
+ */
+public interface OrderingKey<I> {
+
+	/**
+	 * Get the ordering key of an item
+	 *
+	 * @param item
+	 *            bulk item
+	 * @return ordering key. Null if the item does not need to be ordered with any other item
+	 */
+	public String getKey(I item);
+}
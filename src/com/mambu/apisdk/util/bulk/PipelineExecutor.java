@@ -0,0 +1,379 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ConcurrencyUtils;
+import com.mambu.apisdk.util.ServiceHelper;
+import com.mambu.apisdk.util.bulk.BulkResult.Status;
+import com.mambu.apisdk.util.pagination.EntityKeyExtractor;
+
+/**
+ * PipelineExecutor runs a sequence of stages, for example create, approve and disburse a loan account, for many items.
+ * Each item goes through the stages in order, but different items are in different stages at the same time: an
+ * account can be disbursed while the next one is being approved. Each stage has its own worker threads, so its
+ * concurrency can be limited separately.
+ *
+ * Stages store their results in the item, which holds the state of the item workflow: e.g. the create stage stores the
+ * ID of the created account used by the following stages. An item which fails a stage does not continue to the next
+ * stages. Optionally the progress of each item is recorded in a journal, and running the same items again resumes each
+ * item after its last completed stage.
+ *
+ * Example:
+ *
+ * PipelineExecutor<LoanOnboardingWorkflow> pipeline = loansService.makeLoanOnboardingPipeline(4);
+ *
+ * pipeline.setConcurrency(LoanOnboardingWorkflow.Stage.DISBURSE.name(), 2);
+ *
+ * PipelineReport<LoanOnboardingWorkflow> report = pipeline.executeAll(workflows);
+ */
+public class PipelineExecutor<W> {
+
+	private final static String THREAD_NAME_PREFIX = "mambu-pipeline-";
+	// Default number of pending items per worker thread
+	private final static int DEFAULT_PENDING_ITEMS_PER_THREAD = 4;
+
+	private final List<Stage> stages = new ArrayList<Stage>();
+	private Integer maxPendingItems = null;
+	private File journalFile = null;
+	private Class<W> itemClass = null;
+	private EntityKeyExtractor<W> itemKey = null;
+
+	/**
+	 * A pipeline stage
+	 */
+	private class Stage {
+		private final String name;
+		private final BulkOperation<W, ?> operation;
+		private int concurrency;
+
+		private Stage(String name, BulkOperation<W, ?> operation, int concurrency) {
+			this.name = name;
+			this.operation = operation;
+			this.concurrency = concurrency;
+		}
+	}
+
+	/**
+	 * Add a stage after the stages added before
+	 *
+	 * @param name
+	 *            stage name, unique in the pipeline. Recorded in the journal
+	 * @param operation
+	 *            operation executing the stage for an item. Its return value is ignored: it must store the results
+	 *            needed by the following stages in the item. Must not be null
+	 * @param concurrency
+	 *            maximum number of concurrent requests of the stage. Must be greater than zero
+	 * @return this executor
+	 */
+	public PipelineExecutor<W> addStage(String name, BulkOperation<W, ?> operation, int concurrency) {
+		if (name == null || operation == null) {
+			throw new IllegalArgumentException("Stage name and operation must not be null");
+		}
+		if (findStage(name) != null) {
+			throw new IllegalArgumentException("Duplicate stage " + name);
+		}
+		checkConcurrency(concurrency);
+		stages.add(new Stage(name, operation, concurrency));
+		return this;
+	}
+
+	/**
+	 * Set the concurrency of a stage
+	 *
+	 * @param stageName
+	 *            stage name
+	 * @param concurrency
+	 *            maximum number of concurrent requests of the stage. Must be greater than zero
+	 */
+	public void setConcurrency(String stageName, int concurrency) {
+		Stage stage = findStage(stageName);
+		if (stage == null) {
+			throw new IllegalArgumentException("Unknown stage " + stageName);
+		}
+		checkConcurrency(concurrency);
+		stage.concurrency = concurrency;
+	}
+
+	/**
+	 * Set the maximum number of items read from the input and not completed yet
+	 *
+	 * @param maxPendingItems
+	 *            maximum number of pending items. Must be greater than zero. Default is four times the total
+	 *            concurrency of the stages
+	 */
+	public void setMaxPendingItems(int maxPendingItems) {
+		if (maxPendingItems < 1) {
+			throw new IllegalArgumentException("Max pending items must be greater than zero. It is " + maxPendingItems);
+		}
+		this.maxPendingItems = maxPendingItems;
+	}
+
+	/**
+	 * Record the progress of the items in a journal file, and resume the items recorded by a previous run
+	 *
+	 * @param file
+	 *            journal file. Created if it does not exist, appended to otherwise
+	 * @param itemClass
+	 *            class of the items, used for reading the item state back from the journal
+	 * @param itemKey
+	 *            key identifying an item across runs, e.g. an external reference of the item
+	 */
+	public void setJournal(File file, Class<W> itemClass, EntityKeyExtractor<W> itemKey) {
+		if (file == null || itemClass == null || itemKey == null) {
+			throw new IllegalArgumentException("Journal file, item class and item key must not be null");
+		}
+		this.journalFile = file;
+		this.itemClass = itemClass;
+		this.itemKey = itemKey;
+	}
+
+	/**
+	 * Run all items through the stages and collect their results
+	 *
+	 * @param items
+	 *            items to execute. Read lazily, waiting while maxPendingItems items are pending. Must not be null
+	 * @return report with the results in the input order and the statistics of each stage
+	 * @throws MambuApiException
+	 *             if the journal cannot be written or the run is interrupted. Failures of the individual items are
+	 *             reported in the results
+	 */
+	public PipelineReport<W> executeAll(Iterable<W> items) throws MambuApiException {
+		if (items == null) {
+			throw new IllegalArgumentException("Items must not be null");
+		}
+		if (stages.isEmpty()) {
+			throw new IllegalStateException("The pipeline has no stages");
+		}
+		PipelineJournal<W> journal = null;
+		Map<String, PipelineJournal.Progress<W>> progress = null;
+		try {
+			if (journalFile != null) {
+				journal = new PipelineJournal<W>(journalFile, itemClass);
+				progress = journal.open();
+			}
+			Run run = new Run(journal, progress);
+			return run.execute(items.iterator());
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		} finally {
+			ServiceHelper.closeQuietly(journal);
+		}
+	}
+
+	private Stage findStage(String name) {
+		for (Stage stage : stages) {
+			if (stage.name.equals(name)) {
+				return stage;
+			}
+		}
+		return null;
+	}
+
+	private static void checkConcurrency(int concurrency) {
+		if (concurrency < 1) {
+			throw new IllegalArgumentException("Concurrency must be greater than zero. It is " + concurrency);
+		}
+	}
+
+	/**
+	 * State of one pipeline run
+	 */
+	private class Run {
+		private final PipelineJournal<W> journal;
+		private final Map<String, PipelineJournal.Progress<W>> progress;
+		private final int maxPending;
+		private final Semaphore pendingItems;
+		private final List<ExecutorService> pools = new ArrayList<ExecutorService>();
+		private final Map<String, BulkStatistics> statistics = new LinkedHashMap<String, BulkStatistics>();
+		private final List<PipelineResult<W>> results = new ArrayList<PipelineResult<W>>();
+		private volatile MambuApiException journalException = null;
+		// First error thrown by a stage, re-thrown when the started items are completed
+		private volatile Error error = null;
+
+		private Run(PipelineJournal<W> journal, Map<String, PipelineJournal.Progress<W>> progress) {
+			this.journal = journal;
+			this.progress = progress;
+			int totalConcurrency = 0;
+			for (Stage stage : stages) {
+				totalConcurrency += stage.concurrency;
+			}
+			this.maxPending = (maxPendingItems != null) ? maxPendingItems : totalConcurrency
+					* DEFAULT_PENDING_ITEMS_PER_THREAD;
+			this.pendingItems = new Semaphore(maxPending);
+		}
+
+		private PipelineReport<W> execute(Iterator<W> items) throws MambuApiException {
+			for (Stage stage : stages) {
+				pools.add(ConcurrencyUtils.newFixedThreadPool(stage.concurrency, THREAD_NAME_PREFIX
+						+ stage.name.toLowerCase()));
+				BulkStatistics stageStatistics = new BulkStatistics();
+				stageStatistics.start();
+				statistics.put(stage.name, stageStatistics);
+			}
+			long index = 0;
+			try {
+				try {
+					while (journalException == null && error == null && items.hasNext()) {
+						W item = items.next();
+						pendingItems.acquire();
+						start(new Task(index++, item));
+					}
+				} finally {
+					// Complete the started items, also when reading the input failed
+					pendingItems.acquire(maxPending);
+					pendingItems.release(maxPending);
+				}
+			} catch (InterruptedException e) {
+				for (ExecutorService pool : pools) {
+					pool.shutdownNow();
+				}
+				throw ConcurrencyUtils.toMambuApiException(e);
+			} finally {
+				for (ExecutorService pool : pools) {
+					pool.shutdown();
+				}
+				for (BulkStatistics stageStatistics : statistics.values()) {
+					stageStatistics.finish();
+				}
+			}
+			if (error != null) {
+				throw error;
+			}
+			if (journalException != null) {
+				throw journalException;
+			}
+			Collections.sort(results, new Comparator<PipelineResult<W>>() {
+				@Override
+				public int compare(PipelineResult<W> first, PipelineResult<W> second) {
+					return (first.getIndex() < second.getIndex()) ? -1
+							: ((first.getIndex() == second.getIndex()) ? 0 : 1);
+				}
+			});
+			return new PipelineReport<W>(results, statistics);
+		}
+
+		/**
+		 * Start an item at the first stage it has not completed
+		 */
+		private void start(Task task) {
+			if (progress != null) {
+				PipelineJournal.Progress<W> itemProgress = progress.get(task.key);
+				if (itemProgress != null) {
+					task.item = itemProgress.item;
+					task.lastCompletedStage = itemProgress.stage;
+					Stage completedStage = findStage(itemProgress.stage);
+					task.stageIndex = (completedStage != null) ? stages.indexOf(completedStage) + 1 : 0;
+				}
+			}
+			if (task.stageIndex >= stages.size()) {
+				// Completed by a previous run
+				complete(task, Status.SUCCEEDED, null, null);
+				return;
+			}
+			pools.get(task.stageIndex).execute(task);
+		}
+
+		private void complete(Task task, Status status, String failedStage, MambuApiException exception) {
+			try {
+				synchronized (results) {
+					results.add(new PipelineResult<W>(task.index, task.item, status, task.lastCompletedStage,
+							failedStage, exception, task.durationMillis));
+				}
+			} finally {
+				// Always release the permit, otherwise the run waits forever
+				pendingItems.release();
+			}
+		}
+
+		/**
+		 * Execute the current stage of an item, then hand the item to the next stage
+		 */
+		private class Task implements Runnable {
+			private final long index;
+			private final String key;
+			private W item;
+			private int stageIndex = 0;
+			private String lastCompletedStage = null;
+			private long durationMillis = 0;
+
+			private Task(long index, W item) {
+				this.index = index;
+				this.item = item;
+				this.key = (itemKey != null) ? itemKey.getKey(item) : null;
+			}
+
+			@Override
+			public void run() {
+				Stage stage = stages.get(stageIndex);
+				MambuApiException exception;
+				try {
+					exception = executeStage(stage);
+				} catch (Error e) {
+					// Stops the run. The item is completed as failed so the run doesn't wait for it
+					if (error == null) {
+						error = e;
+					}
+					complete(this, Status.FAILED, stage.name, new MambuApiException(-1, "Stage " + stage.name
+							+ " failed with " + e));
+					return;
+				}
+				if (exception != null) {
+					complete(this, Status.FAILED, stage.name, exception);
+					return;
+				}
+				stageIndex++;
+				if (stageIndex < stages.size()) {
+					pools.get(stageIndex).execute(this);
+				} else {
+					complete(this, Status.SUCCEEDED, null, null);
+				}
+			}
+
+			/**
+			 * Execute the current stage and record it in the statistics and the journal
+			 *
+			 * @return the exception the stage failed with. Null if it succeeded
+			 */
+			private MambuApiException executeStage(Stage stage) {
+				long startTime = System.currentTimeMillis();
+				MambuApiException exception = null;
+				try {
+					stage.operation.execute(item);
+				} catch (MambuApiException e) {
+					exception = e;
+				} catch (RuntimeException e) {
+					exception = new MambuApiException(e);
+				}
+				long duration = System.currentTimeMillis() - startTime;
+				durationMillis += duration;
+				statistics.get(stage.name).record((exception == null) ? Status.SUCCEEDED : Status.FAILED, duration);
+				if (exception != null) {
+					return exception;
+				}
+
+				lastCompletedStage = stage.name;
+				if (journal != null) {
+					try {
+						journal.record(key, stage.name, item);
+					} catch (IOException e) {
+						if (journalException == null) {
+							journalException = new MambuApiException(e);
+						}
+					}
+				}
+				return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,133 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.apisdk.util.ServiceHelper;
+
+/**
+ * PipelineJournal records the progress of the items of a {@link PipelineExecutor} run, so that an interrupted run can
+ * be resumed from the last completed stage of each item.
+ *
+ * The journal is a JSON lines file with one line for each completed stage, holding the item state after the stage, e.g.
+ *
+ * {"key":"campaign-12","stage":"APPROVE","item":{"workflowId":"campaign-12","accountId":"ABC123",...}}
+ *
+ * Lines are appended and flushed to the operating system when written. The last line of an item wins.
+ */
+class PipelineJournal<W> implements Closeable {
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	private final File file;
+	private final Class<W> itemClass;
+	private final Gson gson = GsonUtils.createGson();
+	private Writer writer;
+
+	/**
+	 * Progress of an item recorded by a previous run
+	 */
+	static class Progress<W> {
+		final String stage;
+		final W item;
+
+		private Progress(String stage, W item) {
+			this.stage = stage;
+			this.item = item;
+		}
+	}
+
+	/**
+	 * Open a journal
+	 *
+	 * @param file
+	 *            journal file. Created if it does not exist
+	 * @param itemClass
+	 *            class of the journaled items, used for reading them back
+	 */
+	PipelineJournal(File file, Class<W> itemClass) {
+		this.file = file;
+		this.itemClass = itemClass;
+	}
+
+	/**
+	 * Read the progress recorded by previous runs and open the journal for appending
+	 *
+	 * @return last completed stage and item state, by item key
+	 * @throws IOException
+	 */
+	synchronized Map<String, Progress<W>> open() throws IOException {
+		Map<String, Progress<W>> progress = new HashMap<String, Progress<W>>();
+		if (file.exists()) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+			try {
+				JsonParser parser = new JsonParser();
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.trim().isEmpty()) {
+						continue;
+					}
+					JsonObject record;
+					try {
+						record = parser.parse(line).getAsJsonObject();
+					} catch (JsonParseException e) {
+						// The last line is incomplete if the run was killed while writing it
+						continue;
+					} catch (IllegalStateException e) {
+						continue;
+					}
+					String stage = record.get("stage").getAsString();
+					W item = gson.fromJson(record.get("item"), itemClass);
+					progress.put(record.get("key").getAsString(), new Progress<W>(stage, item));
+				}
+			} finally {
+				ServiceHelper.closeQuietly(reader);
+			}
+		}
+		writer = new OutputStreamWriter(new FileOutputStream(file, true), UTF8);
+		return progress;
+	}
+
+	/**
+	 * Record a completed stage
+	 *
+	 * @param key
+	 *            item key
+	 * @param stage
+	 *            completed stage name
+	 * @param item
+	 *            item state after the stage
+	 * @throws IOException
+	 */
+	synchronized void record(String key, String stage, W item) throws IOException {
+		JsonObject record = new JsonObject();
+		record.addProperty("key", key);
+		record.addProperty("stage", stage);
+		record.add("item", gson.toJsonTree(item));
+		writer.write(record.toString());
+		writer.write('\n');
+		writer.flush();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (writer != null) {
+			writer.close();
+		}
+	}
+}
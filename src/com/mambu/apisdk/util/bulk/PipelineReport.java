@@ -0,0 +1,64 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * PipelineReport holds the results of all items of a {@link PipelineExecutor} run, in the input order, and the
+ * statistics of each stage
+ */
+public class PipelineReport<W> {
+
+	private final List<PipelineResult<W>> results;
+	private final Map<String, BulkStatistics> stageStatistics;
+
+	PipelineReport(List<PipelineResult<W>> results, Map<String, BulkStatistics> stageStatistics) {
+		this.results = results;
+		this.stageStatistics = stageStatistics;
+	}
+
+	/**
+	 * Get the results of all items
+	 *
+	 * @return results in the input order
+	 */
+	public List<PipelineResult<W>> getResults() {
+		return results;
+	}
+
+	/**
+	 * Get the results of the items which failed in a stage
+	 *
+	 * @return failed results in the input order
+	 */
+	public List<PipelineResult<W>> getFailures() {
+		List<PipelineResult<W>> failures = new ArrayList<PipelineResult<W>>();
+		for (PipelineResult<W> result : results) {
+			if (!result.isSuccess()) {
+				failures.add(result);
+			}
+		}
+		return failures;
+	}
+
+	/**
+	 * Get the statistics of each stage
+	 *
+	 * @return statistics by stage name, in the stage order
+	 */
+	public Map<String, BulkStatistics> getStageStatistics() {
+		return stageStatistics;
+	}
+
+	/**
+	 * Get the statistics of a stage
+	 *
+	 * @param stageName
+	 *            stage name
+	 * @return statistics or null if there is no such stage
+	 */
+	public BulkStatistics getStageStatistics(String stageName) {
+		return stageStatistics.get(stageName);
+	}
+}
@@ -0,0 +1,97 @@
+package com.mambu.apisdk.util.bulk;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.bulk.BulkResult.Status;
+
+/**
+ * Result of one item of a {@link PipelineExecutor} run: the stage the item reached and, if a stage failed, the
+ * exception it failed with
+ */
+public class PipelineResult<W> {
+
+	private final long index;
+	private final W item;
+	private final Status status;
+	private final String lastCompletedStage;
+	private final String failedStage;
+	private final MambuApiException exception;
+	private final long durationMillis;
+
+	PipelineResult(long index, W item, Status status, String lastCompletedStage, String failedStage,
+			MambuApiException exception, long durationMillis) {
+		this.index = index;
+		this.item = item;
+		this.status = status;
+		this.lastCompletedStage = lastCompletedStage;
+		this.failedStage = failedStage;
+		this.exception = exception;
+		this.durationMillis = durationMillis;
+	}
+
+	/**
+	 * Get the position of the item in the pipeline input, starting from zero
+	 *
+	 * @return item index
+	 */
+	public long getIndex() {
+		return index;
+	}
+
+	/**
+	 * Get the item, with the state left by the completed stages
+	 *
+	 * @return item
+	 */
+	public W getItem() {
+		return item;
+	}
+
+	public Status getStatus() {
+		return status;
+	}
+
+	/**
+	 * Did the item complete all stages
+	 *
+	 * @return true if all stages succeeded
+	 */
+	public boolean isSuccess() {
+		return status == Status.SUCCEEDED;
+	}
+
+	/**
+	 * Get the name of the last stage completed by the item, in this run or in a resumed run
+	 *
+	 * @return stage name. Null if no stage was completed
+	 */
+	public String getLastCompletedStage() {
+		return lastCompletedStage;
+	}
+
+	/**
+	 * Get the name of the stage the item failed in
+	 *
+	 * @return stage name. Null if the item succeeded
+	 */
+	public String getFailedStage() {
+		return failedStage;
+	}
+
+	/**
+	 * Get the exception the failed stage failed with
+	 *
+	 * @return exception or null if the item succeeded
+	 */
+	public MambuApiException getException() {
+		return exception;
+	}
+
+	/**
+	 * Get the time spent executing the stages of the item in this run, not including the time waiting between stages
+	 *
+	 * @return duration in milliseconds
+	 */
+	public long getDurationMillis() {
+		return durationMillis;
+	}
+}
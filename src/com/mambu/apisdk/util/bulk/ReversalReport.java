@@ -0,0 +1,180 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.mambu.core.shared.model.FinancialTransaction;
+
+/**
+ * ReversalReport reconciles a {@link BulkReversal} run: for each account, the number and the total amount of the
+ * transactions requested for reversal against the ones actually reversed, together with the result of each reversal
+ */
+public class ReversalReport<T extends FinancialTransaction, R> {
+
+	private final BulkReport<T, R> bulkReport;
+	private final List<AccountReconciliation> accounts;
+	private final List<T> alreadyReversed;
+
+	/**
+	 * Reconciliation of the reversals of one account
+	 */
+	public static class AccountReconciliation {
+		private final String accountKey;
+		private int requested = 0;
+		private int reversed = 0;
+		private int failed = 0;
+		private int skipped = 0;
+		private BigDecimal requestedAmount = BigDecimal.ZERO;
+		private BigDecimal reversedAmount = BigDecimal.ZERO;
+
+		AccountReconciliation(String accountKey) {
+			this.accountKey = accountKey;
+		}
+
+		void add(BulkResult<? extends FinancialTransaction, ?> result) {
+			BigDecimal amount = (result.getItem().getAmount() != null) ? result.getItem().getAmount().getAmount()
+					: null;
+			requested++;
+			if (amount != null) {
+				requestedAmount = requestedAmount.add(amount);
+			}
+			switch (result.getStatus()) {
+			case SUCCEEDED:
+				reversed++;
+				if (amount != null) {
+					reversedAmount = reversedAmount.add(amount);
+				}
+				break;
+			case FAILED:
+				failed++;
+				break;
+			case SKIPPED:
+				skipped++;
+				break;
+			}
+		}
+
+		/**
+		 * Get the key of the account, as returned by the transactions parent account key
+		 *
+		 * @return account encoded key
+		 */
+		public String getAccountKey() {
+			return accountKey;
+		}
+
+		public int getRequested() {
+			return requested;
+		}
+
+		public int getReversed() {
+			return reversed;
+		}
+
+		public int getFailed() {
+			return failed;
+		}
+
+		/**
+		 * Get the number of transactions not reversed because the reversal of a newer transaction failed
+		 *
+		 * @return number of skipped transactions
+		 */
+		public int getSkipped() {
+			return skipped;
+		}
+
+		/**
+		 * Get the total amount of the transactions requested for reversal
+		 *
+		 * @return amount
+		 */
+		public BigDecimal getRequestedAmount() {
+			return requestedAmount;
+		}
+
+		/**
+		 * Get the total amount of the transactions reversed
+		 *
+		 * @return amount
+		 */
+		public BigDecimal getReversedAmount() {
+			return reversedAmount;
+		}
+
+		/**
+		 * Are all the requested transactions of the account reversed
+		 *
+		 * @return true if all reversals succeeded
+		 */
+		public boolean isReconciled() {
+			return reversed == requested;
+		}
+
+		@Override
+		public String toString() {
+			return "Account=" + accountKey + " Requested=" + requested + " (" + requestedAmount.toPlainString()
+					+ ") Reversed=" + reversed + " (" + reversedAmount.toPlainString() + ") Failed=" + failed
+					+ " Skipped=" + skipped;
+		}
+	}
+
+	ReversalReport(BulkReport<T, R> bulkReport, Collection<AccountReconciliation> accounts, List<T> alreadyReversed) {
+		this.bulkReport = bulkReport;
+		this.accounts = new ArrayList<AccountReconciliation>(accounts);
+		this.alreadyReversed = alreadyReversed;
+	}
+
+	/**
+	 * Get the result of each reversal
+	 *
+	 * @return bulk report, with the results in the execution order of each account: newest transaction first
+	 */
+	public BulkReport<T, R> getBulkReport() {
+		return bulkReport;
+	}
+
+	/**
+	 * Get the reconciliation of each account
+	 *
+	 * @return account reconciliations, in the order the accounts first appear in the input
+	 */
+	public List<AccountReconciliation> getAccounts() {
+		return accounts;
+	}
+
+	/**
+	 * Get the accounts with transactions which were not reversed
+	 *
+	 * @return unreconciled accounts
+	 */
+	public List<AccountReconciliation> getUnreconciledAccounts() {
+		List<AccountReconciliation> unreconciled = new ArrayList<AccountReconciliation>();
+		for (AccountReconciliation account : accounts) {
+			if (!account.isReconciled()) {
+				unreconciled.add(account);
+			}
+		}
+		return unreconciled;
+	}
+
+	/**
+	 * Get the input transactions which were not sent because they are reversed already or are reversals themselves
+	 *
+	 * @return transactions in the input order
+	 */
+	public List<T> getAlreadyReversed() {
+		return alreadyReversed;
+	}
+
+	/**
+	 * Are all requested transactions reversed
+	 *
+	 * @return true if all accounts are reconciled
+	 */
+	public boolean isReconciled() {
+		return getUnreconciledAccounts().isEmpty();
+	}
+}
@@ -0,0 +1,189 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.apisdk.util.ServiceHelper;
+
+/**
+ * WriteBehindJournal persists the items of a {@link WriteBehindQueue} which are not completed yet, so that they are
+ * executed after a restart.
+ *
+ * The journal is a JSON lines file with one line for each queued item and one line for each completed item, e.g.
+ *
+ * {"seq":12,"item":{"parentEntity":"CLIENT","parentEntityId":"ABC123","text":"Called the client"}}
+ *
+ * {"seq":12,"done":true}
+ *
+ * Lines are flushed to the operating system when written, so they survive the application being killed. The file is
+ * truncated whenever all written items are completed and the file has grown over a threshold.
+ */
+class WriteBehindJournal<I> implements Closeable {
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+	// Truncate the journal after this number of lines once all items are completed
+	private final static int COMPACTION_THRESHOLD_LINES = 10000;
+
+	private final File file;
+	private final Class<I> itemClass;
+	private final Gson gson = GsonUtils.createGson();
+	private FileOutputStream output;
+	private Writer writer;
+	private long lines = 0;
+	private long pendingItems = 0;
+
+	/**
+	 * Open a journal
+	 *
+	 * @param file
+	 *            journal file. Created if it does not exist
+	 * @param itemClass
+	 *            class of the journaled items, used for reading them back
+	 */
+	WriteBehindJournal(File file, Class<I> itemClass) {
+		this.file = file;
+		this.itemClass = itemClass;
+	}
+
+	/**
+	 * Read the items which were not completed, and rewrite the journal with these items only. The rewritten journal is
+	 * written to a temporary file which then replaces the journal, so the pending items are never only in memory
+	 *
+	 * @return pending items by sequence number, in the sequence order
+	 * @throws IOException
+	 */
+	synchronized Map<Long, I> recover() throws IOException {
+		Map<Long, JsonElement> pending = new LinkedHashMap<Long, JsonElement>();
+		if (file.exists()) {
+			BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF8));
+			try {
+				JsonParser parser = new JsonParser();
+				String line;
+				while ((line = reader.readLine()) != null) {
+					if (line.trim().isEmpty()) {
+						continue;
+					}
+					JsonObject record;
+					try {
+						record = parser.parse(line).getAsJsonObject();
+					} catch (JsonParseException e) {
+						// The last line is incomplete if the application was killed while writing it
+						continue;
+					} catch (IllegalStateException e) {
+						continue;
+					}
+					long seq = record.get("seq").getAsLong();
+					if (record.has("done")) {
+						pending.remove(seq);
+					} else {
+						pending.put(seq, record.get("item"));
+					}
+				}
+			} finally {
+				ServiceHelper.closeQuietly(reader);
+			}
+		}
+
+		Map<Long, I> items = new LinkedHashMap<Long, I>();
+		File tempFile = new File(file.getPath() + ".tmp");
+		output = new FileOutputStream(tempFile);
+		writer = new OutputStreamWriter(output, UTF8);
+		lines = 0;
+		pendingItems = 0;
+		try {
+			for (Map.Entry<Long, JsonElement> entry : pending.entrySet()) {
+				items.put(entry.getKey(), gson.fromJson(entry.getValue(), itemClass));
+				writeItem(entry.getKey(), entry.getValue());
+			}
+			writer.flush();
+			// Make sure the pending items are on disk before the rewritten journal replaces the previous one
+			output.getFD().sync();
+		} finally {
+			writer.close();
+		}
+		try {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		output = new FileOutputStream(file, true);
+		writer = new OutputStreamWriter(output, UTF8);
+		return items;
+	}
+
+	/**
+	 * Write a queued item
+	 *
+	 * @param seq
+	 *            item sequence number
+	 * @param item
+	 *            item
+	 * @throws IOException
+	 */
+	synchronized void append(long seq, I item) throws IOException {
+		writeItem(seq, gson.toJsonTree(item));
+		writer.flush();
+	}
+
+	/**
+	 * Mark items as completed
+	 *
+	 * @param seqs
+	 *            sequence numbers of the completed items
+	 * @throws IOException
+	 */
+	synchronized void complete(List<Long> seqs) throws IOException {
+		for (Long seq : seqs) {
+			JsonObject record = new JsonObject();
+			record.addProperty("seq", seq);
+			record.addProperty("done", true);
+			writer.write(record.toString());
+			writer.write('\n');
+			lines++;
+			pendingItems--;
+		}
+		writer.flush();
+		if (pendingItems == 0 && lines >= COMPACTION_THRESHOLD_LINES) {
+			output.getChannel().truncate(0);
+			lines = 0;
+		}
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (writer != null) {
+			writer.close();
+		}
+	}
+
+	private void writeItem(long seq, JsonElement item) throws IOException {
+		JsonObject record = new JsonObject();
+		record.addProperty("seq", seq);
+		record.add("item", item);
+		writer.write(record.toString());
+		writer.write('\n');
+		lines++;
+		pendingItems++;
+	}
+}
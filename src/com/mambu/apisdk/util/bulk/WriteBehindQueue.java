@@ -0,0 +1,415 @@
+package com.mambu.apisdk.util.bulk;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.common.util.concurrent.SettableFuture;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ConcurrencyUtils;
+import com.mambu.apisdk.util.bulk.BulkResult.Status;
+
+/**
+ * WriteBehindQueue executes API requests whose results are not needed immediately, such as creating comments or tasks,
+ * in background worker threads. The caller gets a Future for the result instead of waiting for the request.
+ *
+ * Items are held in a bounded queue: submitting an item waits while the queue is full. Workers drain the queue in
+ * batches of up to 'maxBatchSize' items. Requests failing with a transient error (an I/O error, HTTP 429 or 5xx) are
+ * retried with exponential back-off. Optionally the queue is backed by a journal file: queued items are written to the
+ * journal before they are accepted and the items not completed when the application stopped are executed again when
+ * the queue is started. Requests are executed at least once: a request whose response was lost is executed again.
+ *
+ * Example: create comments without waiting for them
+ *
+ * WriteBehindQueue<CommentInstruction, Comment> queue = commentsService.makeWriteBehindQueue(1000, 2, journalFile);
+ *
+ * queue.start();
+ *
+ * Future<Comment> comment = queue.submit(new CommentInstruction(MambuEntityType.CLIENT, clientId, text));
+ *
+ * ...
+ *
+ * queue.close(); // waits for the queued comments to be created
+ */
+public class WriteBehindQueue<I, R> implements Closeable {
+
+	private final static Logger LOGGER = Logger.getLogger(WriteBehindQueue.class.getName());
+
+	private final static String THREAD_NAME_PREFIX = "mambu-write-behind";
+	private final static int DEFAULT_MAX_BATCH_SIZE = 20;
+	private final static int DEFAULT_MAX_RETRIES = 3;
+	private final static long DEFAULT_RETRY_DELAY_MILLIS = 1000;
+	// How often idle workers check whether the queue was closed
+	private final static long POLL_MILLIS = 100;
+
+	private final BulkOperation<I, R> operation;
+	private final int workers;
+	private final BlockingQueue<Entry> queue;
+	private final AtomicInteger liveWorkers = new AtomicInteger();
+	private final BulkStatistics statistics = new BulkStatistics();
+	private WriteBehindJournal<I> journal = null;
+	private BulkResultHandler<I, R> resultHandler = null;
+	private int maxBatchSize = DEFAULT_MAX_BATCH_SIZE;
+	private int maxRetries = DEFAULT_MAX_RETRIES;
+	private long retryDelayMillis = DEFAULT_RETRY_DELAY_MILLIS;
+	private ExecutorService pool = null;
+	private long nextSeq = 0;
+	private volatile boolean closed = false;
+
+	/**
+	 * Create a write-behind queue
+	 *
+	 * @param operation
+	 *            operation executing the API request for an item. Must not be null
+	 * @param capacity
+	 *            maximum number of queued items. Must be greater than zero
+	 * @param workers
+	 *            number of worker threads, which is the maximum number of concurrent API requests. Must be greater than
+	 *            zero
+	 */
+	public WriteBehindQueue(BulkOperation<I, R> operation, int capacity, int workers) {
+		if (operation == null) {
+			throw new IllegalArgumentException("Operation must not be null");
+		}
+		if (capacity < 1 || workers < 1) {
+			throw new IllegalArgumentException("Capacity and workers must be greater than zero. Capacity=" + capacity
+					+ " Workers=" + workers);
+		}
+		this.operation = operation;
+		this.workers = workers;
+		this.queue = new ArrayBlockingQueue<Entry>(capacity);
+	}
+
+	/**
+	 * Back the queue with a journal file. Must be set before the queue is started
+	 *
+	 * @param file
+	 *            journal file. Created if it does not exist. Must not be used by another queue
+	 * @param itemClass
+	 *            class of the items, used for reading the items back from the journal
+	 */
+	public void setJournal(File file, Class<I> itemClass) {
+		if (file == null || itemClass == null) {
+			throw new IllegalArgumentException("Journal file and item class must not be null");
+		}
+		checkNotStarted();
+		this.journal = new WriteBehindJournal<I>(file, itemClass);
+	}
+
+	/**
+	 * Set the handler receiving the result of each item, including the items recovered from the journal which have no
+	 * caller waiting for them
+	 *
+	 * @param resultHandler
+	 *            result handler, called by the worker threads one at a time. Null for no handler
+	 */
+	public void setResultHandler(BulkResultHandler<I, R> resultHandler) {
+		checkNotStarted();
+		this.resultHandler = resultHandler;
+	}
+
+	/**
+	 * Set the maximum number of items a worker takes from the queue at a time. Journal updates are written once per
+	 * batch
+	 *
+	 * @param maxBatchSize
+	 *            maximum batch size. Must be greater than zero. Default is 20
+	 */
+	public void setMaxBatchSize(int maxBatchSize) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("Max batch size must be greater than zero. It is " + maxBatchSize);
+		}
+		this.maxBatchSize = maxBatchSize;
+	}
+
+	/**
+	 * Set the retries for the requests failing with a transient error
+	 *
+	 * @param maxRetries
+	 *            maximum number of retries. Zero for no retries. Default is 3
+	 * @param retryDelayMillis
+	 *            delay before the first retry, doubled for each following retry. Default is one second
+	 */
+	public void setRetries(int maxRetries, long retryDelayMillis) {
+		if (maxRetries < 0 || retryDelayMillis < 0) {
+			throw new IllegalArgumentException("Retries and retry delay must not be negative");
+		}
+		this.maxRetries = maxRetries;
+		this.retryDelayMillis = retryDelayMillis;
+	}
+
+	/**
+	 * Start the worker threads and queue the items recovered from the journal
+	 *
+	 * @throws IOException
+	 *             if the journal cannot be read or written
+	 * @throws MambuApiException
+	 *             if interrupted while queueing the recovered items
+	 */
+	public synchronized void start() throws IOException, MambuApiException {
+		checkNotStarted();
+		Map<Long, I> recovered = (journal != null) ? journal.recover() : null;
+		statistics.start();
+		pool = ConcurrencyUtils.newFixedThreadPool(workers, THREAD_NAME_PREFIX);
+		liveWorkers.set(workers);
+		for (int i = 0; i < workers; i++) {
+			pool.execute(new Worker());
+		}
+		if (recovered != null) {
+			for (Map.Entry<Long, I> item : recovered.entrySet()) {
+				nextSeq = item.getKey() + 1;
+				put(new Entry(item.getKey(), item.getValue()));
+			}
+			if (!recovered.isEmpty()) {
+				LOGGER.info("Recovered " + recovered.size() + " items from the write-behind journal");
+			}
+		}
+	}
+
+	/**
+	 * Queue an item. Waits while the queue is full. Fails if all the workers were stopped by an error: the item remains
+	 * in the journal
+	 *
+	 * @param item
+	 *            item to execute. Must not be null
+	 * @return future for the request result. Fails with the MambuApiException of the request, after the retries
+	 * @throws IOException
+	 *             if the item cannot be written to the journal
+	 * @throws MambuApiException
+	 *             if interrupted while waiting for the queue
+	 */
+	public Future<R> submit(I item) throws IOException, MambuApiException {
+		if (item == null) {
+			throw new IllegalArgumentException("Item must not be null");
+		}
+		synchronized (this) {
+			if (pool == null || closed) {
+				throw new IllegalStateException("The write-behind queue is not started or is closed");
+			}
+			Entry entry = new Entry(nextSeq++, item);
+			if (journal != null) {
+				journal.append(entry.seq, item);
+			}
+			// Queued under the lock, so that close() cannot drain the queue before the item is in it
+			put(entry);
+			return entry.future;
+		}
+	}
+
+	/**
+	 * Get the number of queued items, not including the items being executed
+	 *
+	 * @return number of queued items
+	 */
+	public int getQueuedItems() {
+		return queue.size();
+	}
+
+	/**
+	 * Get the statistics of the executed items
+	 *
+	 * @return statistics
+	 */
+	public BulkStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Stop accepting items and wait for the queued items to be executed. If interrupted, or if the workers were stopped
+	 * by an error, the futures of the items not executed fail and the items remain in the journal
+	 */
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+		}
+		try {
+			if (pool != null) {
+				pool.shutdown();
+				while (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+					LOGGER.info("Waiting for " + queue.size() + " write-behind items");
+				}
+			}
+		} catch (InterruptedException e) {
+			pool.shutdownNow();
+			Thread.currentThread().interrupt();
+		} finally {
+			failQueuedItems();
+			statistics.finish();
+			if (journal != null) {
+				journal.close();
+			}
+		}
+	}
+
+	private void checkNotStarted() {
+		if (pool != null) {
+			throw new IllegalStateException("The write-behind queue is already started");
+		}
+	}
+
+	private void put(Entry entry) throws MambuApiException {
+		try {
+			while (!queue.offer(entry, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+				if (liveWorkers.get() == 0) {
+					throw new IllegalStateException("The write-behind workers were stopped by an error");
+				}
+			}
+		} catch (InterruptedException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		}
+	}
+
+	/**
+	 * Fail the futures of the items left in the queue when the workers stopped
+	 */
+	private void failQueuedItems() {
+		List<Entry> leftovers = new ArrayList<Entry>();
+		queue.drainTo(leftovers);
+		failUndelivered(leftovers);
+	}
+
+	/**
+	 * Fail the futures of the items whose result was not delivered
+	 */
+	private void failUndelivered(List<Entry> entries) {
+		for (Entry entry : entries) {
+			if (!entry.future.isDone()) {
+				entry.future.setException(new MambuApiException(-1, "The write-behind item was not executed. Seq="
+						+ entry.seq));
+			}
+		}
+	}
+
+	/**
+	 * Is a request failure transient: an I/O error, too many requests or a server error
+	 */
+	private static boolean isTransient(MambuApiException e) {
+		Integer errorCode = e.getErrorCode();
+		return errorCode == null || errorCode == -1 || errorCode == 429 || errorCode >= 500;
+	}
+
+	/**
+	 * A queued item
+	 */
+	private class Entry {
+		private final long seq;
+		private final I item;
+		private final SettableFuture<R> future = SettableFuture.create();
+
+		private Entry(long seq, I item) {
+			this.seq = seq;
+			this.item = item;
+		}
+	}
+
+	/**
+	 * Worker executing the queued items until the queue is closed and empty
+	 */
+	private class Worker implements Runnable {
+
+		@Override
+		public void run() {
+			List<Entry> batch = new ArrayList<Entry>(maxBatchSize);
+			List<Long> completed = new ArrayList<Long>(maxBatchSize);
+			try {
+				while (true) {
+					Entry first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+					if (first == null) {
+						if (closed) {
+							return;
+						}
+						continue;
+					}
+					batch.clear();
+					batch.add(first);
+					queue.drainTo(batch, maxBatchSize - 1);
+
+					completed.clear();
+					try {
+						for (Entry entry : batch) {
+							deliver(entry, execute(entry));
+							completed.add(entry.seq);
+						}
+					} finally {
+						// Stopped by an error or interrupted: no caller waits forever for the rest of the batch
+						failUndelivered(batch);
+						completeInJournal(completed);
+					}
+				}
+			} catch (InterruptedException e) {
+				// Interrupted on close: the items not executed remain in the journal
+				Thread.currentThread().interrupt();
+			} finally {
+				liveWorkers.decrementAndGet();
+			}
+		}
+
+		private void completeInJournal(List<Long> completed) {
+			if (journal != null && !completed.isEmpty()) {
+				try {
+					journal.complete(completed);
+				} catch (IOException e) {
+					LOGGER.log(Level.WARNING, "Cannot update the write-behind journal", e);
+				}
+			}
+		}
+
+		private BulkResult<I, R> execute(Entry entry) throws InterruptedException {
+			long startTime = System.currentTimeMillis();
+			int attempt = 0;
+			while (true) {
+				MambuApiException exception;
+				try {
+					R result = operation.execute(entry.item);
+					return new BulkResult<I, R>(entry.seq, entry.item, Status.SUCCEEDED, result, null,
+							System.currentTimeMillis() - startTime);
+				} catch (MambuApiException e) {
+					exception = e;
+				} catch (RuntimeException e) {
+					exception = new MambuApiException(e);
+				}
+				if (attempt >= maxRetries || !isTransient(exception)) {
+					return new BulkResult<I, R>(entry.seq, entry.item, Status.FAILED, null, exception,
+							System.currentTimeMillis() - startTime);
+				}
+				Thread.sleep(retryDelayMillis << attempt);
+				attempt++;
+			}
+		}
+
+		private void deliver(Entry entry, BulkResult<I, R> result) {
+			statistics.record(result.getStatus(), result.getDurationMillis());
+			if (result.isSuccess()) {
+				entry.future.set(result.getResult());
+			} else {
+				entry.future.setException(result.getException());
+			}
+			if (resultHandler != null) {
+				synchronized (resultHandler) {
+					try {
+						resultHandler.handleResult(result);
+					} catch (MambuApiException e) {
+						LOGGER.log(Level.WARNING, "Write-behind result handler failed", e);
+					} catch (RuntimeException e) {
+						LOGGER.log(Level.WARNING, "Write-behind result handler failed", e);
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package com.mambu.apisdk.util.cache;
+
+import com.google.common.cache.CacheStats;
+
+/**
+ * Storage of the entries of a cache keyed by string: a cache of its own, see {@link LocalCacheStorage}, or a tenant's
+ * partition of the caches shared by a {@link TenantCacheManager}. Implementations must be thread safe
+ *
+ * @param <V>
+ *            value type
+ */
+interface CacheStorage<V> {
+
+	/**
+	 * Handler notified when a value is removed from a storage, used to keep an index of the stored values up to date.
+	 * Called without holding the storage's locks, possibly by a thread of another tenant's cache: it must not block
+	 *
+	 * @param <V>
+	 *            value type
+	 */
+	interface RemovalHandler<V> {
+
+		/**
+		 * Handle a removed value: invalidated, expired, evicted or replaced
+		 *
+		 * @param key
+		 *            key
+		 * @param value
+		 *            removed value
+		 * @param replaced
+		 *            true if the value was replaced by a value stored with the same key
+		 */
+		void handleRemoval(String key, V value, boolean replaced);
+	}
+
+	/**
+	 * Get a stored value
+	 *
+	 * @param key
+	 *            key
+	 * @return stored value. Null if not stored or expired
+	 */
+	V get(String key);
+
+	/**
+	 * Store a value, replacing the value stored with the same key
+	 *
+	 * @param key
+	 *            key
+	 * @param value
+	 *            value
+	 */
+	void put(String key, V value);
+
+	/**
+	 * Remove a stored value
+	 *
+	 * @param key
+	 *            key
+	 */
+	void invalidate(String key);
+
+	/**
+	 * Remove all stored values
+	 */
+	void invalidateAll();
+
+	/**
+	 * Get the number of stored values
+	 *
+	 * @return number of values, including the expired values not removed yet
+	 */
+	long size();
+
+	/**
+	 * Get the storage statistics: hits, misses and evictions
+	 *
+	 * @return statistics since the storage was created
+	 */
+	CacheStats stats();
+}
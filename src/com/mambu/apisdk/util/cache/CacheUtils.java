@@ -0,0 +1,103 @@
+package com.mambu.apisdk.util.cache;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ConcurrencyUtils;
+
+/**
+ * Util class with the helpers shared by the wrapper's caches
+ */
+public class CacheUtils {
+
+	// Estimated bytes of a string besides its characters: the string object and the header of its char array
+	private final static int STRING_OVERHEAD = 40;
+
+	/**
+	 * Get a value from a loading cache, loading it if it is not cached. Concurrent requests for the same missing key
+	 * wait for a single load
+	 *
+	 * @param cache
+	 *            loading cache whose loader executes an API request
+	 * @param key
+	 *            key
+	 * @return cached or loaded value. Null if the loader returned null, which is not cached
+	 * @throws MambuApiException
+	 *             if the API request loading the value failed
+	 */
+	public static <K, V> V get(LoadingCache<K, V> cache, K key) throws MambuApiException {
+		try {
+			return cache.get(key);
+		} catch (ExecutionException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} catch (UncheckedExecutionException e) {
+			throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+		} catch (ExecutionError e) {
+			throw (e.getCause() instanceof Error) ? (Error) e.getCause() : e;
+		} catch (InvalidCacheLoadException e) {
+			// The loader returned null
+			return null;
+		}
+	}
+
+	/**
+	 * Get the IDs and encoded keys of the entity in a JSON string, at the top level and in the nested objects of the
+	 * expanded entities (for example the "client" object of a ClientExpanded). Nested objects may add IDs of other
+	 * entities, so the result is only to be used to invalidate cached entries
+	 *
+	 * @param json
+	 *            JSON string of an entity. Can be null
+	 * @return modifiable set of IDs and encoded keys. Empty if the string is not a JSON object
+	 */
+	public static Set<String> getEntityIds(String json) {
+		Set<String> entityIds = new HashSet<String>();
+		if (json == null) {
+			return entityIds;
+		}
+		try {
+			JsonElement element = new JsonParser().parse(json);
+			if (element.isJsonObject()) {
+				addEntityIds(element.getAsJsonObject(), entityIds);
+				for (Map.Entry<String, JsonElement> member : element.getAsJsonObject().entrySet()) {
+					if (member.getValue().isJsonObject()) {
+						addEntityIds(member.getValue().getAsJsonObject(), entityIds);
+					}
+				}
+			}
+		} catch (JsonParseException e) {
+			// Not JSON: no IDs
+		}
+		return entityIds;
+	}
+
+	/**
+	 * Estimate the heap size of a string, used to weigh the entries of the caches sharing a memory budget
+	 *
+	 * @param string
+	 *            string. Can be null
+	 * @return estimated size in bytes: the string object and its characters. Zero for null
+	 */
+	public static int estimateSize(String string) {
+		return (string == null) ? 0 : STRING_OVERHEAD + 2 * string.length();
+	}
+
+	private static void addEntityIds(JsonObject object, Set<String> entityIds) {
+		for (String name : new String[] { "id", "encodedKey" }) {
+			JsonElement value = object.get(name);
+			if (value != null && value.isJsonPrimitive()) {
+				entityIds.add(value.getAsString());
+			}
+		}
+	}
+}
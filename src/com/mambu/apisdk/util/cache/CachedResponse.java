@@ -0,0 +1,59 @@
+package com.mambu.apisdk.util.cache;
+
+/**
+ * CachedResponse is the body of a successful GET response stored in a {@link ResponseCache}, with the validators
+ * Mambu returned for it
+ */
+public final class CachedResponse {
+
+	private final String key;
+	private final String body;
+	private final String eTag;
+	private final String lastModified;
+	private final long storedAtMillis;
+
+	/**
+	 * Create a cached response
+	 *
+	 * @param key
+	 *            cache key: the request URL with its parameters. Must not be null
+	 * @param body
+	 *            response body. Must not be null
+	 * @param eTag
+	 *            value of the ETag response header. Null if not returned
+	 * @param lastModified
+	 *            value of the Last-Modified response header. Null if not returned
+	 * @param storedAtMillis
+	 *            time the response was stored
+	 */
+	public CachedResponse(String key, String body, String eTag, String lastModified, long storedAtMillis) {
+		if (key == null || body == null) {
+			throw new IllegalArgumentException("Key and body must not be null");
+		}
+		this.key = key;
+		this.body = body;
+		this.eTag = eTag;
+		this.lastModified = lastModified;
+		this.storedAtMillis = storedAtMillis;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public String getBody() {
+		return body;
+	}
+
+	public String getETag() {
+		return eTag;
+	}
+
+	public String getLastModified() {
+		return lastModified;
+	}
+
+	public long getStoredAtMillis() {
+		return storedAtMillis;
+	}
+}
@@ -0,0 +1,262 @@
+package com.mambu.apisdk.util.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.mambu.api.server.handler.customviews.model.ApiViewType;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.services.UsersService;
+import com.mambu.apisdk.util.ConcurrencyUtils;
+import com.mambu.core.shared.model.CustomView;
+
+/**
+ * CustomViewCache caches the custom view definitions of the users, as returned by
+ * {@link UsersService#getCustomViews(String, ApiViewType)}. Applications exporting entities by custom view resolve
+ * the custom view keys at the start of every export: with the cache these lookups are served from memory.
+ *
+ * Custom views are cached per user and API view type. The views of a user are requested on their first read, or for
+ * all the users given to {@link #warmUp(Collection)}, and are kept until they expire or are invalidated with
+ * {@link #invalidate(String)} after the user's views were changed in Mambu.
+ *
+ * Example:
+ *
+ * CustomViewCache customViews = factory.setUpCustomViewCache(Arrays.asList("exporter"), 60 * 60 * 1000);
+ *
+ * CustomView view = customViews.getCustomViewByName("exporter", ApiViewType.LOANS, "Active loans");
+ */
+public class CustomViewCache {
+
+	// Maximum number of users whose views are requested concurrently by warmUp()
+	private final static int WARM_UP_THREADS = 4;
+
+	/**
+	 * Cache key: the username and the API view type. A null view type stands for all the user's views
+	 */
+	private static class Key {
+		private final String username;
+		private final ApiViewType apiViewType;
+
+		private Key(String username, ApiViewType apiViewType) {
+			this.username = username;
+			this.apiViewType = apiViewType;
+		}
+
+		@Override
+		public int hashCode() {
+			return username.hashCode() * 31 + ((apiViewType == null) ? 0 : apiViewType.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return username.equals(other.username) && apiViewType == other.apiViewType;
+		}
+	}
+
+	private final UsersService usersService;
+	private final LoadingCache<Key, List<CustomView>> cache;
+
+	/**
+	 * Create a custom view cache. The cache is empty until {@link #warmUp(Collection)} is called or the views are first
+	 * read
+	 *
+	 * @param usersService
+	 *            users service. Must not be null
+	 * @param ttlMillis
+	 *            time to live of the cached views of a user and view type. Must be greater than zero
+	 */
+	public CustomViewCache(UsersService usersService, long ttlMillis) {
+		if (usersService == null) {
+			throw new IllegalArgumentException("Users service must not be null");
+		}
+		if (ttlMillis < 1) {
+			throw new IllegalArgumentException("TTL must be greater than zero. TTL=" + ttlMillis);
+		}
+		this.usersService = usersService;
+		this.cache = CacheBuilder.newBuilder().expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS).recordStats()
+				.build(new CacheLoader<Key, List<CustomView>>() {
+					@Override
+					public List<CustomView> load(Key key) throws MambuApiException {
+						return loadCustomViews(key);
+					}
+				});
+	}
+
+	/**
+	 * Load all the custom views of the users concurrently, waiting for all the requests. The views of a single API view
+	 * type are loaded on their first read
+	 *
+	 * @param usernames
+	 *            usernames. Must not be null or contain nulls
+	 * @throws MambuApiException
+	 *             if a request fails
+	 */
+	public void warmUp(Collection<String> usernames) throws MambuApiException {
+		if (usernames == null) {
+			throw new IllegalArgumentException("Usernames must not be null");
+		}
+		for (String username : usernames) {
+			if (username == null) {
+				throw new IllegalArgumentException("Usernames must not contain nulls");
+			}
+		}
+		if (usernames.isEmpty()) {
+			return;
+		}
+		ExecutorService warmUpExecutor = ConcurrencyUtils.newFixedThreadPool(
+				Math.min(WARM_UP_THREADS, usernames.size()), "mambu-custom-view-warm-up");
+		try {
+			List<Future<List<CustomView>>> futures = new ArrayList<Future<List<CustomView>>>();
+			for (final String username : usernames) {
+				futures.add(warmUpExecutor.submit(new Callable<List<CustomView>>() {
+					@Override
+					public List<CustomView> call() throws MambuApiException {
+						return getCustomViews(username);
+					}
+				}));
+			}
+			for (Future<List<CustomView>> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} catch (InterruptedException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} finally {
+			warmUpExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Get all the custom views of a user
+	 *
+	 * @param username
+	 *            username. Must not be null
+	 * @return unmodifiable list of custom views
+	 * @throws MambuApiException
+	 *             if the views are not cached and their request fails
+	 */
+	public List<CustomView> getCustomViews(String username) throws MambuApiException {
+		return getCustomViews(username, null);
+	}
+
+	/**
+	 * Get the custom views of a user for an API view type
+	 *
+	 * @param username
+	 *            username. Must not be null
+	 * @param apiViewType
+	 *            API view type. If null, all the user's custom views are returned
+	 * @return unmodifiable list of custom views
+	 * @throws MambuApiException
+	 *             if the views are not cached and their request fails
+	 */
+	public List<CustomView> getCustomViews(String username, ApiViewType apiViewType) throws MambuApiException {
+		if (username == null) {
+			throw new IllegalArgumentException("Username must not be null");
+		}
+		return CacheUtils.get(cache, new Key(username, apiViewType));
+	}
+
+	/**
+	 * Get a custom view of a user by its encoded key. The view is looked up in all the user's custom views
+	 *
+	 * @param username
+	 *            username. Must not be null
+	 * @param customViewKey
+	 *            encoded key of the custom view. Must not be null
+	 * @return custom view. Null if the user has no custom view with this key
+	 * @throws MambuApiException
+	 *             if the views are not cached and their request fails
+	 */
+	public CustomView getCustomView(String username, String customViewKey) throws MambuApiException {
+		if (customViewKey == null) {
+			throw new IllegalArgumentException("Custom view key must not be null");
+		}
+		for (CustomView customView : getCustomViews(username)) {
+			if (customViewKey.equals(customView.getEncodedKey())) {
+				return customView;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Get a custom view of a user by its name
+	 *
+	 * @param username
+	 *            username. Must not be null
+	 * @param apiViewType
+	 *            API view type. If null, the view is looked up in all the user's custom views
+	 * @param name
+	 *            custom view name. Must not be null
+	 * @return the first custom view with this name. Null if the user has no such view
+	 * @throws MambuApiException
+	 *             if the views are not cached and their request fails
+	 */
+	public CustomView getCustomViewByName(String username, ApiViewType apiViewType, String name)
+			throws MambuApiException {
+		if (name == null) {
+			throw new IllegalArgumentException("Custom view name must not be null");
+		}
+		for (CustomView customView : getCustomViews(username, apiViewType)) {
+			if (name.equals(customView.getConfigurationName())) {
+				return customView;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Invalidate the cached custom views of a user, for example after the user's views were changed in Mambu
+	 *
+	 * @param username
+	 *            username. Must not be null
+	 */
+	public void invalidate(String username) {
+		if (username == null) {
+			throw new IllegalArgumentException("Username must not be null");
+		}
+		for (Key key : cache.asMap().keySet()) {
+			if (key.username.equals(username)) {
+				cache.invalidate(key);
+			}
+		}
+	}
+
+	/**
+	 * Invalidate the cached custom views of all users
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Get the cache statistics: hits, misses, loads, load failures and load time
+	 *
+	 * @return statistics since the cache was created
+	 */
+	public CacheStats getStatistics() {
+		return cache.stats();
+	}
+
+	private List<CustomView> loadCustomViews(Key key) throws MambuApiException {
+		List<CustomView> customViews = usersService.getCustomViews(key.username, key.apiViewType);
+		return (customViews == null) ? Collections.<CustomView> emptyList() : Collections
+				.unmodifiableList(new ArrayList<CustomView>(customViews));
+	}
+}
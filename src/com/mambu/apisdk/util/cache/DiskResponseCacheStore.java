@@ -0,0 +1,214 @@
+package com.mambu.apisdk.util.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+import com.google.common.hash.Hashing;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+/**
+ * On-disk {@link ResponseCacheStore} keeping each response in its own JSON file of a directory, so the cached responses
+ * survive restarts of the application. The file name is the SHA-256 hash of the cache key. Files are replaced
+ * atomically, and a file that can't be read is deleted and treated as a miss.
+ *
+ * The total size of the files is bounded: the least recently used responses are deleted when it is exceeded. The
+ * responses found when the store is opened are ordered by the time they were written, and the temporary files left by a
+ * crash during a write are deleted.
+ *
+ * The directory must not be shared by applications connecting to Mambu as users with different permissions.
+ */
+public class DiskResponseCacheStore implements ResponseCacheStore {
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+	private final static String FILE_EXTENSION = ".json";
+	private final static String TEMP_FILE_PREFIX = "response";
+	private final static String TEMP_FILE_EXTENSION = ".tmp";
+
+	private final static Logger LOGGER = Logger.getLogger(DiskResponseCacheStore.class.getName());
+
+	private final static Comparator<File> BY_LAST_MODIFIED = new Comparator<File>() {
+		@Override
+		public int compare(File file1, File file2) {
+			return Long.compare(file1.lastModified(), file2.lastModified());
+		}
+	};
+
+	private final File directory;
+	private final long maxBytes;
+	private final Gson gson = new Gson();
+
+	// Size of the response files by file name, in the access order. Guarded by itself
+	private final LinkedHashMap<String, Long> fileSizes = new LinkedHashMap<String, Long>(16, 0.75f, true);
+	// Guarded by fileSizes
+	private long totalBytes;
+
+	/**
+	 * Create an on-disk response store
+	 *
+	 * @param directory
+	 *            directory for the response files. Created if it does not exist
+	 * @param maxBytes
+	 *            maximum total size of the response files. Must be greater than zero
+	 */
+	public DiskResponseCacheStore(File directory, long maxBytes) {
+		if (directory == null) {
+			throw new IllegalArgumentException("Directory must not be null");
+		}
+		if (maxBytes < 1) {
+			throw new IllegalArgumentException("Max bytes must be greater than zero. Max bytes=" + maxBytes);
+		}
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IllegalArgumentException("Can't create the cache directory " + directory);
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		loadFileSizes();
+	}
+
+	@Override
+	public CachedResponse get(String key) {
+		File file = getFile(key);
+		if (!file.exists()) {
+			return null;
+		}
+		synchronized (fileSizes) {
+			// Most recently used
+			fileSizes.get(file.getName());
+		}
+		try {
+			CachedResponse response = gson.fromJson(new String(Files.readAllBytes(file.toPath()), UTF8),
+					CachedResponse.class);
+			// Hash collisions are not expected, but the key is verified anyway
+			return (response != null && key.equals(response.getKey())) ? response : null;
+		} catch (IOException e) {
+			LOGGER.warning("Can't read cached response " + file + ": " + e.getMessage());
+		} catch (JsonParseException e) {
+			LOGGER.warning("Invalid cached response " + file + ": " + e.getMessage());
+		}
+		remove(key);
+		return null;
+	}
+
+	@Override
+	public void put(CachedResponse response) {
+		File file = getFile(response.getKey());
+		byte[] json = gson.toJson(response).getBytes(UTF8);
+		if (json.length > maxBytes) {
+			// Never fits: the stored response, if any, is outdated
+			remove(response.getKey());
+			return;
+		}
+		Path tempFile = null;
+		try {
+			tempFile = Files.createTempFile(directory.toPath(), TEMP_FILE_PREFIX, TEMP_FILE_EXTENSION);
+			Files.write(tempFile, json);
+			Files.move(tempFile, file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			synchronized (fileSizes) {
+				setFileSize(file.getName(), (long) json.length);
+				evict();
+			}
+		} catch (IOException e) {
+			LOGGER.warning("Can't store cached response " + file + ": " + e.getMessage());
+			if (tempFile != null) {
+				tempFile.toFile().delete();
+			}
+		}
+	}
+
+	@Override
+	public void remove(String key) {
+		File file = getFile(key);
+		synchronized (fileSizes) {
+			file.delete();
+			setFileSize(file.getName(), null);
+		}
+	}
+
+	@Override
+	public void clear() {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		synchronized (fileSizes) {
+			for (File file : files) {
+				if (file.getName().endsWith(FILE_EXTENSION)) {
+					file.delete();
+				}
+			}
+			fileSizes.clear();
+			totalBytes = 0;
+		}
+	}
+
+	/**
+	 * Index the existing response files, oldest first, and delete the temporary files of interrupted writes
+	 */
+	private void loadFileSizes() {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		List<File> responseFiles = new ArrayList<File>();
+		for (File file : files) {
+			String name = file.getName();
+			if (name.endsWith(FILE_EXTENSION)) {
+				responseFiles.add(file);
+			} else if (name.startsWith(TEMP_FILE_PREFIX) && name.endsWith(TEMP_FILE_EXTENSION)) {
+				file.delete();
+			}
+		}
+		Collections.sort(responseFiles, BY_LAST_MODIFIED);
+		synchronized (fileSizes) {
+			for (File file : responseFiles) {
+				setFileSize(file.getName(), file.length());
+			}
+			// The limit may have been lowered since the files were written
+			evict();
+		}
+	}
+
+	/**
+	 * Set the size of a response file in the index, as the most recently used. Must hold the fileSizes lock
+	 *
+	 * @param fileName
+	 *            response file name
+	 * @param size
+	 *            file size. Null if the file was deleted
+	 */
+	private void setFileSize(String fileName, Long size) {
+		Long previous = (size == null) ? fileSizes.remove(fileName) : fileSizes.put(fileName, size);
+		totalBytes += ((size == null) ? 0 : size) - ((previous == null) ? 0 : previous);
+	}
+
+	/**
+	 * Delete the least recently used response files until their total size is within the limit. Must hold the
+	 * fileSizes lock
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> iterator = fileSizes.entrySet().iterator();
+		while (totalBytes > maxBytes && iterator.hasNext()) {
+			Map.Entry<String, Long> eldest = iterator.next();
+			new File(directory, eldest.getKey()).delete();
+			totalBytes -= eldest.getValue();
+			iterator.remove();
+		}
+	}
+
+	private File getFile(String key) {
+		return new File(directory, Hashing.sha256().hashString(key, UTF8).toString() + FILE_EXTENSION);
+	}
+}
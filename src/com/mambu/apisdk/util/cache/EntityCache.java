@@ -0,0 +1,293 @@
+package com.mambu.apisdk.util.cache;
+
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.MambuEntityType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.apisdk.util.cache.CacheStorage.RemovalHandler;
+
+/**
+ * EntityCache caches the responses to GET_ENTITY and GET_ENTITY_DETAILS requests executed by the
+ * {@link com.mambu.apisdk.util.ServiceExecutor}, for the entity types added with
+ * {@link #addEntityType(MambuEntityType)}. The cache is shared by all the services of a factory, see
+ * {@link com.mambu.apisdk.MambuAPIServiceFactory#setEntityCache(EntityCache)}. The caches of many tenants can share
+ * one memory budget, see {@link TenantCacheManager#newEntityCache(String, long)}.
+ *
+ * Writes invalidate the cached entity: when the ServiceExecutor executes a POST_ENTITY, PATCH_ENTITY, DELETE_ENTITY,
+ * POST_ENTITY_ACTION or an owned entity write (POST, PATCH or DELETE) for an entity ID, all the responses cached for
+ * that entity are removed, whether the entity was read by its ID or by its encoded key. Writes invalidate the entity
+ * even if they fail, and a read running concurrently with a write does not cache its response, so a read following a
+ * write through the same factory always gets the written entity. The responses of an entity are found with an index
+ * by end point and entity ID, so an invalidation costs the same whatever the number of cached responses.
+ *
+ * The response strings are cached, not the parsed entities, so callers can modify the returned entities.
+ *
+ * Example:
+ *
+ * factory.setEntityCache(new EntityCache(60000, 10000).addEntityType(MambuEntityType.CLIENT).addEntityType(
+ * MambuEntityType.LOAN_ACCOUNT));
+ */
+public class EntityCache {
+
+	private final static Set<ApiType> READ_TYPES = EnumSet.of(ApiType.GET_ENTITY, ApiType.GET_ENTITY_DETAILS);
+	private final static Set<ApiType> WRITE_TYPES = EnumSet.of(ApiType.POST_ENTITY, ApiType.PATCH_ENTITY,
+			ApiType.DELETE_ENTITY, ApiType.POST_ENTITY_ACTION, ApiType.POST_OWNED_ENTITY, ApiType.PATCH_OWNED_ENTITY,
+			ApiType.PATCH_OWNED_ENTITIES, ApiType.DELETE_OWNED_ENTITY);
+
+	/**
+	 * A cached response with the end point and the IDs and encoded keys of its entity
+	 */
+	private static class Entry {
+		private final String endPoint;
+		private final Set<String> entityIds;
+		private final String response;
+
+		private Entry(String endPoint, Set<String> entityIds, String response) {
+			this.endPoint = endPoint;
+			this.entityIds = entityIds;
+			this.response = response;
+		}
+	}
+
+	private final static Weigher<String, Entry> ENTRY_WEIGHER = new Weigher<String, Entry>() {
+		@Override
+		public int weigh(String key, Entry entry) {
+			// The end point string is shared by all the entries
+			int weight = CacheUtils.estimateSize(entry.response);
+			for (String entityId : entry.entityIds) {
+				weight += CacheUtils.estimateSize(entityId);
+			}
+			return weight;
+		}
+	};
+
+	private final Set<String> endPoints = new CopyOnWriteArraySet<String>();
+	private final CacheStorage<Entry> cache;
+	// Keys of the cached responses by end point and entity ID or encoded key. Updated by the storage's removals, which
+	// can be notified by the threads of other caches: it has its own lock, never held while calling the storage
+	private final SetMultimap<String, String> keysByEntity = Multimaps.synchronizedSetMultimap(HashMultimap
+			.<String, String> create());
+	private final RemovalHandler<Entry> removalHandler = new RemovalHandler<Entry>() {
+		@Override
+		public void handleRemoval(String key, Entry entry, boolean replaced) {
+			// The replacing entry was indexed with the same key
+			if (!replaced) {
+				for (String entityId : entry.entityIds) {
+					keysByEntity.remove(indexKey(entry.endPoint, entityId), key);
+				}
+			}
+		}
+	};
+
+	// Incremented by each invalidation. Guarded by 'this'
+	private long generation;
+
+	/**
+	 * Create an entity cache. No entity type is cached until added
+	 *
+	 * @param ttlMillis
+	 *            time to live of a cached response, from the time it was received. Must be greater than zero
+	 * @param maxSize
+	 *            maximum number of cached responses. Must be greater than zero
+	 */
+	public EntityCache(long ttlMillis, int maxSize) {
+		if (ttlMillis < 1 || maxSize < 1) {
+			throw new IllegalArgumentException("TTL and max size must be greater than zero. TTL=" + ttlMillis
+					+ " Max size=" + maxSize);
+		}
+		Cache<String, Entry> entries = CacheBuilder.newBuilder().expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+				.maximumSize(maxSize).recordStats().removalListener(new RemovalListener<String, Entry>() {
+					@Override
+					public void onRemoval(RemovalNotification<String, Entry> notification) {
+						removalHandler.handleRemoval(notification.getKey(), notification.getValue(),
+								notification.getCause() == RemovalCause.REPLACED);
+					}
+				}).build();
+		this.cache = new LocalCacheStorage<Entry>(entries);
+	}
+
+	/**
+	 * Create an entity cache stored in a cache manager's memory budget, see
+	 * {@link TenantCacheManager#newEntityCache(String, long)}
+	 *
+	 * @param cacheManager
+	 *            cache manager
+	 * @param domain
+	 *            tenant's domain
+	 * @param ttlMillis
+	 *            time to live of a cached response, from the time it was received. Must be greater than zero
+	 */
+	EntityCache(TenantCacheManager cacheManager, String domain, long ttlMillis) {
+		if (ttlMillis < 1) {
+			throw new IllegalArgumentException("TTL must be greater than zero. TTL=" + ttlMillis);
+		}
+		this.cache = cacheManager.newPartition(domain, ttlMillis, ENTRY_WEIGHER, removalHandler);
+	}
+
+	/**
+	 * Cache the entities of a type. All the classes with the same API end point are cached, for example Client and
+	 * ClientExpanded for MambuEntityType.CLIENT
+	 *
+	 * @param entityType
+	 *            entity type
+	 * @return this cache
+	 */
+	public EntityCache addEntityType(MambuEntityType entityType) {
+		if (entityType == null) {
+			throw new IllegalArgumentException("Entity type must not be null");
+		}
+		endPoints.add(ApiDefinition.getApiEndPoint(entityType.getEntityClass()));
+		return this;
+	}
+
+	/**
+	 * Check if the responses to an API request are cached
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request
+	 * @return true for the GET_ENTITY and GET_ENTITY_DETAILS requests of the cached entity types
+	 */
+	public boolean isCached(ApiDefinition apiDefinition) {
+		return apiDefinition.getUrlPath() == null && READ_TYPES.contains(apiDefinition.getApiType())
+				&& apiDefinition.getMethod() == Method.GET && endPoints.contains(apiDefinition.getEndPoint());
+	}
+
+	/**
+	 * Get a cached response
+	 *
+	 * @param key
+	 *            request URL with its parameters
+	 * @return cached response string. Null if not cached
+	 */
+	public String get(String key) {
+		Entry entry = cache.get(key);
+		return (entry == null) ? null : entry.response;
+	}
+
+	/**
+	 * Get the current generation of the cache, to be passed to
+	 * {@link #put(ApiDefinition, String, String, String, long)} by a read started now
+	 *
+	 * @return generation, incremented by each invalidation
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Cache the response to an entity request, unless an invalidation happened since the request was started
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request
+	 * @param entityId
+	 *            ID or encoded key of the requested entity
+	 * @param key
+	 *            request URL with its parameters
+	 * @param response
+	 *            response string
+	 * @param requestGeneration
+	 *            cache generation when the request was started
+	 */
+	public void put(ApiDefinition apiDefinition, String entityId, String key, String response,
+			long requestGeneration) {
+		if (response == null || !isCached(apiDefinition)) {
+			return;
+		}
+		Set<String> entityIds = CacheUtils.getEntityIds(response);
+		entityIds.add(entityId);
+		Entry entry = new Entry(apiDefinition.getEndPoint(), entityIds, response);
+		synchronized (this) {
+			if (generation == requestGeneration) {
+				// Indexed first, so that an entry evicted right away is removed from the index
+				for (String id : entityIds) {
+					keysByEntity.put(indexKey(entry.endPoint, id), key);
+				}
+				cache.put(key, entry);
+			}
+		}
+	}
+
+	/**
+	 * Handle an executed API request: a write invalidates the entity it was executed for
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request
+	 * @param entityId
+	 *            ID or encoded key of the entity the request was executed for. Null if none
+	 */
+	public void onRequestExecuted(ApiDefinition apiDefinition, String entityId) {
+		if (entityId == null || apiDefinition.getUrlPath() != null
+				|| !WRITE_TYPES.contains(apiDefinition.getApiType())) {
+			return;
+		}
+		invalidate(apiDefinition.getEndPoint(), entityId);
+	}
+
+	/**
+	 * Invalidate the responses cached for an entity, for example after it was changed by another application
+	 *
+	 * @param entityType
+	 *            entity type
+	 * @param entityId
+	 *            entity ID or encoded key
+	 */
+	public void invalidate(MambuEntityType entityType, String entityId) {
+		if (entityType == null || entityId == null) {
+			throw new IllegalArgumentException("Entity type and ID must not be null");
+		}
+		invalidate(ApiDefinition.getApiEndPoint(entityType.getEntityClass()), entityId);
+	}
+
+	/**
+	 * Invalidate all cached responses
+	 */
+	public synchronized void invalidateAll() {
+		generation++;
+		cache.invalidateAll();
+		keysByEntity.clear();
+	}
+
+	/**
+	 * Get the cache statistics: hits, misses and evictions
+	 *
+	 * @return statistics since the cache was created
+	 */
+	public CacheStats getStatistics() {
+		return cache.stats();
+	}
+
+	/**
+	 * Get the number of cached responses
+	 *
+	 * @return number of responses, including the expired responses not evicted yet
+	 */
+	public long size() {
+		return cache.size();
+	}
+
+	private synchronized void invalidate(String endPoint, String entityId) {
+		generation++;
+		for (String key : keysByEntity.removeAll(indexKey(endPoint, entityId))) {
+			cache.invalidate(key);
+		}
+	}
+
+	private static String indexKey(String endPoint, String entityId) {
+		return endPoint + ' ' + entityId;
+	}
+}
@@ -0,0 +1,590 @@
+package com.mambu.apisdk.util.cache;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import com.google.gson.Gson;
+import com.mambu.apisdk.util.GsonUtils;
+
+/**
+ * EntitySnapshotStore keeps serialized Mambu entities in a memory-mapped file, so a cache can start hot after a restart
+ * of the application and revalidate its entities lazily, without holding the entities on the heap. Only a small index,
+ * the encoded keys and IDs of the stored entities and the position of their snapshots in the file, is kept on the
+ * heap.
+ *
+ * Each snapshot is versioned by the entity's last modified date: storing a snapshot older than the stored one has no
+ * effect. Snapshots are appended to the file, replaced and removed snapshots are reclaimed by compacting the file,
+ * which is done when the file is full and at least an eighth of it can be reclaimed. Otherwise the snapshot is not
+ * stored and the outdated snapshot of the entity, if any, is removed. A snapshot removed without room for a removal
+ * record is marked as removed in place, so it is not served again after a restart. A snapshot is made visible only
+ * once it is fully written, so the store recovers from a crash during a write by ignoring the incomplete snapshot.
+ *
+ * The file is compacted in place, as a mapped file can't be replaced on every platform. The compacted snapshots are
+ * first written to a backup file, which is copied back when the store is opened after a crash during the compaction.
+ *
+ * Example:
+ *
+ * EntitySnapshotStore snapshots = new EntitySnapshotStore(new File("mambu-clients.snapshot"), 256 * 1024 * 1024);
+ *
+ * snapshots.put(client, client.getEncodedKey(), client.getId(), client.getLastModifiedDate());
+ *
+ * Client client = snapshots.get(Client.class, clientId);
+ */
+public class EntitySnapshotStore implements Closeable {
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+	private final static int MAGIC = 0x4d534e50; // "MSNP"
+	private final static int FORMAT_VERSION = 1;
+	private final static int HEADER_LENGTH = 8;
+
+	private final static byte PUT = 1;
+	private final static byte REMOVE = 2;
+	private final static long NO_VERSION = Long.MIN_VALUE;
+
+	// A full file is compacted only if at least 1/MIN_RECLAIMED_FRACTION of it is reclaimed, so that a file full of
+	// current snapshots isn't rewritten for every snapshot
+	private final static int MIN_RECLAIMED_FRACTION = 8;
+	// Bytes moved at a time when compacting the file in place
+	private final static int COPY_BUFFER_SIZE = 64 * 1024;
+
+	/**
+	 * Position and version of a stored snapshot
+	 */
+	private static class Location {
+		private final String id;
+		private final int offset;
+		private final int length;
+		private final long version;
+
+		private Location(String id, int offset, int length, long version) {
+			this.id = id;
+			this.offset = offset;
+			this.length = length;
+			this.version = version;
+		}
+	}
+
+	private final static Comparator<Location> BY_OFFSET = new Comparator<Location>() {
+		@Override
+		public int compare(Location location1, Location location2) {
+			return Integer.compare(location1.offset, location2.offset);
+		}
+	};
+
+	/**
+	 * A record read from the file
+	 */
+	private static class Record {
+		private byte kind;
+		private long version;
+		private String entityClass;
+		private String encodedKey;
+		private String id;
+		private int jsonOffset;
+		private int jsonLength;
+	}
+
+	private final File file;
+	private final Gson gson = GsonUtils.createGson();
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Guarded by lock
+	private MappedByteBuffer buffer;
+	private int writePosition;
+	// Total length of the current snapshots' records
+	private int liveBytes;
+	private final Map<String, Location> byEncodedKey = new HashMap<String, Location>();
+	private final Map<String, String> encodedKeyById = new HashMap<String, String>();
+
+	/**
+	 * Open a snapshot store, creating its file if it does not exist
+	 *
+	 * @param file
+	 *            snapshot file
+	 * @param maxBytes
+	 *            maximum size of the file, mapped at once. Must be greater than the header size. An existing larger
+	 *            file is mapped whole
+	 * @throws IOException
+	 *             if the file can't be mapped or is not a snapshot file
+	 */
+	public EntitySnapshotStore(File file, int maxBytes) throws IOException {
+		if (file == null) {
+			throw new IllegalArgumentException("File must not be null");
+		}
+		if (maxBytes <= HEADER_LENGTH) {
+			throw new IllegalArgumentException("Max bytes must be greater than " + HEADER_LENGTH + ". Max bytes="
+					+ maxBytes);
+		}
+		this.file = file;
+		restoreCompacted(file);
+		boolean isNew = !file.exists() || file.length() == 0;
+		buffer = map(file, maxBytes);
+		if (isNew) {
+			buffer.putInt(0, MAGIC);
+			buffer.putInt(4, FORMAT_VERSION);
+			writePosition = HEADER_LENGTH;
+		} else {
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+				throw new IOException("Not a snapshot file: " + file);
+			}
+			loadIndex();
+		}
+	}
+
+	/**
+	 * Store the snapshot of an entity, serialized as JSON
+	 *
+	 * @param entity
+	 *            Mambu entity. Must not be null
+	 * @param encodedKey
+	 *            entity's encoded key. Must not be null
+	 * @param id
+	 *            entity's ID. Null if the entity has no ID
+	 * @param lastModifiedDate
+	 *            entity's last modified date, the version of the snapshot. Null if not known
+	 * @return true if the snapshot was stored, false if a newer snapshot is stored or the snapshot doesn't fit in the
+	 *         file. An older snapshot of the entity is removed when the snapshot doesn't fit
+	 */
+	public boolean put(Object entity, String encodedKey, String id, Date lastModifiedDate) {
+		if (entity == null) {
+			throw new IllegalArgumentException("Entity must not be null");
+		}
+		return putJson(entity.getClass(), encodedKey, id, lastModifiedDate, gson.toJson(entity));
+	}
+
+	/**
+	 * Store the JSON snapshot of an entity, for example an API response
+	 *
+	 * @param entityClass
+	 *            class of the entity. Must not be null
+	 * @param encodedKey
+	 *            entity's encoded key. Must not be null
+	 * @param id
+	 *            entity's ID. Null if the entity has no ID
+	 * @param lastModifiedDate
+	 *            entity's last modified date, the version of the snapshot. Null if not known
+	 * @param json
+	 *            entity JSON. Must not be null
+	 * @return true if the snapshot was stored, false if a newer snapshot is stored or the snapshot doesn't fit in the
+	 *         file. An older snapshot of the entity is removed when the snapshot doesn't fit
+	 */
+	public boolean putJson(Class<?> entityClass, String encodedKey, String id, Date lastModifiedDate, String json) {
+		if (entityClass == null || encodedKey == null || json == null) {
+			throw new IllegalArgumentException("Entity class, encoded key and JSON must not be null");
+		}
+		long version = (lastModifiedDate == null) ? NO_VERSION : lastModifiedDate.getTime();
+		lock.writeLock().lock();
+		try {
+			Location current = byEncodedKey.get(indexKey(entityClass.getName(), encodedKey));
+			if (current != null && current.version > version) {
+				return false;
+			}
+			if (append(PUT, version, entityClass.getName(), encodedKey, id, json.getBytes(UTF8))) {
+				return true;
+			}
+			if (current != null && current.version < version) {
+				// Not served once outdated
+				removeInPlace(entityClass.getName(), encodedKey);
+			}
+			return false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the snapshot of an entity
+	 *
+	 * @param entityClass
+	 *            class of the entity
+	 * @param idOrKey
+	 *            entity's ID or encoded key
+	 * @return entity. Null if not stored
+	 */
+	public <T> T get(Class<T> entityClass, String idOrKey) {
+		String json = getJson(entityClass, idOrKey);
+		return (json == null) ? null : gson.fromJson(json, entityClass);
+	}
+
+	/**
+	 * Get the JSON snapshot of an entity
+	 *
+	 * @param entityClass
+	 *            class of the entity
+	 * @param idOrKey
+	 *            entity's ID or encoded key
+	 * @return entity JSON. Null if not stored
+	 */
+	public String getJson(Class<?> entityClass, String idOrKey) {
+		lock.readLock().lock();
+		try {
+			Location location = find(entityClass, idOrKey);
+			if (location == null) {
+				return null;
+			}
+			Record record = readRecord(buffer, location.offset);
+			byte[] json = new byte[record.jsonLength];
+			ByteBuffer view = buffer.duplicate();
+			view.position(record.jsonOffset);
+			view.get(json);
+			return new String(json, UTF8);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the version of an entity's snapshot, to revalidate it against the entity in Mambu
+	 *
+	 * @param entityClass
+	 *            class of the entity
+	 * @param idOrKey
+	 *            entity's ID or encoded key
+	 * @return last modified date of the stored snapshot. Null if not stored or stored without a last modified date
+	 */
+	public Date getLastModifiedDate(Class<?> entityClass, String idOrKey) {
+		lock.readLock().lock();
+		try {
+			Location location = find(entityClass, idOrKey);
+			return (location == null || location.version == NO_VERSION) ? null : new Date(location.version);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Remove the snapshot of an entity
+	 *
+	 * @param entityClass
+	 *            class of the entity
+	 * @param idOrKey
+	 *            entity's ID or encoded key
+	 */
+	public void remove(Class<?> entityClass, String idOrKey) {
+		lock.writeLock().lock();
+		try {
+			Location location = find(entityClass, idOrKey);
+			if (location == null) {
+				return;
+			}
+			Record record = readRecord(buffer, location.offset);
+			if (!append(REMOVE, NO_VERSION, record.entityClass, record.encodedKey, record.id, new byte[0])) {
+				// No room for the removal record
+				removeInPlace(record.entityClass, record.encodedKey);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the number of stored snapshots
+	 *
+	 * @return number of snapshots
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return byEncodedKey.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Rewrite the file with the current snapshots only, reclaiming the space of the replaced and removed snapshots
+	 *
+	 * @throws IOException
+	 *             if the backup of the compacted file can't be written. The file is left unchanged
+	 */
+	public void compact() throws IOException {
+		lock.writeLock().lock();
+		try {
+			// In the file order: each snapshot moves towards the start of the file, never over a snapshot not moved yet
+			List<Location> locations = new ArrayList<Location>(byEncodedKey.values());
+			Collections.sort(locations, BY_OFFSET);
+			writeBackup(locations);
+
+			byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+			int position = HEADER_LENGTH;
+			Map<String, Location> compactedIndex = new HashMap<String, Location>();
+			for (Location location : locations) {
+				Record record = readRecord(buffer, location.offset);
+				for (int copied = 0; copied < location.length; copied += copyBuffer.length) {
+					int chunk = Math.min(copyBuffer.length, location.length - copied);
+					ByteBuffer view = buffer.duplicate();
+					view.position(location.offset + copied);
+					view.get(copyBuffer, 0, chunk);
+					view.position(position + copied);
+					view.put(copyBuffer, 0, chunk);
+				}
+				compactedIndex.put(indexKey(record.entityClass, record.encodedKey), new Location(location.id,
+						position, location.length, location.version));
+				position += location.length;
+			}
+			buffer.putInt(position, 0);
+			buffer.force();
+			backupFile(file).delete();
+			writePosition = position;
+			byEncodedKey.clear();
+			byEncodedKey.putAll(compactedIndex);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Flush the written snapshots to the file
+	 */
+	@Override
+	public void close() {
+		lock.writeLock().lock();
+		try {
+			buffer.force();
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private static MappedByteBuffer map(File file, int maxBytes) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw");
+		try {
+			long size = Math.max(randomAccessFile.length(), maxBytes);
+			// The mapping stays valid after the channel is closed
+			return randomAccessFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	/**
+	 * Write the header and the current snapshots to the backup file, which is complete once it has its final name
+	 */
+	private void writeBackup(List<Location> locations) throws IOException {
+		File partial = new File(file.getPath() + ".compact.tmp");
+		RandomAccessFile randomAccessFile = new RandomAccessFile(partial, "rw");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			channel.truncate(0);
+			ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+			header.putInt(MAGIC).putInt(FORMAT_VERSION).flip();
+			writeFully(channel, header);
+			for (Location location : locations) {
+				ByteBuffer source = buffer.duplicate();
+				source.position(location.offset);
+				source.limit(location.offset + location.length);
+				writeFully(channel, source);
+			}
+			// End of the records
+			writeFully(channel, ByteBuffer.allocate(4));
+			channel.force(true);
+		} finally {
+			randomAccessFile.close();
+		}
+		Files.move(partial.toPath(), backupFile(file).toPath(), StandardCopyOption.REPLACE_EXISTING);
+	}
+
+	/**
+	 * Copy the backup of a compaction interrupted by a crash back to the file, before the file is mapped
+	 */
+	private static void restoreCompacted(File file) throws IOException {
+		new File(file.getPath() + ".compact.tmp").delete();
+		File backup = backupFile(file);
+		if (!backup.exists()) {
+			return;
+		}
+		RandomAccessFile source = new RandomAccessFile(backup, "r");
+		try {
+			RandomAccessFile target = new RandomAccessFile(file, "rw");
+			try {
+				FileChannel targetChannel = target.getChannel();
+				long length = source.length();
+				for (long copied = 0; copied < length;) {
+					copied += targetChannel.transferFrom(source.getChannel(), copied, length - copied);
+				}
+				targetChannel.force(true);
+			} finally {
+				target.close();
+			}
+		} finally {
+			source.close();
+		}
+		backup.delete();
+	}
+
+	private static File backupFile(File file) {
+		return new File(file.getPath() + ".compact");
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+
+	/**
+	 * Append a record, compacting the file if it is full and enough of it can be reclaimed. The record length is
+	 * written last, so an incomplete record reads as the end of the file
+	 *
+	 * @return true if the record was appended
+	 */
+	private boolean append(byte kind, long version, String entityClass, String encodedKey, String id, byte[] json) {
+		byte[] classBytes = entityClass.getBytes(UTF8);
+		byte[] keyBytes = encodedKey.getBytes(UTF8);
+		byte[] idBytes = (id == null) ? new byte[0] : id.getBytes(UTF8);
+		int length = 4 + 1 + 8 + 2 + classBytes.length + 2 + keyBytes.length + 2 + idBytes.length + 4 + json.length;
+		if (writePosition + length + 4 > buffer.capacity()) {
+			int reclaimable = writePosition - HEADER_LENGTH - liveBytes;
+			if (HEADER_LENGTH + liveBytes + length + 4 > buffer.capacity()
+					|| reclaimable < buffer.capacity() / MIN_RECLAIMED_FRACTION) {
+				return false;
+			}
+			try {
+				compact();
+			} catch (IOException e) {
+				return false;
+			}
+		}
+		int offset = writePosition;
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset + 4);
+		view.put(kind);
+		view.putLong(version);
+		putBytes(view, classBytes);
+		putBytes(view, keyBytes);
+		putBytes(view, idBytes);
+		view.putInt(json.length);
+		view.put(json);
+		// The next record's length must read as the end of the file until it is written
+		view.putInt(0);
+		buffer.putInt(offset, length);
+		writePosition = offset + length;
+
+		if (kind == PUT) {
+			removeFromIndex(entityClass, encodedKey);
+			byEncodedKey.put(indexKey(entityClass, encodedKey), new Location(id, offset, length, version));
+			liveBytes += length;
+			if (id != null) {
+				encodedKeyById.put(indexKey(entityClass, id), encodedKey);
+			}
+		} else {
+			removeFromIndex(entityClass, encodedKey);
+		}
+		return true;
+	}
+
+	private static void putBytes(ByteBuffer view, byte[] bytes) {
+		view.putShort((short) bytes.length);
+		view.put(bytes);
+	}
+
+	private static String getString(ByteBuffer view) {
+		byte[] bytes = new byte[view.getShort()];
+		view.get(bytes);
+		return new String(bytes, UTF8);
+	}
+
+	/**
+	 * Read the record at an offset. Null at the end of the records
+	 */
+	private static Record readRecord(ByteBuffer buffer, int offset) {
+		if (offset + 4 > buffer.capacity()) {
+			return null;
+		}
+		int length = buffer.getInt(offset);
+		if (length <= 0 || offset + length > buffer.capacity()) {
+			return null;
+		}
+		ByteBuffer view = buffer.duplicate();
+		view.position(offset + 4);
+		Record record = new Record();
+		record.kind = view.get();
+		record.version = view.getLong();
+		record.entityClass = getString(view);
+		record.encodedKey = getString(view);
+		String id = getString(view);
+		record.id = id.isEmpty() ? null : id;
+		record.jsonLength = view.getInt();
+		record.jsonOffset = view.position();
+		return record;
+	}
+
+	/**
+	 * Rebuild the index of an existing file
+	 */
+	private void loadIndex() {
+		int offset = HEADER_LENGTH;
+		Record record;
+		while ((record = readRecord(buffer, offset)) != null) {
+			int length = buffer.getInt(offset);
+			removeFromIndex(record.entityClass, record.encodedKey);
+			if (record.kind == PUT) {
+				byEncodedKey.put(indexKey(record.entityClass, record.encodedKey), new Location(record.id, offset,
+						length, record.version));
+				liveBytes += length;
+				if (record.id != null) {
+					encodedKeyById.put(indexKey(record.entityClass, record.id), record.encodedKey);
+				}
+			}
+			offset += length;
+		}
+		writePosition = offset;
+	}
+
+	private Location find(Class<?> entityClass, String idOrKey) {
+		if (entityClass == null || idOrKey == null) {
+			throw new IllegalArgumentException("Entity class and ID must not be null");
+		}
+		Location location = byEncodedKey.get(indexKey(entityClass.getName(), idOrKey));
+		if (location != null) {
+			return location;
+		}
+		String encodedKey = encodedKeyById.get(indexKey(entityClass.getName(), idOrKey));
+		return (encodedKey == null) ? null : byEncodedKey.get(indexKey(entityClass.getName(), encodedKey));
+	}
+
+	/**
+	 * Remove the current snapshot of an entity by turning its record into a removal record, for when no removal record
+	 * can be appended. The snapshot is then neither served nor reloaded with the index after a restart
+	 */
+	private void removeInPlace(String entityClass, String encodedKey) {
+		Location location = byEncodedKey.get(indexKey(entityClass, encodedKey));
+		if (location == null) {
+			return;
+		}
+		buffer.put(location.offset + 4, REMOVE);
+		removeFromIndex(entityClass, encodedKey);
+	}
+
+	private void removeFromIndex(String entityClass, String encodedKey) {
+		Location removed = byEncodedKey.remove(indexKey(entityClass, encodedKey));
+		if (removed == null) {
+			return;
+		}
+		liveBytes -= removed.length;
+		if (removed.id != null) {
+			encodedKeyById.remove(indexKey(entityClass, removed.id));
+		}
+	}
+
+	private static String indexKey(String entityClass, String idOrKey) {
+		return entityClass + '\u0000' + idOrKey;
+	}
+}
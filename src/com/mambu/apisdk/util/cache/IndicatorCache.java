@@ -0,0 +1,201 @@
+package com.mambu.apisdk.util.cache;
+
+import java.io.Closeable;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Optional;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.services.IntelligenceService;
+import com.mambu.apisdk.util.ConcurrencyUtils;
+import com.mambu.intelligence.shared.model.Intelligence.Indicator;
+
+/**
+ * IndicatorCache caches the values of the Mambu financial indicators for dashboards polling them. Reads are served
+ * from memory, and the indicators missing from the cache are requested concurrently with
+ * {@link IntelligenceService#getIndicators(Collection, int)}.
+ *
+ * A value older than the staleness interval is refreshed in the background on its next read (refresh-ahead): the read
+ * returns the current value at once and the following reads get the refreshed value. Values never expire, so a failed
+ * refresh keeps the current value until the next refresh.
+ *
+ * Example:
+ *
+ * IndicatorCache indicators = factory.setUpIndicatorCache(EnumSet.allOf(Indicator.class), 60 * 1000, 4);
+ *
+ * EnumMap<Indicator, BigDecimal> values = indicators.getIndicators(EnumSet.allOf(Indicator.class));
+ */
+public class IndicatorCache implements Closeable {
+
+	private final IntelligenceService intelligenceService;
+	private final int concurrency;
+	private final ExecutorService refreshExecutor;
+	// Optional: an indicator without a value is cached too
+	private final LoadingCache<Indicator, Optional<BigDecimal>> cache;
+
+	/**
+	 * Create an indicator cache. The cache is empty until {@link #warmUp(Collection)} is called or the indicators are
+	 * first read
+	 *
+	 * @param intelligenceService
+	 *            intelligence service. Must not be null
+	 * @param stalenessMillis
+	 *            age of a cached value, from the time it was loaded, after which its next read refreshes it in the
+	 *            background. Must be greater than zero
+	 * @param concurrency
+	 *            maximum number of concurrent indicator requests. Must be greater than zero
+	 */
+	public IndicatorCache(IntelligenceService intelligenceService, long stalenessMillis, int concurrency) {
+		if (intelligenceService == null) {
+			throw new IllegalArgumentException("Intelligence service must not be null");
+		}
+		if (stalenessMillis < 1 || concurrency < 1) {
+			throw new IllegalArgumentException("Staleness and concurrency must be greater than zero. Staleness="
+					+ stalenessMillis + " Concurrency=" + concurrency);
+		}
+		this.intelligenceService = intelligenceService;
+		this.concurrency = concurrency;
+		this.refreshExecutor = ConcurrencyUtils.newFixedThreadPool(concurrency, "mambu-indicator-refresh");
+		CacheLoader<Indicator, Optional<BigDecimal>> loader = new CacheLoader<Indicator, Optional<BigDecimal>>() {
+			@Override
+			public Optional<BigDecimal> load(Indicator indicator) throws MambuApiException {
+				return Optional.fromNullable(loadIndicator(indicator));
+			}
+
+			@Override
+			public Map<Indicator, Optional<BigDecimal>> loadAll(Iterable<? extends Indicator> indicators)
+					throws MambuApiException {
+				return loadIndicators(indicators);
+			}
+		};
+		this.cache = CacheBuilder.newBuilder().refreshAfterWrite(stalenessMillis, TimeUnit.MILLISECONDS)
+				.recordStats().build(CacheLoader.asyncReloading(loader, refreshExecutor));
+	}
+
+	/**
+	 * Load the values of the indicators that are not cached yet, concurrently, waiting for all the requests
+	 *
+	 * @param indicators
+	 *            indicators to load. Must not be null or contain nulls
+	 * @throws MambuApiException
+	 *             if a request fails
+	 */
+	public void warmUp(Collection<Indicator> indicators) throws MambuApiException {
+		getIndicators(indicators);
+	}
+
+	/**
+	 * Get the value of an indicator
+	 *
+	 * @param indicator
+	 *            indicator. Must not be null
+	 * @return indicator value. Null if Mambu returned no value for it
+	 * @throws MambuApiException
+	 *             if the indicator is not cached and its request fails
+	 */
+	public BigDecimal getIndicator(Indicator indicator) throws MambuApiException {
+		if (indicator == null) {
+			throw new IllegalArgumentException("Indicator must not be null");
+		}
+		return CacheUtils.get(cache, indicator).orNull();
+	}
+
+	/**
+	 * Get the values of several indicators. The indicators that are not cached are requested concurrently
+	 *
+	 * @param indicators
+	 *            indicators. Must not be null or contain nulls
+	 * @return map of the indicator values. The value of an indicator is null if Mambu returned no value for it
+	 * @throws MambuApiException
+	 *             if an indicator is not cached and its request fails
+	 */
+	public EnumMap<Indicator, BigDecimal> getIndicators(Collection<Indicator> indicators) throws MambuApiException {
+		if (indicators == null) {
+			throw new IllegalArgumentException("Indicators must not be null");
+		}
+		for (Indicator indicator : indicators) {
+			if (indicator == null) {
+				throw new IllegalArgumentException("Indicators must not contain nulls");
+			}
+		}
+		EnumMap<Indicator, BigDecimal> values = new EnumMap<Indicator, BigDecimal>(Indicator.class);
+		try {
+			for (Map.Entry<Indicator, Optional<BigDecimal>> value : cache.getAll(indicators).entrySet()) {
+				values.put(value.getKey(), value.getValue().orNull());
+			}
+		} catch (ExecutionException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} catch (UncheckedExecutionException e) {
+			throw (e.getCause() instanceof RuntimeException) ? (RuntimeException) e.getCause() : e;
+		} catch (ExecutionError e) {
+			throw (e.getCause() instanceof Error) ? (Error) e.getCause() : e;
+		}
+		return values;
+	}
+
+	/**
+	 * Refresh all cached values in the background. Reads keep returning the current values until the refreshed values
+	 * are loaded
+	 */
+	public void refreshAll() {
+		for (Indicator indicator : cache.asMap().keySet()) {
+			cache.refresh(indicator);
+		}
+	}
+
+	/**
+	 * Invalidate all cached values. The next read of each indicator waits for its request
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Get the cache statistics: hits, misses, loads, refreshes, load failures and load time
+	 *
+	 * @return statistics since the cache was created
+	 */
+	public CacheStats getStatistics() {
+		return cache.stats();
+	}
+
+	/**
+	 * Stop the background refreshes. The cached values are still served but no longer refreshed
+	 */
+	@Override
+	public void close() {
+		refreshExecutor.shutdownNow();
+	}
+
+	private BigDecimal loadIndicator(Indicator indicator) throws MambuApiException {
+		return intelligenceService.getIndicator(indicator);
+	}
+
+	private Map<Indicator, Optional<BigDecimal>> loadIndicators(Iterable<? extends Indicator> indicators)
+			throws MambuApiException {
+		List<Indicator> requested = new ArrayList<Indicator>();
+		for (Indicator indicator : indicators) {
+			requested.add(indicator);
+		}
+		Map<Indicator, Optional<BigDecimal>> loaded = new HashMap<Indicator, Optional<BigDecimal>>();
+		for (Map.Entry<Indicator, BigDecimal> value : intelligenceService.getIndicators(requested, concurrency)
+				.entrySet()) {
+			loaded.put(value.getKey(), Optional.fromNullable(value.getValue()));
+		}
+		return loaded;
+	}
+}
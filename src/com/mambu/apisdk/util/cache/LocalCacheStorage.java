@@ -0,0 +1,55 @@
+package com.mambu.apisdk.util.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+
+/**
+ * {@link CacheStorage} backed by a Guava cache of its own
+ *
+ * @param <V>
+ *            value type
+ */
+class LocalCacheStorage<V> implements CacheStorage<V> {
+
+	private final Cache<String, V> cache;
+
+	/**
+	 * Create a storage
+	 *
+	 * @param cache
+	 *            Guava cache holding the values, built with recordStats()
+	 */
+	LocalCacheStorage(Cache<String, V> cache) {
+		this.cache = cache;
+	}
+
+	@Override
+	public V get(String key) {
+		return cache.getIfPresent(key);
+	}
+
+	@Override
+	public void put(String key, V value) {
+		cache.put(key, value);
+	}
+
+	@Override
+	public void invalidate(String key) {
+		cache.invalidate(key);
+	}
+
+	@Override
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	@Override
+	public long size() {
+		return cache.size();
+	}
+
+	@Override
+	public CacheStats stats() {
+		return cache.stats();
+	}
+}
@@ -0,0 +1,46 @@
+package com.mambu.apisdk.util.cache;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * In-memory {@link ResponseCacheStore} holding up to a maximum number of responses, evicting the least recently used
+ * ones
+ */
+public class MemoryResponseCacheStore implements ResponseCacheStore {
+
+	private final Cache<String, CachedResponse> responses;
+
+	/**
+	 * Create an in-memory response store
+	 *
+	 * @param maxEntries
+	 *            maximum number of stored responses. Must be greater than zero
+	 */
+	public MemoryResponseCacheStore(int maxEntries) {
+		if (maxEntries < 1) {
+			throw new IllegalArgumentException("Max entries must be greater than zero. Max entries=" + maxEntries);
+		}
+		this.responses = CacheBuilder.newBuilder().maximumSize(maxEntries).build();
+	}
+
+	@Override
+	public CachedResponse get(String key) {
+		return responses.getIfPresent(key);
+	}
+
+	@Override
+	public void put(CachedResponse response) {
+		responses.put(response.getKey(), response);
+	}
+
+	@Override
+	public void remove(String key) {
+		responses.invalidate(key);
+	}
+
+	@Override
+	public void clear() {
+		responses.invalidateAll();
+	}
+}
@@ -0,0 +1,294 @@
+package com.mambu.apisdk.util.cache;
+
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.HashMultimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.SetMultimap;
+import com.mambu.apisdk.util.APIData;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.MambuEntityType;
+import com.mambu.apisdk.util.ParamsMap;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.apisdk.util.cache.CacheStorage.RemovalHandler;
+
+/**
+ * NotFoundCache remembers for a short time the entity IDs Mambu answered with 404 Not Found, so probing the same
+ * missing IDs again doesn't cost a request. It is used by the {@link com.mambu.apisdk.util.ServiceExecutor} for the
+ * GET_ENTITY and GET_ENTITY_DETAILS requests of the entity types added with {@link #addEntityType(MambuEntityType)}.
+ * The cache is shared by all the services of a factory, see
+ * {@link com.mambu.apisdk.MambuAPIServiceFactory#setNotFoundCache(NotFoundCache)}. The caches of many tenants can
+ * share one memory budget, see {@link TenantCacheManager#newNotFoundCache(String, long)}.
+ *
+ * Not found results are cached per API definition and ID, with the error message of the 404 response: a cached result
+ * throws the same MambuApiException as the request. When the ServiceExecutor creates or updates an entity, the
+ * results cached for its ID and encoded key are removed, so an entity created through the same factory is found
+ * right away. A request started before the entity was created doesn't cache its result, while the results of the
+ * other entities are still cached.
+ *
+ * Example:
+ *
+ * factory.setNotFoundCache(new NotFoundCache(30000, 100000).addEntityType(MambuEntityType.CLIENT));
+ */
+public class NotFoundCache {
+
+	// Number of entity invalidations remembered for the requests in flight
+	private final static int MAX_INVALIDATIONS = 10000;
+
+	private final static Set<ApiType> READ_TYPES = EnumSet.of(ApiType.GET_ENTITY, ApiType.GET_ENTITY_DETAILS);
+	private final static Set<ApiType> WRITE_TYPES = EnumSet.of(ApiType.CREATE_JSON_ENTITY, ApiType.CREATE_FORM_ENTITY,
+			ApiType.POST_ENTITY, ApiType.PATCH_ENTITY);
+
+	/**
+	 * A cached not found result
+	 */
+	private static class Entry {
+		private final String endPoint;
+		private final String entityId;
+		private final String errorMessage;
+
+		private Entry(String endPoint, String entityId, String errorMessage) {
+			this.endPoint = endPoint;
+			this.entityId = entityId;
+			this.errorMessage = errorMessage;
+		}
+	}
+
+	private final static Weigher<String, Entry> ENTRY_WEIGHER = new Weigher<String, Entry>() {
+		@Override
+		public int weigh(String key, Entry entry) {
+			// The end point string is shared by all the entries
+			return CacheUtils.estimateSize(entry.entityId) + CacheUtils.estimateSize(entry.errorMessage);
+		}
+	};
+
+	private final Set<String> endPoints = new CopyOnWriteArraySet<String>();
+	private final CacheStorage<Entry> cache;
+	// Keys of the cached results by end point and entity ID. It has its own lock, never held while calling the storage
+	private final SetMultimap<String, String> keysByEntity = Multimaps.synchronizedSetMultimap(HashMultimap
+			.<String, String> create());
+	private final RemovalHandler<Entry> removalHandler = new RemovalHandler<Entry>() {
+		@Override
+		public void handleRemoval(String key, Entry entry, boolean replaced) {
+			if (!replaced) {
+				keysByEntity.remove(indexKey(entry.endPoint, entry.entityId), key);
+			}
+		}
+	};
+
+	// Incremented by each invalidation. Guarded by 'this'
+	private long generation;
+	// Generation of the latest invalidation of each entity, by end point and entity ID, oldest first. Guarded by 'this'
+	private final Map<String, Long> invalidations = new LinkedHashMap<String, Long>() {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+			if (size() <= MAX_INVALIDATIONS) {
+				return false;
+			}
+			// The requests started before a forgotten invalidation might have missed it
+			minGeneration = eldest.getValue();
+			return true;
+		}
+	};
+	// Requests started before this generation don't cache their results. Guarded by 'this'
+	private long minGeneration;
+
+	/**
+	 * Create a not found cache. No entity type is cached until added
+	 *
+	 * @param ttlMillis
+	 *            time to live of a not found result. Must be greater than zero
+	 * @param maxSize
+	 *            maximum number of cached results. Must be greater than zero
+	 */
+	public NotFoundCache(long ttlMillis, int maxSize) {
+		if (ttlMillis < 1 || maxSize < 1) {
+			throw new IllegalArgumentException("TTL and max size must be greater than zero. TTL=" + ttlMillis
+					+ " Max size=" + maxSize);
+		}
+		Cache<String, Entry> entries = CacheBuilder.newBuilder().expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+				.maximumSize(maxSize).recordStats().removalListener(new RemovalListener<String, Entry>() {
+					@Override
+					public void onRemoval(RemovalNotification<String, Entry> notification) {
+						removalHandler.handleRemoval(notification.getKey(), notification.getValue(),
+								notification.getCause() == RemovalCause.REPLACED);
+					}
+				}).build();
+		this.cache = new LocalCacheStorage<Entry>(entries);
+	}
+
+	/**
+	 * Create a not found cache stored in a cache manager's memory budget, see
+	 * {@link TenantCacheManager#newNotFoundCache(String, long)}
+	 *
+	 * @param cacheManager
+	 *            cache manager
+	 * @param domain
+	 *            tenant's domain
+	 * @param ttlMillis
+	 *            time to live of a not found result. Must be greater than zero
+	 */
+	NotFoundCache(TenantCacheManager cacheManager, String domain, long ttlMillis) {
+		if (ttlMillis < 1) {
+			throw new IllegalArgumentException("TTL must be greater than zero. TTL=" + ttlMillis);
+		}
+		this.cache = cacheManager.newPartition(domain, ttlMillis, ENTRY_WEIGHER, removalHandler);
+	}
+
+	/**
+	 * Cache the not found results of an entity type
+	 *
+	 * @param entityType
+	 *            entity type
+	 * @return this cache
+	 */
+	public NotFoundCache addEntityType(MambuEntityType entityType) {
+		if (entityType == null) {
+			throw new IllegalArgumentException("Entity type must not be null");
+		}
+		endPoints.add(ApiDefinition.getApiEndPoint(entityType.getEntityClass()));
+		return this;
+	}
+
+	/**
+	 * Check if the not found results of an API request are cached
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request
+	 * @return true for the GET_ENTITY and GET_ENTITY_DETAILS requests of the cached entity types
+	 */
+	public boolean isCached(ApiDefinition apiDefinition) {
+		return apiDefinition.getUrlPath() == null && READ_TYPES.contains(apiDefinition.getApiType())
+				&& apiDefinition.getMethod() == Method.GET && endPoints.contains(apiDefinition.getEndPoint());
+	}
+
+	/**
+	 * Get a cached not found result
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request
+	 * @param entityId
+	 *            requested ID or encoded key
+	 * @return error message of the 404 response. Null if not cached
+	 */
+	public String get(ApiDefinition apiDefinition, String entityId) {
+		Entry entry = cache.get(cacheKey(apiDefinition, entityId));
+		return (entry == null) ? null : entry.errorMessage;
+	}
+
+	/**
+	 * Get the current generation of the cache, to be passed to {@link #put(ApiDefinition, String, String, long)} by a
+	 * request started now
+	 *
+	 * @return generation, incremented by each invalidation
+	 */
+	public synchronized long getGeneration() {
+		return generation;
+	}
+
+	/**
+	 * Cache a not found result, unless the entity was invalidated since the request was started
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request
+	 * @param entityId
+	 *            requested ID or encoded key
+	 * @param errorMessage
+	 *            error message of the 404 response
+	 * @param requestGeneration
+	 *            cache generation when the request was started
+	 */
+	public synchronized void put(ApiDefinition apiDefinition, String entityId, String errorMessage,
+			long requestGeneration) {
+		if (entityId == null || !isCached(apiDefinition) || requestGeneration < minGeneration) {
+			return;
+		}
+		String indexKey = indexKey(apiDefinition.getEndPoint(), entityId);
+		Long invalidated = invalidations.get(indexKey);
+		if (invalidated != null && invalidated > requestGeneration) {
+			return;
+		}
+		String key = cacheKey(apiDefinition, entityId);
+		// Indexed first, so that an entry evicted right away is removed from the index
+		keysByEntity.put(indexKey, key);
+		cache.put(key, new Entry(apiDefinition.getEndPoint(), entityId, errorMessage));
+	}
+
+	/**
+	 * Handle a successfully executed API request: creating or updating an entity removes the not found results cached
+	 * for the IDs and encoded keys in the request JSON and in the response
+	 *
+	 * @param apiDefinition
+	 *            API definition of the request
+	 * @param paramsMap
+	 *            request parameters. Can be null
+	 * @param jsonResponse
+	 *            response string
+	 */
+	public void onRequestExecuted(ApiDefinition apiDefinition, ParamsMap paramsMap, String jsonResponse) {
+		if (apiDefinition.getUrlPath() != null || !WRITE_TYPES.contains(apiDefinition.getApiType())) {
+			return;
+		}
+		Set<String> entityIds = CacheUtils.getEntityIds(jsonResponse);
+		if (paramsMap != null) {
+			entityIds.addAll(CacheUtils.getEntityIds(paramsMap.get(APIData.JSON_OBJECT)));
+		}
+		invalidate(apiDefinition.getEndPoint(), entityIds);
+	}
+
+	/**
+	 * Remove all cached results
+	 */
+	public synchronized void invalidateAll() {
+		generation++;
+		minGeneration = generation;
+		invalidations.clear();
+		cache.invalidateAll();
+		keysByEntity.clear();
+	}
+
+	/**
+	 * Get the cache statistics: hits and misses
+	 *
+	 * @return statistics since the cache was created
+	 */
+	public CacheStats getStatistics() {
+		return cache.stats();
+	}
+
+	private synchronized void invalidate(String endPoint, Set<String> entityIds) {
+		generation++;
+		for (String entityId : entityIds) {
+			String indexKey = indexKey(endPoint, entityId);
+			// Moved to the end: the map is ordered by generation
+			invalidations.remove(indexKey);
+			invalidations.put(indexKey, generation);
+			for (String key : keysByEntity.removeAll(indexKey)) {
+				cache.invalidate(key);
+			}
+		}
+	}
+
+	private static String indexKey(String endPoint, String entityId) {
+		return endPoint + ' ' + entityId;
+	}
+
+	private static String cacheKey(ApiDefinition apiDefinition, String entityId) {
+		return apiDefinition.getKey() + ' ' + entityId;
+	}
+}
@@ -0,0 +1,265 @@
+package com.mambu.apisdk.util.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.services.LoansService;
+import com.mambu.apisdk.services.SavingsService;
+import com.mambu.apisdk.util.pagination.PageFetcher;
+import com.mambu.apisdk.util.pagination.Paginator;
+import com.mambu.loans.shared.model.LoanProduct;
+import com.mambu.savings.shared.model.SavingsProduct;
+
+/**
+ * ProductCache caches loan and savings products in front of {@link LoansService} and {@link SavingsService}.
+ * Products change rarely but are needed for every account processed, so they are kept for a time-to-live and read
+ * from memory meanwhile.
+ *
+ * The cache holds up to 'maxSize' entries, evicting the least recently used ones: each product and each list of all
+ * products is one entry. Concurrent requests for the same missing product load it once, the other requests wait for
+ * the load. Loading the list of all products also caches each product of the list. Failed requests are not cached.
+ *
+ * Example:
+ *
+ * ProductCache products = new ProductCache(loansService, savingsService, 60 * 60 * 1000, 1000);
+ *
+ * LoanProduct product = products.getLoanProduct(account.getProductTypeKey());
+ */
+public class ProductCache {
+
+	// Page size for retrieving all products
+	private final static int PRODUCTS_PAGE_SIZE = 100;
+
+	private enum Kind {
+		LOAN_PRODUCT, SAVINGS_PRODUCT, ALL_LOAN_PRODUCTS, ALL_SAVINGS_PRODUCTS
+	}
+
+	/**
+	 * Cache key: the kind of the entry and the product ID or encoded key
+	 */
+	private static class Key {
+		private final Kind kind;
+		private final String productId;
+
+		private Key(Kind kind, String productId) {
+			this.kind = kind;
+			this.productId = productId;
+		}
+
+		@Override
+		public int hashCode() {
+			return kind.hashCode() * 31 + ((productId == null) ? 0 : productId.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return kind == other.kind && ((productId == null) ? other.productId == null : productId
+					.equals(other.productId));
+		}
+	}
+
+	private final LoansService loansService;
+	private final SavingsService savingsService;
+	private final LoadingCache<Key, Object> cache;
+
+	/**
+	 * Create a product cache
+	 *
+	 * @param loansService
+	 *            loans service. Must not be null
+	 * @param savingsService
+	 *            savings service. Must not be null
+	 * @param ttlMillis
+	 *            time to live of a cached entry, from the time it was loaded. Must be greater than zero
+	 * @param maxSize
+	 *            maximum number of cached entries. Must be greater than zero
+	 */
+	public ProductCache(LoansService loansService, SavingsService savingsService, long ttlMillis, int maxSize) {
+		if (loansService == null || savingsService == null) {
+			throw new IllegalArgumentException("Loans and savings services must not be null");
+		}
+		if (ttlMillis < 1 || maxSize < 1) {
+			throw new IllegalArgumentException("TTL and max size must be greater than zero. TTL=" + ttlMillis
+					+ " Max size=" + maxSize);
+		}
+		this.loansService = loansService;
+		this.savingsService = savingsService;
+		this.cache = CacheBuilder.newBuilder().expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+				.maximumSize(maxSize).recordStats().build(new CacheLoader<Key, Object>() {
+					@Override
+					public Object load(Key key) throws MambuApiException {
+						return loadEntry(key);
+					}
+				});
+	}
+
+	/**
+	 * Get a loan product
+	 *
+	 * @param productId
+	 *            product ID or encoded key
+	 * @return loan product
+	 * @throws MambuApiException
+	 *             if the product is not cached and its request fails
+	 */
+	public LoanProduct getLoanProduct(String productId) throws MambuApiException {
+		if (productId == null) {
+			throw new IllegalArgumentException("Product ID must not be null");
+		}
+		return (LoanProduct) CacheUtils.get(cache, new Key(Kind.LOAN_PRODUCT, productId));
+	}
+
+	/**
+	 * Get all loan products
+	 *
+	 * @return unmodifiable list of all loan products
+	 * @throws MambuApiException
+	 *             if the products are not cached and a request fails
+	 */
+	@SuppressWarnings("unchecked")
+	public List<LoanProduct> getLoanProducts() throws MambuApiException {
+		return (List<LoanProduct>) CacheUtils.get(cache, new Key(Kind.ALL_LOAN_PRODUCTS, null));
+	}
+
+	/**
+	 * Get a savings product
+	 *
+	 * @param productId
+	 *            product ID or encoded key
+	 * @return savings product
+	 * @throws MambuApiException
+	 *             if the product is not cached and its request fails
+	 */
+	public SavingsProduct getSavingsProduct(String productId) throws MambuApiException {
+		if (productId == null) {
+			throw new IllegalArgumentException("Product ID must not be null");
+		}
+		return (SavingsProduct) CacheUtils.get(cache, new Key(Kind.SAVINGS_PRODUCT, productId));
+	}
+
+	/**
+	 * Get all savings products
+	 *
+	 * @return unmodifiable list of all savings products
+	 * @throws MambuApiException
+	 *             if the products are not cached and a request fails
+	 */
+	@SuppressWarnings("unchecked")
+	public List<SavingsProduct> getSavingsProducts() throws MambuApiException {
+		return (List<SavingsProduct>) CacheUtils.get(cache, new Key(Kind.ALL_SAVINGS_PRODUCTS, null));
+	}
+
+	/**
+	 * Invalidate a product, by its ID or encoded key, and the lists of all products
+	 *
+	 * @param productId
+	 *            product ID or encoded key
+	 */
+	public void invalidate(String productId) {
+		if (productId == null) {
+			throw new IllegalArgumentException("Product ID must not be null");
+		}
+		for (Map.Entry<Key, Object> entry : cache.asMap().entrySet()) {
+			Key key = entry.getKey();
+			Object value = entry.getValue();
+			boolean matches;
+			switch (key.kind) {
+			case LOAN_PRODUCT:
+				matches = productId.equals(key.productId) || productId.equals(((LoanProduct) value).getId())
+						|| productId.equals(((LoanProduct) value).getEncodedKey());
+				break;
+			case SAVINGS_PRODUCT:
+				matches = productId.equals(key.productId) || productId.equals(((SavingsProduct) value).getId())
+						|| productId.equals(((SavingsProduct) value).getEncodedKey());
+				break;
+			default:
+				matches = true;
+			}
+			if (matches) {
+				cache.invalidate(key);
+			}
+		}
+	}
+
+	/**
+	 * Invalidate all cached products
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Get the cache statistics: hits, misses, loads, load failures, load time and evictions
+	 *
+	 * @return statistics since the cache was created
+	 */
+	public CacheStats getStatistics() {
+		return cache.stats();
+	}
+
+	/**
+	 * Get the number of cached entries
+	 *
+	 * @return number of entries, including the expired entries not evicted yet
+	 */
+	public long size() {
+		return cache.size();
+	}
+
+	private Object loadEntry(Key key) throws MambuApiException {
+		switch (key.kind) {
+		case LOAN_PRODUCT:
+			return loansService.getLoanProduct(key.productId);
+		case SAVINGS_PRODUCT:
+			return savingsService.getSavingsProduct(key.productId);
+		case ALL_LOAN_PRODUCTS:
+			List<LoanProduct> loanProducts = new Paginator<LoanProduct>(new PageFetcher<LoanProduct>() {
+				@Override
+				public List<LoanProduct> getPage(int offset, int limit) throws MambuApiException {
+					return loansService.getLoanProducts(String.valueOf(offset), String.valueOf(limit));
+				}
+			}, PRODUCTS_PAGE_SIZE).getAll();
+			for (LoanProduct product : loanProducts) {
+				cacheProduct(Kind.LOAN_PRODUCT, product.getId(), product.getEncodedKey(), product);
+			}
+			return Collections.unmodifiableList(new ArrayList<LoanProduct>(loanProducts));
+		case ALL_SAVINGS_PRODUCTS:
+			List<SavingsProduct> savingsProducts = new Paginator<SavingsProduct>(new PageFetcher<SavingsProduct>() {
+				@Override
+				public List<SavingsProduct> getPage(int offset, int limit) throws MambuApiException {
+					return savingsService.getSavingsProducts(String.valueOf(offset), String.valueOf(limit));
+				}
+			}, PRODUCTS_PAGE_SIZE).getAll();
+			for (SavingsProduct product : savingsProducts) {
+				cacheProduct(Kind.SAVINGS_PRODUCT, product.getId(), product.getEncodedKey(), product);
+			}
+			return Collections.unmodifiableList(new ArrayList<SavingsProduct>(savingsProducts));
+		default:
+			throw new IllegalStateException("Unknown cache entry kind " + key.kind);
+		}
+	}
+
+	/**
+	 * Cache a product retrieved with the list of all products, by its ID and by its encoded key
+	 */
+	private void cacheProduct(Kind kind, String id, String encodedKey, Object product) {
+		if (id != null) {
+			cache.put(new Key(kind, id), product);
+		}
+		if (encodedKey != null) {
+			cache.put(new Key(kind, encodedKey), product);
+		}
+	}
+}
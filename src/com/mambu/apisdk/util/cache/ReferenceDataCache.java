@@ -0,0 +1,361 @@
+package com.mambu.apisdk.util.cache;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.mambu.accounts.shared.model.TransactionChannel;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.services.OrganizationService;
+import com.mambu.apisdk.services.UsersService;
+import com.mambu.apisdk.util.ConcurrencyUtils;
+import com.mambu.apisdk.util.pagination.PageFetcher;
+import com.mambu.apisdk.util.pagination.Paginator;
+import com.mambu.core.shared.model.Currency;
+import com.mambu.core.shared.model.CustomFieldSet;
+import com.mambu.core.shared.model.CustomFieldType;
+import com.mambu.core.shared.model.GeneralSettings;
+import com.mambu.core.shared.model.Role;
+import com.mambu.core.shared.model.User;
+import com.mambu.organization.shared.model.Branch;
+import com.mambu.organization.shared.model.Centre;
+
+/**
+ * ReferenceDataCache caches the organization reference data: currency, branches, centres, transaction channels,
+ * custom field sets, general settings, users and user roles. This data is small and changes rarely, but it is read
+ * for almost every screen or record processed.
+ *
+ * The cache is warmed once with {@link #warmUp()}, then serves all reads from memory. An entry older than the refresh
+ * interval is refreshed in the background on its next read (refresh-ahead): the read returns the current value at
+ * once and the following reads get the refreshed value. Entries never expire, so readers only block when an entry was
+ * never loaded, and a failed refresh keeps the current value until the next refresh.
+ *
+ * Example:
+ *
+ * ReferenceDataCache referenceData = factory.setUpReferenceDataCache(15 * 60 * 1000);
+ *
+ * Branch branch = referenceData.getBranch(client.getAssignedBranchKey());
+ */
+public class ReferenceDataCache implements Closeable {
+
+	// Page size for retrieving all branches, centres and users
+	private final static int PAGE_SIZE = 500;
+
+	private enum Kind {
+		CURRENCY, BRANCHES, BRANCH, CENTRES, TRANSACTION_CHANNELS, CUSTOM_FIELD_SETS, GENERAL_SETTINGS, USERS,
+		USER_ROLES
+	}
+
+	/**
+	 * Cache key: the kind of the entry and its parameter, the branch ID or the custom field type
+	 */
+	private static class Key {
+		private final Kind kind;
+		private final String param;
+
+		private Key(Kind kind, String param) {
+			this.kind = kind;
+			this.param = param;
+		}
+
+		@Override
+		public int hashCode() {
+			return kind.hashCode() * 31 + ((param == null) ? 0 : param.hashCode());
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return kind == other.kind && ((param == null) ? other.param == null : param.equals(other.param));
+		}
+	}
+
+	private final OrganizationService organizationService;
+	private final UsersService usersService;
+	private final ExecutorService refreshExecutor;
+	private final LoadingCache<Key, Object> cache;
+
+	/**
+	 * Create a reference data cache. The cache is empty until {@link #warmUp()} is called or the data is first read
+	 *
+	 * @param organizationService
+	 *            organization service. Must not be null
+	 * @param usersService
+	 *            users service. Must not be null
+	 * @param refreshMillis
+	 *            age of a cached entry, from the time it was loaded, after which its next read refreshes it in the
+	 *            background. Must be greater than zero
+	 */
+	public ReferenceDataCache(OrganizationService organizationService, UsersService usersService, long refreshMillis) {
+		if (organizationService == null || usersService == null) {
+			throw new IllegalArgumentException("Organization and users services must not be null");
+		}
+		if (refreshMillis < 1) {
+			throw new IllegalArgumentException("Refresh interval must be greater than zero. Interval=" + refreshMillis);
+		}
+		this.organizationService = organizationService;
+		this.usersService = usersService;
+		this.refreshExecutor = ConcurrencyUtils.newFixedThreadPool(1, "mambu-reference-data-refresh");
+		CacheLoader<Key, Object> loader = new CacheLoader<Key, Object>() {
+			@Override
+			public Object load(Key key) throws MambuApiException {
+				return loadEntry(key);
+			}
+		};
+		this.cache = CacheBuilder.newBuilder().refreshAfterWrite(refreshMillis, TimeUnit.MILLISECONDS).recordStats()
+				.build(CacheLoader.asyncReloading(loader, refreshExecutor));
+	}
+
+	/**
+	 * Load all the reference data concurrently, waiting for all the requests. Branch entries read by ID and custom
+	 * field sets of a single type are loaded on their first read
+	 *
+	 * @throws MambuApiException
+	 *             if a request fails
+	 */
+	public void warmUp() throws MambuApiException {
+		List<Key> keys = new ArrayList<Key>();
+		for (Kind kind : Kind.values()) {
+			if (kind != Kind.BRANCH) {
+				keys.add(new Key(kind, null));
+			}
+		}
+		ExecutorService warmUpExecutor = ConcurrencyUtils.newFixedThreadPool(keys.size(),
+				"mambu-reference-data-warm-up");
+		try {
+			List<Future<Object>> futures = new ArrayList<Future<Object>>();
+			for (final Key key : keys) {
+				futures.add(warmUpExecutor.submit(new Callable<Object>() {
+					@Override
+					public Object call() throws MambuApiException {
+						return CacheUtils.get(cache, key);
+					}
+				}));
+			}
+			for (Future<Object> future : futures) {
+				future.get();
+			}
+		} catch (ExecutionException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} catch (InterruptedException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} finally {
+			warmUpExecutor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Get the organization's base currency
+	 *
+	 * @return currency
+	 * @throws MambuApiException
+	 *             if the currency is not cached and its request fails
+	 */
+	public Currency getCurrency() throws MambuApiException {
+		return (Currency) CacheUtils.get(cache, new Key(Kind.CURRENCY, null));
+	}
+
+	/**
+	 * Get all branches
+	 *
+	 * @return unmodifiable list of all branches
+	 * @throws MambuApiException
+	 *             if the branches are not cached and a request fails
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Branch> getBranches() throws MambuApiException {
+		return (List<Branch>) CacheUtils.get(cache, new Key(Kind.BRANCHES, null));
+	}
+
+	/**
+	 * Get a branch. The branch is looked up in the list of all branches and, if it was created since that list was
+	 * loaded, requested on its own and cached
+	 *
+	 * @param branchId
+	 *            branch ID or encoded key
+	 * @return branch
+	 * @throws MambuApiException
+	 *             if the branch is not cached and its request fails
+	 */
+	public Branch getBranch(String branchId) throws MambuApiException {
+		if (branchId == null) {
+			throw new IllegalArgumentException("Branch ID must not be null");
+		}
+		for (Branch branch : getBranches()) {
+			if (branchId.equals(branch.getId()) || branchId.equals(branch.getEncodedKey())) {
+				return branch;
+			}
+		}
+		return (Branch) CacheUtils.get(cache, new Key(Kind.BRANCH, branchId));
+	}
+
+	/**
+	 * Get all centres
+	 *
+	 * @return unmodifiable list of all centres
+	 * @throws MambuApiException
+	 *             if the centres are not cached and a request fails
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Centre> getCentres() throws MambuApiException {
+		return (List<Centre>) CacheUtils.get(cache, new Key(Kind.CENTRES, null));
+	}
+
+	/**
+	 * Get all transaction channels
+	 *
+	 * @return unmodifiable list of transaction channels
+	 * @throws MambuApiException
+	 *             if the channels are not cached and their request fails
+	 */
+	@SuppressWarnings("unchecked")
+	public List<TransactionChannel> getTransactionChannels() throws MambuApiException {
+		return (List<TransactionChannel>) CacheUtils.get(cache, new Key(Kind.TRANSACTION_CHANNELS, null));
+	}
+
+	/**
+	 * Get the custom field sets of a type
+	 *
+	 * @param customFieldType
+	 *            custom field type. Null for the sets of all types
+	 * @return unmodifiable list of custom field sets
+	 * @throws MambuApiException
+	 *             if the sets are not cached and their request fails
+	 */
+	@SuppressWarnings("unchecked")
+	public List<CustomFieldSet> getCustomFieldSets(CustomFieldType customFieldType) throws MambuApiException {
+		String type = (customFieldType == null) ? null : customFieldType.name();
+		return (List<CustomFieldSet>) CacheUtils.get(cache, new Key(Kind.CUSTOM_FIELD_SETS, type));
+	}
+
+	/**
+	 * Get the organization's general settings
+	 *
+	 * @return general settings
+	 * @throws MambuApiException
+	 *             if the settings are not cached and their request fails
+	 */
+	public GeneralSettings getGeneralSettings() throws MambuApiException {
+		return (GeneralSettings) CacheUtils.get(cache, new Key(Kind.GENERAL_SETTINGS, null));
+	}
+
+	/**
+	 * Get all users
+	 *
+	 * @return unmodifiable list of all users
+	 * @throws MambuApiException
+	 *             if the users are not cached and a request fails
+	 */
+	@SuppressWarnings("unchecked")
+	public List<User> getUsers() throws MambuApiException {
+		return (List<User>) CacheUtils.get(cache, new Key(Kind.USERS, null));
+	}
+
+	/**
+	 * Get all user roles
+	 *
+	 * @return unmodifiable list of user roles
+	 * @throws MambuApiException
+	 *             if the roles are not cached and their request fails
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Role> getUserRoles() throws MambuApiException {
+		return (List<Role>) CacheUtils.get(cache, new Key(Kind.USER_ROLES, null));
+	}
+
+	/**
+	 * Refresh all cached entries in the background, for example after the reference data was changed. Reads keep
+	 * returning the current values until the refreshed values are loaded
+	 */
+	public void refreshAll() {
+		for (Key key : cache.asMap().keySet()) {
+			cache.refresh(key);
+		}
+	}
+
+	/**
+	 * Invalidate all cached entries. The next read of each entry waits for its request
+	 */
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * Get the cache statistics: hits, misses, loads, refreshes, load failures and load time
+	 *
+	 * @return statistics since the cache was created
+	 */
+	public CacheStats getStatistics() {
+		return cache.stats();
+	}
+
+	/**
+	 * Stop the background refreshes. The cached entries are still served but no longer refreshed
+	 */
+	@Override
+	public void close() {
+		refreshExecutor.shutdownNow();
+	}
+
+	private Object loadEntry(Key key) throws MambuApiException {
+		switch (key.kind) {
+		case CURRENCY:
+			return organizationService.getCurrency();
+		case BRANCHES:
+			return getAll(new PageFetcher<Branch>() {
+				@Override
+				public List<Branch> getPage(int offset, int limit) throws MambuApiException {
+					return organizationService.getBranches(String.valueOf(offset), String.valueOf(limit));
+				}
+			});
+		case BRANCH:
+			return organizationService.getBranch(key.param);
+		case CENTRES:
+			return getAll(new PageFetcher<Centre>() {
+				@Override
+				public List<Centre> getPage(int offset, int limit) throws MambuApiException {
+					return organizationService.getCentres(null, String.valueOf(offset), String.valueOf(limit));
+				}
+			});
+		case TRANSACTION_CHANNELS:
+			return unmodifiable(organizationService.getTransactionChannels());
+		case CUSTOM_FIELD_SETS:
+			CustomFieldType type = (key.param == null) ? null : CustomFieldType.valueOf(key.param);
+			return unmodifiable(organizationService.getCustomFieldSets(type));
+		case GENERAL_SETTINGS:
+			return organizationService.getGeneralSettings();
+		case USERS:
+			return getAll(new PageFetcher<User>() {
+				@Override
+				public List<User> getPage(int offset, int limit) throws MambuApiException {
+					return usersService.getUsers(String.valueOf(offset), String.valueOf(limit));
+				}
+			});
+		case USER_ROLES:
+			return unmodifiable(usersService.getUserRoles());
+		default:
+			throw new IllegalStateException("Unknown cache entry kind " + key.kind);
+		}
+	}
+
+	private static <T> List<T> getAll(PageFetcher<T> pageFetcher) throws MambuApiException {
+		return unmodifiable(new Paginator<T>(pageFetcher, PAGE_SIZE).getAll());
+	}
+
+	private static <T> List<T> unmodifiable(List<T> list) {
+		return (list == null) ? Collections.<T> emptyList() : Collections.unmodifiableList(new ArrayList<T>(list));
+	}
+}
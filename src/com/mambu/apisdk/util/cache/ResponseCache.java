@@ -0,0 +1,187 @@
+package com.mambu.apisdk.util.cache;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.mambu.apisdk.util.APIData;
+
+/**
+ * ResponseCache caches the responses to GET requests with their validators, the ETag and Last-Modified response
+ * headers, so a request for an unchanged entity is sent as a conditional request (If-None-Match, If-Modified-Since)
+ * and Mambu answers it with 304 Not Modified and no body. Responses without validators are not stored.
+ *
+ * Responses are keyed by the request URL with its parameters, as built by
+ * {@link com.mambu.apisdk.util.URLHelper#createUrlWithParams(String, com.mambu.apisdk.util.ParamsMap)}, before the
+ * application key is added. URLs carrying credentials, as user info or as a credential parameter, are never cached.
+ */
+public class ResponseCache {
+
+	public final static String ETAG = "ETag";
+	public final static String LAST_MODIFIED = "Last-Modified";
+	public final static String IF_NONE_MATCH = "If-None-Match";
+	public final static String IF_MODIFIED_SINCE = "If-Modified-Since";
+
+	// Names of the URL parameters carrying credentials, in lower case
+	private final static Set<String> CREDENTIAL_PARAMS = new HashSet<String>(Arrays.asList(APIData.APPLICATION_KEY,
+			"password", "apikey", "token", "access_token"));
+
+	private final ResponseCacheStore store;
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+
+	/**
+	 * Create a response cache
+	 *
+	 * @param store
+	 *            store for the cached responses, for example a {@link MemoryResponseCacheStore} or a
+	 *            {@link DiskResponseCacheStore}. Must not be null
+	 */
+	public ResponseCache(ResponseCacheStore store) {
+		if (store == null) {
+			throw new IllegalArgumentException("Response store must not be null");
+		}
+		this.store = store;
+	}
+
+	/**
+	 * Check if a URL may be used as a cache key: it must not carry credentials
+	 *
+	 * @param key
+	 *            request URL with its parameters
+	 * @return true if the response to the URL may be cached
+	 */
+	public static boolean isCacheable(String key) {
+		if (key == null) {
+			return false;
+		}
+		int authorityStart = key.indexOf("://");
+		authorityStart = (authorityStart == -1) ? 0 : authorityStart + 3;
+		int authorityEnd = key.indexOf('/', authorityStart);
+		String authority = (authorityEnd == -1) ? key.substring(authorityStart) : key.substring(authorityStart,
+				authorityEnd);
+		if (authority.contains("@")) {
+			return false;
+		}
+		int queryStart = key.indexOf('?');
+		if (queryStart == -1) {
+			return true;
+		}
+		for (String param : key.substring(queryStart + 1).split("&")) {
+			int nameEnd = param.indexOf('=');
+			String name = (nameEnd == -1) ? param : param.substring(0, nameEnd);
+			if (CREDENTIAL_PARAMS.contains(name.toLowerCase(Locale.ENGLISH))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the cached response for a URL
+	 *
+	 * @param key
+	 *            request URL with its parameters
+	 * @return cached response. Null if the response is not cached or the URL is not cacheable
+	 */
+	public CachedResponse get(String key) {
+		if (!isCacheable(key)) {
+			return null;
+		}
+		return store.get(key);
+	}
+
+	/**
+	 * Get the headers making the request for a cached response conditional
+	 *
+	 * @param cached
+	 *            cached response
+	 * @return header names and values
+	 */
+	public Map<String, String> getConditionalHeaders(CachedResponse cached) {
+		Map<String, String> headers = new LinkedHashMap<String, String>();
+		if (cached.getETag() != null) {
+			headers.put(IF_NONE_MATCH, cached.getETag());
+		}
+		if (cached.getLastModified() != null) {
+			headers.put(IF_MODIFIED_SINCE, cached.getLastModified());
+		}
+		return headers;
+	}
+
+	/**
+	 * Handle a 304 Not Modified response to a conditional request
+	 *
+	 * @param cached
+	 *            cached response the request was made for
+	 * @return cached response body
+	 */
+	public String notModified(CachedResponse cached) {
+		hitCount.incrementAndGet();
+		return cached.getBody();
+	}
+
+	/**
+	 * Store a successful response. A response without validators replaces nothing and removes the response cached for
+	 * the URL, since it can't be revalidated
+	 *
+	 * @param key
+	 *            request URL with its parameters
+	 * @param body
+	 *            response body
+	 * @param eTag
+	 *            value of the ETag response header. Null if not returned
+	 * @param lastModified
+	 *            value of the Last-Modified response header. Null if not returned
+	 */
+	public void put(String key, String body, String eTag, String lastModified) {
+		if (!isCacheable(key) || body == null) {
+			return;
+		}
+		missCount.incrementAndGet();
+		if (eTag == null && lastModified == null) {
+			store.remove(key);
+			return;
+		}
+		store.put(new CachedResponse(key, body, eTag, lastModified, System.currentTimeMillis()));
+	}
+
+	/**
+	 * Remove the cached response for a URL
+	 *
+	 * @param key
+	 *            request URL with its parameters
+	 */
+	public void remove(String key) {
+		store.remove(key);
+	}
+
+	/**
+	 * Remove all cached responses
+	 */
+	public void clear() {
+		store.clear();
+	}
+
+	/**
+	 * Get the number of requests answered with 304 Not Modified and served from the cache
+	 *
+	 * @return hit count since the cache was created
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * Get the number of cacheable requests answered with a full response
+	 *
+	 * @return miss count since the cache was created
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+}
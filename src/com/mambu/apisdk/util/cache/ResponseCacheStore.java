@@ -0,0 +1,38 @@
+package com.mambu.apisdk.util.cache;
+
+/**
+ * Storage of the responses cached by a {@link ResponseCache}. Implementations must be thread safe and must not throw
+ * when the storage fails: a response that can't be read is a cache miss
+ */
+public interface ResponseCacheStore {
+
+	/**
+	 * Get a stored response
+	 *
+	 * @param key
+	 *            cache key
+	 * @return stored response. Null if not stored
+	 */
+	CachedResponse get(String key);
+
+	/**
+	 * Store a response, replacing the response stored with the same key
+	 *
+	 * @param response
+	 *            response to store
+	 */
+	void put(CachedResponse response);
+
+	/**
+	 * Remove a stored response
+	 *
+	 * @param key
+	 *            cache key
+	 */
+	void remove(String key);
+
+	/**
+	 * Remove all stored responses
+	 */
+	void clear();
+}
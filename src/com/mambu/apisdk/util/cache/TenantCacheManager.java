@@ -0,0 +1,392 @@
+package com.mambu.apisdk.util.cache;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.cache.Weigher;
+import com.mambu.apisdk.util.cache.CacheStorage.RemovalHandler;
+
+/**
+ * TenantCacheManager holds the cached responses of many tenants in one memory budget. Applications running a
+ * {@link com.mambu.apisdk.MambuAPIServiceFactory} per tenant create each tenant's entity cache, not found cache and
+ * response cache store with the manager: they are partitions of a single cache, keyed by the tenant's domain (the
+ * factory's @Domain binding), instead of independent caches each sized for the worst case.
+ *
+ * Entries are weighed by their estimated heap size. When the budget is exceeded the least recently used entries are
+ * evicted, whichever tenant they belong to, so busy tenants get more of the budget and idle tenants give it back. An
+ * expired entry is removed when it is read, or evicted first as it is no longer used. Statistics and the used bytes
+ * are kept per tenant.
+ *
+ * The entity caches and not found caches find the entries of an invalidated entity with an index: writes don't scan
+ * the shared cache.
+ *
+ * Example:
+ *
+ * TenantCacheManager cacheManager = new TenantCacheManager(256 * 1024 * 1024);
+ *
+ * factory.setEntityCache(cacheManager.newEntityCache(factory.getDomain(), 60000).addEntityType(
+ * MambuEntityType.CLIENT));
+ */
+public class TenantCacheManager {
+
+	// Estimated bytes of an entry besides its key and value strings: the key, entry and Guava bookkeeping objects
+	private final static int ENTRY_OVERHEAD = 128;
+
+	/**
+	 * Key of an entry in the shared cache: the partition holding it and its key within the partition
+	 */
+	private static class PartitionKey {
+		private final Partition<?> partition;
+		private final String key;
+
+		private PartitionKey(Partition<?> partition, String key) {
+			this.partition = partition;
+			this.key = key;
+		}
+
+		@Override
+		public int hashCode() {
+			return System.identityHashCode(partition) * 31 + key.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof PartitionKey)) {
+				return false;
+			}
+			PartitionKey other = (PartitionKey) obj;
+			return partition == other.partition && key.equals(other.key);
+		}
+	}
+
+	/**
+	 * Value of an entry in the shared cache, with its weight and expiry time
+	 */
+	private static class WeighedValue {
+		private final Object value;
+		private final int weight;
+		private final long expiresAtMillis;
+
+		private WeighedValue(Object value, int weight, long expiresAtMillis) {
+			this.value = value;
+			this.weight = weight;
+			this.expiresAtMillis = expiresAtMillis;
+		}
+	}
+
+	/**
+	 * A tenant's partition of the shared cache, used as the storage of one cache
+	 */
+	private class Partition<V> implements CacheStorage<V> {
+		private final String domain;
+		private final long ttlMillis;
+		private final Weigher<String, V> weigher;
+		private final RemovalHandler<V> removalHandler;
+
+		private final AtomicLong hitCount = new AtomicLong();
+		private final AtomicLong missCount = new AtomicLong();
+		private final AtomicLong evictionCount = new AtomicLong();
+		private final AtomicLong weight = new AtomicLong();
+		private final AtomicLong size = new AtomicLong();
+
+		private Partition(String domain, long ttlMillis, Weigher<String, V> weigher, RemovalHandler<V> removalHandler) {
+			this.domain = domain;
+			this.ttlMillis = ttlMillis;
+			this.weigher = weigher;
+			this.removalHandler = removalHandler;
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public V get(String key) {
+			PartitionKey partitionKey = new PartitionKey(this, key);
+			WeighedValue weighed = cache.getIfPresent(partitionKey);
+			if (weighed != null && weighed.expiresAtMillis <= System.currentTimeMillis()) {
+				if (cache.asMap().remove(partitionKey, weighed)) {
+					evictionCount.incrementAndGet();
+				}
+				weighed = null;
+			}
+			if (weighed == null) {
+				missCount.incrementAndGet();
+				return null;
+			}
+			hitCount.incrementAndGet();
+			return (V) weighed.value;
+		}
+
+		@Override
+		public void put(String key, V value) {
+			long entryWeight = ENTRY_OVERHEAD + CacheUtils.estimateSize(key) + (long) weigher.weigh(key, value);
+			if (entryWeight > maxBytes) {
+				// Would evict everything else and be evicted right away
+				invalidate(key);
+				return;
+			}
+			long expiresAtMillis = (ttlMillis > 0) ? System.currentTimeMillis() + ttlMillis : Long.MAX_VALUE;
+			WeighedValue weighed = new WeighedValue(value, (int) entryWeight, expiresAtMillis);
+			// Counted before the entry is added, as the removal listener may run right away
+			weight.addAndGet(weighed.weight);
+			size.incrementAndGet();
+			cache.put(new PartitionKey(this, key), weighed);
+		}
+
+		@Override
+		public void invalidate(String key) {
+			cache.invalidate(new PartitionKey(this, key));
+		}
+
+		@Override
+		public void invalidateAll() {
+			for (PartitionKey partitionKey : cache.asMap().keySet()) {
+				if (partitionKey.partition == this) {
+					cache.invalidate(partitionKey);
+				}
+			}
+		}
+
+		@Override
+		public long size() {
+			return size.get();
+		}
+
+		@Override
+		public CacheStats stats() {
+			return new CacheStats(hitCount.get(), missCount.get(), 0, 0, 0, evictionCount.get());
+		}
+
+		@SuppressWarnings("unchecked")
+		private void removed(PartitionKey partitionKey, WeighedValue weighed, RemovalCause cause) {
+			weight.addAndGet(-weighed.weight);
+			size.decrementAndGet();
+			if (cause == RemovalCause.SIZE) {
+				evictionCount.incrementAndGet();
+			}
+			if (removalHandler != null) {
+				removalHandler.handleRemoval(partitionKey.key, (V) weighed.value, cause == RemovalCause.REPLACED);
+			}
+		}
+	}
+
+	/**
+	 * {@link ResponseCacheStore} storing the responses in a partition
+	 */
+	private static class PartitionResponseCacheStore implements ResponseCacheStore {
+		private final CacheStorage<CachedResponse> storage;
+
+		private PartitionResponseCacheStore(CacheStorage<CachedResponse> storage) {
+			this.storage = storage;
+		}
+
+		@Override
+		public CachedResponse get(String key) {
+			return storage.get(key);
+		}
+
+		@Override
+		public void put(CachedResponse response) {
+			storage.put(response.getKey(), response);
+		}
+
+		@Override
+		public void remove(String key) {
+			storage.invalidate(key);
+		}
+
+		@Override
+		public void clear() {
+			storage.invalidateAll();
+		}
+	}
+
+	private final static Weigher<String, CachedResponse> RESPONSE_WEIGHER = new Weigher<String, CachedResponse>() {
+		@Override
+		public int weigh(String key, CachedResponse response) {
+			// The response's key is the same string as the entry's key
+			return CacheUtils.estimateSize(response.getBody()) + CacheUtils.estimateSize(response.getETag())
+					+ CacheUtils.estimateSize(response.getLastModified());
+		}
+	};
+
+	private final long maxBytes;
+	private final Cache<PartitionKey, WeighedValue> cache;
+	private final List<Partition<?>> partitions = new CopyOnWriteArrayList<Partition<?>>();
+
+	/**
+	 * Create a cache manager
+	 *
+	 * @param maxBytes
+	 *            memory budget of all the cached entries, in estimated bytes. Must be greater than zero
+	 */
+	public TenantCacheManager(long maxBytes) {
+		if (maxBytes < 1) {
+			throw new IllegalArgumentException("Max bytes must be greater than zero. Max bytes=" + maxBytes);
+		}
+		this.maxBytes = maxBytes;
+		this.cache = CacheBuilder.newBuilder().maximumWeight(maxBytes)
+				.weigher(new Weigher<PartitionKey, WeighedValue>() {
+					@Override
+					public int weigh(PartitionKey key, WeighedValue value) {
+						return value.weight;
+					}
+				}).removalListener(new RemovalListener<PartitionKey, WeighedValue>() {
+					@Override
+					public void onRemoval(RemovalNotification<PartitionKey, WeighedValue> notification) {
+						notification.getKey().partition.removed(notification.getKey(), notification.getValue(),
+								notification.getCause());
+					}
+				}).build();
+	}
+
+	/**
+	 * Create an entity cache for a tenant, stored in this manager's memory budget. See {@link EntityCache}
+	 *
+	 * @param domain
+	 *            tenant's domain. Must not be null
+	 * @param ttlMillis
+	 *            time to live of a cached response, from the time it was received. Must be greater than zero
+	 * @return entity cache, with no entity type added
+	 */
+	public EntityCache newEntityCache(String domain, long ttlMillis) {
+		return new EntityCache(this, domain, ttlMillis);
+	}
+
+	/**
+	 * Create a not found cache for a tenant, stored in this manager's memory budget. See {@link NotFoundCache}
+	 *
+	 * @param domain
+	 *            tenant's domain. Must not be null
+	 * @param ttlMillis
+	 *            time to live of a not found result. Must be greater than zero
+	 * @return not found cache, with no entity type added
+	 */
+	public NotFoundCache newNotFoundCache(String domain, long ttlMillis) {
+		return new NotFoundCache(this, domain, ttlMillis);
+	}
+
+	/**
+	 * Create a response cache store for a tenant, stored in this manager's memory budget. See {@link ResponseCache}
+	 *
+	 * @param domain
+	 *            tenant's domain. Must not be null
+	 * @return response cache store
+	 */
+	public ResponseCacheStore newResponseCacheStore(String domain) {
+		return new PartitionResponseCacheStore(newPartition(domain, 0, RESPONSE_WEIGHER, null));
+	}
+
+	/**
+	 * Get the tenant's cache statistics: hits, misses and evictions of all its caches
+	 *
+	 * @param domain
+	 *            tenant's domain
+	 * @return statistics since the tenant's caches were created
+	 */
+	public CacheStats getStatistics(String domain) {
+		CacheStats stats = new CacheStats(0, 0, 0, 0, 0, 0);
+		for (Partition<?> partition : partitions) {
+			if (partition.domain.equals(domain)) {
+				stats = stats.plus(partition.stats());
+			}
+		}
+		return stats;
+	}
+
+	/**
+	 * Get the memory used by the tenant's cached entries
+	 *
+	 * @param domain
+	 *            tenant's domain
+	 * @return estimated bytes
+	 */
+	public long getWeight(String domain) {
+		long weight = 0;
+		for (Partition<?> partition : partitions) {
+			if (partition.domain.equals(domain)) {
+				weight += partition.weight.get();
+			}
+		}
+		return weight;
+	}
+
+	/**
+	 * Get the memory used by all the cached entries
+	 *
+	 * @return estimated bytes, never more than the budget once pending evictions are done
+	 */
+	public long getWeight() {
+		long weight = 0;
+		for (Partition<?> partition : partitions) {
+			weight += partition.weight.get();
+		}
+		return weight;
+	}
+
+	/**
+	 * Get the memory budget
+	 *
+	 * @return estimated bytes
+	 */
+	public long getMaxWeight() {
+		return maxBytes;
+	}
+
+	/**
+	 * Get the domains of the tenants with caches in this manager
+	 *
+	 * @return set of domains, in the order their first cache was created
+	 */
+	public Set<String> getDomains() {
+		Set<String> domains = new LinkedHashSet<String>();
+		for (Partition<?> partition : partitions) {
+			domains.add(partition.domain);
+		}
+		return domains;
+	}
+
+	/**
+	 * Remove all the entries cached for a tenant, freeing its part of the budget
+	 *
+	 * @param domain
+	 *            tenant's domain
+	 */
+	public void invalidateAll(String domain) {
+		for (PartitionKey partitionKey : cache.asMap().keySet()) {
+			if (partitionKey.partition.domain.equals(domain)) {
+				cache.invalidate(partitionKey);
+			}
+		}
+	}
+
+	/**
+	 * Create a tenant's partition, the storage of one cache
+	 *
+	 * @param domain
+	 *            tenant's domain. Must not be null
+	 * @param ttlMillis
+	 *            time to live of an entry. Zero for entries that don't expire
+	 * @param weigher
+	 *            weigher estimating the bytes of a value
+	 * @param removalHandler
+	 *            handler notified of the removed values. Null for none
+	 * @return storage
+	 */
+	<V> CacheStorage<V> newPartition(String domain, long ttlMillis, Weigher<String, V> weigher,
+			RemovalHandler<V> removalHandler) {
+		if (domain == null) {
+			throw new IllegalArgumentException("Domain must not be null");
+		}
+		Partition<V> partition = new Partition<V>(domain, ttlMillis, weigher, removalHandler);
+		partitions.add(partition);
+		return partition;
+	}
+}
@@ -0,0 +1,203 @@
+package com.mambu.apisdk.util.pagination;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * CheckpointedScan retrieves all pages of a paginated API request sequentially and periodically persists its progress
+ * to a checkpoint file (see {@link ScanCheckpoint}), so that a scan interrupted by a failure or a killed job resumes
+ * where it stopped instead of starting again from offset zero.
+ *
+ * The checkpoint holds the scan definition, the offset of the next entity to process and the key of the last processed
+ * entity. When resuming, the scan requests the page starting one entity before the checkpoint offset and verifies that
+ * it starts with the last processed entity. If entities were inserted before the checkpoint position, the scan skips
+ * up to the last processed entity found in the page. If the last processed entity is not found, the scanned entities
+ * have changed in a way which does not allow to resume safely and the scan fails. For a stable order, the filter
+ * constraints should sort the entities by a field which does not change, such as the creation date.
+ *
+ * The checkpoint is saved after the page handler has processed the pages, so with the default checkpoint interval of
+ * one page, only the page being processed when the job stopped is delivered again after resuming.
+ *
+ * Example: export all loan transactions matching filter constraints
+ *
+ * CheckpointedScan<LoanTransaction> scan = loansService.makeLoanTransactionsScan(filter, 500, checkpointFile);
+ *
+ * scan.scan(pageHandler);
+ */
+public class CheckpointedScan<T> {
+
+	private final PageFetcher<T> pageFetcher;
+	private final int pageSize;
+	private final File checkpointFile;
+	private final String scanDefinition;
+	private final EntityKeyExtractor<T> keyExtractor;
+	// Number of pages processed between checkpoints
+	private int checkpointInterval = 1;
+
+	/**
+	 * Create a checkpointed scan
+	 *
+	 * @param pageFetcher
+	 *            page fetcher. Must not be null
+	 * @param pageSize
+	 *            page size (limit) used for all page requests. Must be greater than zero
+	 * @param checkpointFile
+	 *            file to persist the checkpoint to. Must not be null
+	 * @param scanDefinition
+	 *            string defining the scan, for example the filter constraints JSON. A checkpoint file saved for a
+	 *            different scan definition is rejected. Must not be null
+	 * @param keyExtractor
+	 *            extractor of the unique entity keys. Must not be null
+	 */
+	public CheckpointedScan(PageFetcher<T> pageFetcher, int pageSize, File checkpointFile, String scanDefinition,
+			EntityKeyExtractor<T> keyExtractor) {
+		if (pageFetcher == null || checkpointFile == null || scanDefinition == null || keyExtractor == null) {
+			throw new IllegalArgumentException(
+					"Page fetcher, checkpoint file, scan definition and key extractor must not be null");
+		}
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be greater than zero. It is " + pageSize);
+		}
+		this.pageFetcher = pageFetcher;
+		this.pageSize = pageSize;
+		this.checkpointFile = checkpointFile;
+		this.scanDefinition = scanDefinition;
+		this.keyExtractor = keyExtractor;
+	}
+
+	/**
+	 * Set how often the checkpoint is saved
+	 *
+	 * @param checkpointInterval
+	 *            number of pages processed between checkpoints. Must be greater than zero. Default is 1
+	 */
+	public void setCheckpointInterval(int checkpointInterval) {
+		if (checkpointInterval < 1) {
+			throw new IllegalArgumentException("Checkpoint interval must be greater than zero. It is "
+					+ checkpointInterval);
+		}
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public File getCheckpointFile() {
+		return checkpointFile;
+	}
+
+	/**
+	 * Get the saved checkpoint
+	 *
+	 * @return checkpoint or null if no checkpoint was saved
+	 * @throws MambuApiException
+	 *             if the checkpoint file cannot be read
+	 */
+	public ScanCheckpoint getCheckpoint() throws MambuApiException {
+		return ScanCheckpoint.load(checkpointFile);
+	}
+
+	/**
+	 * Delete the checkpoint, so that the next scan starts from offset zero
+	 */
+	public void reset() {
+		checkpointFile.delete();
+	}
+
+	/**
+	 * Scan all pages from the saved checkpoint, or from offset zero if there is no checkpoint, and deliver them to the
+	 * page handler. A completed scan is not repeated until the checkpoint is reset
+	 *
+	 * @param handler
+	 *            handler for the retrieved pages. Must not be null
+	 * @return the final checkpoint
+	 * @throws MambuApiException
+	 *             if a page request or the page handler fails, or if the scan cannot be resumed. The progress made
+	 *             before the failure is saved
+	 */
+	public ScanCheckpoint scan(PageHandler<T> handler) throws MambuApiException {
+		if (handler == null) {
+			throw new IllegalArgumentException("Page handler must not be null");
+		}
+		ScanCheckpoint checkpoint = ScanCheckpoint.load(checkpointFile);
+		if (checkpoint == null) {
+			checkpoint = new ScanCheckpoint(scanDefinition);
+		} else if (!scanDefinition.equals(checkpoint.getScanDefinition())) {
+			throw new IllegalArgumentException("Checkpoint file " + checkpointFile + " belongs to a different scan");
+		}
+		if (checkpoint.isCompleted()) {
+			return checkpoint;
+		}
+
+		// Verify the position of the last processed entity on the first page after resuming
+		boolean resuming = checkpoint.getLastSeenKey() != null && checkpoint.getOffset() > 0;
+		int pagesSinceCheckpoint = 0;
+		try {
+			while (true) {
+				int fetchOffset = resuming ? checkpoint.getOffset() - 1 : checkpoint.getOffset();
+				List<T> page = pageFetcher.getPage(fetchOffset, pageSize);
+				if (page == null) {
+					page = new ArrayList<T>();
+				}
+
+				int skipped = 0;
+				if (resuming) {
+					skipped = indexOf(page, checkpoint.getLastSeenKey()) + 1;
+					if (skipped == 0) {
+						throw new MambuApiException(-1, "Cannot resume the scan: the last processed entity "
+								+ checkpoint.getLastSeenKey() + " was not found at offset " + fetchOffset);
+					}
+					resuming = false;
+				}
+
+				int entitiesOffset = fetchOffset + skipped;
+				List<T> entities = page.subList(skipped, page.size());
+				if (!entities.isEmpty()) {
+					handler.handlePage(entitiesOffset, entities);
+					String lastKey = keyExtractor.getKey(entities.get(entities.size() - 1));
+					checkpoint.advance(entitiesOffset + entities.size(), entities.size(), lastKey);
+					pagesSinceCheckpoint++;
+				} else {
+					// Nothing left on the page after the last processed entity
+					checkpoint.advance(entitiesOffset, 0, checkpoint.getLastSeenKey());
+				}
+
+				// A short page is the last one
+				if (page.size() < pageSize) {
+					checkpoint.setCompleted(true);
+					checkpoint.save(checkpointFile);
+					pagesSinceCheckpoint = 0;
+					return checkpoint;
+				}
+				if (pagesSinceCheckpoint >= checkpointInterval) {
+					checkpoint.save(checkpointFile);
+					pagesSinceCheckpoint = 0;
+				}
+			}
+		} catch (Throwable e) {
+			// Keep the progress made before the failure, without hiding the failure
+			if (pagesSinceCheckpoint > 0) {
+				try {
+					checkpoint.save(checkpointFile);
+				} catch (MambuApiException saveException) {
+					e.addSuppressed(saveException);
+				}
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Get the index of the entity with the specified key in the page
+	 *
+	 * @return index or -1 if not found
+	 */
+	private int indexOf(List<T> page, String key) {
+		for (int i = 0; i < page.size(); i++) {
+			if (key.equals(keyExtractor.getKey(page.get(i)))) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
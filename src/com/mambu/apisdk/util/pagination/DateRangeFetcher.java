@@ -0,0 +1,29 @@
+package com.mambu.apisdk.util.pagination;
+
+import java.util.Date;
+import java.util.List;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * DateRangeFetcher retrieves one page of the entities with a date (for example the creation date) within a date range.
+ * Used by {@link DateShardedScan} to page through each date window independently
+ */
+public interface DateRangeFetcher<T> {
+
+	/**
+	 * Get a page of entities with the date between 'fromDay' and 'toDay', both days included
+	 *
+	 * @param fromDay
+	 *            first day of the range
+	 * @param toDay
+	 *            last day of the range
+	 * @param offset
+	 *            offset within the range
+	 * @param limit
+	 *            maximum number of entities to return
+	 * @return page entities
+	 * @throws MambuApiException
+	 */
+	public List<T> getPage(Date fromDay, Date toDay, int offset, int limit) throws MambuApiException;
+}
@@ -0,0 +1,321 @@
+package com.mambu.apisdk.util.pagination;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ConcurrencyUtils;
+
+/**
+ * DateShardedScan retrieves all entities within a date range by splitting the range into date windows and paging
+ * through each window independently, with a bounded number of windows retrieved concurrently. This avoids the deep
+ * offsets of paging through one large result set, which are slow to serve.
+ *
+ * Windows are made of whole days. Before paging through a window spanning more than one day, the scan checks whether
+ * the window holds more than 'maxWindowEntities' entities. Such a hot window is split in two halves, which are then
+ * checked and retrieved in the same way. Windows of a single day are never split.
+ *
+ * Example: get all loan accounts created in 2015, starting with 12 windows retrieved by 4 concurrent requests
+ *
+ * DateShardedScan<LoanAccount> scan = new DateShardedScan<LoanAccount>(dateRangeFetcher, 500, 4);
+ *
+ * List<LoanAccount> accounts = scan.getAll(startOf2015, endOf2015, 12);
+ */
+public class DateShardedScan<T> {
+
+	/**
+	 * WindowHandler receives all entities of a date window
+	 */
+	public interface WindowHandler<T> {
+
+		/**
+		 * Handle the entities of a retrieved window
+		 *
+		 * @param fromDay
+		 *            first day of the window
+		 * @param toDay
+		 *            last day of the window
+		 * @param entities
+		 *            all entities within the window, in the API order
+		 * @throws MambuApiException
+		 */
+		public void handleWindow(Date fromDay, Date toDay, List<T> entities) throws MambuApiException;
+	}
+
+	private final static String THREAD_NAME_PREFIX = "mambu-shards";
+	private final static int DEFAULT_MAX_WINDOW_ENTITIES = 5000;
+	private final static long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+	private final DateRangeFetcher<T> fetcher;
+	private final int pageSize;
+	private final int concurrency;
+	// Optional executor provided by the caller. If null, a thread pool is created for each scan
+	private final ExecutorService executor;
+	private int maxWindowEntities = DEFAULT_MAX_WINDOW_ENTITIES;
+
+	/**
+	 * Create a date sharded scan using its own thread pool for each scan
+	 *
+	 * @param fetcher
+	 *            date range fetcher. Must not be null
+	 * @param pageSize
+	 *            page size (limit) used for all page requests. Must be greater than zero
+	 * @param concurrency
+	 *            maximum number of windows retrieved concurrently. Must be greater than zero
+	 */
+	public DateShardedScan(DateRangeFetcher<T> fetcher, int pageSize, int concurrency) {
+		this(fetcher, pageSize, concurrency, null);
+	}
+
+	/**
+	 * Create a date sharded scan using the provided executor service
+	 *
+	 * @param fetcher
+	 *            date range fetcher. Must not be null
+	 * @param pageSize
+	 *            page size (limit) used for all page requests. Must be greater than zero
+	 * @param concurrency
+	 *            maximum number of windows retrieved concurrently. Must be greater than zero
+	 * @param executor
+	 *            executor service to run window requests. Optional. If null, a thread pool is created for each scan.
+	 *            The provided executor is not shut down by the scan
+	 */
+	public DateShardedScan(DateRangeFetcher<T> fetcher, int pageSize, int concurrency, ExecutorService executor) {
+		if (fetcher == null) {
+			throw new IllegalArgumentException("Date range fetcher must not be null");
+		}
+		if (pageSize < 1 || concurrency < 1) {
+			throw new IllegalArgumentException("Page size and concurrency must be greater than zero. Page size="
+					+ pageSize + " Concurrency=" + concurrency);
+		}
+		this.fetcher = fetcher;
+		this.pageSize = pageSize;
+		this.concurrency = concurrency;
+		this.executor = executor;
+	}
+
+	/**
+	 * Set the number of entities above which a window spanning more than one day is split
+	 *
+	 * @param maxWindowEntities
+	 *            maximum number of entities per window. Must be greater than zero. Default is 5000
+	 */
+	public void setMaxWindowEntities(int maxWindowEntities) {
+		if (maxWindowEntities < 1) {
+			throw new IllegalArgumentException("Max window entities must be greater than zero. It is "
+					+ maxWindowEntities);
+		}
+		this.maxWindowEntities = maxWindowEntities;
+	}
+
+	public int getMaxWindowEntities() {
+		return maxWindowEntities;
+	}
+
+	/**
+	 * Get all entities within the date range
+	 *
+	 * @param fromDate
+	 *            start of the date range. Only the day is used
+	 * @param toDate
+	 *            end of the date range, included. Only the day is used
+	 * @param shards
+	 *            number of windows to split the range into initially. Must be greater than zero
+	 * @return all entities ordered by window, in the API order within each window
+	 * @throws MambuApiException
+	 */
+	public List<T> getAll(Date fromDate, Date toDate, int shards) throws MambuApiException {
+		final TreeMap<Date, List<T>> windows = new TreeMap<Date, List<T>>();
+		scan(fromDate, toDate, shards, new WindowHandler<T>() {
+			@Override
+			public void handleWindow(Date fromDay, Date toDay, List<T> entities) {
+				windows.put(fromDay, entities);
+			}
+		});
+		List<T> all = new ArrayList<T>();
+		for (List<T> entities : windows.values()) {
+			all.addAll(entities);
+		}
+		return all;
+	}
+
+	/**
+	 * Retrieve all entities within the date range and deliver them to the window handler as each window is retrieved.
+	 * The handler is invoked on the calling thread
+	 *
+	 * @param fromDate
+	 *            start of the date range. Only the day is used
+	 * @param toDate
+	 *            end of the date range, included. Only the day is used
+	 * @param shards
+	 *            number of windows to split the range into initially. Must be greater than zero
+	 * @param handler
+	 *            handler for the retrieved windows. Must not be null
+	 * @throws MambuApiException
+	 *             if any request fails or if the handler throws. All outstanding window requests are cancelled
+	 */
+	public void scan(Date fromDate, Date toDate, int shards, WindowHandler<T> handler) throws MambuApiException {
+		if (fromDate == null || toDate == null || handler == null) {
+			throw new IllegalArgumentException("Dates and window handler must not be null");
+		}
+		if (shards < 1) {
+			throw new IllegalArgumentException("Shards must be greater than zero. It is " + shards);
+		}
+		Calendar firstDay = startOfDay(fromDate);
+		int days = (int) Math.round((startOfDay(toDate).getTimeInMillis() - firstDay.getTimeInMillis())
+				/ (double) MILLIS_PER_DAY) + 1;
+		if (days < 1) {
+			throw new IllegalArgumentException("The end date must not be before the start date");
+		}
+
+		ExecutorService pool = (executor != null) ? executor : ConcurrencyUtils.newFixedThreadPool(concurrency,
+				THREAD_NAME_PREFIX);
+		CompletionService<WindowResult> completionService = new ExecutorCompletionService<WindowResult>(pool);
+		Set<Future<WindowResult>> outstanding = new HashSet<Future<WindowResult>>();
+
+		try {
+			int windows = Math.min(shards, days);
+			for (int i = 0; i < windows; i++) {
+				Window window = new Window(firstDay, i * days / windows, (i + 1) * days / windows - 1);
+				outstanding.add(completionService.submit(new WindowRequest(window)));
+			}
+			while (!outstanding.isEmpty()) {
+				Future<WindowResult> future = completionService.take();
+				outstanding.remove(future);
+				WindowResult result = future.get();
+				if (result.entities == null) {
+					// Hot window: retrieve its halves instead
+					for (Window half : result.window.split()) {
+						outstanding.add(completionService.submit(new WindowRequest(half)));
+					}
+				} else {
+					handler.handleWindow(result.window.fromDay(), result.window.toDay(), result.entities);
+				}
+			}
+		} catch (ExecutionException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} catch (InterruptedException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} finally {
+			for (Future<WindowResult> future : outstanding) {
+				future.cancel(true);
+			}
+			if (executor == null) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	private static Calendar startOfDay(Date date) {
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTime(date);
+		calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		return calendar;
+	}
+
+	/**
+	 * Date window of whole days, defined by day indexes relative to the first day of the scan
+	 */
+	private static class Window {
+		private final Calendar firstDay;
+		private final int fromIndex;
+		private final int toIndex;
+
+		private Window(Calendar firstDay, int fromIndex, int toIndex) {
+			this.firstDay = firstDay;
+			this.fromIndex = fromIndex;
+			this.toIndex = toIndex;
+		}
+
+		private Date fromDay() {
+			return day(fromIndex);
+		}
+
+		private Date toDay() {
+			return day(toIndex);
+		}
+
+		private Date day(int index) {
+			Calendar calendar = (Calendar) firstDay.clone();
+			calendar.add(Calendar.DAY_OF_MONTH, index);
+			return calendar.getTime();
+		}
+
+		private boolean isSingleDay() {
+			return fromIndex == toIndex;
+		}
+
+		private Window[] split() {
+			int middle = (fromIndex + toIndex) / 2;
+			return new Window[] { new Window(firstDay, fromIndex, middle), new Window(firstDay, middle + 1, toIndex) };
+		}
+	}
+
+	/**
+	 * Retrieved window. The entities are null for a window which must be split
+	 */
+	private class WindowResult {
+		private final Window window;
+		private final List<T> entities;
+
+		private WindowResult(Window window, List<T> entities) {
+			this.window = window;
+			this.entities = entities;
+		}
+	}
+
+	/**
+	 * Window request task: checks the window density and pages through the window if it is not too dense
+	 */
+	private class WindowRequest implements Callable<WindowResult> {
+		private final Window window;
+
+		private WindowRequest(Window window) {
+			this.window = window;
+		}
+
+		@Override
+		public WindowResult call() throws MambuApiException {
+			Date fromDay = window.fromDay();
+			Date toDay = window.toDay();
+			if (!window.isSingleDay()) {
+				// Any entity past the maximum window size means the window is hot
+				List<T> probe = fetcher.getPage(fromDay, toDay, maxWindowEntities, 1);
+				if (probe != null && !probe.isEmpty()) {
+					return new WindowResult(window, null);
+				}
+			}
+			List<T> entities = new ArrayList<T>();
+			int offset = 0;
+			while (true) {
+				if (Thread.currentThread().isInterrupted()) {
+					throw ConcurrencyUtils.toMambuApiException(new InterruptedException());
+				}
+				List<T> page = fetcher.getPage(fromDay, toDay, offset, pageSize);
+				if (page == null) {
+					break;
+				}
+				entities.addAll(page);
+				if (page.size() < pageSize) {
+					break;
+				}
+				offset += pageSize;
+			}
+			return new WindowResult(window, entities);
+		}
+	}
+}
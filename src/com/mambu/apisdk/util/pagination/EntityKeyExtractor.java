@@ -0,0 +1,19 @@
+package com.mambu.apisdk.util.pagination;
+
+/**
+ * EntityKeyExtractor returns a key uniquely identifying an entity, for example its encoded key. Used by
+ * {@link CheckpointedScan} to verify the position a scan resumes from, by
+ * {@link com.mambu.apisdk.util.bulk.BulkFetcher} to match the entities returned by a search to the searched ids, and
+ * by {@link com.mambu.apisdk.util.bulk.PipelineExecutor} to identify the items of a resumed run
+ */
+public interface EntityKeyExtractor<T> {
+
+	/**
+	 * Get the entity key
+	 *
+	 * @param entity
+	 *            entity
+	 * @return key uniquely identifying the entity
+	 */
+	public String getKey(T entity);
+}
@@ -0,0 +1,32 @@
+package com.mambu.apisdk.util.pagination;
+
+import java.util.List;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * PageFetcher retrieves one page of Mambu entities for the given offset and limit. It is the adapter between the
+ * paginators in this package and the paginated API methods of the service classes. For example, to page through loan
+ * accounts matching filter constraints:
+ *
+ * new PageFetcher<LoanAccount>() { public List<LoanAccount> getPage(int offset, int limit) throws MambuApiException {
+ * return loansService.getLoanAccounts(filterConstraints, String.valueOf(offset), String.valueOf(limit)); } };
+ *
+ * Implementations may be invoked concurrently from several threads by the parallel paginators and must therefore not
+ * keep any per-request state.
+ */
+public interface PageFetcher<T> {
+
+	/**
+	 * Get one page of entities
+	 *
+	 * @param offset
+	 *            pagination offset. Greater or equal to zero
+	 * @param limit
+	 *            pagination limit. Greater than zero
+	 * @return entities for the requested page. A page with less than limit entities is the last page
+	 * @throws MambuApiException
+	 */
+	public List<T> getPage(int offset, int limit) throws MambuApiException;
+
+}
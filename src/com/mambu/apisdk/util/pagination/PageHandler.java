@@ -0,0 +1,25 @@
+package com.mambu.apisdk.util.pagination;
+
+import java.util.List;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * PageHandler receives the pages retrieved by a paginator. Pages are always delivered to the handler from one thread
+ * at a time, so handlers do not need to be thread safe
+ */
+public interface PageHandler<T> {
+
+	/**
+	 * Handle a retrieved page
+	 *
+	 * @param offset
+	 *            the offset the page was retrieved with
+	 * @param page
+	 *            the page entities. Never null
+	 * @throws MambuApiException
+	 *             thrown exceptions stop the pagination
+	 */
+	public void handlePage(int offset, List<T> page) throws MambuApiException;
+
+}
@@ -0,0 +1,46 @@
+package com.mambu.apisdk.util.pagination;
+
+import java.io.Closeable;
+import java.util.List;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+/**
+ * PageIterator iterates over the pages of a paginated API request. Iterators created with read-ahead keep a background
+ * request running and must be closed when the caller stops iterating before the last page
+ */
+public interface PageIterator<T> extends Closeable {
+
+	/**
+	 * Check if there is a next non empty page. May block waiting for the page to be retrieved
+	 *
+	 * @return true if there is a next page
+	 * @throws MambuApiException
+	 *             if the page request failed
+	 */
+	public boolean hasNextPage() throws MambuApiException;
+
+	/**
+	 * Get the next page
+	 *
+	 * @return next page entities
+	 * @throws MambuApiException
+	 *             if the page request failed
+	 * @throws java.util.NoSuchElementException
+	 *             if there are no more pages
+	 */
+	public List<T> nextPage() throws MambuApiException;
+
+	/**
+	 * Get the offset of the page last returned by {@link #nextPage()}
+	 *
+	 * @return page offset
+	 */
+	public int getOffset();
+
+	/**
+	 * Stop iterating and release any background resources
+	 */
+	@Override
+	public void close();
+}
@@ -0,0 +1,230 @@
+package com.mambu.apisdk.util.pagination;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.mambu.apisdk.util.APIData;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiResponseListener;
+
+/**
+ * PageSizeController adapts the page size (limit) of paginated requests to the observed API latency and response size.
+ *
+ * For each API (identified by {@link ApiDefinition#getKey()}) the controller keeps exponentially weighted statistics of
+ * the response times and response lengths and estimates the fixed cost of a request and the cost of each entity. The
+ * page size is then steered towards the size expected to be returned within the target response time, and optionally
+ * within the maximum response length, never exceeding Mambu's maximum page size ({@link APIData#MAX_PAGE_SIZE}). To
+ * avoid overshooting on little data the page size grows by at most a factor of two from one page to the next.
+ *
+ * The controller collects its statistics as an {@link ApiResponseListener} and must be added to the factory used to
+ * create the services. Then it can be set on a {@link Paginator} with the key of the API the paginator requests.
+ *
+ * Example: adapt the page size of the loan accounts search to 2 second responses
+ *
+ * PageSizeController controller = new PageSizeController(2000);
+ *
+ * serviceFactory.addResponseListener(controller);
+ *
+ * paginator.setPageSizeController(controller, SearchService.makeApiDefinitionforSearchByFilter(LOAN_ACCOUNT).getKey());
+ */
+public class PageSizeController implements ApiResponseListener {
+
+	private final static int DEFAULT_INITIAL_PAGE_SIZE = 100;
+	// Weight kept by the previous observations on each new observation
+	private final static double DECAY = 0.8;
+	// Minimum relative spread of the observed page sizes needed to separate the fixed and the per entity cost
+	private final static double MIN_RELATIVE_VARIANCE = 0.01;
+
+	private final long targetResponseMillis;
+	private final int initialPageSize;
+	private final int minPageSize;
+	private final int maxPageSize;
+	// Maximum response length, in characters. Zero if not limited
+	private volatile int maxResponseLength = 0;
+
+	private final ConcurrentMap<String, ApiStatistics> statistics = new ConcurrentHashMap<String, ApiStatistics>();
+
+	/**
+	 * Create a controller with the default initial page size and with page sizes up to Mambu's maximum page size
+	 *
+	 * @param targetResponseMillis
+	 *            target response time in milliseconds. Must be greater than zero
+	 */
+	public PageSizeController(long targetResponseMillis) {
+		this(targetResponseMillis, DEFAULT_INITIAL_PAGE_SIZE, 1, APIData.MAX_PAGE_SIZE);
+	}
+
+	/**
+	 * Create a controller
+	 *
+	 * @param targetResponseMillis
+	 *            target response time in milliseconds. Must be greater than zero
+	 * @param initialPageSize
+	 *            page size used before any responses are observed for an API
+	 * @param minPageSize
+	 *            minimum page size. Must be greater than zero
+	 * @param maxPageSize
+	 *            maximum page size. Must not exceed Mambu's maximum page size
+	 */
+	public PageSizeController(long targetResponseMillis, int initialPageSize, int minPageSize, int maxPageSize) {
+		if (targetResponseMillis < 1) {
+			throw new IllegalArgumentException("Target response time must be greater than zero. It is "
+					+ targetResponseMillis);
+		}
+		if (minPageSize < 1 || maxPageSize < minPageSize || maxPageSize > APIData.MAX_PAGE_SIZE) {
+			throw new IllegalArgumentException("Invalid page size range: min=" + minPageSize + " max=" + maxPageSize
+					+ ". Page sizes must be between 1 and " + APIData.MAX_PAGE_SIZE);
+		}
+		this.targetResponseMillis = targetResponseMillis;
+		this.minPageSize = minPageSize;
+		this.maxPageSize = maxPageSize;
+		this.initialPageSize = clamp(initialPageSize);
+	}
+
+	/**
+	 * Limit the page size so that the responses are not expected to exceed the specified length
+	 *
+	 * @param maxResponseLength
+	 *            maximum response length in characters. Zero to not limit the response length
+	 */
+	public void setMaxResponseLength(int maxResponseLength) {
+		if (maxResponseLength < 0) {
+			throw new IllegalArgumentException("Max response length must not be negative. It is " + maxResponseLength);
+		}
+		this.maxResponseLength = maxResponseLength;
+	}
+
+	public long getTargetResponseMillis() {
+		return targetResponseMillis;
+	}
+
+	/**
+	 * Get the page size to use for the next page request of an API
+	 *
+	 * @param apiKey
+	 *            API key, as returned by {@link ApiDefinition#getKey()}
+	 * @return page size
+	 */
+	public int getPageSize(String apiKey) {
+		ApiStatistics apiStatistics = statistics.get(apiKey);
+		if (apiStatistics == null) {
+			return initialPageSize;
+		}
+		return apiStatistics.nextPageSize();
+	}
+
+	@Override
+	public void onApiResponse(ApiDefinition apiDefinition, long durationMillis, int responseLength, int entitiesCount) {
+		recordResponse(apiDefinition.getKey(), durationMillis, responseLength, entitiesCount);
+	}
+
+	/**
+	 * Record a response of an API. Called for the responses received by the services the controller listens to. Can
+	 * also be called directly for the responses received by other means
+	 *
+	 * @param apiKey
+	 *            API key
+	 * @param durationMillis
+	 *            response time
+	 * @param responseLength
+	 *            response length
+	 * @param entitiesCount
+	 *            number of entities in the response
+	 */
+	public void recordResponse(String apiKey, long durationMillis, int responseLength, int entitiesCount) {
+		ApiStatistics apiStatistics = statistics.get(apiKey);
+		if (apiStatistics == null) {
+			ApiStatistics newStatistics = new ApiStatistics();
+			apiStatistics = statistics.putIfAbsent(apiKey, newStatistics);
+			if (apiStatistics == null) {
+				apiStatistics = newStatistics;
+			}
+		}
+		apiStatistics.record(durationMillis, responseLength, entitiesCount);
+	}
+
+	/**
+	 * Get the weighted average response time observed for an API
+	 *
+	 * @param apiKey
+	 *            API key
+	 * @return average response time in milliseconds or null if no responses were observed
+	 */
+	public Double getAverageResponseMillis(String apiKey) {
+		ApiStatistics apiStatistics = statistics.get(apiKey);
+		return (apiStatistics == null) ? null : apiStatistics.averageResponseMillis();
+	}
+
+	/**
+	 * Get the weighted average response length per entity observed for an API
+	 *
+	 * @param apiKey
+	 *            API key
+	 * @return average length per entity in characters or null if no entities were observed
+	 */
+	public Double getAverageLengthPerEntity(String apiKey) {
+		ApiStatistics apiStatistics = statistics.get(apiKey);
+		return (apiStatistics == null) ? null : apiStatistics.averageLengthPerEntity();
+	}
+
+	private int clamp(double pageSize) {
+		return (int) Math.max(minPageSize, Math.min(maxPageSize, pageSize));
+	}
+
+	/**
+	 * Exponentially weighted statistics of one API. The response time is modelled as a fixed cost plus a cost per
+	 * entity, estimated with a weighted least squares fit over the observed (entities, response time) pairs
+	 */
+	private class ApiStatistics {
+		private double weight;
+		private double entities;
+		private double millis;
+		private double entitiesSquared;
+		private double entitiesMillis;
+		private double length;
+		// Page size last returned, to limit the growth of the next one
+		private int lastPageSize = initialPageSize;
+
+		private synchronized void record(long durationMillis, int responseLength, int entitiesCount) {
+			weight = weight * DECAY + 1;
+			entities = entities * DECAY + entitiesCount;
+			millis = millis * DECAY + durationMillis;
+			entitiesSquared = entitiesSquared * DECAY + (double) entitiesCount * entitiesCount;
+			entitiesMillis = entitiesMillis * DECAY + (double) entitiesCount * durationMillis;
+			length = length * DECAY + responseLength;
+		}
+
+		private synchronized int nextPageSize() {
+			double pageSize = maxPageSize;
+
+			double variance = weight * entitiesSquared - entities * entities;
+			if (variance > MIN_RELATIVE_VARIANCE * entities * entities) {
+				// Enough spread in the observed page sizes to estimate the fixed cost and the cost per entity
+				double millisPerEntity = (weight * entitiesMillis - entities * millis) / variance;
+				double fixedMillis = Math.max(0, (millis - millisPerEntity * entities) / weight);
+				if (millisPerEntity > 0) {
+					pageSize = (targetResponseMillis - fixedMillis) / millisPerEntity;
+				}
+			} else if (millis > 0 && entities > 0) {
+				// All pages had about the same size: assume the response time is proportional to it
+				pageSize = targetResponseMillis * entities / millis;
+			}
+
+			int maxLength = maxResponseLength;
+			if (maxLength > 0 && length > 0 && entities > 0) {
+				pageSize = Math.min(pageSize, maxLength * entities / length);
+			}
+
+			lastPageSize = clamp(Math.min(pageSize, 2.0 * lastPageSize));
+			return lastPageSize;
+		}
+
+		private synchronized double averageResponseMillis() {
+			return millis / weight;
+		}
+
+		private synchronized Double averageLengthPerEntity() {
+			return (entities > 0) ? length / entities : null;
+		}
+	}
+}
@@ -0,0 +1,359 @@
+package com.mambu.apisdk.util.pagination;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ConcurrencyUtils;
+
+/**
+ * Paginator retrieves the pages of a paginated API request sequentially, one page after the other.
+ *
+ * Optionally the paginator can read ahead: a background thread requests the next pages while the caller is processing
+ * the current one. Retrieved pages are kept in a bounded buffer of 'readAheadPages' pages, the background thread waits
+ * when the buffer is full, so no more than readAheadPages + 2 pages are held in memory at any time (the buffered
+ * pages, the page being processed by the caller and the page being retrieved).
+ *
+ * Example: process all savings transactions matching filter constraints, keeping 2 pages in flight
+ *
+ * Paginator<SavingsTransaction> paginator = new Paginator<SavingsTransaction>(pageFetcher, 500);
+ *
+ * paginator.setReadAheadPages(2);
+ *
+ * paginator.paginate(0, pageHandler);
+ *
+ * The page size can be adapted to the observed API latency with a {@link PageSizeController}. Each page is then
+ * requested with the page size suggested by the controller at the time of the request.
+ */
+public class Paginator<T> {
+
+	private final static String THREAD_NAME_PREFIX = "mambu-readahead";
+
+	private final PageFetcher<T> pageFetcher;
+	private final int pageSize;
+	// Number of pages to read ahead. Zero to retrieve pages on demand only
+	private int readAheadPages = 0;
+	// Optional controller adapting the page size, and the key of the API to get the page size for
+	private PageSizeController pageSizeController = null;
+	private String apiKey = null;
+
+	/**
+	 * Create a paginator
+	 *
+	 * @param pageFetcher
+	 *            page fetcher. Must not be null
+	 * @param pageSize
+	 *            page size (limit) used for all page requests, unless a page size controller is set. Must be greater
+	 *            than zero
+	 */
+	public Paginator(PageFetcher<T> pageFetcher, int pageSize) {
+		if (pageFetcher == null) {
+			throw new IllegalArgumentException("Page fetcher must not be null");
+		}
+		if (pageSize < 1) {
+			throw new IllegalArgumentException("Page size must be greater than zero. It is " + pageSize);
+		}
+		this.pageFetcher = pageFetcher;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Set the number of pages to retrieve in the background ahead of the caller
+	 *
+	 * @param readAheadPages
+	 *            number of pages to buffer. Zero (the default) disables read-ahead. One or two pages are usually enough
+	 *            to hide the API latency
+	 */
+	public void setReadAheadPages(int readAheadPages) {
+		if (readAheadPages < 0) {
+			throw new IllegalArgumentException("Read ahead pages must not be negative. It is " + readAheadPages);
+		}
+		this.readAheadPages = readAheadPages;
+	}
+
+	/**
+	 * Adapt the page size with a page size controller
+	 *
+	 * @param pageSizeController
+	 *            page size controller. Null to use the fixed page size
+	 * @param apiKey
+	 *            key of the API requested by the page fetcher, as returned by
+	 *            {@link com.mambu.apisdk.util.ApiDefinition#getKey()}. Must not be null if the controller is not null
+	 */
+	public void setPageSizeController(PageSizeController pageSizeController, String apiKey) {
+		if (pageSizeController != null && apiKey == null) {
+			throw new IllegalArgumentException("Api key must not be null");
+		}
+		this.pageSizeController = pageSizeController;
+		this.apiKey = apiKey;
+	}
+
+	public int getReadAheadPages() {
+		return readAheadPages;
+	}
+
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/**
+	 * Get an iterator over the pages starting from the specified offset
+	 *
+	 * @param startOffset
+	 *            offset of the first page. Must be greater or equal to zero
+	 * @return page iterator. Must be closed if not iterated to the end
+	 */
+	public PageIterator<T> iterator(int startOffset) {
+		if (startOffset < 0) {
+			throw new IllegalArgumentException("Start offset must not be negative. It is " + startOffset);
+		}
+		if (readAheadPages == 0) {
+			return new OnDemandPageIterator(startOffset);
+		}
+		return new ReadAheadPageIterator(startOffset);
+	}
+
+	/**
+	 * Retrieve all pages starting from the specified offset and deliver them to the page handler
+	 *
+	 * @param startOffset
+	 *            offset of the first page. Must be greater or equal to zero
+	 * @param handler
+	 *            handler for the retrieved pages. Must not be null
+	 * @throws MambuApiException
+	 */
+	public void paginate(int startOffset, PageHandler<T> handler) throws MambuApiException {
+		if (handler == null) {
+			throw new IllegalArgumentException("Page handler must not be null");
+		}
+		PageIterator<T> iterator = iterator(startOffset);
+		try {
+			while (iterator.hasNextPage()) {
+				List<T> page = iterator.nextPage();
+				handler.handlePage(iterator.getOffset(), page);
+			}
+		} finally {
+			iterator.close();
+		}
+	}
+
+	/**
+	 * Get all entities starting from offset zero
+	 *
+	 * @return all entities
+	 * @throws MambuApiException
+	 */
+	public List<T> getAll() throws MambuApiException {
+		final List<T> all = new ArrayList<T>();
+		paginate(0, new PageHandler<T>() {
+			@Override
+			public void handlePage(int offset, List<T> page) {
+				all.addAll(page);
+			}
+		});
+		return all;
+	}
+
+	/**
+	 * Retrieve one page with the current page size. Null pages are returned as empty pages
+	 */
+	private PageResult<T> fetch(int offset) throws MambuApiException {
+		int limit = (pageSizeController != null) ? pageSizeController.getPageSize(apiKey) : pageSize;
+		List<T> page = pageFetcher.getPage(offset, limit);
+		return new PageResult<T>(offset, limit, (page == null) ? new ArrayList<T>() : page, null);
+	}
+
+	/**
+	 * Iterator retrieving each page on the caller's thread when it is requested
+	 */
+	private class OnDemandPageIterator implements PageIterator<T> {
+		private int nextOffset;
+		private int offset = -1;
+		private PageResult<T> next = null;
+		private boolean finished = false;
+
+		private OnDemandPageIterator(int startOffset) {
+			this.nextOffset = startOffset;
+		}
+
+		@Override
+		public boolean hasNextPage() throws MambuApiException {
+			if (next != null) {
+				return true;
+			}
+			if (finished) {
+				return false;
+			}
+			PageResult<T> result = fetch(nextOffset);
+			if (result.entities.isEmpty()) {
+				finished = true;
+				return false;
+			}
+			// A short page is the last one
+			finished = result.isLastPage();
+			next = result;
+			return true;
+		}
+
+		@Override
+		public List<T> nextPage() throws MambuApiException {
+			if (!hasNextPage()) {
+				throw new NoSuchElementException();
+			}
+			PageResult<T> result = next;
+			next = null;
+			offset = result.offset;
+			nextOffset = result.offset + result.limit;
+			return result.entities;
+		}
+
+		@Override
+		public int getOffset() {
+			return offset;
+		}
+
+		@Override
+		public void close() {
+			finished = true;
+			next = null;
+		}
+	}
+
+	/**
+	 * Page retrieved with the requested limit, or the MambuApiException or Error the request failed with
+	 */
+	private static class PageResult<T> {
+		private final int offset;
+		private final int limit;
+		private final List<T> entities;
+		private final Throwable failure;
+
+		private PageResult(int offset, int limit, List<T> entities, Throwable failure) {
+			this.offset = offset;
+			this.limit = limit;
+			this.entities = entities;
+			this.failure = failure;
+		}
+
+		/**
+		 * A page with less entities than requested is the last one
+		 */
+		private boolean isLastPage() {
+			return entities.size() < limit;
+		}
+	}
+
+	/**
+	 * Iterator retrieving pages on a background thread into a bounded buffer
+	 */
+	private class ReadAheadPageIterator implements PageIterator<T> {
+		private final BlockingQueue<PageResult<T>> buffer;
+		private final ExecutorService readerThread;
+		private int offset = -1;
+		private PageResult<T> next = null;
+		private boolean finished = false;
+
+		private ReadAheadPageIterator(final int startOffset) {
+			buffer = new ArrayBlockingQueue<PageResult<T>>(readAheadPages);
+			readerThread = Executors.newSingleThreadExecutor(ConcurrencyUtils.newThreadFactory(THREAD_NAME_PREFIX));
+			readerThread.execute(new Runnable() {
+				@Override
+				public void run() {
+					readPages(startOffset);
+				}
+			});
+			// No other tasks are submitted: the thread terminates after the last page
+			readerThread.shutdown();
+		}
+
+		/**
+		 * Read pages until the last page, a failed request or until interrupted by close()
+		 */
+		private void readPages(int startOffset) {
+			int readOffset = startOffset;
+			try {
+				while (!Thread.currentThread().isInterrupted()) {
+					PageResult<T> result;
+					try {
+						result = fetch(readOffset);
+					} catch (MambuApiException e) {
+						result = new PageResult<T>(readOffset, 0, null, e);
+					} catch (RuntimeException e) {
+						result = new PageResult<T>(readOffset, 0, null, new MambuApiException(e));
+					} catch (Error e) {
+						// Rethrown by the caller, which would otherwise wait for the next page forever
+						result = new PageResult<T>(readOffset, 0, null, e);
+					}
+					// Blocks while the buffer is full
+					buffer.put(result);
+					if (result.failure != null || result.isLastPage()) {
+						return;
+					}
+					readOffset += result.limit;
+				}
+			} catch (InterruptedException e) {
+				// Closed by the caller
+			}
+		}
+
+		@Override
+		public boolean hasNextPage() throws MambuApiException {
+			if (next != null) {
+				return true;
+			}
+			if (finished) {
+				return false;
+			}
+			PageResult<T> result;
+			try {
+				result = buffer.take();
+			} catch (InterruptedException e) {
+				close();
+				throw ConcurrencyUtils.toMambuApiException(e);
+			}
+			if (result.failure != null) {
+				close();
+				if (result.failure instanceof Error) {
+					throw (Error) result.failure;
+				}
+				throw (MambuApiException) result.failure;
+			}
+			if (result.entities.isEmpty()) {
+				close();
+				return false;
+			}
+			finished = result.isLastPage();
+			next = result;
+			return true;
+		}
+
+		@Override
+		public List<T> nextPage() throws MambuApiException {
+			if (!hasNextPage()) {
+				throw new NoSuchElementException();
+			}
+			PageResult<T> result = next;
+			next = null;
+			offset = result.offset;
+			return result.entities;
+		}
+
+		@Override
+		public int getOffset() {
+			return offset;
+		}
+
+		@Override
+		public void close() {
+			finished = true;
+			next = null;
+			readerThread.shutdownNow();
+			buffer.clear();
+		}
+	}
+}
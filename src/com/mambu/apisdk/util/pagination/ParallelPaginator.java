@@ -0,0 +1,286 @@
+package com.mambu.apisdk.util.pagination;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ConcurrencyUtils;
+
+/**
+ * ParallelPaginator retrieves all pages of a paginated API request with a bounded number of concurrent requests.
+ *
+ * The paginator keeps up to 'concurrency' page requests in flight, speculatively issuing requests for the next offsets
+ * before the previous pages have been received. When the first short page (a page with less entities than the page
+ * size) is received, all requests for the offsets past this page are cancelled and no new requests are issued.
+ * A failed request fails the run only once all the preceding pages are received without a short page: the failure of a
+ * speculative request past the last page is ignored.
+ *
+ * Pages can be delivered either in the offset order or in the order they are received (see {@link DeliveryOrder}).
+ * In the offset order, the pages waiting for a preceding page count toward the 'concurrency' limit, so a slow page
+ * holds back the requests instead of letting the received pages pile up in memory.
+ *
+ * Example: get all loan accounts matching filter constraints, fetching 4 pages of 500 accounts concurrently
+ *
+ * ParallelPaginator<LoanAccount> paginator = new ParallelPaginator<LoanAccount>(pageFetcher, 500, 4);
+ *
+ * List<LoanAccount> accounts = paginator.getAll(DeliveryOrder.ORDERED);
+ */
+public class ParallelPaginator<T> {
+
+	/**
+	 * DeliveryOrder specifies the order in which the retrieved pages are delivered to the caller
+	 */
+	public enum DeliveryOrder {
+		// Deliver pages in the offset order. Pages received out of order are buffered until all preceding pages arrive
+		ORDERED,
+		// Deliver pages as soon as they are received
+		UNORDERED
+	}
+
+	private final static String THREAD_NAME_PREFIX = "mambu-pages";
+
+	private final PageFetcher<T> pageFetcher;
+	private final int pageSize;
+	private final int concurrency;
+	// Optional executor provided by the caller. If null, a thread pool is created for each pagination run
+	private final ExecutorService executor;
+
+	/**
+	 * Create a parallel paginator using its own thread pool for each pagination run
+	 *
+	 * @param pageFetcher
+	 *            page fetcher. Must not be null
+	 * @param pageSize
+	 *            page size (limit) used for all page requests. Must be greater than zero
+	 * @param concurrency
+	 *            maximum number of page requests in flight, plus pages buffered for the ordered delivery. Must be
+	 *            greater than zero
+	 */
+	public ParallelPaginator(PageFetcher<T> pageFetcher, int pageSize, int concurrency) {
+		this(pageFetcher, pageSize, concurrency, null);
+	}
+
+	/**
+	 * Create a parallel paginator using the provided executor service
+	 *
+	 * @param pageFetcher
+	 *            page fetcher. Must not be null
+	 * @param pageSize
+	 *            page size (limit) used for all page requests. Must be greater than zero
+	 * @param concurrency
+	 *            maximum number of page requests in flight, plus pages buffered for the ordered delivery. Must be
+	 *            greater than zero
+	 * @param executor
+	 *            executor service to run page requests. Optional. If null, a thread pool is created for each pagination
+	 *            run. The provided executor is not shut down by the paginator
+	 */
+	public ParallelPaginator(PageFetcher<T> pageFetcher, int pageSize, int concurrency, ExecutorService executor) {
+		if (pageFetcher == null) {
+			throw new IllegalArgumentException("Page fetcher must not be null");
+		}
+		if (pageSize < 1 || concurrency < 1) {
+			throw new IllegalArgumentException("Page size and concurrency must be greater than zero. Page size="
+					+ pageSize + " Concurrency=" + concurrency);
+		}
+		this.pageFetcher = pageFetcher;
+		this.pageSize = pageSize;
+		this.concurrency = concurrency;
+		this.executor = executor;
+	}
+
+	/**
+	 * Get all entities starting from offset zero
+	 *
+	 * @param deliveryOrder
+	 *            ORDERED to return entities in the API order, UNORDERED to return them in the order pages were received
+	 * @return all entities
+	 * @throws MambuApiException
+	 */
+	public List<T> getAll(DeliveryOrder deliveryOrder) throws MambuApiException {
+		final List<T> all = new ArrayList<T>();
+		paginate(0, deliveryOrder, new PageHandler<T>() {
+			@Override
+			public void handlePage(int offset, List<T> page) {
+				all.addAll(page);
+			}
+		});
+		return all;
+	}
+
+	/**
+	 * Retrieve all pages starting from the specified offset and deliver them to the page handler. The handler is
+	 * invoked on the calling thread
+	 *
+	 * @param startOffset
+	 *            offset of the first page. Must be greater or equal to zero
+	 * @param deliveryOrder
+	 *            pages delivery order. Must not be null
+	 * @param handler
+	 *            handler for the retrieved pages. Must not be null
+	 * @throws MambuApiException
+	 *             if any page up to the last page fails or if the handler throws. All outstanding page requests are
+	 *             cancelled
+	 */
+	public void paginate(int startOffset, DeliveryOrder deliveryOrder, PageHandler<T> handler)
+			throws MambuApiException {
+		if (startOffset < 0) {
+			throw new IllegalArgumentException("Start offset must not be negative. It is " + startOffset);
+		}
+		if (deliveryOrder == null || handler == null) {
+			throw new IllegalArgumentException("Delivery order and page handler must not be null");
+		}
+
+		ExecutorService pool = (executor != null) ? executor : ConcurrencyUtils.newFixedThreadPool(concurrency,
+				THREAD_NAME_PREFIX);
+		CompletionService<Page<T>> completionService = new ExecutorCompletionService<Page<T>>(pool);
+
+		// Requests in flight, by offset
+		TreeMap<Integer, Future<Page<T>>> inFlight = new TreeMap<Integer, Future<Page<T>>>();
+		// Pages received out of order, waiting for the preceding pages (for the ORDERED delivery only)
+		TreeMap<Integer, List<T>> received = new TreeMap<Integer, List<T>>();
+
+		int nextOffset = startOffset;
+		int nextDeliveryOffset = startOffset;
+		// Offset of the first short page. No pages past this offset exist
+		int lastPageOffset = Integer.MAX_VALUE;
+		// First failed page request, reported if no short page precedes it
+		Page<T> failedPage = null;
+
+		try {
+			while (true) {
+				// Keep the pipeline full: speculatively request the next offsets. Buffered pages take the place of
+				// requests, so that at most 'concurrency' pages are held while waiting for a slow page
+				while (inFlight.size() + received.size() < concurrency && nextOffset <= lastPageOffset
+						&& failedPage == null) {
+					inFlight.put(nextOffset, completionService.submit(new PageRequest(nextOffset)));
+					nextOffset += pageSize;
+				}
+				if (inFlight.isEmpty()) {
+					break;
+				}
+
+				Future<Page<T>> future = completionService.take();
+				if (future.isCancelled()) {
+					// Already removed from the requests in flight
+					continue;
+				}
+				Page<T> page = future.get();
+				inFlight.remove(page.offset);
+
+				if (page.offset > lastPageOffset) {
+					// Speculative request past the last page
+					continue;
+				}
+				if (page.failure != null) {
+					// The last page may still be one of the preceding pages: wait for them before failing
+					if (failedPage == null || page.offset < failedPage.offset) {
+						failedPage = page;
+						cancelAfter(inFlight, failedPage.offset);
+						received.tailMap(failedPage.offset, false).clear();
+					}
+					continue;
+				}
+				if (failedPage != null && page.offset > failedPage.offset) {
+					// Received before its request was cancelled
+					continue;
+				}
+				if (page.entities.size() < pageSize) {
+					// The first short page. Cancel all requests past it
+					lastPageOffset = page.offset;
+					cancelAfter(inFlight, lastPageOffset);
+					received.tailMap(lastPageOffset, false).clear();
+				}
+
+				switch (deliveryOrder) {
+				case UNORDERED:
+					handler.handlePage(page.offset, page.entities);
+					break;
+				case ORDERED:
+					received.put(page.offset, page.entities);
+					// Deliver all pages which are now in sequence
+					while (received.containsKey(nextDeliveryOffset)) {
+						handler.handlePage(nextDeliveryOffset, received.remove(nextDeliveryOffset));
+						nextDeliveryOffset += pageSize;
+					}
+					break;
+				}
+			}
+			if (failedPage != null && failedPage.offset <= lastPageOffset) {
+				if (failedPage.failure instanceof MambuApiException) {
+					throw (MambuApiException) failedPage.failure;
+				}
+				throw (RuntimeException) failedPage.failure;
+			}
+		} catch (ExecutionException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} catch (InterruptedException e) {
+			throw ConcurrencyUtils.toMambuApiException(e);
+		} finally {
+			// Nothing is cancelled after a successful run, but a failed run must not leave requests behind
+			cancelAfter(inFlight, -1);
+			if (executor == null) {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Cancel and remove all requests in flight for the offsets greater than the specified offset
+	 */
+	private static <T> void cancelAfter(TreeMap<Integer, Future<Page<T>>> inFlight, int offset) {
+		Iterator<Map.Entry<Integer, Future<Page<T>>>> iterator = inFlight.tailMap(offset, false).entrySet()
+				.iterator();
+		while (iterator.hasNext()) {
+			iterator.next().getValue().cancel(true);
+			iterator.remove();
+		}
+	}
+
+	/**
+	 * Page retrieved for an offset, or the failure of its request
+	 */
+	private static class Page<T> {
+		private final int offset;
+		private final List<T> entities;
+		// MambuApiException or RuntimeException thrown by the page request. Null if the page was retrieved
+		private final Exception failure;
+
+		private Page(int offset, List<T> entities, Exception failure) {
+			this.offset = offset;
+			this.entities = entities;
+			this.failure = failure;
+		}
+	}
+
+	/**
+	 * Page request task
+	 */
+	private class PageRequest implements Callable<Page<T>> {
+		private final int offset;
+
+		private PageRequest(int offset) {
+			this.offset = offset;
+		}
+
+		@Override
+		public Page<T> call() {
+			try {
+				List<T> entities = pageFetcher.getPage(offset, pageSize);
+				return new Page<T>(offset, entities == null ? new ArrayList<T>() : entities, null);
+			} catch (MambuApiException e) {
+				return new Page<T>(offset, null, e);
+			} catch (RuntimeException e) {
+				return new Page<T>(offset, null, e);
+			}
+		}
+	}
+}
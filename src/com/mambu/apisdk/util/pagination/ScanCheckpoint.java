@@ -0,0 +1,158 @@
+package com.mambu.apisdk.util.pagination;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ServiceHelper;
+
+/**
+ * ScanCheckpoint is the persisted state of a {@link CheckpointedScan}: the scan definition (for example the filter
+ * constraints JSON), the offset of the next entity to process and the key of the last processed entity.
+ *
+ * Checkpoints are stored as JSON. A checkpoint file is replaced atomically, so a job killed while saving leaves either
+ * the previous or the new checkpoint behind.
+ */
+public class ScanCheckpoint {
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	// Scan definition, used to reject a checkpoint file belonging to another scan
+	private String scanDefinition;
+	// Offset of the next entity to process
+	private int offset;
+	// Key of the last processed entity, null if no entities were processed
+	private String lastSeenKey;
+	private long processedCount;
+	private boolean completed;
+	private long updatedTime;
+
+	ScanCheckpoint(String scanDefinition) {
+		this.scanDefinition = scanDefinition;
+	}
+
+	public String getScanDefinition() {
+		return scanDefinition;
+	}
+
+	public int getOffset() {
+		return offset;
+	}
+
+	public String getLastSeenKey() {
+		return lastSeenKey;
+	}
+
+	public long getProcessedCount() {
+		return processedCount;
+	}
+
+	public boolean isCompleted() {
+		return completed;
+	}
+
+	/**
+	 * Get the time the checkpoint was last updated
+	 *
+	 * @return time in milliseconds since the epoch
+	 */
+	public long getUpdatedTime() {
+		return updatedTime;
+	}
+
+	/**
+	 * Advance the checkpoint past the processed entities
+	 *
+	 * @param nextOffset
+	 *            offset of the next entity to process
+	 * @param processed
+	 *            number of entities processed
+	 * @param lastKey
+	 *            key of the last processed entity
+	 */
+	void advance(int nextOffset, int processed, String lastKey) {
+		offset = nextOffset;
+		processedCount += processed;
+		lastSeenKey = lastKey;
+	}
+
+	void setCompleted(boolean completed) {
+		this.completed = completed;
+	}
+
+	/**
+	 * Load a checkpoint from a file
+	 *
+	 * @param file
+	 *            checkpoint file
+	 * @return checkpoint or null if the file does not exist
+	 * @throws MambuApiException
+	 *             if the file cannot be read or parsed
+	 */
+	static ScanCheckpoint load(File file) throws MambuApiException {
+		if (!file.exists()) {
+			return null;
+		}
+		Reader reader = null;
+		try {
+			reader = new InputStreamReader(new FileInputStream(file), UTF8);
+			ScanCheckpoint checkpoint = new Gson().fromJson(reader, ScanCheckpoint.class);
+			if (checkpoint == null) {
+				throw new MambuApiException(-1, "Empty checkpoint file " + file);
+			}
+			return checkpoint;
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		} catch (JsonParseException e) {
+			throw new MambuApiException(e);
+		} finally {
+			ServiceHelper.closeQuietly(reader);
+		}
+	}
+
+	/**
+	 * Save the checkpoint to a file, replacing the previous checkpoint atomically
+	 *
+	 * @param file
+	 *            checkpoint file
+	 * @throws MambuApiException
+	 *             if the file cannot be written
+	 */
+	void save(File file) throws MambuApiException {
+		updatedTime = System.currentTimeMillis();
+		File tempFile = new File(file.getPath() + ".tmp");
+		Writer writer = null;
+		try {
+			FileOutputStream output = new FileOutputStream(tempFile);
+			writer = new OutputStreamWriter(output, UTF8);
+			new Gson().toJson(this, writer);
+			writer.flush();
+			// Make sure the checkpoint is on disk before it replaces the previous one
+			output.getFD().sync();
+			writer.close();
+			writer = null;
+			try {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			throw new MambuApiException(e);
+		} finally {
+			ServiceHelper.closeQuietly(writer);
+		}
+	}
+}
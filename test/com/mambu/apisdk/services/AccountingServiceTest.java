@@ -3,11 +3,20 @@
  */
 package com.mambu.apisdk.services;
 
+import static org.junit.Assert.assertEquals;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.mambu.accounting.shared.model.EntryType;
 import com.mambu.apisdk.MambuAPIServiceTest;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.ApiGLJournalEntry;
 import com.mambu.apisdk.util.APIData;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
@@ -55,4 +64,56 @@ public class AccountingServiceTest extends MambuAPIServiceTest {
 				ContentType.WWW_FORM);
 	}
 
+	@Test
+	public void testSplitGLJournalEntriesPacksWholeSets() {
+		List<ApiGLJournalEntry> first = Arrays.asList(new ApiGLJournalEntry("1000", EntryType.DEBIT, new BigDecimal(
+				"100.50")), new ApiGLJournalEntry("2000", EntryType.CREDIT, new BigDecimal("100.50")));
+		List<ApiGLJournalEntry> second = Arrays.asList(new ApiGLJournalEntry("1000", EntryType.DEBIT, new BigDecimal(
+				"30")), new ApiGLJournalEntry("2001", EntryType.CREDIT, new BigDecimal("10")), new ApiGLJournalEntry(
+				"2000", EntryType.CREDIT, new BigDecimal("20")));
+		List<ApiGLJournalEntry> third = Arrays.asList(new ApiGLJournalEntry("1002", EntryType.DEBIT, new BigDecimal(
+				"5")), new ApiGLJournalEntry("2000", EntryType.CREDIT, new BigDecimal("5")));
+
+		List<List<ApiGLJournalEntry>> chunks = AccountingService.splitGLJournalEntries(
+				Arrays.asList(first, second, third), 5);
+
+		// The third set doesn't fit with the first two: the entries are posted as given
+		assertEquals(2, chunks.size());
+		List<ApiGLJournalEntry> expected = new ArrayList<ApiGLJournalEntry>(first);
+		expected.addAll(second);
+		assertEquals(expected, chunks.get(0));
+		assertEquals(third, chunks.get(1));
+		assertEquals(0, new BigDecimal("100.50").compareTo(chunks.get(0).get(0).getAmount()));
+	}
+
+	@Test
+	public void testSplitGLJournalEntriesSplitsSetOverTheLimit() {
+		List<ApiGLJournalEntry> entries = Arrays.asList(
+				new ApiGLJournalEntry("1000", EntryType.DEBIT, new BigDecimal("100")),
+				new ApiGLJournalEntry("2000", EntryType.CREDIT, new BigDecimal("60")),
+				new ApiGLJournalEntry("2001", EntryType.CREDIT, new BigDecimal("40")),
+				new ApiGLJournalEntry("1001", EntryType.DEBIT, new BigDecimal("10")),
+				new ApiGLJournalEntry("2002", EntryType.CREDIT, new BigDecimal("10")));
+		List<List<ApiGLJournalEntry>> sets = new ArrayList<List<ApiGLJournalEntry>>();
+		sets.add(entries);
+
+		List<List<ApiGLJournalEntry>> chunks = AccountingService.splitGLJournalEntries(sets, 4);
+
+		// Split at the end of the balanced run of the first 3 entries, amounts unchanged
+		assertEquals(2, chunks.size());
+		assertEquals(entries.subList(0, 3), chunks.get(0));
+		assertEquals(entries.subList(3, 5), chunks.get(1));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testSplitUnbalancedGLJournalEntries() {
+		List<ApiGLJournalEntry> entries = new ArrayList<ApiGLJournalEntry>();
+		entries.add(new ApiGLJournalEntry("1000", EntryType.DEBIT, new BigDecimal("100")));
+		entries.add(new ApiGLJournalEntry("2000", EntryType.CREDIT, new BigDecimal("99.99")));
+		List<List<ApiGLJournalEntry>> sets = new ArrayList<List<ApiGLJournalEntry>>();
+		sets.add(entries);
+
+		AccountingService.splitGLJournalEntries(sets, 10);
+	}
+
 }
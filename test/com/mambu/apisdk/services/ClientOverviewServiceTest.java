@@ -0,0 +1,127 @@
+package com.mambu.apisdk.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mambu.apisdk.MambuAPIServiceTest;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.ClientOverview;
+import com.mambu.apisdk.model.ClientOverview.Part;
+import com.mambu.apisdk.model.ClientOverviewPart;
+import com.mambu.apisdk.model.ClientOverviewPart.Status;
+import com.mambu.apisdk.util.ParamsMap;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+
+public class ClientOverviewServiceTest extends MambuAPIServiceTest {
+
+	private ClientOverviewService service;
+
+	@Override
+	public void setUp() throws MambuApiException {
+		super.setUp();
+
+		service = new ClientOverviewService(new ClientsService(super.mambuApiService), new LoansService(
+				super.mambuApiService), new SavingsService(super.mambuApiService), new LinesOfCreditService(
+				super.mambuApiService), new DocumentsService(super.mambuApiService), new CommentsService(
+				super.mambuApiService), new TasksService(super.mambuApiService));
+	}
+
+	@Test
+	public void testFailedAndSlowPartsDontFailOverview() throws MambuApiException {
+		Mockito.when(
+				executor.executeRequest(Mockito.anyString(), Mockito.any(ParamsMap.class), Mockito.eq(Method.GET),
+						Mockito.eq(ContentType.WWW_FORM))).thenReturn("[]");
+		Mockito.when(
+				executor.executeRequest(Mockito.eq("https://demo.mambutest.com/api/clients/abc123"),
+						Mockito.any(ParamsMap.class), Mockito.eq(Method.GET), Mockito.eq(ContentType.WWW_FORM)))
+				.thenReturn("{\"client\":{\"id\":\"abc123\"}}");
+		Mockito.when(
+				executor.executeRequest(Mockito.contains("clients/abc123/loans"), Mockito.any(ParamsMap.class),
+						Mockito.eq(Method.GET), Mockito.eq(ContentType.WWW_FORM))).thenThrow(
+				new MambuApiException(500, "Internal error"));
+		Mockito.when(
+				executor.executeRequest(Mockito.contains("clients/abc123/documents"), Mockito.any(ParamsMap.class),
+						Mockito.eq(Method.GET), Mockito.eq(ContentType.WWW_FORM))).thenAnswer(new Answer<String>() {
+			@Override
+			public String answer(InvocationOnMock invocation) throws Throwable {
+				Thread.sleep(5000);
+				return "[]";
+			}
+		});
+
+		// execute
+		ClientOverview overview = service.getClientOverview("abc123", 500);
+
+		// verify
+		assertFalse(overview.isComplete());
+		assertEquals(Part.values().length, overview.getParts().size());
+		assertEquals("abc123", overview.getClientDetails().getResult().getClient().getId());
+		assertEquals(Status.FAILED, overview.getLoanAccounts().getStatus());
+		assertEquals(Integer.valueOf(500), overview.getLoanAccounts().getException().getErrorCode());
+		assertEquals(Status.TIMED_OUT, overview.getDocuments().getStatus());
+		assertNull(overview.getDocuments().getResult());
+		assertTrue(overview.getDocuments().getDurationMillis() >= 500);
+		assertTrue(overview.getDurationMillis() < 5000);
+		assertTrue(overview.getSavingsAccounts().isSuccess());
+		assertTrue(overview.getLinesOfCredit().isSuccess());
+		assertTrue(overview.getComments().isSuccess());
+		assertEquals(0, overview.getTasks().getResult().size());
+	}
+
+	@Test
+	public void testServiceIsReusedForManyOverviews() throws MambuApiException {
+		Mockito.when(
+				executor.executeRequest(Mockito.anyString(), Mockito.any(ParamsMap.class), Mockito.eq(Method.GET),
+						Mockito.eq(ContentType.WWW_FORM))).thenReturn("[]");
+		Mockito.when(
+				executor.executeRequest(Mockito.eq("https://demo.mambutest.com/api/clients/abc123"),
+						Mockito.any(ParamsMap.class), Mockito.eq(Method.GET), Mockito.eq(ContentType.WWW_FORM)))
+				.thenReturn("{\"client\":{\"id\":\"abc123\"}}");
+
+		// execute: the pool is not shut down by an overview
+		ClientOverview first = service.getClientOverview("abc123", 5000);
+		ClientOverview second = service.getClientOverview("abc123", 5000);
+
+		// verify
+		assertTrue(first.isComplete());
+		assertTrue(second.isComplete());
+		assertEquals("abc123", second.getClientDetails().getResult().getClient().getId());
+	}
+
+	@Test
+	public void testPartsFailWhenThePoolQueueIsFull() throws MambuApiException {
+		// Slow requests: the parts are all submitted while the first one runs
+		Mockito.when(
+				executor.executeRequest(Mockito.anyString(), Mockito.any(ParamsMap.class), Mockito.eq(Method.GET),
+						Mockito.eq(ContentType.WWW_FORM))).thenAnswer(new Answer<String>() {
+			@Override
+			public String answer(InvocationOnMock invocation) throws Throwable {
+				Thread.sleep(200);
+				String url = (String) invocation.getArguments()[0];
+				return url.endsWith("clients/abc123") ? "{\"client\":{\"id\":\"abc123\"}}" : "[]";
+			}
+		});
+		// One part runs and one waits: the other parts don't fit in the pool
+		service.setThreadPool(1, 1);
+
+		// execute
+		ClientOverview overview = service.getClientOverview("abc123", 5000);
+
+		// verify
+		int failed = 0;
+		for (ClientOverviewPart<?> part : overview.getParts().values()) {
+			failed += (part.getStatus() == Status.FAILED) ? 1 : 0;
+		}
+		assertEquals(Part.values().length - 2, failed);
+		assertTrue(overview.getClientDetails().isSuccess());
+		assertTrue(overview.getDurationMillis() < 5000);
+	}
+}
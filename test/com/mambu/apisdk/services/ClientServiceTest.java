@@ -3,15 +3,22 @@
  */
 package com.mambu.apisdk.services;
 
+import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
 
 import org.junit.Test;
+import org.mockito.Mockito;
 
 import com.mambu.apisdk.MambuAPIServiceTest;
 import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.apisdk.util.bulk.BulkFetchResult;
+import com.mambu.clients.shared.model.Client;
 
 /**
  * @author ipenciuc
@@ -138,4 +145,35 @@ public class ClientServiceTest extends MambuAPIServiceTest {
 				ContentType.WWW_FORM);
 
 	}
+
+	/***
+	 * Test the retrieval of many clients by id: duplicate ids are requested once, the ids found by the search are not
+	 * requested again and the ids not found are reported with their error
+	 * 
+	 */
+	@Test
+	public void testGetClientsByIds() throws MambuApiException {
+
+		when(
+				executor.executeRequest(Mockito.contains("clients/search"), Mockito.any(ParamsMap.class),
+						Mockito.eq(Method.POST), Mockito.eq(ContentType.JSON))).thenReturn(
+				"[{\"encodedKey\":\"8a1\",\"id\":\"abc123\",\"firstName\":\"First\",\"lastName\":\"Last\"}]");
+		when(
+				executor.executeRequest("https://demo.mambutest.com/api/clients/def456", null, Method.GET,
+						ContentType.WWW_FORM)).thenThrow(new MambuApiException(404, "INVALID_CLIENT_ID"));
+
+		// execute
+		BulkFetchResult<Client> result = service.getClients(Arrays.asList("abc123", "def456", "abc123"), 2);
+
+		// verify
+		assertEquals(1, result.getEntities().size());
+		assertEquals("Last", result.getEntities().get("abc123").getLastName());
+		assertEquals(1, result.getFailures().size());
+		assertEquals(Integer.valueOf(404), result.getFailures().get("def456").getErrorCode());
+
+		verify(executor).executeRequest(Mockito.contains("clients/search"), Mockito.any(ParamsMap.class),
+				Mockito.eq(Method.POST), Mockito.eq(ContentType.JSON));
+		verify(executor, Mockito.never()).executeRequest("https://demo.mambutest.com/api/clients/abc123", null,
+				Method.GET, ContentType.WWW_FORM);
+	}
 }
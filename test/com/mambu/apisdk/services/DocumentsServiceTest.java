@@ -1,14 +1,28 @@
 package com.mambu.apisdk.services;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Matchers;
 import org.mockito.Mockito;
 
+import com.google.common.io.BaseEncoding;
+
 import com.mambu.api.server.handler.documents.model.JSONDocument;
 import com.mambu.apisdk.MambuAPIServiceTest;
 import com.mambu.apisdk.exception.MambuApiException;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.apisdk.util.bulk.BulkStatistics;
 import com.mambu.docs.shared.model.Document;
 import com.mambu.docs.shared.model.OwnerType;
 
@@ -18,6 +32,9 @@ import com.mambu.docs.shared.model.OwnerType;
  */
 public class DocumentsServiceTest extends MambuAPIServiceTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	private DocumentsService service;
 
 	@Override
@@ -66,4 +83,93 @@ public class DocumentsServiceTest extends MambuAPIServiceTest {
 				ContentType.JSON);
 	}
 
+	@Test
+	public void uploadDocumentFromFile() throws MambuApiException, IOException {
+
+		Document document = new Document();
+		document.setDocumentHolderKey("8a38a2c9415022670141507a1eb4001c");
+		document.setDocumentHolderType(OwnerType.CLIENT);
+		document.setName("sample.txt");
+		document.setType("txt");
+
+		String documentContent = "VGhpcyBpcyBhIHNhbXBsZSB0ZXh0IGRvY3VtZW50IGluIFVURi04IHdpdGggc3BlY2lhbCBjaGFyYWN0"
+				+ "ZXJzIGxpa2Ugw6TDtsO8PcOpJyIu";
+		File file = writeFile(folder.newFile("sample.txt"), BaseEncoding.base64().decode(documentContent));
+
+		service.uploadDocument(document, file);
+
+		ParamsMap params = new ParamsMap();
+		params.addParam(
+				"JSON",
+				"{\"document\":"
+						+ "{\"documentHolderKey\":\"8a38a2c9415022670141507a1eb4001c\","
+						+ "\"documentHolderType\":\"CLIENT\","
+						+ "\"name\":\"sample.txt\","
+						+ "\"type\":\"txt\"},"
+						+ "\"documentContent\":\"" + documentContent + "\""
+						+ "}");
+
+		// verify
+		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/documents", params, Method.POST,
+				ContentType.JSON);
+	}
+
+	@Test
+	public void uploadDirectory() throws MambuApiException, IOException {
+
+		File directory = folder.newFolder("kyc");
+		writeFile(new File(directory, "readme.txt"), new byte[] { 1 });
+		new File(directory, "8a1").mkdir();
+		writeFile(new File(directory, "8a1/passport.PDF"), new byte[] { 1, 2, 3 });
+		new File(directory, "8a2").mkdir();
+		writeFile(new File(directory, "8a2/id.jpg"), new byte[] { 4, 5 });
+		File manifest = new File(directory, "manifest.jsonl");
+
+		BulkStatistics statistics = service.uploadDirectory(directory,
+				DocumentsService.makeDocumentMapperByHolderDirectory(OwnerType.CLIENT), manifest, 2, 1024 * 1024);
+
+		// The files in the root directory are skipped
+		assertEquals(2, statistics.getSucceeded());
+		Mockito.verify(executor, Mockito.times(1)).executeRequest(
+				Matchers.eq("https://demo.mambutest.com/api/documents"),
+				Matchers.argThat(new JsonParamContains("\"documentHolderKey\":\"8a1\"")), Matchers.eq(Method.POST),
+				Matchers.eq(ContentType.JSON));
+		Mockito.verify(executor, Mockito.times(1)).executeRequest(
+				Matchers.eq("https://demo.mambutest.com/api/documents"),
+				Matchers.argThat(new JsonParamContains("\"type\":\"pdf\"")), Matchers.eq(Method.POST),
+				Matchers.eq(ContentType.JSON));
+		assertTrue(manifest.length() > 0);
+
+		// Resuming uploads nothing more
+		statistics = service.uploadDirectory(directory,
+				DocumentsService.makeDocumentMapperByHolderDirectory(OwnerType.CLIENT), manifest, 2, 1024 * 1024);
+		assertEquals(0, statistics.getCount());
+	}
+
+	private static File writeFile(File file, byte[] content) throws IOException {
+		OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content);
+		} finally {
+			output.close();
+		}
+		return file;
+	}
+
+	/**
+	 * Matches the params with a JSON request containing a string
+	 */
+	private static class JsonParamContains extends org.mockito.ArgumentMatcher<ParamsMap> {
+		private final String part;
+
+		private JsonParamContains(String part) {
+			this.part = part;
+		}
+
+		@Override
+		public boolean matches(Object params) {
+			String json = (params == null) ? null : ((ParamsMap) params).get("JSON");
+			return json != null && json.contains(part);
+		}
+	}
 }
@@ -3,11 +3,20 @@
  */
 package com.mambu.apisdk.services;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.TreeSet;
+
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.mambu.apisdk.MambuAPIServiceTest;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
 import com.mambu.intelligence.shared.model.Intelligence.Indicator;
@@ -36,4 +45,47 @@ public class IntelligenceServiceTest extends MambuAPIServiceTest {
 		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/indicators/INTEREST_IN_SUSPENSE", null,
 				Method.GET, ContentType.WWW_FORM);
 	}
+
+	@Test
+	public void testGetIndicators() throws MambuApiException {
+		String url = "https://demo.mambutest.com/api/indicators/";
+		Mockito.when(
+				executor.executeRequest(Mockito.eq(url + "NUM_CLIENTS"), Mockito.any(ParamsMap.class),
+						Mockito.eq(Method.GET), Mockito.eq(ContentType.WWW_FORM))).thenReturn(
+				"{\"NUM_CLIENTS\":\"12\"}");
+		Mockito.when(
+				executor.executeRequest(Mockito.eq(url + "GROSS_LOAN_PORTFOLIO"), Mockito.any(ParamsMap.class),
+						Mockito.eq(Method.GET), Mockito.eq(ContentType.WWW_FORM))).thenReturn(
+				"{\"GROSS_LOAN_PORTFOLIO\":\"0.25\"}");
+
+		// execute
+		EnumMap<Indicator, BigDecimal> values = service.getIndicators(Arrays.asList(Indicator.GROSS_LOAN_PORTFOLIO,
+				Indicator.NUM_CLIENTS, Indicator.GROSS_LOAN_PORTFOLIO), 2);
+
+		// verify
+		assertEquals(2, values.size());
+		assertEquals(new BigDecimal("12"), values.get(Indicator.NUM_CLIENTS));
+		assertEquals(new BigDecimal("0.25"), values.get(Indicator.GROSS_LOAN_PORTFOLIO));
+		assertNull(values.get(Indicator.INTEREST_IN_SUSPENSE));
+		Mockito.verify(executor).executeRequest(url + "GROSS_LOAN_PORTFOLIO", null, Method.GET, ContentType.WWW_FORM);
+	}
+
+	@Test
+	public void testGetIndicatorsFromNullHostileCollection() throws MambuApiException {
+		// TreeSet.contains(null) throws a NullPointerException
+		TreeSet<Indicator> indicators = new TreeSet<Indicator>(Arrays.asList(Indicator.NUM_CLIENTS));
+
+		// execute
+		EnumMap<Indicator, BigDecimal> values = service.getIndicators(indicators, 1);
+
+		// verify
+		assertEquals(1, values.size());
+		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/indicators/NUM_CLIENTS", null,
+				Method.GET, ContentType.WWW_FORM);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testGetIndicatorsRejectsNulls() throws MambuApiException {
+		service.getIndicators(Arrays.asList(Indicator.NUM_CLIENTS, null), 1);
+	}
 }
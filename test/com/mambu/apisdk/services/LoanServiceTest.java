@@ -3,24 +3,34 @@
  */
 package com.mambu.apisdk.services;
 
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.when;
+
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.mambu.accounts.shared.model.AccountHolderType;
+import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraints;
 import com.mambu.apisdk.MambuAPIServiceTest;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.AccountSelection;
 import com.mambu.apisdk.model.LoanAccountExpanded;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.apisdk.util.bulk.BulkResult;
+import com.mambu.apisdk.util.bulk.BulkResultHandler;
+import com.mambu.apisdk.util.bulk.BulkStatistics;
 import com.mambu.core.shared.model.CustomFieldValue;
 import com.mambu.core.shared.model.Money;
 import com.mambu.loans.shared.model.LoanAccount;
 import com.mambu.loans.shared.model.LoanAccount.RepaymentPeriodUnit;
+import com.mambu.loans.shared.model.LoanTransaction;
 
 /**
  * @author ipenciuc
@@ -151,4 +161,37 @@ public class LoanServiceTest extends MambuAPIServiceTest {
 				"https://demo.mambutest.com/api/loans/8ad661123b36cfaf013b42c2e0f46dca/transactions", params,
 				Method.POST, ContentType.WWW_FORM);
 	}
-}
\ No newline at end of file
+
+	@Test
+	public void applyFeeToLoanAccountsByFilter() throws MambuApiException {
+
+		when(
+				executor.executeRequest(Mockito.contains("loans/search"), Mockito.any(ParamsMap.class),
+						Mockito.eq(Method.POST), Mockito.eq(ContentType.JSON))).thenReturn(
+				"[{\"id\":\"ABC123\"},{\"id\":\"DEF456\"}]");
+		final List<String> accountIds = Collections.synchronizedList(new ArrayList<String>());
+
+		// execute
+		BulkStatistics statistics = service.applyFeeToLoanAccounts(
+				AccountSelection.byFilter(new JSONFilterConstraints()), "10", "1", "Monthly fee", 2,
+				new BulkResultHandler<String, LoanTransaction>() {
+					@Override
+					public void handleResult(BulkResult<String, LoanTransaction> result) {
+						accountIds.add(result.getItem());
+					}
+				});
+
+		// verify
+		assertEquals(2, statistics.getSucceeded());
+		assertEquals(2, accountIds.size());
+		ParamsMap params = new ParamsMap();
+		params.addParam("type", "FEE");
+		params.addParam("amount", "10");
+		params.addParam("repayment", "1");
+		params.addParam("notes", "Monthly fee");
+		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/loans/ABC123/transactions", params,
+				Method.POST, ContentType.WWW_FORM);
+		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/loans/DEF456/transactions", params,
+				Method.POST, ContentType.WWW_FORM);
+	}
+}
@@ -3,21 +3,45 @@
  */
 package com.mambu.apisdk.services;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.List;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import com.mambu.accounts.shared.model.AccountState;
+import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraints;
 import com.mambu.api.server.handler.savings.model.JSONSavingsAccount;
 import com.mambu.apisdk.MambuAPIServiceTest;
 import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.APIData;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiResponseListener;
+import com.mambu.apisdk.util.MambuEntityType;
 import com.mambu.apisdk.util.ParamsMap;
 import com.mambu.apisdk.util.RequestExecutor.ContentType;
 import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.apisdk.util.bulk.BulkStatistics;
+import com.mambu.apisdk.util.bulk.InputRecordReader;
+import com.mambu.apisdk.util.pagination.PageIterator;
+import com.mambu.apisdk.util.pagination.PageSizeController;
 import com.mambu.core.shared.model.CustomFieldValue;
 import com.mambu.savings.shared.model.SavingsAccount;
+import com.mambu.savings.shared.model.SavingsTransaction;
 import com.mambu.savings.shared.model.SavingsType;
 
 /**
@@ -26,6 +50,9 @@ import com.mambu.savings.shared.model.SavingsType;
  */
 public class SavingsServiceTest extends MambuAPIServiceTest {
 
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
 	private SavingsService service;
 
 	@Override
@@ -94,4 +121,75 @@ public class SavingsServiceTest extends MambuAPIServiceTest {
 		Mockito.verify(executor).executeRequest("https://demo.mambutest.com/api/savings", params, Method.POST,
 				ContentType.JSON);
 	}
+
+	@Test
+	public void processTransactionsFile() throws Exception {
+		File inputFile = folder.newFile("transactions.csv");
+		File resultsFile = new File(folder.getRoot(), "results.jsonl");
+		Writer input = new OutputStreamWriter(new FileOutputStream(inputFile), "UTF-8");
+		input.write("type,accountId,amount,date,notes,toAccountId,toAccountType\n");
+		input.write("DEPOSIT,ABC123,100.50,2015-11-20,\"Payroll, November\",,\n");
+		input.write("WITHDRAWAL,ABC123,-5,,,,\n");
+		input.write("TRANSFER,ABC123,20,,,DEF456,\n");
+		// Transfers are posted with the current date: a backdated transfer is rejected
+		input.write("TRANSFER,ABC123,30,2015-11-01,,DEF456,\n");
+		input.write("DEPOSIT,ABC123\n");
+		input.close();
+
+		BulkStatistics statistics = service.processTransactionsFile(inputFile, InputRecordReader.Format.CSV,
+				resultsFile, 2);
+
+		assertEquals(2, statistics.getSucceeded());
+		assertEquals(3, statistics.getFailed());
+
+		// Invalid and malformed records are not posted
+		Mockito.verify(executor, Mockito.times(2)).executeRequest(
+				Mockito.eq("https://demo.mambutest.com/api/savings/ABC123/transactions"), Mockito.any(ParamsMap.class),
+				Mockito.eq(Method.POST), Mockito.any(ContentType.class));
+
+		BufferedReader results = new BufferedReader(new InputStreamReader(new FileInputStream(resultsFile), "UTF-8"));
+		int lines = 0;
+		int failed = 0;
+		String line;
+		while ((line = results.readLine()) != null) {
+			lines++;
+			if (line.contains("\"status\":\"FAILED\"")) {
+				failed++;
+			}
+		}
+		results.close();
+		assertEquals(5, lines);
+		assertEquals(3, failed);
+	}
+
+	@Test
+	public void getSavingsTransactionsPagesWithPageSizeController() throws MambuApiException {
+		// A failing listener fails neither the request nor the notification of the other listeners
+		mambuApiService.addResponseListener(new ApiResponseListener() {
+			@Override
+			public void onApiResponse(ApiDefinition apiDefinition, long durationMillis, int responseLength,
+					int entitiesCount) {
+				throw new IllegalStateException("Listener failed");
+			}
+		});
+		PageSizeController controller = new PageSizeController(1000, 2, 1, 100);
+		mambuApiService.addResponseListener(controller);
+		Mockito.when(
+				executor.executeRequest(Mockito.contains("savings/transactions/search"),
+						Mockito.any(ParamsMap.class), Mockito.eq(Method.POST), Mockito.eq(ContentType.JSON)))
+				.thenReturn("[{},{}]", "[]");
+
+		PageIterator<SavingsTransaction> pages = service.getSavingsTransactionsPages(new JSONFilterConstraints(),
+				controller, 0);
+		assertEquals(2, pages.nextPage().size());
+		assertFalse(pages.hasNextPage());
+
+		// The first page is requested with the controller's initial page size
+		ArgumentCaptor<ParamsMap> params = ArgumentCaptor.forClass(ParamsMap.class);
+		Mockito.verify(executor, Mockito.times(2)).executeRequest(Mockito.anyString(), params.capture(),
+				Mockito.eq(Method.POST), Mockito.eq(ContentType.JSON));
+		assertEquals("2", params.getAllValues().get(0).get(APIData.LIMIT));
+		String apiKey = SearchService.makeApiDefinitionforSearchByFilter(MambuEntityType.SAVINGS_TRANSACTION).getKey();
+		assertNotNull(controller.getAverageResponseMillis(apiKey));
+	}
 }
@@ -0,0 +1,71 @@
+package com.mambu.apisdk.util.bulk;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mambu.api.server.handler.core.dynamicsearch.model.JSONFilterConstraints;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.model.AccountSelection;
+import com.mambu.apisdk.util.bulk.AccountSelectionExecutor.AccountFetcher;
+import com.mambu.apisdk.util.pagination.EntityKeyExtractor;
+
+public class AccountSelectionExecutorTest {
+
+	private static final EntityKeyExtractor<String> ID = new EntityKeyExtractor<String>() {
+		@Override
+		public String getKey(String account) {
+			return account;
+		}
+	};
+
+	@Test
+	public void testAccountsLeavingTheSelectionAreNotSkipped() throws MambuApiException {
+		// A custom view of the accounts without a fee: an account leaves the view once its fee is applied
+		final List<String> withoutFee = Collections.synchronizedList(new ArrayList<String>(Arrays.asList("A1", "A2",
+				"A3", "A4", "A5", "A6", "A7")));
+		AccountFetcher<String> fetcher = new AccountFetcher<String>() {
+			@Override
+			public List<String> getAccountsByCustomView(String customViewKey, int offset, int limit) {
+				synchronized (withoutFee) {
+					int from = Math.min(offset, withoutFee.size());
+					return new ArrayList<String>(withoutFee.subList(from, Math.min(offset + limit, withoutFee.size())));
+				}
+			}
+
+			@Override
+			public List<String> getAccounts(JSONFilterConstraints filterConstraints, int offset, int limit) {
+				throw new UnsupportedOperationException();
+			}
+		};
+		final List<String> charged = Collections.synchronizedList(new ArrayList<String>());
+		BulkOperation<String, String> applyFee = new BulkOperation<String, String>() {
+			@Override
+			public String execute(String accountId) {
+				charged.add(accountId);
+				withoutFee.remove(accountId);
+				return accountId;
+			}
+		};
+		AccountSelection accounts = AccountSelection.byCustomView("view");
+		accounts.setPageSize(2);
+
+		// execute
+		BulkStatistics statistics = new AccountSelectionExecutor<String, String>(fetcher, ID, applyFee, 2).execute(
+				accounts, new BulkResultHandler<String, String>() {
+					@Override
+					public void handleResult(BulkResult<String, String> result) {
+					}
+				});
+
+		// verify: every account charged once
+		assertEquals(7, statistics.getSucceeded());
+		Collections.sort(charged);
+		assertEquals(Arrays.asList("A1", "A2", "A3", "A4", "A5", "A6", "A7"), charged);
+	}
+}
@@ -0,0 +1,123 @@
+package com.mambu.apisdk.util.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.bulk.BulkResult.Status;
+
+public class BatchingBulkExecutorTest {
+
+	private static final OrderingKey<String> KEY = new OrderingKey<String>() {
+		@Override
+		public String getKey(String item) {
+			return item.split(":")[0];
+		}
+	};
+
+	private final AtomicInteger batchRequests = new AtomicInteger();
+	private final AtomicInteger itemRequests = new AtomicInteger();
+
+	// Batch request failing for batches with a "bad" item
+	private final BatchOperation<String, String> batchOperation = new BatchOperation<String, String>() {
+		@Override
+		public List<String> executeBatch(List<String> items) throws MambuApiException {
+			batchRequests.incrementAndGet();
+			String key = KEY.getKey(items.get(0));
+			List<String> results = new ArrayList<String>();
+			for (String item : items) {
+				assertEquals(key, KEY.getKey(item));
+				if (item.endsWith("bad")) {
+					throw new MambuApiException(400, "INVALID_CUSTOM_FIELD_VALUE");
+				}
+				results.add("batched " + item);
+			}
+			return results;
+		}
+	};
+
+	private final BulkOperation<String, String> itemOperation = new BulkOperation<String, String>() {
+		@Override
+		public String execute(String item) throws MambuApiException {
+			itemRequests.incrementAndGet();
+			if (item.endsWith("bad")) {
+				throw new MambuApiException(400, "INVALID_CUSTOM_FIELD_VALUE");
+			}
+			return "single " + item;
+		}
+	};
+
+	@Test
+	public void testBatchesByKey() throws MambuApiException {
+		BatchingBulkExecutor<String, String> executor = new BatchingBulkExecutor<String, String>(batchOperation,
+				itemOperation, 3, 4);
+		executor.setBatchKey(KEY);
+
+		List<String> items = new ArrayList<String>();
+		for (int i = 0; i < 5; i++) {
+			items.add("client1:" + i);
+			items.add("client2:" + i);
+		}
+		items.add("client3:0");
+
+		BulkReport<String, String> report = executor.executeAll(items);
+
+		// client1 and client2 in batches of 3 and 2, client3 in a single item batch
+		assertEquals(4, batchRequests.get());
+		assertEquals(1, itemRequests.get());
+		assertEquals(items.size(), report.getResults().size());
+		for (int i = 0; i < items.size(); i++) {
+			BulkResult<String, String> result = report.getResults().get(i);
+			assertEquals(i, result.getIndex());
+			assertEquals(items.get(i), result.getItem());
+			assertTrue(result.getResult().endsWith(items.get(i)));
+		}
+		assertEquals(items.size(), report.getStatistics().getSucceeded());
+	}
+
+	@Test
+	public void testFailedBatchReportsEachItem() throws MambuApiException {
+		BatchingBulkExecutor<String, String> executor = new BatchingBulkExecutor<String, String>(batchOperation,
+				itemOperation, 10, 2);
+		executor.setBatchKey(KEY);
+
+		List<String> items = new ArrayList<String>();
+		items.add("client1:field1");
+		items.add("client1:field2bad");
+		items.add("client1:field3");
+		items.add("client2:field1");
+
+		BulkReport<String, String> report = executor.executeAll(items);
+
+		assertEquals(1, report.getFailures().size());
+		BulkResult<String, String> failure = report.getFailures().get(0);
+		assertEquals("client1:field2bad", failure.getItem());
+		assertEquals(Status.FAILED, failure.getStatus());
+		assertEquals("single client1:field3", report.getResults().get(2).getResult());
+		assertEquals("single client2:field1", report.getResults().get(3).getResult());
+		assertEquals(1, batchRequests.get());
+		assertEquals(4, itemRequests.get());
+	}
+
+	@Test
+	public void testFailedBatchWithoutItemOperation() throws MambuApiException {
+		BatchingBulkExecutor<String, String> executor = new BatchingBulkExecutor<String, String>(batchOperation,
+				null, 10, 2);
+		executor.setBatchKey(KEY);
+
+		List<String> items = new ArrayList<String>();
+		items.add("client1:field1bad");
+		items.add("client1:field2");
+
+		BulkReport<String, String> report = executor.executeAll(items);
+
+		assertEquals(2, report.getFailures().size());
+		assertEquals(Integer.valueOf(400), report.getFailures().get(1).getException().getErrorCode());
+	}
+}
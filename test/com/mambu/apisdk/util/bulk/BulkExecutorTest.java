@@ -0,0 +1,184 @@
+package com.mambu.apisdk.util.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.bulk.BulkResult.Status;
+
+public class BulkExecutorTest {
+
+	/**
+	 * Operation on "key:sequence" items recording the execution order per key and the maximum concurrency
+	 */
+	private static class RecordingOperation implements BulkOperation<String, String> {
+		private final Map<String, List<Integer>> executed = new HashMap<String, List<Integer>>();
+		private final AtomicInteger running = new AtomicInteger();
+		private final AtomicInteger maxRunning = new AtomicInteger();
+		private final String failingItem;
+
+		private RecordingOperation(String failingItem) {
+			this.failingItem = failingItem;
+		}
+
+		@Override
+		public String execute(String item) throws MambuApiException {
+			int now = running.incrementAndGet();
+			synchronized (maxRunning) {
+				maxRunning.set(Math.max(maxRunning.get(), now));
+			}
+			try {
+				Thread.sleep(2);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			running.decrementAndGet();
+			String[] parts = item.split(":");
+			synchronized (executed) {
+				if (!executed.containsKey(parts[0])) {
+					executed.put(parts[0], new ArrayList<Integer>());
+				}
+				executed.get(parts[0]).add(Integer.valueOf(parts[1]));
+			}
+			if (item.equals(failingItem)) {
+				throw new MambuApiException(400, "failed");
+			}
+			return "done " + item;
+		}
+	}
+
+	private static final OrderingKey<String> KEY = new OrderingKey<String>() {
+		@Override
+		public String getKey(String item) {
+			return item.split(":")[0];
+		}
+	};
+
+	private static List<String> makeItems(int keys, int perKey) {
+		List<String> items = new ArrayList<String>();
+		for (int i = 0; i < perKey; i++) {
+			for (int k = 0; k < keys; k++) {
+				items.add("account" + k + ":" + i);
+			}
+		}
+		return items;
+	}
+
+	@Test
+	public void testOrderedPerKeyWithBoundedConcurrency() throws MambuApiException {
+		RecordingOperation operation = new RecordingOperation(null);
+		BulkExecutor<String, String> executor = new BulkExecutor<String, String>(operation, 4);
+		executor.setOrderingKey(KEY);
+
+		List<String> items = makeItems(10, 20);
+		BulkReport<String, String> report = executor.executeAll(items);
+
+		assertEquals(200, report.getResults().size());
+		for (int i = 0; i < items.size(); i++) {
+			BulkResult<String, String> result = report.getResults().get(i);
+			assertEquals(items.get(i), result.getItem());
+			assertEquals("done " + items.get(i), result.getResult());
+		}
+		for (List<Integer> sequence : operation.executed.values()) {
+			List<Integer> sorted = new ArrayList<Integer>(sequence);
+			Collections.sort(sorted);
+			assertEquals(sorted, sequence);
+		}
+		assertTrue(operation.maxRunning.get() <= 4);
+
+		BulkStatistics statistics = report.getStatistics();
+		assertEquals(200, statistics.getSucceeded());
+		assertEquals(0, statistics.getFailed());
+		assertTrue(statistics.getLatencyPercentile(50) <= statistics.getLatencyPercentile(99));
+		assertTrue(statistics.getLatencyPercentile(99) <= statistics.getMaxLatencyMillis());
+	}
+
+	@Test
+	public void testFailureAndSkip() throws MambuApiException {
+		BulkExecutor<String, String> executor = new BulkExecutor<String, String>(new RecordingOperation(
+				"account1:3"), 3);
+		executor.setOrderingKey(KEY);
+		executor.setSkipAfterFailure(true);
+
+		BulkReport<String, String> report = executor.executeAll(makeItems(3, 10));
+
+		// account1 items 4 to 9 are skipped
+		assertEquals(7, report.getFailures().size());
+		assertEquals(Status.FAILED, report.getFailures().get(0).getStatus());
+		assertEquals(Integer.valueOf(400), report.getFailures().get(0).getException().getErrorCode());
+		assertEquals(1, report.getStatistics().getFailed());
+		assertEquals(6, report.getStatistics().getSkipped());
+		assertEquals(23, report.getStatistics().getSucceeded());
+	}
+
+	@Test
+	public void testHandlerFailureStopsRun() {
+		final AtomicInteger handled = new AtomicInteger();
+		BulkExecutor<String, String> executor = new BulkExecutor<String, String>(new RecordingOperation(null), 2);
+		executor.setMaxPendingItems(2);
+		try {
+			executor.execute(makeItems(1, 1000).iterator(), new BulkResultHandler<String, String>() {
+				@Override
+				public void handleResult(BulkResult<String, String> result) throws MambuApiException {
+					if (handled.incrementAndGet() == 5) {
+						throw new MambuApiException(-1, "Cannot write result");
+					}
+				}
+			});
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertEquals("Cannot write result", e.getMessage());
+		}
+		// Only the pending items are completed after the failure
+		assertTrue(handled.get() < 10);
+	}
+
+	@Test
+	public void testErrorStopsRunWithoutHanging() throws MambuApiException {
+		BulkExecutor<String, String> executor = new BulkExecutor<String, String>(new BulkOperation<String, String>() {
+			@Override
+			public String execute(String item) {
+				if (item.equals("account0:2")) {
+					throw new OutOfMemoryError("Cannot read file");
+				}
+				return item;
+			}
+		}, 2);
+		executor.setOrderingKey(KEY);
+		executor.setMaxPendingItems(2);
+		try {
+			executor.executeAll(makeItems(2, 100));
+			fail("Error expected");
+		} catch (OutOfMemoryError e) {
+			assertEquals("Cannot read file", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testLatencyPercentiles() {
+		BulkStatistics statistics = new BulkStatistics();
+		statistics.start();
+		for (int i = 1; i <= 1000; i++) {
+			statistics.record(Status.SUCCEEDED, i);
+		}
+		statistics.finish();
+
+		assertEquals(1000, statistics.getMaxLatencyMillis());
+		assertEquals(500.5, statistics.getMeanLatencyMillis(), 0.001);
+		// Percentiles are accurate to within the bucket width of 1/8 of the power of two
+		long p50 = statistics.getLatencyPercentile(50);
+		long p99 = statistics.getLatencyPercentile(99);
+		assertTrue("p50=" + p50, p50 >= 500 && p50 <= 500 * 1.125);
+		assertTrue("p99=" + p99, p99 >= 990 && p99 <= 1000);
+	}
+}
@@ -0,0 +1,96 @@
+package com.mambu.apisdk.util.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.apisdk.util.bulk.ReversalReport.AccountReconciliation;
+import com.mambu.savings.shared.model.SavingsTransaction;
+
+public class BulkReversalTest {
+
+	/**
+	 * Operation recording the reversed transaction IDs, failing for one transaction
+	 */
+	private static class RecordingReversal implements BulkOperation<SavingsTransaction, SavingsTransaction> {
+		private final List<Long> reversed = new ArrayList<Long>();
+		private final long failingId;
+
+		private RecordingReversal(long failingId) {
+			this.failingId = failingId;
+		}
+
+		@Override
+		public SavingsTransaction execute(SavingsTransaction transaction) throws MambuApiException {
+			if (transaction.getTransactionId() == failingId) {
+				throw new MambuApiException(400, "INVALID_TRANSACTION_STATE");
+			}
+			synchronized (reversed) {
+				reversed.add(transaction.getTransactionId());
+			}
+			return transaction;
+		}
+	}
+
+	private static SavingsTransaction makeTransaction(String accountKey, long id, String entryDate, String amount) {
+		String json = "{\"transactionId\":" + id + ",\"parentAccountKey\":\"" + accountKey + "\",\"entryDate\":\""
+				+ entryDate + "\",\"amount\":" + amount + ",\"type\":\"DEPOSIT\"}";
+		return GsonUtils.createGson().fromJson(json, SavingsTransaction.class);
+	}
+
+	@Test
+	public void testNewestFirstPerAccount() throws MambuApiException {
+		SavingsTransaction reversed = makeTransaction("A", 9, "2016-01-09T00:00:00+0000", "1");
+		reversed.setReversalTransactionKey("8a10");
+		List<SavingsTransaction> transactions = Arrays.asList(
+				makeTransaction("A", 1, "2016-01-01T00:00:00+0000", "10"),
+				makeTransaction("B", 2, "2016-01-02T00:00:00+0000", "20"),
+				makeTransaction("A", 3, "2016-01-03T00:00:00+0000", "30"), reversed,
+				// Back-dated: older entry date than transaction 3
+				makeTransaction("A", 4, "2016-01-02T00:00:00+0000", "40"),
+				makeTransaction("B", 5, "2016-01-05T00:00:00+0000", "50"),
+				makeTransaction("B", 6, "2016-01-06T00:00:00+0000", "60"));
+
+		// The reversal of B's transaction 5 fails: the older transaction 2 must not be reversed
+		RecordingReversal operation = new RecordingReversal(5);
+		ReversalReport<SavingsTransaction, SavingsTransaction> report =
+				new BulkReversal<SavingsTransaction, SavingsTransaction>(operation, 2).reverseAll(transactions);
+
+		List<Long> accountA = new ArrayList<Long>();
+		for (Long id : operation.reversed) {
+			if (id == 1 || id == 3 || id == 4) {
+				accountA.add(id);
+			}
+		}
+		assertEquals(Arrays.asList(3L, 4L, 1L), accountA);
+		assertFalse(operation.reversed.contains(2L));
+		assertTrue(operation.reversed.contains(6L));
+
+		assertEquals(1, report.getAlreadyReversed().size());
+		assertFalse(report.isReconciled());
+		assertEquals(2, report.getAccounts().size());
+
+		AccountReconciliation a = report.getAccounts().get(0);
+		assertEquals("A", a.getAccountKey());
+		assertTrue(a.isReconciled());
+		assertEquals(0, new BigDecimal("80").compareTo(a.getReversedAmount()));
+
+		AccountReconciliation b = report.getUnreconciledAccounts().get(0);
+		assertEquals("B", b.getAccountKey());
+		assertEquals(3, b.getRequested());
+		assertEquals(1, b.getReversed());
+		assertEquals(1, b.getFailed());
+		assertEquals(1, b.getSkipped());
+		assertEquals(0, new BigDecimal("130").compareTo(b.getRequestedAmount()));
+		assertEquals(0, new BigDecimal("60").compareTo(b.getReversedAmount()));
+	}
+}
@@ -0,0 +1,49 @@
+package com.mambu.apisdk.util.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.bulk.BulkResult.Status;
+
+public class FileManifestTest {
+
+	private final static Charset UTF8 = Charset.forName("UTF-8");
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testIncompleteLineIsRemoved() throws IOException, MambuApiException {
+		File root = folder.newFolder("documents");
+		File manifestFile = folder.newFile("manifest.jsonl");
+		// Run killed while writing the second line
+		Files.write(manifestFile.toPath(), ("{\"path\":\"a.pdf\",\"status\":\"SUCCEEDED\",\"result\":\"1\"}\n"
+				+ "{\"path\":\"b.pdf\",\"sta").getBytes(UTF8));
+
+		FileManifest<String> manifest = new FileManifest<String>(manifestFile, root);
+		assertEquals(1, manifest.getCompletedCount());
+		assertTrue(manifest.isCompleted(new File(root, "a.pdf")));
+		assertFalse(manifest.isCompleted(new File(root, "b.pdf")));
+		manifest.handleResult(new BulkResult<File, String>(0, new File(root, "b.pdf"), Status.SUCCEEDED, "2", null, 0));
+		manifest.close();
+
+		List<String> lines = Files.readAllLines(manifestFile.toPath(), UTF8);
+		assertEquals(2, lines.size());
+		assertEquals("{\"path\":\"b.pdf\",\"status\":\"SUCCEEDED\",\"result\":\"2\"}", lines.get(1));
+		manifest = new FileManifest<String>(manifestFile, root);
+		assertEquals(2, manifest.getCompletedCount());
+		manifest.close();
+	}
+}
@@ -0,0 +1,167 @@
+package com.mambu.apisdk.util.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.bulk.BulkResult.Status;
+import com.mambu.apisdk.util.pagination.EntityKeyExtractor;
+
+public class PipelineExecutorTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Workflow state recording the stages executed for it
+	 */
+	private static class Workflow {
+		private String id;
+		private List<String> completed = new ArrayList<String>();
+
+		private Workflow(String id) {
+			this.id = id;
+		}
+	}
+
+	/**
+	 * Stage appending its name to the workflow, failing for the workflows in the failing list
+	 */
+	private static class RecordingStage implements BulkOperation<Workflow, Void> {
+		private final String name;
+		private final List<String> failingIds;
+		private final AtomicInteger executed = new AtomicInteger();
+
+		private RecordingStage(String name, String... failingIds) {
+			this.name = name;
+			this.failingIds = Arrays.asList(failingIds);
+		}
+
+		@Override
+		public Void execute(Workflow workflow) throws MambuApiException {
+			executed.incrementAndGet();
+			if (failingIds.contains(workflow.id)) {
+				throw new MambuApiException(400, "failed " + workflow.id);
+			}
+			synchronized (workflow) {
+				workflow.completed.add(name);
+			}
+			return null;
+		}
+	}
+
+	private static final EntityKeyExtractor<Workflow> KEY = new EntityKeyExtractor<Workflow>() {
+		@Override
+		public String getKey(Workflow workflow) {
+			return workflow.id;
+		}
+	};
+
+	private static List<Workflow> makeWorkflows(int count) {
+		List<Workflow> workflows = new ArrayList<Workflow>();
+		for (int i = 0; i < count; i++) {
+			workflows.add(new Workflow("w" + i));
+		}
+		return workflows;
+	}
+
+	@Test
+	public void testStagesInOrder() throws MambuApiException {
+		RecordingStage create = new RecordingStage("create");
+		RecordingStage approve = new RecordingStage("approve", "w3");
+		RecordingStage disburse = new RecordingStage("disburse");
+
+		PipelineExecutor<Workflow> pipeline = new PipelineExecutor<Workflow>();
+		pipeline.addStage("create", create, 4).addStage("approve", approve, 2).addStage("disburse", disburse, 1);
+
+		PipelineReport<Workflow> report = pipeline.executeAll(makeWorkflows(20));
+
+		assertEquals(20, report.getResults().size());
+		for (PipelineResult<Workflow> result : report.getResults()) {
+			assertEquals("w" + result.getIndex(), result.getItem().id);
+			if (result.getItem().id.equals("w3")) {
+				assertEquals(Status.FAILED, result.getStatus());
+				assertEquals("approve", result.getFailedStage());
+				assertEquals("create", result.getLastCompletedStage());
+				assertEquals(Arrays.asList("create"), result.getItem().completed);
+			} else {
+				assertTrue(result.isSuccess());
+				assertNull(result.getFailedStage());
+				assertEquals(Arrays.asList("create", "approve", "disburse"), result.getItem().completed);
+			}
+		}
+		assertEquals(1, report.getFailures().size());
+		// A failed workflow does not reach the next stages
+		assertEquals(19, disburse.executed.get());
+		assertEquals(20, report.getStageStatistics("create").getSucceeded());
+		assertEquals(1, report.getStageStatistics("approve").getFailed());
+		assertEquals(19, report.getStageStatistics("disburse").getCount());
+	}
+
+	@Test
+	public void testErrorStopsRunWithoutHanging() throws MambuApiException {
+		PipelineExecutor<Workflow> pipeline = new PipelineExecutor<Workflow>();
+		pipeline.addStage("create", new RecordingStage("create"), 2);
+		pipeline.addStage("upload", new BulkOperation<Workflow, Void>() {
+			@Override
+			public Void execute(Workflow workflow) {
+				if (workflow.id.equals("w5")) {
+					throw new OutOfMemoryError("Cannot read file");
+				}
+				return null;
+			}
+		}, 2);
+		pipeline.setMaxPendingItems(2);
+		try {
+			pipeline.executeAll(makeWorkflows(100));
+			fail("Error expected");
+		} catch (OutOfMemoryError e) {
+			assertEquals("Cannot read file", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testResumeFromJournal() throws MambuApiException, IOException {
+		File journal = new File(folder.getRoot(), "pipeline.jsonl");
+
+		PipelineExecutor<Workflow> pipeline = new PipelineExecutor<Workflow>();
+		pipeline.addStage("create", new RecordingStage("create"), 2);
+		pipeline.addStage("approve", new RecordingStage("approve", "w1", "w2"), 2);
+		pipeline.setJournal(journal, Workflow.class, KEY);
+
+		PipelineReport<Workflow> report = pipeline.executeAll(makeWorkflows(4));
+		assertEquals(2, report.getFailures().size());
+
+		// Resume: only the failed approvals are executed again
+		RecordingStage create = new RecordingStage("create");
+		RecordingStage approve = new RecordingStage("approve");
+		pipeline = new PipelineExecutor<Workflow>();
+		pipeline.addStage("create", create, 2);
+		pipeline.addStage("approve", approve, 2);
+		pipeline.setJournal(journal, Workflow.class, KEY);
+
+		report = pipeline.executeAll(makeWorkflows(4));
+
+		assertEquals(0, report.getFailures().size());
+		assertEquals(0, create.executed.get());
+		assertEquals(2, approve.executed.get());
+		for (PipelineResult<Workflow> result : report.getResults()) {
+			// The resumed workflows have the state recorded in the journal
+			assertEquals(Arrays.asList("create", "approve"), result.getItem().completed);
+			assertEquals("approve", result.getLastCompletedStage());
+		}
+	}
+}
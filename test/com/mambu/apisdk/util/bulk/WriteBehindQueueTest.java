@@ -0,0 +1,185 @@
+package com.mambu.apisdk.util.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+public class WriteBehindQueueTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Operation failing with the error code in items "fail:code:times" the given number of times
+	 */
+	private static class FlakyOperation implements BulkOperation<String, String> {
+		private final AtomicInteger requests = new AtomicInteger();
+		private final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		public String execute(String item) throws MambuApiException {
+			requests.incrementAndGet();
+			String[] parts = item.split(":");
+			if (parts[0].equals("fail")) {
+				synchronized (this) {
+					int times = Integer.valueOf(parts[2]);
+					long failures = 0;
+					for (String executedItem : executed) {
+						failures += executedItem.equals(item) ? 1 : 0;
+					}
+					executed.add(item);
+					if (failures < times) {
+						throw new MambuApiException(Integer.valueOf(parts[1]), "failed");
+					}
+				}
+			} else {
+				executed.add(item);
+			}
+			return "created " + item;
+		}
+	}
+
+	@Test
+	public void testRetriesTransientFailures() throws Exception {
+		FlakyOperation operation = new FlakyOperation();
+		WriteBehindQueue<String, String> queue = new WriteBehindQueue<String, String>(operation, 10, 2);
+		queue.setRetries(2, 1);
+		queue.start();
+
+		Future<String> ok = queue.submit("comment1");
+		Future<String> retried = queue.submit("fail:503:2");
+		Future<String> rejected = queue.submit("fail:400:1");
+		Future<String> exhausted = queue.submit("fail:-1:5");
+		queue.close();
+
+		assertEquals("created comment1", ok.get());
+		assertEquals("created fail:503:2", retried.get());
+		assertFailed(rejected, 400);
+		assertFailed(exhausted, -1);
+		// 1 + 3 + 1 + 3 requests
+		assertEquals(8, operation.requests.get());
+		assertEquals(2, queue.getStatistics().getSucceeded());
+		assertEquals(2, queue.getStatistics().getFailed());
+	}
+
+	@Test
+	public void testRecoversPendingItemsFromJournal() throws Exception {
+		File journal = folder.newFile("comments.journal");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(journal), "UTF-8");
+		writer.write("{\"seq\":0,\"item\":\"comment0\"}\n");
+		writer.write("{\"seq\":1,\"item\":\"comment1\"}\n");
+		writer.write("{\"seq\":0,\"done\":true}\n");
+		writer.write("{\"seq\":2,\"item\":\"comment2\"}\n");
+		// Incomplete line written when the application was killed
+		writer.write("{\"seq\":3,\"ite");
+		writer.close();
+
+		FlakyOperation operation = new FlakyOperation();
+		final List<Long> handled = Collections.synchronizedList(new ArrayList<Long>());
+		WriteBehindQueue<String, String> queue = new WriteBehindQueue<String, String>(operation, 1, 1);
+		queue.setJournal(journal, String.class);
+		queue.setResultHandler(new BulkResultHandler<String, String>() {
+			@Override
+			public void handleResult(BulkResult<String, String> result) {
+				handled.add(result.getIndex());
+			}
+		});
+		queue.start();
+		assertEquals("created comment3", queue.submit("comment3").get());
+		queue.close();
+
+		assertEquals(3, operation.executed.size());
+		assertTrue(operation.executed.containsAll(Arrays.asList("comment1", "comment2", "comment3")));
+		assertTrue(handled.containsAll(Arrays.asList(1L, 2L, 3L)));
+
+		// All items are completed: nothing is recovered again
+		FlakyOperation nextOperation = new FlakyOperation();
+		WriteBehindQueue<String, String> nextQueue = new WriteBehindQueue<String, String>(nextOperation, 1, 1);
+		nextQueue.setJournal(journal, String.class);
+		nextQueue.start();
+		nextQueue.close();
+		assertEquals(0, nextOperation.requests.get());
+	}
+
+	@Test
+	public void testRecoveryKeepsPendingItemsOnDisk() throws Exception {
+		File journal = folder.newFile("comments.journal");
+		Writer writer = new OutputStreamWriter(new FileOutputStream(journal), "UTF-8");
+		writer.write("{\"seq\":0,\"item\":\"comment0\"}\n");
+		writer.write("{\"seq\":1,\"item\":\"comment1\"}\n");
+		writer.write("{\"seq\":0,\"done\":true}\n");
+		writer.close();
+		// Temporary file left by a crash during an earlier recovery
+		writer = new OutputStreamWriter(new FileOutputStream(new File(journal.getPath() + ".tmp")), "UTF-8");
+		writer.write("{\"seq\":0,\"ite");
+		writer.close();
+
+		WriteBehindJournal<String> first = new WriteBehindJournal<String>(journal, String.class);
+		assertEquals(Arrays.asList(1L), new ArrayList<Long>(first.recover().keySet()));
+
+		// The application is killed before completing the item: the next recovery still finds it
+		WriteBehindJournal<String> second = new WriteBehindJournal<String>(journal, String.class);
+		assertEquals("comment1", second.recover().get(1L));
+		assertFalse(new File(journal.getPath() + ".tmp").exists());
+		first.close();
+		second.close();
+	}
+
+	@Test
+	public void testErrorFailsFuturesWithoutHanging() throws Exception {
+		BulkOperation<String, String> operation = new BulkOperation<String, String>() {
+			@Override
+			public String execute(String item) {
+				throw new OutOfMemoryError(item);
+			}
+		};
+		WriteBehindQueue<String, String> queue = new WriteBehindQueue<String, String>(operation, 1, 1);
+		queue.start();
+
+		Future<String> failed = queue.submit("comment0");
+		try {
+			failed.get();
+			fail("Exception expected");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof MambuApiException);
+		}
+		// The only worker was stopped: the queue fills up and the next item is rejected
+		Future<String> stranded = queue.submit("comment1");
+		try {
+			queue.submit("comment2");
+			fail("Exception expected");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		queue.close();
+		assertFailed(stranded, -1);
+	}
+
+	private static void assertFailed(Future<String> future, int errorCode) throws InterruptedException {
+		try {
+			future.get();
+			fail("Exception expected");
+		} catch (ExecutionException e) {
+			assertEquals(Integer.valueOf(errorCode), ((MambuApiException) e.getCause()).getErrorCode());
+		}
+	}
+}
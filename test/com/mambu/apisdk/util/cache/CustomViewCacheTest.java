@@ -0,0 +1,57 @@
+package com.mambu.apisdk.util.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import com.mambu.api.server.handler.customviews.model.ApiViewType;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.services.UsersService;
+import com.mambu.core.shared.model.CustomView;
+
+public class CustomViewCacheTest {
+
+	private static CustomView makeCustomView(String encodedKey, String name) {
+		CustomView customView = mock(CustomView.class);
+		when(customView.getEncodedKey()).thenReturn(encodedKey);
+		when(customView.getConfigurationName()).thenReturn(name);
+		return customView;
+	}
+
+	@Test
+	public void testWarmedViewsAreServedUntilInvalidated() throws MambuApiException {
+		UsersService usersService = mock(UsersService.class);
+		CustomView clientsView = makeCustomView("8a1", "Active clients");
+		CustomView loansView = makeCustomView("8a2", "Active loans");
+		when(usersService.getCustomViews("ann", null)).thenReturn(Arrays.asList(clientsView, loansView));
+		when(usersService.getCustomViews("ann", ApiViewType.LOANS)).thenReturn(Arrays.asList(loansView));
+		when(usersService.getCustomViews("bob", null)).thenReturn(null);
+
+		CustomViewCache cache = new CustomViewCache(usersService, 60000);
+		cache.warmUp(Arrays.asList("ann", "bob"));
+
+		for (int i = 0; i < 3; i++) {
+			assertEquals("Active clients", cache.getCustomView("ann", "8a1").getConfigurationName());
+			assertEquals("8a2", cache.getCustomViewByName("ann", ApiViewType.LOANS, "Active loans").getEncodedKey());
+			assertNull(cache.getCustomViewByName("ann", ApiViewType.LOANS, "Active clients"));
+			assertNull(cache.getCustomView("bob", "8a1"));
+		}
+		verify(usersService, times(1)).getCustomViews("ann", null);
+		verify(usersService, times(1)).getCustomViews("ann", ApiViewType.LOANS);
+		verify(usersService, times(1)).getCustomViews("bob", null);
+
+		// Only the invalidated user's views are requested again
+		cache.invalidate("ann");
+		cache.getCustomView("ann", "8a1");
+		cache.getCustomView("bob", "8a1");
+		verify(usersService, times(2)).getCustomViews("ann", null);
+		verify(usersService, times(1)).getCustomViews("bob", null);
+	}
+}
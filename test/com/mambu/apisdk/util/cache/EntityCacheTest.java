@@ -0,0 +1,93 @@
+package com.mambu.apisdk.util.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.mambu.apisdk.MambuAPIServiceTest;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.services.ClientsService;
+import com.mambu.apisdk.services.LoansService;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.apisdk.util.MambuEntityType;
+import com.mambu.apisdk.util.ParamsMap;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.clients.shared.model.ClientExpanded;
+
+public class EntityCacheTest extends MambuAPIServiceTest {
+
+	private final static String CLIENT_URL = "https://demo.mambutest.com/api/clients/ABC";
+	private final static String LOAN_URL = "https://demo.mambutest.com/api/loans/L1";
+
+	@Test
+	public void testWritesInvalidateCachedEntity() throws MambuApiException {
+		EntityCache entityCache = new EntityCache(60000, 100).addEntityType(MambuEntityType.CLIENT);
+		mambuApiService.setEntityCache(entityCache);
+		ClientsService clientsService = new ClientsService(mambuApiService);
+		LoansService loansService = new LoansService(mambuApiService);
+
+		when(
+				executor.executeRequest(Mockito.eq(CLIENT_URL), Mockito.any(ParamsMap.class), Mockito.eq(Method.GET),
+						Mockito.eq(ContentType.WWW_FORM))).thenReturn(
+				"{\"id\":\"ABC\",\"encodedKey\":\"8a1\",\"firstName\":\"Ann\"}");
+		when(
+				executor.executeRequest(Mockito.eq(LOAN_URL), Mockito.any(ParamsMap.class), Mockito.eq(Method.GET),
+						Mockito.eq(ContentType.WWW_FORM))).thenReturn("{\"id\":\"L1\"}");
+
+		// Each read parses its own copy of the cached response
+		Client first = clientsService.getClient("ABC");
+		Client second = clientsService.getClient("ABC");
+		assertEquals("Ann", second.getFirstName());
+		assertNotSame(first, second);
+		verify(executor, times(1)).executeRequest(Mockito.eq(CLIENT_URL), Mockito.any(ParamsMap.class),
+				Mockito.eq(Method.GET), Mockito.eq(ContentType.WWW_FORM));
+
+		// Loan accounts are not cached
+		loansService.getLoanAccount("L1");
+		loansService.getLoanAccount("L1");
+		verify(executor, times(2)).executeRequest(Mockito.eq(LOAN_URL), Mockito.any(ParamsMap.class),
+				Mockito.eq(Method.GET), Mockito.eq(ContentType.WWW_FORM));
+
+		// Updated by its encoded key: the client read by ID is requested again
+		ClientExpanded update = GsonUtils.createGson().fromJson(
+				"{\"client\":{\"id\":\"ABC\",\"encodedKey\":\"8a1\",\"firstName\":\"Anna\"}}", ClientExpanded.class);
+		clientsService.updateClient(update);
+		assertEquals(0, entityCache.size());
+
+		clientsService.getClient("ABC");
+		verify(executor, times(2)).executeRequest(Mockito.eq(CLIENT_URL), Mockito.any(ParamsMap.class),
+				Mockito.eq(Method.GET), Mockito.eq(ContentType.WWW_FORM));
+		assertEquals(1, entityCache.getStatistics().hitCount());
+	}
+
+	@Test
+	public void testInvalidateRemovesOnlyTheEntityResponses() {
+		EntityCache entityCache = new EntityCache(60000, 2).addEntityType(MambuEntityType.CLIENT);
+		ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+		String clientA = "{\"id\":\"A\",\"encodedKey\":\"8a1\"}";
+		entityCache.put(getClient, "A", "clients/A", clientA, entityCache.getGeneration());
+		entityCache.put(getClient, "8a1", "clients/8a1", clientA, entityCache.getGeneration());
+		assertEquals(2, entityCache.size());
+
+		// Evicts the first response of client A
+		entityCache.put(getClient, "B", "clients/B", "{\"id\":\"B\"}", entityCache.getGeneration());
+		entityCache.invalidate(MambuEntityType.CLIENT, "A");
+		assertEquals(1, entityCache.size());
+		assertEquals("{\"id\":\"B\"}", entityCache.get("clients/B"));
+
+		entityCache.put(getClient, "A", "clients/A", clientA, entityCache.getGeneration());
+		entityCache.invalidate(MambuEntityType.CLIENT, "8a1");
+		assertNull(entityCache.get("clients/A"));
+		assertEquals("{\"id\":\"B\"}", entityCache.get("clients/B"));
+	}
+}
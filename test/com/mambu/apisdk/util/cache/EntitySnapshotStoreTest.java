@@ -0,0 +1,145 @@
+package com.mambu.apisdk.util.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Date;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mambu.clients.shared.model.Client;
+
+public class EntitySnapshotStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static String clientJson(String id, String firstName) {
+		return "{\"id\":\"" + id + "\",\"firstName\":\"" + firstName + "\"}";
+	}
+
+	@Test
+	public void testSnapshotsSurviveRestart() throws IOException {
+		File file = new File(folder.getRoot(), "clients.snapshot");
+		EntitySnapshotStore store = new EntitySnapshotStore(file, 64 * 1024);
+		assertTrue(store.putJson(Client.class, "8a1", "C1", new Date(2000), clientJson("C1", "Ann")));
+		assertTrue(store.putJson(Client.class, "8a2", "C2", new Date(1000), clientJson("C2", "Bob")));
+		// Older version: ignored
+		assertFalse(store.putJson(Client.class, "8a1", "C1", new Date(1000), clientJson("C1", "Old")));
+		store.remove(Client.class, "C2");
+		store.close();
+
+		EntitySnapshotStore reopened = new EntitySnapshotStore(file, 64 * 1024);
+		assertEquals(1, reopened.size());
+		assertEquals("Ann", reopened.get(Client.class, "C1").getFirstName());
+		assertEquals("Ann", reopened.get(Client.class, "8a1").getFirstName());
+		assertEquals(new Date(2000), reopened.getLastModifiedDate(Client.class, "C1"));
+		assertNull(reopened.get(Client.class, "C2"));
+		reopened.close();
+	}
+
+	@Test
+	public void testFullFileIsCompacted() throws IOException {
+		File file = new File(folder.getRoot(), "clients.snapshot");
+		EntitySnapshotStore store = new EntitySnapshotStore(file, 1024);
+		// Each snapshot replaces the previous one: the file fills up and is compacted
+		for (int version = 1; version <= 100; version++) {
+			assertTrue(store.putJson(Client.class, "8a1", "C1", new Date(version), clientJson("C1", "V" + version)));
+		}
+		assertTrue(store.putJson(Client.class, "8a2", "C2", null, clientJson("C2", "Bob")));
+		assertEquals("V100", store.get(Client.class, "C1").getFirstName());
+		store.close();
+
+		EntitySnapshotStore reopened = new EntitySnapshotStore(file, 1024);
+		assertEquals(2, reopened.size());
+		assertEquals("V100", reopened.get(Client.class, "8a1").getFirstName());
+		assertEquals("Bob", reopened.get(Client.class, "C2").getFirstName());
+		assertNull(reopened.getLastModifiedDate(Client.class, "C2"));
+		reopened.close();
+	}
+
+	@Test
+	public void testFileFullOfCurrentSnapshotsIsNotCompacted() throws IOException {
+		File file = new File(folder.getRoot(), "clients.snapshot");
+		EntitySnapshotStore store = new EntitySnapshotStore(file, 1024);
+		int stored = 0;
+		while (store.putJson(Client.class, "8a" + stored, "C" + stored, new Date(1), clientJson("C" + stored, "Ann"))) {
+			stored++;
+		}
+		assertEquals(stored, store.size());
+		assertFalse(new File(folder.getRoot(), "clients.snapshot.compact").exists());
+
+		// The newer snapshot doesn't fit: the outdated one is removed
+		assertFalse(store.putJson(Client.class, "8a0", "C0", new Date(2), clientJson("C0", "Anna")));
+		assertNull(store.get(Client.class, "C0"));
+		assertEquals(stored - 1, store.size());
+
+		// Enough removed snapshots to reclaim an eighth of the file
+		for (int i = 1; i < stored / 2; i++) {
+			store.remove(Client.class, "C" + i);
+		}
+		assertTrue(store.putJson(Client.class, "8a0", "C0", new Date(2), clientJson("C0", "Anna")));
+		assertEquals("Anna", store.get(Client.class, "8a0").getFirstName());
+		assertEquals("Ann", store.get(Client.class, "C" + (stored - 1)).getFirstName());
+		store.close();
+	}
+
+	@Test
+	public void testOutdatedSnapshotIsNotReloaded() throws IOException {
+		File file = new File(folder.getRoot(), "clients.snapshot");
+		EntitySnapshotStore store = new EntitySnapshotStore(file, 1024);
+		int stored = 0;
+		while (store.putJson(Client.class, "8a" + stored, "C" + stored, new Date(1), clientJson("C" + stored, "Ann"))) {
+			stored++;
+		}
+		// The newer snapshot doesn't fit: the outdated one must not come back after a restart
+		assertFalse(store.putJson(Client.class, "8a0", "C0", new Date(2), clientJson("C0", "Anna")));
+		store.close();
+
+		store = new EntitySnapshotStore(file, 1024);
+		assertEquals(stored - 1, store.size());
+		assertNull(store.get(Client.class, "C0"));
+		for (int i = 1; i <= 3; i++) {
+			store.remove(Client.class, "C" + i);
+		}
+		store.close();
+
+		EntitySnapshotStore reopened = new EntitySnapshotStore(file, 1024);
+		assertEquals(stored - 4, reopened.size());
+		for (int i = 0; i <= 3; i++) {
+			assertNull(reopened.get(Client.class, "C" + i));
+		}
+		assertEquals("Ann", reopened.get(Client.class, "C4").getFirstName());
+		reopened.close();
+	}
+
+	@Test
+	public void testInterruptedCompactionIsRestored() throws IOException {
+		File file = new File(folder.getRoot(), "clients.snapshot");
+		EntitySnapshotStore store = new EntitySnapshotStore(file, 1024);
+		assertTrue(store.putJson(Client.class, "8a1", "C1", null, clientJson("C1", "Ann")));
+		store.close();
+		File compacted = folder.newFile("compacted.snapshot");
+		Files.copy(file.toPath(), compacted.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+		store = new EntitySnapshotStore(file, 1024);
+		assertTrue(store.putJson(Client.class, "8a2", "C2", null, clientJson("C2", "Bob")));
+		store.close();
+		// Backup left by a crash during a compaction dropping the second snapshot
+		Files.move(compacted.toPath(), new File(folder.getRoot(), "clients.snapshot.compact").toPath());
+
+		EntitySnapshotStore reopened = new EntitySnapshotStore(file, 1024);
+		assertEquals(1, reopened.size());
+		assertEquals("Ann", reopened.get(Client.class, "C1").getFirstName());
+		assertFalse(new File(folder.getRoot(), "clients.snapshot.compact").exists());
+		reopened.close();
+	}
+}
@@ -0,0 +1,62 @@
+package com.mambu.apisdk.util.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.services.IntelligenceService;
+import com.mambu.intelligence.shared.model.Intelligence.Indicator;
+
+public class IndicatorCacheTest {
+
+	private IndicatorCache cache;
+
+	@After
+	public void tearDown() {
+		if (cache != null) {
+			cache.close();
+		}
+	}
+
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testWarmUpServesFromMemory() throws MambuApiException {
+		IntelligenceService intelligenceService = mock(IntelligenceService.class);
+		EnumMap<Indicator, BigDecimal> values = new EnumMap<Indicator, BigDecimal>(Indicator.class);
+		values.put(Indicator.NUM_CLIENTS, new BigDecimal("12"));
+		values.put(Indicator.GROSS_LOAN_PORTFOLIO, null);
+		when(intelligenceService.getIndicators(Mockito.any(Collection.class), Mockito.eq(4))).thenReturn(values);
+		when(intelligenceService.getIndicator(Indicator.TOTAL_DEPOSITS)).thenReturn(new BigDecimal("100"));
+
+		List<Indicator> dashboard = Arrays.asList(Indicator.NUM_CLIENTS, Indicator.GROSS_LOAN_PORTFOLIO);
+		cache = new IndicatorCache(intelligenceService, 60000, 4);
+		cache.warmUp(dashboard);
+		verify(intelligenceService, times(1)).getIndicators(Mockito.any(Collection.class), Mockito.eq(4));
+
+		// Indicators without a value are cached too
+		for (int i = 0; i < 3; i++) {
+			EnumMap<Indicator, BigDecimal> cached = cache.getIndicators(EnumSet.copyOf(dashboard));
+			assertEquals(new BigDecimal("12"), cached.get(Indicator.NUM_CLIENTS));
+			assertNull(cached.get(Indicator.GROSS_LOAN_PORTFOLIO));
+			assertEquals(new BigDecimal("12"), cache.getIndicator(Indicator.NUM_CLIENTS));
+			assertEquals(new BigDecimal("100"), cache.getIndicator(Indicator.TOTAL_DEPOSITS));
+		}
+		verify(intelligenceService, times(1)).getIndicators(Mockito.any(Collection.class), Mockito.eq(4));
+		verify(intelligenceService, times(1)).getIndicator(Indicator.TOTAL_DEPOSITS);
+	}
+}
@@ -0,0 +1,90 @@
+package com.mambu.apisdk.util.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.mambu.apisdk.MambuAPIServiceTest;
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.services.ClientsService;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.apisdk.util.MambuEntityType;
+import com.mambu.apisdk.util.ParamsMap;
+import com.mambu.apisdk.util.RequestExecutor.ContentType;
+import com.mambu.apisdk.util.RequestExecutor.Method;
+import com.mambu.clients.shared.model.Client;
+import com.mambu.clients.shared.model.ClientExpanded;
+
+public class NotFoundCacheTest extends MambuAPIServiceTest {
+
+	private final static String CLIENT_URL = "https://demo.mambutest.com/api/clients/NEW";
+	private final static String NOT_FOUND = "{\"returnCode\":301,\"returnStatus\":\"INVALID_CLIENT_ID\"}";
+
+	private void assertNotFound(ClientsService clientsService) {
+		try {
+			clientsService.getClient("NEW");
+			fail("Client must not be found");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(404), e.getErrorCode());
+			assertEquals(NOT_FOUND, e.getErrorMessage());
+		}
+	}
+
+	@Test
+	public void testCreatedEntityIsFound() throws MambuApiException {
+		NotFoundCache notFoundCache = new NotFoundCache(60000, 100).addEntityType(MambuEntityType.CLIENT);
+		mambuApiService.setNotFoundCache(notFoundCache);
+		ClientsService clientsService = new ClientsService(mambuApiService);
+
+		when(
+				executor.executeRequest(Mockito.eq(CLIENT_URL), Mockito.any(ParamsMap.class), Mockito.eq(Method.GET),
+						Mockito.eq(ContentType.WWW_FORM))).thenThrow(new MambuApiException(404, NOT_FOUND))
+				.thenReturn("{\"id\":\"NEW\",\"encodedKey\":\"8a9\"}");
+
+		// The second lookup is answered from the cache
+		assertNotFound(clientsService);
+		assertNotFound(clientsService);
+		verify(executor, times(1)).executeRequest(Mockito.eq(CLIENT_URL), Mockito.any(ParamsMap.class),
+				Mockito.eq(Method.GET), Mockito.eq(ContentType.WWW_FORM));
+		assertEquals(1, notFoundCache.getStatistics().hitCount());
+
+		// Creating the client removes the cached result
+		when(
+				executor.executeRequest(Mockito.contains("clients"), Mockito.any(ParamsMap.class),
+						Mockito.eq(Method.POST), Mockito.eq(ContentType.JSON))).thenReturn(
+				"{\"client\":{\"id\":\"NEW\",\"encodedKey\":\"8a9\"}}");
+		clientsService.createClient(GsonUtils.createGson().fromJson("{\"client\":{\"id\":\"NEW\"}}",
+				ClientExpanded.class));
+
+		assertEquals("8a9", clientsService.getClient("NEW").getEncodedKey());
+		verify(executor, times(2)).executeRequest(Mockito.eq(CLIENT_URL), Mockito.any(ParamsMap.class),
+				Mockito.eq(Method.GET), Mockito.eq(ContentType.WWW_FORM));
+	}
+
+	@Test
+	public void testOnlyTheWrittenEntityIsNotCached() {
+		NotFoundCache notFoundCache = new NotFoundCache(60000, 100).addEntityType(MambuEntityType.CLIENT);
+		ApiDefinition getClient = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+		ApiDefinition createClient = new ApiDefinition(ApiType.CREATE_JSON_ENTITY, ClientExpanded.class);
+		long requestGeneration = notFoundCache.getGeneration();
+
+		// Clients A and B are created while they are requested
+		notFoundCache.onRequestExecuted(createClient, null, "{\"client\":{\"id\":\"A\"}}");
+		notFoundCache.onRequestExecuted(createClient, null, "{\"client\":{\"id\":\"B\"}}");
+		notFoundCache.put(getClient, "A", NOT_FOUND, requestGeneration);
+		notFoundCache.put(getClient, "X", NOT_FOUND, requestGeneration);
+		assertNull(notFoundCache.get(getClient, "A"));
+		assertEquals(NOT_FOUND, notFoundCache.get(getClient, "X"));
+
+		notFoundCache.onRequestExecuted(createClient, null, "{\"client\":{\"id\":\"X\"}}");
+		assertNull(notFoundCache.get(getClient, "X"));
+	}
+}
@@ -0,0 +1,111 @@
+package com.mambu.apisdk.util.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.services.LoansService;
+import com.mambu.apisdk.services.SavingsService;
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.loans.shared.model.LoanProduct;
+
+public class ProductCacheTest {
+
+	private LoansService loansService;
+	private SavingsService savingsService;
+	private ProductCache cache;
+
+	@Before
+	public void setUp() {
+		loansService = mock(LoansService.class);
+		savingsService = mock(SavingsService.class);
+		cache = new ProductCache(loansService, savingsService, 60000, 100);
+	}
+
+	private static LoanProduct makeProduct(String id, String encodedKey) {
+		return GsonUtils.createGson().fromJson("{\"id\":\"" + id + "\",\"encodedKey\":\"" + encodedKey + "\"}",
+				LoanProduct.class);
+	}
+
+	@Test
+	public void testConcurrentMissesLoadOnce() throws Exception {
+		final LoanProduct product = makeProduct("LP1", "8a1");
+		when(loansService.getLoanProduct("LP1")).thenAnswer(new Answer<LoanProduct>() {
+			@Override
+			public LoanProduct answer(InvocationOnMock invocation) throws Throwable {
+				Thread.sleep(50);
+				return product;
+			}
+		});
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		List<Future<LoanProduct>> futures = new ArrayList<Future<LoanProduct>>();
+		for (int i = 0; i < 8; i++) {
+			futures.add(pool.submit(new Callable<LoanProduct>() {
+				@Override
+				public LoanProduct call() throws MambuApiException {
+					return cache.getLoanProduct("LP1");
+				}
+			}));
+		}
+		for (Future<LoanProduct> future : futures) {
+			assertSame(product, future.get());
+		}
+		pool.shutdown();
+
+		verify(loansService, times(1)).getLoanProduct("LP1");
+		// The requests waiting for the load are counted as misses
+		assertEquals(1, cache.getStatistics().loadCount());
+		assertEquals(8, cache.getStatistics().requestCount());
+
+		// Invalidated by its encoded key: loaded again
+		cache.invalidate("8a1");
+		cache.getLoanProduct("LP1");
+		verify(loansService, times(2)).getLoanProduct("LP1");
+	}
+
+	@Test
+	public void testAllProductsCacheEachProduct() throws MambuApiException {
+		LoanProduct first = makeProduct("LP1", "8a1");
+		LoanProduct second = makeProduct("LP2", "8a2");
+		when(loansService.getLoanProducts("0", "100")).thenReturn(Arrays.asList(first, second));
+
+		assertEquals(2, cache.getLoanProducts().size());
+		assertEquals(2, cache.getLoanProducts().size());
+		assertSame(second, cache.getLoanProduct("LP2"));
+		assertSame(second, cache.getLoanProduct("8a2"));
+
+		verify(loansService, times(1)).getLoanProducts("0", "100");
+		verify(loansService, times(0)).getLoanProduct("LP2");
+	}
+
+	@Test
+	public void testFailuresNotCached() throws MambuApiException {
+		when(loansService.getLoanProduct("LP1")).thenThrow(new MambuApiException(500, "Server error")).thenReturn(
+				makeProduct("LP1", "8a1"));
+		try {
+			cache.getLoanProduct("LP1");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(500), e.getErrorCode());
+		}
+		assertEquals("LP1", cache.getLoanProduct("LP1").getId());
+		assertEquals(1, cache.getStatistics().loadExceptionCount());
+	}
+}
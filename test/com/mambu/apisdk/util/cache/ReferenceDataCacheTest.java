@@ -0,0 +1,112 @@
+package com.mambu.apisdk.util.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.services.OrganizationService;
+import com.mambu.apisdk.services.UsersService;
+import com.mambu.apisdk.util.GsonUtils;
+import com.mambu.core.shared.model.Currency;
+import com.mambu.core.shared.model.GeneralSettings;
+import com.mambu.organization.shared.model.Branch;
+
+public class ReferenceDataCacheTest {
+
+	private OrganizationService organizationService;
+	private UsersService usersService;
+	private ReferenceDataCache cache;
+
+	@Before
+	public void setUp() {
+		organizationService = mock(OrganizationService.class);
+		usersService = mock(UsersService.class);
+	}
+
+	@After
+	public void tearDown() {
+		if (cache != null) {
+			cache.close();
+		}
+	}
+
+	private static Branch makeBranch(String id, String encodedKey) {
+		return GsonUtils.createGson().fromJson("{\"id\":\"" + id + "\",\"encodedKey\":\"" + encodedKey + "\"}",
+				Branch.class);
+	}
+
+	@Test
+	public void testWarmUpServesFromMemory() throws MambuApiException {
+		Branch branch = makeBranch("B1", "8a1");
+		when(organizationService.getBranches("0", "500")).thenReturn(Arrays.asList(branch));
+		when(organizationService.getBranch("B2")).thenReturn(makeBranch("B2", "8a2"));
+		when(organizationService.getCurrency()).thenReturn(mock(Currency.class));
+
+		cache = new ReferenceDataCache(organizationService, usersService, 60000);
+		cache.warmUp();
+		verify(organizationService, times(1)).getBranches("0", "500");
+		verify(organizationService, times(1)).getCurrency();
+		verify(organizationService, times(1)).getCustomFieldSets(null);
+		verify(usersService, times(1)).getUsers("0", "500");
+		verify(usersService, times(1)).getUserRoles();
+
+		for (int i = 0; i < 3; i++) {
+			assertSame(branch, cache.getBranch("B1"));
+			assertSame(branch, cache.getBranch("8a1"));
+			assertEquals("B2", cache.getBranch("B2").getId());
+			cache.getCurrency();
+			cache.getUsers();
+		}
+		verify(organizationService, times(1)).getBranches("0", "500");
+		verify(organizationService, times(1)).getBranch("B2");
+		verify(organizationService, times(1)).getCurrency();
+		verify(usersService, times(1)).getUsers("0", "500");
+	}
+
+	@Test
+	public void testRefreshAheadDoesNotBlockReaders() throws Exception {
+		final GeneralSettings oldSettings = new GeneralSettings();
+		final GeneralSettings newSettings = new GeneralSettings();
+		final CountDownLatch refreshStarted = new CountDownLatch(1);
+		final CountDownLatch releaseRefresh = new CountDownLatch(1);
+		when(organizationService.getGeneralSettings()).thenReturn(oldSettings).thenAnswer(
+				new Answer<GeneralSettings>() {
+					@Override
+					public GeneralSettings answer(InvocationOnMock invocation) throws Throwable {
+						refreshStarted.countDown();
+						releaseRefresh.await();
+						return newSettings;
+					}
+				});
+
+		cache = new ReferenceDataCache(organizationService, usersService, 20);
+		assertSame(oldSettings, cache.getGeneralSettings());
+		Thread.sleep(50);
+
+		// Stale: the read triggers the refresh and returns the current value while the refresh is running
+		assertSame(oldSettings, cache.getGeneralSettings());
+		assertEquals(true, refreshStarted.await(5, TimeUnit.SECONDS));
+		assertSame(oldSettings, cache.getGeneralSettings());
+
+		releaseRefresh.countDown();
+		long deadline = System.currentTimeMillis() + 5000;
+		while (cache.getGeneralSettings() != newSettings && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertSame(newSettings, cache.getGeneralSettings());
+	}
+}
@@ -0,0 +1,82 @@
+package com.mambu.apisdk.util.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.MambuAPIServiceFactory;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.apisdk.util.MambuEntityType;
+import com.mambu.clients.shared.model.Client;
+
+public class TenantCacheManagerTest {
+
+	private final static ApiDefinition GET_CLIENT = new ApiDefinition(ApiType.GET_ENTITY, Client.class);
+
+	private static String clientJson(String id) {
+		StringBuilder json = new StringBuilder("{\"id\":\"" + id + "\",\"notes\":\"");
+		for (int i = 0; i < 1000; i++) {
+			json.append('x');
+		}
+		return json.append("\"}").toString();
+	}
+
+	private static void put(EntityCache cache, String id) {
+		cache.put(GET_CLIENT, id, "clients/" + id, clientJson(id), cache.getGeneration());
+	}
+
+	@Test
+	public void testTenantsShareBudget() {
+		// Each response weighs a bit over 2KB: the budget holds about 20 of them
+		TenantCacheManager cacheManager = new TenantCacheManager(48 * 1024);
+		String domain = MambuAPIServiceFactory.getFactory("tenant1.mambu.com", "user", "password").getDomain();
+		assertEquals("tenant1.mambu.com", domain);
+		EntityCache tenant1 = cacheManager.newEntityCache(domain, 60000).addEntityType(MambuEntityType.CLIENT);
+		EntityCache tenant2 = cacheManager.newEntityCache("tenant2.mambu.com", 60000).addEntityType(
+				MambuEntityType.CLIENT);
+
+		put(tenant1, "A");
+		put(tenant2, "A");
+		assertEquals(clientJson("A"), tenant1.get("clients/A"));
+		assertNull(tenant1.get("clients/B"));
+		assertEquals(1, cacheManager.getStatistics(domain).hitCount());
+		assertEquals(1, cacheManager.getStatistics(domain).missCount());
+		assertTrue(cacheManager.getWeight(domain) > 2000);
+
+		// The busy tenant takes over the budget, evicting the idle tenant's response
+		for (int i = 0; i < 100; i++) {
+			put(tenant2, "C" + i);
+		}
+		assertTrue(cacheManager.getWeight() <= cacheManager.getMaxWeight());
+		assertEquals(0, tenant1.size());
+		assertEquals(0, cacheManager.getWeight(domain));
+		assertEquals(1, cacheManager.getStatistics(domain).evictionCount());
+		assertTrue(cacheManager.getStatistics("tenant2.mambu.com").evictionCount() > 50);
+
+		// Invalidations only remove the tenant's own responses
+		put(tenant1, "C99");
+		tenant1.invalidate(MambuEntityType.CLIENT, "C99");
+		assertNull(tenant1.get("clients/C99"));
+		assertEquals(clientJson("C99"), tenant2.get("clients/C99"));
+
+		cacheManager.invalidateAll("tenant2.mambu.com");
+		assertEquals(0, cacheManager.getWeight());
+	}
+
+	@Test
+	public void testExpiredEntriesAreMisses() throws InterruptedException {
+		TenantCacheManager cacheManager = new TenantCacheManager(1024 * 1024);
+		NotFoundCache notFoundCache = cacheManager.newNotFoundCache("tenant1.mambu.com", 20).addEntityType(
+				MambuEntityType.CLIENT);
+		notFoundCache.put(GET_CLIENT, "X", "Not found", notFoundCache.getGeneration());
+		assertEquals("Not found", notFoundCache.get(GET_CLIENT, "X"));
+
+		Thread.sleep(50);
+		assertNull(notFoundCache.get(GET_CLIENT, "X"));
+		assertEquals(0, cacheManager.getWeight());
+		assertEquals(1, notFoundCache.getStatistics().evictionCount());
+	}
+}
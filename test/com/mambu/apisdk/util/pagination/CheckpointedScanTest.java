@@ -0,0 +1,139 @@
+package com.mambu.apisdk.util.pagination;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+public class CheckpointedScanTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File checkpointFile;
+	private final List<String> entities = new ArrayList<String>();
+	private final List<String> processed = new ArrayList<String>();
+
+	private final PageFetcher<String> fetcher = new PageFetcher<String>() {
+		@Override
+		public List<String> getPage(int offset, int limit) {
+			return new ArrayList<String>(entities.subList(Math.min(offset, entities.size()),
+					Math.min(offset + limit, entities.size())));
+		}
+	};
+
+	private final EntityKeyExtractor<String> keyExtractor = new EntityKeyExtractor<String>() {
+		@Override
+		public String getKey(String entity) {
+			return entity;
+		}
+	};
+
+	/**
+	 * Handler collecting the entities and failing on the page containing the specified entity
+	 */
+	private PageHandler<String> makeHandler(final String failOn) {
+		return new PageHandler<String>() {
+			@Override
+			public void handlePage(int offset, List<String> page) throws MambuApiException {
+				if (page.contains(failOn)) {
+					throw new MambuApiException(500, "failed");
+				}
+				processed.addAll(page);
+			}
+		};
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		checkpointFile = new File(folder.getRoot(), "scan.checkpoint");
+		for (int i = 0; i < 95; i++) {
+			entities.add("e" + i);
+		}
+	}
+
+	@Test
+	public void testResumeAfterFailure() throws MambuApiException {
+		CheckpointedScan<String> scan = new CheckpointedScan<String>(fetcher, 10, checkpointFile, "filter",
+				keyExtractor);
+		try {
+			scan.scan(makeHandler("e45"));
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(500), e.getErrorCode());
+		}
+		assertEquals(40, processed.size());
+		ScanCheckpoint checkpoint = scan.getCheckpoint();
+		assertEquals(40, checkpoint.getOffset());
+		assertEquals("e39", checkpoint.getLastSeenKey());
+
+		// Resume with a new scan, as a restarted job would
+		checkpoint = new CheckpointedScan<String>(fetcher, 10, checkpointFile, "filter", keyExtractor)
+				.scan(makeHandler(null));
+		assertTrue(checkpoint.isCompleted());
+		assertEquals(95, checkpoint.getProcessedCount());
+		assertEquals(entities, processed);
+
+		// A completed scan is not repeated
+		scan.scan(makeHandler(null));
+		assertEquals(95, processed.size());
+	}
+
+	@Test
+	public void testSaveFailureDoesNotHideScanFailure() {
+		CheckpointedScan<String> scan = new CheckpointedScan<String>(fetcher, 10, new File(checkpointFile,
+				"missing/scan.checkpoint"), "filter", keyExtractor);
+		scan.setCheckpointInterval(5);
+		try {
+			scan.scan(makeHandler("e25"));
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(500), e.getErrorCode());
+			assertEquals(1, e.getSuppressed().length);
+		}
+	}
+
+	@Test
+	public void testResumeAfterInsertions() throws MambuApiException {
+		CheckpointedScan<String> scan = new CheckpointedScan<String>(fetcher, 10, checkpointFile, "filter",
+				keyExtractor);
+		try {
+			scan.scan(makeHandler("e25"));
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			// Expected
+		}
+		List<String> expected = new ArrayList<String>(entities);
+		// Entities inserted before the checkpoint position are not processed, the remaining ones are processed once
+		entities.add(5, "new1");
+		entities.add(6, "new2");
+
+		scan.scan(makeHandler(null));
+		assertEquals(expected, processed);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDifferentScanDefinition() throws MambuApiException {
+		CheckpointedScan<String> scan = new CheckpointedScan<String>(fetcher, 10, checkpointFile, "filter",
+				keyExtractor);
+		scan.setCheckpointInterval(2);
+		try {
+			scan.scan(makeHandler("e55"));
+		} catch (MambuApiException e) {
+			// Expected
+		}
+		new CheckpointedScan<String>(fetcher, 10, checkpointFile, "other filter", keyExtractor)
+				.scan(makeHandler(null));
+	}
+}
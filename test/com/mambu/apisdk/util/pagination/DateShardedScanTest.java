@@ -0,0 +1,101 @@
+package com.mambu.apisdk.util.pagination;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+public class DateShardedScanTest {
+
+	private Calendar firstDay;
+	// Entities are dates: 3 per day for 60 days, and 50 more on day 10
+	private final List<Date> entities = new ArrayList<Date>();
+	private final AtomicInteger maxMultiDayOffset = new AtomicInteger();
+
+	private final DateRangeFetcher<Date> fetcher = new DateRangeFetcher<Date>() {
+		@Override
+		public List<Date> getPage(Date fromDay, Date toDay, int offset, int limit) throws MambuApiException {
+			if (!fromDay.equals(toDay)) {
+				synchronized (maxMultiDayOffset) {
+					maxMultiDayOffset.set(Math.max(maxMultiDayOffset.get(), offset));
+				}
+			}
+			List<Date> window = new ArrayList<Date>();
+			for (Date date : entities) {
+				if (!date.before(fromDay) && !date.after(toDay)) {
+					window.add(date);
+				}
+			}
+			return new ArrayList<Date>(window.subList(Math.min(offset, window.size()),
+					Math.min(offset + limit, window.size())));
+		}
+	};
+
+	private Date day(int index) {
+		Calendar calendar = (Calendar) firstDay.clone();
+		calendar.add(Calendar.DAY_OF_MONTH, index);
+		return calendar.getTime();
+	}
+
+	@Before
+	public void setUp() {
+		firstDay = Calendar.getInstance();
+		firstDay.set(2015, Calendar.MARCH, 1, 0, 0, 0);
+		firstDay.set(Calendar.MILLISECOND, 0);
+		for (int i = 0; i < 60; i++) {
+			for (int j = 0; j < (i == 10 ? 53 : 3); j++) {
+				entities.add(day(i));
+			}
+		}
+	}
+
+	@Test
+	public void testAllEntitiesInOrder() throws MambuApiException {
+		DateShardedScan<Date> scan = new DateShardedScan<Date>(fetcher, 10, 4);
+		scan.setMaxWindowEntities(40);
+
+		List<Date> all = scan.getAll(day(0), day(59), 3);
+		assertEquals(entities, all);
+		// Hot windows are split before paging through them
+		assertTrue(maxMultiDayOffset.get() <= 40);
+	}
+
+	@Test
+	public void testPartialRangeAndMoreShardsThanDays() throws MambuApiException {
+		List<Date> all = new DateShardedScan<Date>(fetcher, 5, 2).getAll(day(8), day(11), 10);
+		assertEquals(3 + 3 + 53 + 3, all.size());
+		List<Date> sorted = new ArrayList<Date>(all);
+		Collections.sort(sorted);
+		assertEquals(sorted, all);
+	}
+
+	@Test
+	public void testFailedWindow() {
+		DateRangeFetcher<Date> failing = new DateRangeFetcher<Date>() {
+			@Override
+			public List<Date> getPage(Date fromDay, Date toDay, int offset, int limit) throws MambuApiException {
+				if (!fromDay.before(day(30))) {
+					throw new MambuApiException(500, "failed");
+				}
+				return fetcher.getPage(fromDay, toDay, offset, limit);
+			}
+		};
+		try {
+			new DateShardedScan<Date>(failing, 10, 2).getAll(day(0), day(59), 4);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(500), e.getErrorCode());
+		}
+	}
+}
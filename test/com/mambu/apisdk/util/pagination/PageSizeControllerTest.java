@@ -0,0 +1,91 @@
+package com.mambu.apisdk.util.pagination;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.APIData;
+import com.mambu.apisdk.util.ApiDefinition;
+import com.mambu.apisdk.util.ApiDefinition.ApiType;
+import com.mambu.loans.shared.model.LoanAccount;
+
+public class PageSizeControllerTest {
+
+	private final static String API_KEY = new ApiDefinition(ApiType.GET_LIST, LoanAccount.class).getKey();
+
+	/**
+	 * Simulated response time: 10 milliseconds per request and 0.1 millisecond per entity
+	 */
+	private static long responseMillis(int entities) {
+		return 10 + entities / 10;
+	}
+
+	@Test
+	public void testApiKey() {
+		assertEquals(API_KEY, new ApiDefinition(ApiType.GET_LIST, LoanAccount.class).getKey());
+		assertTrue(!API_KEY.equals(new ApiDefinition(ApiType.GET_ENTITY, LoanAccount.class).getKey()));
+	}
+
+	@Test
+	public void testConvergesToTargetResponseTime() {
+		PageSizeController controller = new PageSizeController(60);
+		assertEquals(100, controller.getPageSize(API_KEY));
+
+		int pageSize = 0;
+		for (int i = 0; i < 30; i++) {
+			pageSize = controller.getPageSize(API_KEY);
+			controller.recordResponse(API_KEY, responseMillis(pageSize), pageSize * 200, pageSize);
+		}
+		// 500 entities are returned in 60 milliseconds
+		assertTrue("Page size " + pageSize, pageSize >= 450 && pageSize <= 550);
+	}
+
+	@Test
+	public void testMaxResponseLengthAndMaxPageSize() {
+		PageSizeController controller = new PageSizeController(100000);
+		for (int i = 0; i < 20; i++) {
+			int pageSize = controller.getPageSize(API_KEY);
+			controller.recordResponse(API_KEY, responseMillis(pageSize), pageSize * 200, pageSize);
+		}
+		assertEquals(APIData.MAX_PAGE_SIZE, controller.getPageSize(API_KEY));
+
+		controller.setMaxResponseLength(50000);
+		// 250 entities of 200 characters, rounded down
+		int pageSize = controller.getPageSize(API_KEY);
+		assertTrue("Page size " + pageSize, pageSize >= 249 && pageSize <= 250);
+	}
+
+	@Test
+	public void testPaginatorWithController() throws MambuApiException {
+		final PageSizeController controller = new PageSizeController(60, 50, 1, APIData.MAX_PAGE_SIZE);
+		final List<Integer> limits = new ArrayList<Integer>();
+		PageFetcher<Integer> fetcher = new PageFetcher<Integer>() {
+			@Override
+			public List<Integer> getPage(int offset, int limit) {
+				limits.add(limit);
+				List<Integer> page = new ArrayList<Integer>();
+				for (int i = offset; i < Math.min(5000, offset + limit); i++) {
+					page.add(i);
+				}
+				controller.recordResponse(API_KEY, responseMillis(page.size()), page.size() * 200, page.size());
+				return page;
+			}
+		};
+		Paginator<Integer> paginator = new Paginator<Integer>(fetcher, 50);
+		paginator.setPageSizeController(controller, API_KEY);
+
+		List<Integer> all = paginator.getAll();
+		assertEquals(5000, all.size());
+		for (int i = 0; i < all.size(); i++) {
+			assertEquals(Integer.valueOf(i), all.get(i));
+		}
+		// The page size grows from the initial one
+		assertEquals(Integer.valueOf(50), limits.get(0));
+		assertTrue(limits.get(limits.size() - 1) > 200);
+	}
+}
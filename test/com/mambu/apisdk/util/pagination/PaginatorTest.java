@@ -0,0 +1,115 @@
+package com.mambu.apisdk.util.pagination;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+
+public class PaginatorTest {
+
+	/**
+	 * Page fetcher over a list of integers counting the requested pages
+	 */
+	private static class CountingPageFetcher implements PageFetcher<Integer> {
+		private final int total;
+		private final int failAtOffset;
+		private final AtomicInteger requests = new AtomicInteger();
+
+		private CountingPageFetcher(int total, int failAtOffset) {
+			this.total = total;
+			this.failAtOffset = failAtOffset;
+		}
+
+		@Override
+		public List<Integer> getPage(int offset, int limit) throws MambuApiException {
+			requests.incrementAndGet();
+			if (offset == failAtOffset) {
+				throw new MambuApiException(500, "failed");
+			}
+			List<Integer> page = new ArrayList<Integer>();
+			for (int i = offset; i < Math.min(total, offset + limit); i++) {
+				page.add(i);
+			}
+			return page;
+		}
+	}
+
+	@Test
+	public void testOnDemand() throws MambuApiException {
+		CountingPageFetcher fetcher = new CountingPageFetcher(30, -1);
+		List<Integer> all = new Paginator<Integer>(fetcher, 10).getAll();
+
+		assertEquals(30, all.size());
+		// Three full pages and one empty page
+		assertEquals(4, fetcher.requests.get());
+	}
+
+	@Test
+	public void testReadAhead() throws MambuApiException {
+		CountingPageFetcher fetcher = new CountingPageFetcher(95, -1);
+		Paginator<Integer> paginator = new Paginator<Integer>(fetcher, 10);
+		paginator.setReadAheadPages(2);
+
+		List<Integer> all = paginator.getAll();
+		assertEquals(95, all.size());
+		for (int i = 0; i < all.size(); i++) {
+			assertEquals(Integer.valueOf(i), all.get(i));
+		}
+		// No requests after the short page
+		assertEquals(10, fetcher.requests.get());
+	}
+
+	@Test
+	public void testReadAheadIsBounded() throws Exception {
+		CountingPageFetcher fetcher = new CountingPageFetcher(1000, -1);
+		Paginator<Integer> paginator = new Paginator<Integer>(fetcher, 10);
+		paginator.setReadAheadPages(2);
+
+		PageIterator<Integer> iterator = paginator.iterator(0);
+		assertTrue(iterator.hasNextPage());
+		iterator.nextPage();
+		// Give the background thread time to fill the buffer
+		Thread.sleep(100);
+		// One page consumed, two buffered and one waiting to be buffered
+		assertTrue(fetcher.requests.get() <= 4);
+		iterator.close();
+		assertFalse(iterator.hasNextPage());
+	}
+
+	@Test
+	public void testReadAheadFailure() {
+		Paginator<Integer> paginator = new Paginator<Integer>(new CountingPageFetcher(100, 20), 10);
+		paginator.setReadAheadPages(1);
+		try {
+			paginator.getAll();
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(500), e.getErrorCode());
+		}
+	}
+
+	@Test(timeout = 5000)
+	public void testReadAheadError() throws MambuApiException {
+		Paginator<Integer> paginator = new Paginator<Integer>(new PageFetcher<Integer>() {
+			@Override
+			public List<Integer> getPage(int offset, int limit) {
+				throw new Error("Page fetcher error");
+			}
+		}, 10);
+		paginator.setReadAheadPages(1);
+		try {
+			paginator.getAll();
+			fail("Error expected");
+		} catch (Error e) {
+			assertEquals("Page fetcher error", e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.mambu.apisdk.util.pagination;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.mambu.apisdk.exception.MambuApiException;
+import com.mambu.apisdk.util.pagination.ParallelPaginator.DeliveryOrder;
+
+public class ParallelPaginatorTest {
+
+	/**
+	 * Page fetcher over a list of integers, answering pages with a delay decreasing with the offset so that pages
+	 * complete out of order
+	 */
+	private static class ListPageFetcher implements PageFetcher<Integer> {
+		private final int total;
+		private final AtomicInteger requests = new AtomicInteger();
+		private final int failAtOffset;
+
+		private ListPageFetcher(int total, int failAtOffset) {
+			this.total = total;
+			this.failAtOffset = failAtOffset;
+		}
+
+		@Override
+		public List<Integer> getPage(int offset, int limit) throws MambuApiException {
+			requests.incrementAndGet();
+			if (offset == failAtOffset) {
+				throw new MambuApiException(500, "failed");
+			}
+			try {
+				Thread.sleep(Math.max(0, 20 - offset % 20));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			List<Integer> page = new ArrayList<Integer>();
+			for (int i = offset; i < Math.min(total, offset + limit); i++) {
+				page.add(i);
+			}
+			return page;
+		}
+	}
+
+	@Test
+	public void testOrderedDelivery() throws MambuApiException {
+		ListPageFetcher fetcher = new ListPageFetcher(95, -1);
+		List<Integer> all = new ParallelPaginator<Integer>(fetcher, 10, 4).getAll(DeliveryOrder.ORDERED);
+
+		assertEquals(95, all.size());
+		for (int i = 0; i < all.size(); i++) {
+			assertEquals(Integer.valueOf(i), all.get(i));
+		}
+		// 10 pages are needed, at most 'concurrency - 1' speculative requests are issued past the last page
+		assertTrue(fetcher.requests.get() >= 10 && fetcher.requests.get() <= 13);
+	}
+
+	@Test
+	public void testOrderedDeliveryBuffersAtMostConcurrencyPages() throws MambuApiException {
+		final AtomicInteger requests = new AtomicInteger();
+		PageFetcher<Integer> fetcher = new PageFetcher<Integer>() {
+			@Override
+			public List<Integer> getPage(int offset, int limit) {
+				requests.incrementAndGet();
+				if (offset == 0) {
+					// The first page is slow: the following pages are received long before it
+					try {
+						Thread.sleep(300);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				return Collections.nCopies((offset < 1000) ? limit : 0, offset);
+			}
+		};
+		final List<Integer> requestsAtFirstPage = new ArrayList<Integer>();
+		new ParallelPaginator<Integer>(fetcher, 10, 3).paginate(0, DeliveryOrder.ORDERED, new PageHandler<Integer>() {
+			@Override
+			public void handlePage(int offset, List<Integer> page) {
+				if (offset == 0) {
+					requestsAtFirstPage.add(requests.get());
+				}
+			}
+		});
+		assertEquals(Integer.valueOf(3), requestsAtFirstPage.get(0));
+	}
+
+	@Test
+	public void testUnorderedDelivery() throws MambuApiException {
+		List<Integer> all = new ParallelPaginator<Integer>(new ListPageFetcher(100, -1), 10, 3)
+				.getAll(DeliveryOrder.UNORDERED);
+
+		// 100 entities followed by an empty page
+		assertEquals(100, all.size());
+		Collections.sort(all);
+		for (int i = 0; i < all.size(); i++) {
+			assertEquals(Integer.valueOf(i), all.get(i));
+		}
+	}
+
+	@Test
+	public void testStartOffset() throws MambuApiException {
+		final List<Integer> offsets = new ArrayList<Integer>();
+		new ParallelPaginator<Integer>(new ListPageFetcher(50, -1), 20, 2).paginate(15, DeliveryOrder.ORDERED,
+				new PageHandler<Integer>() {
+					@Override
+					public void handlePage(int offset, List<Integer> page) {
+						offsets.add(offset);
+					}
+				});
+		assertEquals(2, offsets.size());
+		assertEquals(Integer.valueOf(15), offsets.get(0));
+		assertEquals(Integer.valueOf(35), offsets.get(1));
+	}
+
+	@Test
+	public void testFailedRequestPastTheLastPageIsIgnored() throws MambuApiException {
+		PageFetcher<Integer> fetcher = new PageFetcher<Integer>() {
+			@Override
+			public List<Integer> getPage(int offset, int limit) throws MambuApiException {
+				if (offset > 20) {
+					// Fails before the last page (offset 20) is received
+					throw new MambuApiException(400, "Invalid offset");
+				}
+				if (offset == 20) {
+					try {
+						Thread.sleep(100);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return Collections.nCopies(5, offset);
+				}
+				return Collections.nCopies(limit, offset);
+			}
+		};
+		List<Integer> all = new ParallelPaginator<Integer>(fetcher, 10, 4).getAll(DeliveryOrder.ORDERED);
+
+		assertEquals(25, all.size());
+	}
+
+	@Test
+	public void testFailedPage() {
+		try {
+			new ParallelPaginator<Integer>(new ListPageFetcher(100, 30), 10, 4).getAll(DeliveryOrder.ORDERED);
+			fail("Exception expected");
+		} catch (MambuApiException e) {
+			assertEquals(Integer.valueOf(500), e.getErrorCode());
+		}
+	}
+}